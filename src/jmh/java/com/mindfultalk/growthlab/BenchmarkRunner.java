@@ -0,0 +1,140 @@
+package com.mindfultalk.growthlab;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.*;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.*;
+
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Runs the JMH benchmarks and compares them with earlier runs.
+ *
+ * Each run is kept as {@code jmh-<timestamp>.json} in the results directory. Afterwards every
+ * benchmark is compared with its latest earlier result, so a run of only some benchmarks is still
+ * compared with the right baseline. A change counts as a regression when the score got worse by
+ * more than the threshold and by more than the two error margins together.
+ *
+ * Arguments: benchmark regex, results directory, regression threshold as a fraction. With
+ * {@code -Djmh.failOnRegression=true} the run exits with status 1 on a regression.
+ */
+public class BenchmarkRunner {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String RESULT_PREFIX = "jmh-";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : ".*";
+        Path resultsDir = Paths.get(args.length > 1 ? args[1] : "benchmarks/results");
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+
+        Files.createDirectories(resultsDir);
+        List<Path> previousResults = resultFiles(resultsDir);
+        Path result = resultsDir.resolve(RESULT_PREFIX + TIMESTAMP.format(LocalDateTime.now()) + ".json");
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build();
+        new Runner(options).run();
+
+        int regressions = compare(previousResults, result, threshold);
+        if (regressions > 0 && Boolean.getBoolean("jmh.failOnRegression")) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Earlier result files, newest first; the timestamp in the name sorts by time
+     */
+    private static List<Path> resultFiles(Path resultsDir) throws IOException {
+        try (Stream<Path> files = Files.list(resultsDir)) {
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith(RESULT_PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .sorted(Comparator.comparing(Path::getFileName).reversed())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static int compare(List<Path> previousResults, Path result, double threshold) throws IOException {
+        Map<String, JsonNode> current = readScores(result);
+        Map<String, JsonNode> baseline = new HashMap<>();
+        for (Path previous : previousResults) {
+            readScores(previous).forEach(baseline::putIfAbsent);
+        }
+
+        System.out.println();
+        System.out.println("Results stored in " + result);
+        if (baseline.isEmpty()) {
+            System.out.println("No earlier results to compare with");
+            return 0;
+        }
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Before", "Now", "Change");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode now = entry.getValue();
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entry.getKey(), "-", score(now), "new");
+                continue;
+            }
+            double change = (score(now) - score(before)) / score(before);
+            // Throughput is better when higher, the time modes when lower
+            double worse = "thrpt".equals(now.path("mode").asText()) ? -change : change;
+            boolean beyondError = Math.abs(score(now) - score(before)) > error(now) + error(before);
+            boolean regression = worse > threshold && beyondError;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), score(before), score(now),
+                    change * 100, regression ? "  REGRESSION" : "");
+        }
+        System.out.println(regressions == 0 ? "No regressions" : regressions + " regression(s)");
+        return regressions;
+    }
+
+    /**
+     * Primary metric of every benchmark in a result file, by benchmark name, parameters and mode
+     */
+    private static Map<String, JsonNode> readScores(Path file) throws IOException {
+        Map<String, JsonNode> scores = new TreeMap<>();
+        for (JsonNode run : objectMapper.readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            JsonNode params = run.path("params");
+            List<String> names = new ArrayList<>();
+            params.fieldNames().forEachRemaining(names::add);
+            Collections.sort(names);
+            for (String name : names) {
+                key.append(' ').append(name).append('=').append(params.path(name).asText());
+            }
+            key.append(" (").append(run.path("mode").asText()).append(", ")
+                    .append(run.path("primaryMetric").path("scoreUnit").asText()).append(')');
+            ObjectNode metric = run.path("primaryMetric").deepCopy();
+            metric.put("mode", run.path("mode").asText());
+            scores.put(key.toString(), metric);
+        }
+        return scores;
+    }
+
+    private static double score(JsonNode metric) {
+        return metric.path("score").asDouble();
+    }
+
+    private static double error(JsonNode metric) {
+        // JMH writes "NaN" when a run has too few iterations for an error estimate
+        double error = metric.path("scoreError").asDouble(0);
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
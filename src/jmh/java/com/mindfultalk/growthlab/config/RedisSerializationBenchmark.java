@@ -0,0 +1,73 @@
+package com.mindfultalk.growthlab.config;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import com.mindfultalk.growthlab.dto.ProgramReportDTO;
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.service.ReportFixture;
+
+/**
+ * Redis values written and read through the serializer built on
+ * {@link RedisConfig#redisObjectMapper}: a program report as kept in the report caches and a
+ * user as kept by the session filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializationBenchmark {
+
+    private GenericJackson2JsonRedisSerializer serializer;
+    private ProgramReportDTO report;
+    private User user;
+    private byte[] reportBytes;
+    private byte[] userBytes;
+
+    @Setup
+    public void createValues() {
+        serializer = new GenericJackson2JsonRedisSerializer(new RedisConfig().redisObjectMapper());
+        report = new ReportFixture(6, 6, 12).buildReport();
+
+        Organization organization = new Organization();
+        organization.setOrganizationId("ORG1");
+        organization.setOrganizationName("Org One");
+        organization.setOrganizationAdminEmail("admin@org.test");
+        organization.setCreatedAt(OffsetDateTime.now());
+        user = new User();
+        user.setUserId("U1");
+        user.setUserName("Learner One");
+        user.setUserEmail("learner@org.test");
+        user.setUserType("learner");
+        user.setStatus("ACTIVE");
+        user.setOrganization(organization);
+
+        reportBytes = serializer.serialize(report);
+        userBytes = serializer.serialize(user);
+    }
+
+    @Benchmark
+    public byte[] serializeReport() {
+        return serializer.serialize(report);
+    }
+
+    @Benchmark
+    public Object deserializeReport() {
+        return serializer.deserialize(reportBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() {
+        return serializer.serialize(user);
+    }
+
+    @Benchmark
+    public Object deserializeUser() {
+        return serializer.deserialize(userBytes);
+    }
+}
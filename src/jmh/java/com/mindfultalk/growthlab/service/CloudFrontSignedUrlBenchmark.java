@@ -0,0 +1,62 @@
+package com.mindfultalk.growthlab.service;
+
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mindfultalk.growthlab.config.CloudFrontConfig;
+
+/**
+ * {@link CloudFrontSignedUrlService#generateSignedUrl}: a path already signed in the current
+ * window, a path signed for the first time, which pays for the RSA signature, and the batch used
+ * for the links of a unit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CloudFrontSignedUrlBenchmark {
+
+    private CloudFrontSignedUrlService cloudFrontSignedUrlService;
+    private List<String> unitPaths;
+    private long pathCounter;
+
+    @Setup
+    public void createService() throws Exception {
+        CloudFrontConfig config = new CloudFrontConfig(null);
+        ReflectionTestUtils.setField(config, "domain", "https://d111111abcdef8.cloudfront.net");
+        ReflectionTestUtils.setField(config, "keyPairId", "K2JCJMDEHXQW5F");
+        ReflectionTestUtils.setField(config, "expirationSeconds", 3600L);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        PrivateKey privateKey = generator.generateKeyPair().getPrivate();
+        cloudFrontSignedUrlService = new CloudFrontSignedUrlService(config, privateKey, 300, 20000);
+
+        unitPaths = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            unitPaths.add("/program/P1/unit/U1/subconcept-" + i + "/index.html");
+        }
+        cloudFrontSignedUrlService.generateSignedUrls(unitPaths);
+    }
+
+    @Benchmark
+    public String cachedPath() {
+        return cloudFrontSignedUrlService.generateSignedUrl(unitPaths.get(0));
+    }
+
+    @Benchmark
+    public String newPath() {
+        return cloudFrontSignedUrlService.generateSignedUrl("/media/video-" + (pathCounter++) + ".mp4");
+    }
+
+    @Benchmark
+    public Map<String, String> cachedUnitBatch() {
+        return cloudFrontSignedUrlService.generateSignedUrls(unitPaths);
+    }
+}
@@ -0,0 +1,87 @@
+package com.mindfultalk.growthlab.service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.csv.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.opencsv.CSVReader;
+
+/**
+ * Parsing of bulk upload files the way each uploader reads them: opencsv as used for users,
+ * programs, subconcepts and cohort mappings, commons-csv with a header as used for program
+ * concept mappings, StageServiceImpl.parseCsvLine for stages and a plain split for units.
+ * Only the parsing is measured, not the rows' validation or saving.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvParsingBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int rows;
+
+    private final StageServiceImpl stageService = new StageServiceImpl();
+    private byte[] csv;
+
+    @Setup
+    public void createFile() {
+        StringBuilder builder = new StringBuilder("userId,userName,userEmail,userPhoneNumber,userAddress,userType,cohortId\n");
+        for (int i = 0; i < rows; i++) {
+            builder.append("U").append(i).append(",Learner ").append(i).append(",learner").append(i)
+                .append("@org.test,98765").append(String.format("%05d", i))
+                .append(",\"Flat ").append(i % 50).append(", Main Road\",learner,COH").append(i % 4).append('\n');
+        }
+        csv = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void opencsv(Blackhole blackhole) throws Exception {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(new ByteArrayInputStream(csv)))) {
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                blackhole.consume(line);
+            }
+        }
+    }
+
+    @Benchmark
+    public void commonsCsvWithHeader(Blackhole blackhole) throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(csv));
+             CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT.builder()
+                 .setHeader()
+                 .setSkipHeaderRecord(true)
+                 .build())) {
+            for (CSVRecord record : parser) {
+                blackhole.consume(record.get("userId"));
+                blackhole.consume(record.get("cohortId"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void stageLineParser(Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(csv)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                blackhole.consume(stageService.parseCsvLine(line));
+            }
+        }
+    }
+
+    @Benchmark
+    public void unitSplit(Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(csv)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                blackhole.consume(line.split(","));
+            }
+        }
+    }
+}
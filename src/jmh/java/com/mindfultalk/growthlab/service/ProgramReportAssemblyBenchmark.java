@@ -0,0 +1,38 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.mindfultalk.growthlab.dto.ProgramReportDTO;
+
+/**
+ * Assembly of a program report from the curriculum graph and a learner's completions and
+ * attempts, the work behind ProgramReportServiceImpl.generateProgramReport once its queries have
+ * returned. Program sizes run from a short course to the largest programs in use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgramReportAssemblyBenchmark {
+
+    // stages x units per stage x subconcepts per unit
+    @Param({"2x3x8", "6x6x12", "12x8x20"})
+    private String programSize;
+
+    private ReportFixture fixture;
+
+    @Setup
+    public void createProgram() {
+        String[] size = programSize.split("x");
+        fixture = new ReportFixture(Integer.parseInt(size[0]), Integer.parseInt(size[1]), Integer.parseInt(size[2]));
+    }
+
+    @Benchmark
+    public ProgramReportDTO buildProgramReport() {
+        return fixture.buildReport();
+    }
+}
@@ -0,0 +1,198 @@
+package com.mindfultalk.growthlab.service;
+
+import java.lang.reflect.Proxy;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mindfultalk.growthlab.dto.ProgramReportDTO;
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.*;
+
+/**
+ * A {@link ProgramReportEngine} over an in-memory program and the state of one learner, so
+ * benchmarks measure report assembly without a database. The learner has completed the first
+ * half of the program and made two attempts at every subconcept of it.
+ */
+public final class ReportFixture {
+
+    public static final String USER_ID = "U1";
+    public static final String PROGRAM_ID = "P1";
+
+    private final ProgramReportEngine programReportEngine = new ProgramReportEngine();
+
+    public ReportFixture(int stageCount, int unitsPerStage, int subconceptsPerUnit) {
+        Program program = new Program();
+        program.setProgramId(PROGRAM_ID);
+        program.setProgramName("Program " + PROGRAM_ID);
+        program.setProgramDesc("Benchmark program");
+
+        String[] showTo = {"learner", "mentor", "learner,mentor", "Mentor,Learner"};
+        OffsetDateTime base = OffsetDateTime.now().minusDays(30);
+        List<Stage> stages = new ArrayList<>();
+        List<Unit> units = new ArrayList<>();
+        List<ProgramConceptsMapping> mappings = new ArrayList<>();
+        List<SubconceptCompletionProjection> completions = new ArrayList<>();
+        List<AttemptSummaryProjection> attempts = new ArrayList<>();
+        int total = stageCount * unitsPerStage * subconceptsPerUnit;
+        long attemptId = 0;
+
+        for (int s = 0; s < stageCount; s++) {
+            Stage stage = new Stage();
+            stage.setStageId(PROGRAM_ID + "-S" + s);
+            stage.setStageName("Stage " + s);
+            stage.setProgram(program);
+            stages.add(stage);
+
+            for (int u = 0; u < unitsPerStage; u++) {
+                Unit unit = new Unit();
+                unit.setUnitId(stage.getStageId() + "-U" + u);
+                unit.setUnitName("Unit " + u);
+                unit.setProgram(program);
+                unit.setStage(stage);
+                units.add(unit);
+
+                for (int c = 0; c < subconceptsPerUnit; c++) {
+                    Subconcept subconcept = new Subconcept();
+                    subconcept.setSubconceptId(unit.getUnitId() + "-SC" + c);
+                    subconcept.setSubconceptDesc("Subconcept " + c);
+                    subconcept.setSubconceptType(c == subconceptsPerUnit - 1 ? "assignment" : "video");
+                    subconcept.setSubconceptDuration(60);
+                    subconcept.setSubconceptMaxscore(10);
+                    subconcept.setShowTo(showTo[c % showTo.length]);
+
+                    ProgramConceptsMapping mapping = new ProgramConceptsMapping();
+                    mapping.setProgramConceptDesc("Mapping " + c);
+                    mapping.setPosition(c);
+                    mapping.setProgram(program);
+                    mapping.setStage(stage);
+                    mapping.setUnit(unit);
+                    mapping.setSubconcept(subconcept);
+                    mappings.add(mapping);
+
+                    if (mappings.size() <= total / 2) {
+                        completions.add(new Completion(unit.getUnitId(), subconcept.getSubconceptId()));
+                        for (int a = 0; a < 2; a++) {
+                            OffsetDateTime start = base.plusMinutes(attemptId * 7);
+                            attempts.add(new Attempt(++attemptId, subconcept.getSubconceptId(), PROGRAM_ID,
+                                    start, start.plusMinutes(5), (int) (attemptId % 11), a == 1));
+                        }
+                    }
+                }
+            }
+        }
+
+        CurriculumGraph graph = CurriculumGraph.build(1, program, stages, units, mappings);
+        ReflectionTestUtils.setField(programReportEngine, "curriculumGraphService", new CurriculumGraphService() {
+            @Override
+            public Optional<CurriculumGraph> findGraph(String programId) {
+                return PROGRAM_ID.equals(programId) ? Optional.of(graph) : Optional.empty();
+            }
+        });
+        ReflectionTestUtils.setField(programReportEngine, "userTypeResolver", new UserTypeResolver() {
+            @Override
+            public Optional<String> getUserType(String userId) {
+                return Optional.of("learner");
+            }
+        });
+        ReflectionTestUtils.setField(programReportEngine, "userSubConceptRepository",
+                repository(UserSubConceptRepository.class, "findCompletionsByUserIdAndProgramId", completions));
+        ReflectionTestUtils.setField(programReportEngine, "userAttemptsRepository",
+                repository(UserAttemptsRepository.class, "findAttemptSummariesForProgramReport", attempts));
+    }
+
+    public ProgramReportDTO buildReport() {
+        return programReportEngine.buildProgramReport(USER_ID, PROGRAM_ID);
+    }
+
+    /**
+     * A repository that answers one query with fixed rows and fails on anything else
+     */
+    private static <T> T repository(Class<T> type, String query, List<?> rows) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getName().equals(query)) {
+                return rows;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+
+    private static final class Completion implements SubconceptCompletionProjection {
+
+        private final String unitId;
+        private final String subconceptId;
+
+        Completion(String unitId, String subconceptId) {
+            this.unitId = unitId;
+            this.subconceptId = subconceptId;
+        }
+
+        @Override
+        public String getUnitId() {
+            return unitId;
+        }
+
+        @Override
+        public String getSubconceptId() {
+            return subconceptId;
+        }
+    }
+
+    private static final class Attempt implements AttemptSummaryProjection {
+
+        private final Long attemptId;
+        private final String subconceptId;
+        private final String programId;
+        private final OffsetDateTime startTimestamp;
+        private final OffsetDateTime endTimestamp;
+        private final Integer score;
+        private final Boolean successful;
+
+        Attempt(Long attemptId, String subconceptId, String programId, OffsetDateTime startTimestamp,
+                OffsetDateTime endTimestamp, Integer score, Boolean successful) {
+            this.attemptId = attemptId;
+            this.subconceptId = subconceptId;
+            this.programId = programId;
+            this.startTimestamp = startTimestamp;
+            this.endTimestamp = endTimestamp;
+            this.score = score;
+            this.successful = successful;
+        }
+
+        @Override
+        public Long getAttemptId() {
+            return attemptId;
+        }
+
+        @Override
+        public String getSubconceptId() {
+            return subconceptId;
+        }
+
+        @Override
+        public String getProgramId() {
+            return programId;
+        }
+
+        @Override
+        public OffsetDateTime getStartTimestamp() {
+            return startTimestamp;
+        }
+
+        @Override
+        public OffsetDateTime getEndTimestamp() {
+            return endTimestamp;
+        }
+
+        @Override
+        public Integer getScore() {
+            return score;
+        }
+
+        @Override
+        public Boolean getSuccessful() {
+            return successful;
+        }
+    }
+}
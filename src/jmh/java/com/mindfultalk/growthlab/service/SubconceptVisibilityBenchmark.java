@@ -0,0 +1,65 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.mindfultalk.growthlab.model.Subconcept;
+
+/**
+ * The showTo visibility check: ProgramConceptsMappingServiceImpl.isSubconceptVisibleToUser, which
+ * splits showTo into a set on every call, next to the rules the curriculum graph and report
+ * engine evaluate on raw showTo values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubconceptVisibilityBenchmark {
+
+    private static final String[] SHOW_TO = {"learner", "mentor", "learner,mentor", "Mentor, Learner", "public"};
+    private static final String[] USER_TYPES = {"learner", "Mentor"};
+
+    private final ProgramConceptsMappingServiceImpl programConceptsMappingService = new ProgramConceptsMappingServiceImpl();
+    private Subconcept[] subconcepts;
+
+    @Setup
+    public void createSubconcepts() {
+        subconcepts = new Subconcept[SHOW_TO.length];
+        for (int i = 0; i < SHOW_TO.length; i++) {
+            subconcepts[i] = new Subconcept();
+            subconcepts[i].setSubconceptId("SC" + i);
+            subconcepts[i].setShowTo(SHOW_TO[i]);
+        }
+    }
+
+    @Benchmark
+    public void serviceVisibility(Blackhole blackhole) {
+        for (String userType : USER_TYPES) {
+            for (Subconcept subconcept : subconcepts) {
+                blackhole.consume(programConceptsMappingService.isSubconceptVisibleToUser(userType, subconcept));
+            }
+        }
+    }
+
+    @Benchmark
+    public void graphListing(Blackhole blackhole) {
+        for (String userType : USER_TYPES) {
+            for (String showTo : SHOW_TO) {
+                blackhole.consume(CurriculumGraph.isShowToListedFor(userType, showTo));
+            }
+        }
+    }
+
+    @Benchmark
+    public void reportVisibility(Blackhole blackhole) {
+        for (String userType : USER_TYPES) {
+            for (String showTo : SHOW_TO) {
+                blackhole.consume(ProgramReportEngine.isShowToVisibleToUser(userType, showTo));
+            }
+        }
+    }
+}
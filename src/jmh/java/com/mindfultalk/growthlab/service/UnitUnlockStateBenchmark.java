@@ -0,0 +1,106 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Unlock state of a unit of 10 to 500 subconcepts, about one in six an assignment, for a user
+ * partway through it: {@link UnitUnlockState} against the walk it replaced, which scanned back
+ * over the segment of every unfinished assignment and counted completions in separate passes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnitUnlockStateBenchmark {
+
+    @Param({"10", "50", "100", "250", "500"})
+    private int size;
+
+    private boolean[] assignment;
+    private boolean[] completed;
+
+    @Setup
+    public void createUnit() {
+        Random random = new Random(7);
+        assignment = new boolean[size];
+        completed = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            assignment[i] = random.nextInt(6) == 0;
+            // Done with the first half, except for some assignments left for later
+            completed[i] = i < size / 2 && !(assignment[i] && random.nextBoolean());
+        }
+    }
+
+    @Benchmark
+    public UnitUnlockState unlockState() {
+        return UnitUnlockState.calculate(assignment, completed);
+    }
+
+    @Benchmark
+    public void previousWalk(Blackhole blackhole) {
+        String[] statuses = new String[size];
+        boolean hasPendingAssignments = false;
+        boolean enableNextSubconcept = true;
+        int lastCompletedNormalIndex = -1;
+        for (int i = 0; i < size; i++) {
+            if (completed[i] && !assignment[i]) {
+                lastCompletedNormalIndex = i;
+            }
+        }
+        for (int currentIndex = 0; currentIndex < size; currentIndex++) {
+            if (completed[currentIndex]) {
+                statuses[currentIndex] = "yes";
+                if (!assignment[currentIndex]) {
+                    enableNextSubconcept = true;
+                }
+            } else if (assignment[currentIndex]) {
+                boolean prevConceptsCompleted = true;
+                int prevAssignmentIndex = -1;
+                for (int i = currentIndex - 1; i >= 0; i--) {
+                    if (assignment[i]) {
+                        prevAssignmentIndex = i;
+                        break;
+                    }
+                }
+                for (int i = prevAssignmentIndex + 1; i < currentIndex; i++) {
+                    if (!assignment[i] && !completed[i]) {
+                        prevConceptsCompleted = false;
+                        break;
+                    }
+                }
+                if (prevConceptsCompleted) {
+                    statuses[currentIndex] = "ignored";
+                    hasPendingAssignments = true;
+                } else {
+                    statuses[currentIndex] = "disabled";
+                }
+            } else if (enableNextSubconcept) {
+                statuses[currentIndex] = "incomplete";
+                enableNextSubconcept = false;
+            } else {
+                statuses[currentIndex] = "disabled";
+            }
+        }
+        long total = 0;
+        long done = 0;
+        for (int i = 0; i < size; i++) {
+            if (!assignment[i]) {
+                total++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (!assignment[i] && completed[i]) {
+                done++;
+            }
+        }
+        blackhole.consume(statuses);
+        blackhole.consume(lastCompletedNormalIndex);
+        blackhole.consume(done == total && hasPendingAssignments);
+    }
+}
@@ -0,0 +1,25 @@
+package com.mindfultalk.growthlab.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * {@link DurationParser#parseToSeconds} on each duration format found in subconcept uploads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DurationParserBenchmark {
+
+    @Param({"19sec", "2mins", "1.5min", "1.10", "95", " 45s "})
+    private String duration;
+
+    @Benchmark
+    public int parseToSeconds() {
+        return DurationParser.parseToSeconds(duration);
+    }
+}
@@ -0,0 +1,90 @@
+package com.mindfultalk.growthlab.loadtest;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latencies and query counts of the requests to each step of the flow.
+ *
+ * Latencies are measured by the virtual users, query counts by {@link LoadTestConfig}'s filter on
+ * the server side; both are keyed by the endpoint name the client sends in
+ * {@link #ENDPOINT_HEADER}.
+ */
+public class EndpointStats {
+
+    public static final String ENDPOINT_HEADER = "X-Load-Endpoint";
+
+    private static final Map<String, EndpointStats> byEndpoint = new ConcurrentHashMap<>();
+
+    private final String endpoint;
+    private final List<Long> latencyNanos = new ArrayList<>();
+    private final List<Integer> queryCounts = new ArrayList<>();
+    private int errors;
+
+    private EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public static EndpointStats of(String endpoint) {
+        return byEndpoint.computeIfAbsent(endpoint, EndpointStats::new);
+    }
+
+    public static void reset() {
+        byEndpoint.clear();
+    }
+
+    public synchronized void recordResponse(long nanos, boolean success) {
+        latencyNanos.add(nanos);
+        if (!success) {
+            errors++;
+        }
+    }
+
+    public synchronized void recordQueries(int queries) {
+        queryCounts.add(queries);
+    }
+
+    /**
+     * Table of every endpoint in the order given, then any other endpoint seen
+     */
+    public static String report(List<String> order, long elapsedNanos) {
+        List<String> endpoints = new ArrayList<>(order);
+        byEndpoint.keySet().stream().filter(endpoint -> !endpoints.contains(endpoint)).sorted().forEach(endpoints::add);
+
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-22s %8s %7s %9s %9s %9s %9s %10s %9s%n",
+                "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p95 ms", "p99 ms", "Queries/req", "Max q"));
+        long total = 0;
+        for (String endpoint : endpoints) {
+            EndpointStats stats = byEndpoint.get(endpoint);
+            if (stats != null) {
+                total += stats.latencyNanos.size();
+                report.append(stats.row(seconds));
+            }
+        }
+        report.append(String.format("%-22s %8d %7s %9.1f%n", "All", total, "", total / seconds));
+        return report.toString();
+    }
+
+    private synchronized String row(double seconds) {
+        List<Long> sorted = new ArrayList<>(latencyNanos);
+        Collections.sort(sorted);
+        double averageQueries = queryCounts.stream().mapToInt(Integer::intValue).average().orElse(0);
+        int maxQueries = queryCounts.stream().mapToInt(Integer::intValue).max().orElse(0);
+        return String.format("%-22s %8d %7d %9.1f %9.1f %9.1f %9.1f %10.1f %9d%n", endpoint, sorted.size(), errors,
+                sorted.size() / seconds, percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                averageQueries, maxQueries);
+    }
+
+    /**
+     * Nearest-rank percentile in milliseconds
+     */
+    private static double percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(rank, 1) - 1) / 1e6;
+    }
+}
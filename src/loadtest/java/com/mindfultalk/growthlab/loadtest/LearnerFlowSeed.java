@@ -0,0 +1,151 @@
+package com.mindfultalk.growthlab.loadtest;
+
+import java.time.*;
+import java.util.*;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.mindfultalk.growthlab.model.*;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Data the virtual users work on: one organization with one cohort on one program, and a learner
+ * per virtual user enrolled in the cohort. Every fifth subconcept of a unit is an assignment.
+ */
+public class LearnerFlowSeed {
+
+    public static final String PASSWORD = "load-test";
+    public static final String USER_TYPE = "learner";
+    public static final String PROGRAM_ID = "LOAD-PROG";
+    public static final String COHORT_ID = "LOAD-COHORT";
+
+    private static final int ASSIGNMENT_EVERY = 5;
+
+    private final List<String> userIds = new ArrayList<>();
+    private final List<Unit> units = new ArrayList<>();
+    private final Map<String, List<Subconcept>> subconceptsByUnit = new HashMap<>();
+
+    private LearnerFlowSeed() {
+    }
+
+    public static LearnerFlowSeed create(ConfigurableApplicationContext context, int users, int stages,
+            int unitsPerStage, int subconceptsPerUnit) {
+        LearnerFlowSeed seed = new LearnerFlowSeed();
+        EntityManager entityManager = context.getBean(EntityManager.class);
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            Organization organization = new Organization();
+            organization.setOrganizationName("Load Test Org");
+            organization.setOrganizationAdminName("Admin");
+            organization.setOrganizationAdminEmail("admin@example.com");
+            organization.setOrganizationAdminPhone("9999999999");
+            organization.setOrgPassword(passwordHash);
+            entityManager.persist(organization);
+
+            Program program = new Program();
+            program.setProgramId(PROGRAM_ID);
+            program.setProgramName("Load Test Program");
+            program.setProgramDesc("Program the load test learners work through");
+            program.setStages(stages);
+            program.setUnitCount(stages * unitsPerStage);
+            entityManager.persist(program);
+
+            for (int s = 1; s <= stages; s++) {
+                Stage stage = new Stage();
+                stage.setStageId(PROGRAM_ID + "-S" + s);
+                stage.setStageName("Stage " + s);
+                stage.setProgram(program);
+                entityManager.persist(stage);
+                for (int u = 1; u <= unitsPerStage; u++) {
+                    Unit unit = new Unit();
+                    unit.setUnitId(stage.getStageId() + "-U" + u);
+                    unit.setUnitName("Unit " + s + "." + u);
+                    unit.setProgram(program);
+                    unit.setStage(stage);
+                    entityManager.persist(unit);
+                    seed.units.add(unit);
+                    seed.seedSubconcepts(entityManager, program, stage, unit, subconceptsPerUnit);
+                }
+            }
+
+            Cohort cohort = new Cohort();
+            cohort.setCohortId(COHORT_ID);
+            cohort.setCohortName("Load Test Cohort");
+            cohort.setCohortStartDate(OffsetDateTime.now(ZoneOffset.UTC).minusDays(30));
+            cohort.setDelayInDays(0);
+            cohort.setOrganization(organization);
+            entityManager.persist(cohort);
+
+            CohortProgram cohortProgram = new CohortProgram();
+            cohortProgram.setCohort(cohort);
+            cohortProgram.setProgram(program);
+            entityManager.persist(cohortProgram);
+
+            for (int i = 0; i < users; i++) {
+                User user = new User();
+                user.setUserId("load-user-" + i);
+                user.setUserName("Load Learner " + i);
+                user.setUserEmail("load-learner" + i + "@example.com");
+                user.setUserPassword(passwordHash);
+                user.setUserType(USER_TYPE);
+                user.setOrganization(organization);
+                entityManager.persist(user);
+
+                UserCohortMapping mapping = new UserCohortMapping();
+                mapping.setUser(user);
+                mapping.setCohort(cohort);
+                entityManager.persist(mapping);
+                seed.userIds.add(user.getUserId());
+            }
+        });
+        return seed;
+    }
+
+    private void seedSubconcepts(EntityManager entityManager, Program program, Stage stage, Unit unit, int count) {
+        List<Subconcept> subconcepts = new ArrayList<>();
+        for (int c = 1; c <= count; c++) {
+            Subconcept subconcept = new Subconcept();
+            subconcept.setSubconceptId(unit.getUnitId() + "-SC" + c);
+            subconcept.setSubconceptDesc("Subconcept " + c + " of " + unit.getUnitName());
+            subconcept.setSubconceptType(c % ASSIGNMENT_EVERY == 0 ? "assignment" : "passage_read");
+            subconcept.setSubconceptLink("https://example.com/" + subconcept.getSubconceptId());
+            subconcept.setShowTo(USER_TYPE + ",mentor");
+            subconcept.setSubconceptMaxscore(10);
+            subconcept.setSubconceptDuration(5);
+            entityManager.persist(subconcept);
+
+            ProgramConceptsMapping mapping = new ProgramConceptsMapping();
+            mapping.setProgramConceptDesc(subconcept.getSubconceptDesc());
+            mapping.setPosition(c);
+            mapping.setProgram(program);
+            mapping.setStage(stage);
+            mapping.setUnit(unit);
+            mapping.setSubconcept(subconcept);
+            entityManager.persist(mapping);
+
+            if (c % ASSIGNMENT_EVERY != 0) {
+                subconcepts.add(subconcept);
+            }
+        }
+        subconceptsByUnit.put(unit.getUnitId(), subconcepts);
+    }
+
+    public List<String> getUserIds() {
+        return userIds;
+    }
+
+    public List<Unit> getUnits() {
+        return units;
+    }
+
+    /**
+     * Subconcepts of a unit a learner records attempts for, that is all but the assignments
+     */
+    public List<Subconcept> getAttemptSubconcepts(String unitId) {
+        return subconceptsByUnit.get(unitId);
+    }
+}
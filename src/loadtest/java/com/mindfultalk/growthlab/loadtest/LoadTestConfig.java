@@ -0,0 +1,55 @@
+package com.mindfultalk.growthlab.loadtest;
+
+import java.io.IOException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Beans the load test adds to the application: the statement counting data source and a filter,
+ * ahead of every other filter, that counts the statements of each request of the flow.
+ */
+@TestConfiguration
+public class LoadTestConfig {
+
+    @Bean
+    static BeanPostProcessor queryCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? QueryCounter.wrap((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    @Bean
+    FilterRegistrationBean<Filter> queryCountingFilter() {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(new Filter() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                    throws IOException, ServletException {
+                String endpoint = ((HttpServletRequest) request).getHeader(EndpointStats.ENDPOINT_HEADER);
+                if (endpoint == null) {
+                    chain.doFilter(request, response);
+                    return;
+                }
+                QueryCounter.start();
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    EndpointStats.of(endpoint).recordQueries(QueryCounter.stop());
+                }
+            }
+        });
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
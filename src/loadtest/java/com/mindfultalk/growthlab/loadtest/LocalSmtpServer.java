@@ -0,0 +1,99 @@
+package com.mindfultalk.growthlab.loadtest;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.*;
+
+/**
+ * SMTP stand-in for the load test: accepts every message and keeps only a count.
+ *
+ * It speaks just enough SMTP for JavaMail without authentication or STARTTLS, so mail the flow
+ * sends is delivered locally instead of reaching a real server.
+ */
+public class LocalSmtpServer implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalSmtpServer.class);
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "smtp-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger messages = new AtomicInteger();
+
+    public LocalSmtpServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor.execute(this::accept);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getMessageCount() {
+        return messages.get();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> converse(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("SMTP stand-in failed to accept a connection", e);
+                }
+            }
+        }
+    }
+
+    private void converse(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+            reply(out, "220 localhost SMTP stand-in");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+                switch (command) {
+                    case "EHLO":
+                    case "HELO":
+                        reply(out, "250 localhost");
+                        break;
+                    case "DATA":
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Message content is not kept
+                        }
+                        messages.incrementAndGet();
+                        reply(out, "250 OK");
+                        break;
+                    case "QUIT":
+                        reply(out, "221 Bye");
+                        return;
+                    default:
+                        // MAIL, RCPT, RSET, NOOP
+                        reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("SMTP stand-in connection closed: {}", e.getMessage());
+        }
+    }
+
+    private static void reply(Writer out, String line) throws IOException {
+        out.write(line + "\r\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,80 @@
+package com.mindfultalk.growthlab.loadtest;
+
+import java.lang.reflect.*;
+import java.sql.*;
+
+import javax.sql.DataSource;
+
+/**
+ * Counts the SQL statements run for the request on the current thread.
+ *
+ * The data source is wrapped so every execute call on a statement of one of its connections
+ * counts once; a batch counts as one statement. Statements run outside a counted request, such as
+ * seeding or background batchers, are not counted.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<int[]> current = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static void start() {
+        current.set(new int[1]);
+    }
+
+    /**
+     * Statements run since {@link #start()} on this thread; counting stops
+     */
+    public static int stop() {
+        int[] count = current.get();
+        current.remove();
+        return count == null ? 0 : count[0];
+    }
+
+    public static DataSource wrap(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(QueryCounter.class.getClassLoader(), new Class<?>[] { DataSource.class },
+            (proxy, method, args) -> {
+                Object result = invoke(dataSource, method, args);
+                return result instanceof Connection ? wrapConnection((Connection) result) : result;
+            });
+    }
+
+    private static Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(QueryCounter.class.getClassLoader(), new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                Object result = invoke(connection, method, args);
+                if (result instanceof CallableStatement) {
+                    return wrapStatement(CallableStatement.class, (Statement) result);
+                }
+                if (result instanceof PreparedStatement) {
+                    return wrapStatement(PreparedStatement.class, (Statement) result);
+                }
+                if (result instanceof Statement) {
+                    return wrapStatement(Statement.class, (Statement) result);
+                }
+                return result;
+            });
+    }
+
+    private static Object wrapStatement(Class<? extends Statement> type, Statement statement) {
+        return Proxy.newProxyInstance(QueryCounter.class.getClassLoader(), new Class<?>[] { type },
+            (proxy, method, args) -> {
+                if (method.getName().startsWith("execute")) {
+                    int[] count = current.get();
+                    if (count != null) {
+                        count[0]++;
+                    }
+                }
+                return invoke(statement, method, args);
+            });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
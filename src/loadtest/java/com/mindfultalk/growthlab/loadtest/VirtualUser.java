@@ -0,0 +1,136 @@
+package com.mindfultalk.growthlab.loadtest;
+
+import java.net.*;
+import java.net.http.*;
+import java.time.*;
+import java.util.*;
+
+import org.slf4j.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.UserSessionMappingRepository;
+
+/**
+ * One learner going through the app the way the frontend does: sign in, pick the cohort, open the
+ * program and a unit, record attempts on the unit's subconcepts and look at the program report.
+ *
+ * Each virtual user has its own HTTP client and cookie store, so it keeps its own server session.
+ */
+public class VirtualUser {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualUser.class);
+
+    public static final String SIGNIN = "signin";
+    public static final String SELECT_COHORT = "select-cohort";
+    public static final String PROGRAM = "program";
+    public static final String UNIT = "unit";
+    public static final String ATTEMPT = "user-attempt";
+    public static final String REPORT = "report";
+    public static final List<String> ENDPOINTS = List.of(SIGNIN, SELECT_COHORT, PROGRAM, UNIT, ATTEMPT, REPORT);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String baseUrl;
+    private final String userId;
+    private final int number;
+    private final LearnerFlowSeed seed;
+    private final UserSessionMappingRepository sessionRepository;
+    private final int attemptsPerIteration;
+    private final HttpClient client;
+    private int nextSubconcept;
+
+    public VirtualUser(String baseUrl, int number, LearnerFlowSeed seed, UserSessionMappingRepository sessionRepository,
+            int attemptsPerIteration) {
+        this.baseUrl = baseUrl;
+        this.number = number;
+        this.userId = seed.getUserIds().get(number);
+        this.seed = seed;
+        this.sessionRepository = sessionRepository;
+        this.attemptsPerIteration = attemptsPerIteration;
+        this.client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * One pass through the flow; the unit moves on with every iteration
+     */
+    public void run(int iteration) throws Exception {
+        String programId = LearnerFlowSeed.PROGRAM_ID;
+        String cohortId = LearnerFlowSeed.COHORT_ID;
+        List<Unit> units = seed.getUnits();
+        Unit unit = units.get((number + iteration) % units.size());
+
+        if (!send(SIGNIN, post("/api/v1/users/signin", Map.of(
+                "userId", userId,
+                "userPassword", LearnerFlowSeed.PASSWORD,
+                "userType", LearnerFlowSeed.USER_TYPE)))) {
+            return;
+        }
+        if (!send(SELECT_COHORT, post("/api/v1/users/select-cohort", Map.of(
+                "userId", userId,
+                "cohortId", cohortId)))) {
+            return;
+        }
+        // The frontend keeps the session id from the login flow; here it is looked up directly
+        String sessionId = sessionRepository.findActiveSession(userId, cohortId)
+                .map(UserSessionMapping::getSessionId)
+                .orElseThrow(() -> new IllegalStateException("No active session for " + userId));
+
+        send(PROGRAM, get("/api/v1/units/" + userId + "/program/" + programId));
+        send(UNIT, get("/api/v1/programconceptsmappings/" + userId + "/unit/" + unit.getUnitId()));
+
+        List<Subconcept> subconcepts = seed.getAttemptSubconcepts(unit.getUnitId());
+        for (int i = 0; i < attemptsPerIteration; i++) {
+            Subconcept subconcept = subconcepts.get(nextSubconcept++ % subconcepts.size());
+            LocalDateTime end = LocalDateTime.now(ZoneOffset.UTC);
+            Map<String, Object> attempt = new HashMap<>();
+            attempt.put("userId", userId);
+            attempt.put("cohortId", cohortId);
+            attempt.put("programId", programId);
+            attempt.put("stageId", unit.getStage().getStageId());
+            attempt.put("unitId", unit.getUnitId());
+            attempt.put("subconceptId", subconcept.getSubconceptId());
+            attempt.put("sessionId", sessionId);
+            attempt.put("userAttemptStartTimestamp", end.minusMinutes(3).toString());
+            attempt.put("userAttemptEndTimestamp", end.toString());
+            attempt.put("userAttemptFlag", true);
+            attempt.put("userAttemptScore", 8);
+            attempt.put("uuid", UUID.randomUUID().toString());
+            send(ATTEMPT, post("/api/v1/user-attempts", attempt));
+        }
+
+        send(REPORT, get("/api/v1/reports/program/" + userId + "/" + programId));
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+    }
+
+    private HttpRequest.Builder post(String path, Map<String, ?> body) throws Exception {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+    }
+
+    /**
+     * Sends the request, records its latency under the endpoint and tells whether it succeeded
+     */
+    private boolean send(String endpoint, HttpRequest.Builder request) throws Exception {
+        request.header(EndpointStats.ENDPOINT_HEADER, endpoint).timeout(Duration.ofSeconds(60));
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        long nanos = System.nanoTime() - start;
+
+        boolean success = response.statusCode() / 100 == 2;
+        EndpointStats.of(endpoint).recordResponse(nanos, success);
+        if (!success) {
+            String body = response.body();
+            logger.warn("{} for {} returned {}: {}", endpoint, userId, response.statusCode(),
+                    body.length() > 300 ? body.substring(0, 300) : body);
+        }
+        return success;
+    }
+}
@@ -6,17 +6,21 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper.DefaultTyping;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
-import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.*;
 import org.springframework.data.redis.cache.*;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.listener.*;
 import org.springframework.data.redis.serializer.*;
+import io.micrometer.core.instrument.*;
 import java.time.Duration;
+import java.util.*;
 
 @Configuration
 @EnableCaching
@@ -24,6 +28,26 @@ import java.time.Duration;
 @EnableAutoConfiguration(exclude = {RedisRepositoriesAutoConfiguration.class})
 public class RedisConfig {
 
+    // Reference data that changes only through admin uploads can stay on the node for longer
+    private static final List<String> REFERENCE_CACHES = List.of(
+        "programs", "programDTOs", "stages", "units", "allUnits", "subconcepts", "subconceptDTOs",
+        "concept", "concepts", "contents", "organizations", "cohorts", "cohortPrograms");
+
+    // Checked on every request to block deactivated users, so always read from Redis
+    private static final List<String> REDIS_ONLY_CACHES = List.of("userActiveStatus");
+
+    @Value("${cache.l1.max-size:10000}")
+    private long localMaxSize;
+
+    @Value("${cache.l1.default-ttl-seconds:30}")
+    private long defaultLocalTtlSeconds;
+
+    @Value("${cache.l1.reference-ttl-seconds:300}")
+    private long referenceLocalTtlSeconds;
+
+    @Value("${cache.l1.invalidation-channel:growthlab:cache-invalidation}")
+    private String invalidationChannel;
+
     @Bean
     public ObjectMapper redisObjectMapper() {
         ObjectMapper objectMapper = new ObjectMapper();
@@ -71,7 +95,8 @@ public class RedisConfig {
     }
 
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public TwoTierCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
         // Create custom serializer with type information
         GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(redisObjectMapper());
         
@@ -83,9 +108,39 @@ public class RedisConfig {
             .serializeValuesWith(RedisSerializationContext.SerializationPair
                 .fromSerializer(serializer));
         
-        return RedisCacheManager.builder(connectionFactory)
+        // Transaction awareness is applied once, by the two-tier manager wrapping this one
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
             .cacheDefaults(config)
-            .transactionAware()
             .build();
+        redisCacheManager.afterPropertiesSet();
+        
+        Map<String, Duration> localTtls = new HashMap<>();
+        for (String cacheName : REFERENCE_CACHES) {
+            localTtls.put(cacheName, Duration.ofSeconds(referenceLocalTtlSeconds));
+        }
+        for (String cacheName : REDIS_ONLY_CACHES) {
+            localTtls.put(cacheName, Duration.ZERO);
+        }
+        
+        TwoTierCacheManager cacheManager = new TwoTierCacheManager(
+            redisCacheManager,
+            serializer,
+            new StringRedisTemplate(connectionFactory),
+            invalidationChannel,
+            localTtls,
+            Duration.ofSeconds(defaultLocalTtlSeconds),
+            localMaxSize,
+            meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        cacheManager.setTransactionAware(true);
+        return cacheManager;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            TwoTierCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(cacheManager.getChannel()));
+        return container;
     }
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.mindfultalk.growthlab.config;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import io.micrometer.core.instrument.*;
+
+/**
+ * A {@link Cache} that answers from a per-node Caffeine cache (L1) and falls back to the shared
+ * Redis cache (L2). Reads that reach Redis are copied into L1; every write or eviction goes to
+ * both tiers and is broadcast so that the other nodes drop their L1 copy.
+ *
+ * L1 keys are the string form of the cache key, which is also how {@link
+ * org.springframework.data.redis.cache.RedisCache} names its entries, so a key evicted by
+ * name on another node matches the local entry.
+ *
+ * L1 holds values serialized the way Redis stores them and deserializes them on every hit, so
+ * each caller gets its own instance, as with a plain Redis cache. Cached entities and lists can
+ * therefore be modified by a caller without changing what the next caller reads.
+ *
+ * Every change to the cache, local or received from another node, moves an invalidation counter
+ * forward after Redis was changed. A read that went to Redis only keeps its L1 copy if the counter
+ * did not move meanwhile, so a value read just before an eviction is not put back into L1 for the
+ * whole TTL.
+ *
+ * Both tiers are timed under growthlab.cache.l1.requests and growthlab.cache.l2.requests, tagged
+ * by cache and result, so their hit rates and latencies can be compared.
+ */
+public class TwoTierCache implements Cache {
+
+    private final String name;
+    private final Cache redisCache;
+    private final com.github.benmanes.caffeine.cache.Cache<String, byte[]> localCache;
+    private final RedisSerializer<Object> serializer;
+    private final TwoTierCacheManager cacheManager;
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Timer localHits;
+    private final Timer localMisses;
+    private final Timer redisHits;
+    private final Timer redisMisses;
+
+    TwoTierCache(String name, Cache redisCache, com.github.benmanes.caffeine.cache.Cache<String, byte[]> localCache,
+                 RedisSerializer<Object> serializer, TwoTierCacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.redisCache = redisCache;
+        this.localCache = localCache;
+        this.serializer = serializer;
+        this.cacheManager = cacheManager;
+
+        this.localHits = Timer.builder("growthlab.cache.l1.requests")
+            .tag("cache", name).tag("result", "hit").register(meterRegistry);
+        this.localMisses = Timer.builder("growthlab.cache.l1.requests")
+            .tag("cache", name).tag("result", "miss").register(meterRegistry);
+        this.redisHits = Timer.builder("growthlab.cache.l2.requests")
+            .tag("cache", name).tag("result", "hit").register(meterRegistry);
+        this.redisMisses = Timer.builder("growthlab.cache.l2.requests")
+            .tag("cache", name).tag("result", "miss").register(meterRegistry);
+        Gauge.builder("growthlab.cache.l1.size", localCache, c -> c.estimatedSize())
+            .tag("cache", name).register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redisCache.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = toLocalKey(key);
+        long localStart = System.nanoTime();
+        byte[] bytes = localCache.getIfPresent(localKey);
+        if (bytes != null) {
+            Object value = serializer.deserialize(bytes);
+            localHits.record(System.nanoTime() - localStart, TimeUnit.NANOSECONDS);
+            return new SimpleValueWrapper(value);
+        }
+        localMisses.record(System.nanoTime() - localStart, TimeUnit.NANOSECONDS);
+
+        long version = invalidations.get();
+        long start = System.nanoTime();
+        ValueWrapper wrapper = redisCache.get(key);
+        recordRedis(start, wrapper != null);
+        if (wrapper != null && wrapper.get() != null) {
+            fillLocal(localKey, wrapper.get(), version);
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        // Redis runs the loader under its own lock and stores the result
+        long version = invalidations.get();
+        T loaded = redisCache.get(key, valueLoader);
+        if (loaded != null) {
+            fillLocal(toLocalKey(key), loaded, version);
+        }
+        return loaded;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        redisCache.put(key, value);
+        invalidations.incrementAndGet();
+        String localKey = toLocalKey(key);
+        if (value != null) {
+            putLocal(localKey, value);
+        } else {
+            localCache.invalidate(localKey);
+        }
+        cacheManager.publishEvict(name, localKey);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = redisCache.putIfAbsent(key, value);
+        if (existing == null) {
+            invalidations.incrementAndGet();
+            String localKey = toLocalKey(key);
+            if (value != null) {
+                putLocal(localKey, value);
+            }
+            cacheManager.publishEvict(name, localKey);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        redisCache.evict(key);
+        invalidations.incrementAndGet();
+        String localKey = toLocalKey(key);
+        localCache.invalidate(localKey);
+        cacheManager.publishEvict(name, localKey);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = redisCache.evictIfPresent(key);
+        invalidations.incrementAndGet();
+        String localKey = toLocalKey(key);
+        localCache.invalidate(localKey);
+        cacheManager.publishEvict(name, localKey);
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        redisCache.clear();
+        invalidations.incrementAndGet();
+        localCache.invalidateAll();
+        cacheManager.publishClear(name);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = redisCache.invalidate();
+        invalidations.incrementAndGet();
+        localCache.invalidateAll();
+        cacheManager.publishClear(name);
+        return invalidated;
+    }
+
+    /**
+     * Drops a key from this node's L1 only; used for invalidations received from other nodes
+     */
+    void evictLocal(String localKey) {
+        invalidations.incrementAndGet();
+        localCache.invalidate(localKey);
+    }
+
+    /**
+     * Drops all of this node's L1 entries; used for invalidations received from other nodes
+     */
+    void clearLocal() {
+        invalidations.incrementAndGet();
+        localCache.invalidateAll();
+    }
+
+    private void putLocal(String localKey, Object value) {
+        localCache.put(localKey, serializer.serialize(value));
+    }
+
+    /**
+     * Copies a value read from Redis into L1, unless the cache changed since the read started.
+     * The check runs after the put, so an invalidation between the two still removes the copy.
+     */
+    private void fillLocal(String localKey, Object value, long versionBeforeRead) {
+        putLocal(localKey, value);
+        if (invalidations.get() != versionBeforeRead) {
+            localCache.invalidate(localKey);
+        }
+    }
+
+    static String toLocalKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    private void recordRedis(long startNanos, boolean hit) {
+        (hit ? redisHits : redisMisses).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,206 @@
+package com.mindfultalk.growthlab.config;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import org.slf4j.*;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Puts a bounded per-node Caffeine cache in front of every Redis cache.
+ *
+ * Each cache gets its own L1 time-to-live; caches configured with a zero TTL skip L1 and are
+ * served straight from Redis. Writes and evictions are published on a Redis channel so every
+ * other node drops the same entry from its L1. A node that misses a message still converges
+ * once the short L1 TTL runs out.
+ *
+ * L1 keeps values serialized with the serializer of the Redis caches, see {@link TwoTierCache}.
+ *
+ * Per-node state kept outside the cache abstraction can follow the same channel: it registers
+ * a handler under a name with {@link #onInvalidation} and publishes with {@link #publishInvalidation},
+ * or per entry with {@link #onEntryInvalidation} and {@link #publishEntryInvalidation}.
+ */
+public class TwoTierCacheManager extends AbstractTransactionSupportingCacheManager implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoTierCacheManager.class);
+
+    private static final String OP_EVICT = "E";
+    private static final String OP_CLEAR = "C";
+
+    private final RedisCacheManager redisCacheManager;
+    private final RedisSerializer<Object> serializer;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final String channel;
+    private final Map<String, Duration> localTtls;
+    private final Duration defaultLocalTtl;
+    private final long localMaxSize;
+    private final MeterRegistry meterRegistry;
+
+    // Identifies this node's own messages so they are not applied twice
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, Runnable> invalidationHandlers = new ConcurrentHashMap<>();
+    private final Map<String, Consumer<String>> entryInvalidationHandlers = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(RedisCacheManager redisCacheManager, RedisSerializer<Object> serializer,
+                               StringRedisTemplate stringRedisTemplate, String channel,
+                               Map<String, Duration> localTtls, Duration defaultLocalTtl,
+                               long localMaxSize, MeterRegistry meterRegistry) {
+        this.redisCacheManager = redisCacheManager;
+        this.serializer = serializer;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.channel = channel;
+        this.localTtls = new HashMap<>(localTtls);
+        this.defaultLocalTtl = defaultLocalTtl;
+        this.localMaxSize = localMaxSize;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        Cache redisCache = redisCacheManager.getCache(name);
+        if (redisCache == null) {
+            return null;
+        }
+
+        Duration ttl = localTtls.getOrDefault(name, defaultLocalTtl);
+        if (ttl.isZero() || ttl.isNegative()) {
+            logger.info("Cache {} is served from Redis only", name);
+            return redisCache;
+        }
+
+        com.github.benmanes.caffeine.cache.Cache<String, byte[]> localCache = Caffeine.newBuilder()
+            .maximumSize(localMaxSize)
+            .expireAfterWrite(ttl)
+            .build();
+        logger.info("Cache {} uses a local L1 of {} entries with a TTL of {}s", name, localMaxSize, ttl.getSeconds());
+        return new TwoTierCache(name, redisCache, localCache, serializer, this, meterRegistry);
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Drops every L1 entry of a cache on all nodes, for changes made to Redis directly
+     * (for example a pattern delete) that the L1 tier did not see.
+     */
+    public void invalidateLocal(String cacheName) {
+        TwoTierCache cache = findTwoTierCache(cacheName);
+        if (cache != null) {
+            cache.clearLocal();
+        }
+        publish(OP_CLEAR, cacheName, "");
+    }
+
+    /**
+     * Runs the handler whenever another node publishes an invalidation under the given name
+     */
+    public void onInvalidation(String name, Runnable handler) {
+        invalidationHandlers.put(name, handler);
+    }
+
+    /**
+     * Tells every other node to run its handler registered under the given name
+     */
+    public void publishInvalidation(String name) {
+        publish(OP_CLEAR, name, "");
+    }
+
+    /**
+     * Runs the handler with the key whenever another node publishes an entry invalidation under
+     * the given name
+     */
+    public void onEntryInvalidation(String name, Consumer<String> handler) {
+        entryInvalidationHandlers.put(name, handler);
+    }
+
+    /**
+     * Tells every other node to run its entry handler registered under the given name for the key
+     */
+    public void publishEntryInvalidation(String name, String key) {
+        publish(OP_EVICT, name, key);
+    }
+
+    void publishEvict(String cacheName, String localKey) {
+        publish(OP_EVICT, cacheName, localKey);
+    }
+
+    void publishClear(String cacheName) {
+        publish(OP_CLEAR, cacheName, "");
+    }
+
+    private void publish(String op, String cacheName, String key) {
+        try {
+            stringRedisTemplate.convertAndSend(channel, nodeId + "|" + op + "|" + cacheName + "|" + key);
+        } catch (Exception e) {
+            // Other nodes fall back to their L1 TTL
+            logger.warn("Failed to publish cache invalidation for cache: {} with key: {}", cacheName, key, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 4);
+        if (parts.length != 4) {
+            logger.warn("Ignoring malformed cache invalidation message: {}", body);
+            return;
+        }
+        if (nodeId.equals(parts[0])) {
+            return;
+        }
+
+        Runnable handler = invalidationHandlers.get(parts[2]);
+        if (handler != null && OP_CLEAR.equals(parts[1])) {
+            handler.run();
+            logger.debug("Ran invalidation handler {} on request of node {}", parts[2], parts[0]);
+            return;
+        }
+        Consumer<String> entryHandler = entryInvalidationHandlers.get(parts[2]);
+        if (entryHandler != null && OP_EVICT.equals(parts[1])) {
+            entryHandler.accept(parts[3]);
+            logger.debug("Ran invalidation handler {} for {} on request of node {}", parts[2], parts[3], parts[0]);
+            return;
+        }
+
+        TwoTierCache cache = findTwoTierCache(parts[2]);
+        if (cache == null) {
+            // Nothing cached locally under this name yet
+            return;
+        }
+        if (OP_CLEAR.equals(parts[1])) {
+            cache.clearLocal();
+            logger.debug("Cleared local cache {} on request of node {}", parts[2], parts[0]);
+        } else {
+            cache.evictLocal(parts[3]);
+            logger.debug("Evicted local entry {} from cache {} on request of node {}", parts[3], parts[2], parts[0]);
+        }
+    }
+
+    private TwoTierCache findTwoTierCache(String cacheName) {
+        // lookupCache does not create the cache, unlike getCache
+        Cache cache = lookupCache(cacheName);
+        if (cache instanceof org.springframework.cache.transaction.TransactionAwareCacheDecorator decorator) {
+            cache = decorator.getTargetCache();
+        }
+        return cache instanceof TwoTierCache twoTierCache ? twoTierCache : null;
+    }
+}
@@ -22,6 +22,19 @@ public class ProgramConceptsMappingController {
         return programConceptsMappingService.getAllProgramConceptsMappings();
     }
 
+    // GET one page of mappings in mapping ID order; pass nextCursor back as after for the next page
+    @GetMapping("/page")
+    public ResponseEntity<?> getProgramConceptsMappingsPage(@RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String programId,
+            @RequestParam(required = false) String unitId) {
+        try {
+            return ResponseEntity.ok(programConceptsMappingService.getProgramConceptsMappingsPage(after, limit, programId, unitId));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
     @GetMapping("/{programConceptId}")
     public ResponseEntity<ProgramConceptsMapping> getProgramConceptsMappingById(@PathVariable Long programConceptId) {
         Optional<ProgramConceptsMapping> programConceptsMapping = programConceptsMappingService.getProgramConceptsMappingById(programConceptId);
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/v1/reports")
@@ -15,6 +16,9 @@ public class ProgramReportController {
     @Autowired
     private ProgramReportService programReportService;
     
+    @Autowired
+    private ProgramReportExportService programReportExportService;
+    
    
   @GetMapping("/program/{userId}/{programId}")
   public ProgramReportDTO generateProgramReport(
@@ -38,23 +42,51 @@ public class ProgramReportController {
       return ResponseEntity.ok(progress);
   }
 
+    // Streamed to the response as it is written, never held in memory as a whole
     @GetMapping("/program/{userId}/{programId}/download")
     public ResponseEntity<?> downloadProgramReport(
             @PathVariable String userId,
             @PathVariable String programId,
             @RequestParam String format) {
         if ("csv".equalsIgnoreCase(format)) {
-            byte[] csvData = programReportService.generateCsvReport(userId, programId);
+            programReportExportService.validateUserExport(userId, programId);
+            StreamingResponseBody body = out -> programReportExportService.writeCsvReport(userId, programId, out);
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=report.csv")
                     .contentType(MediaType.TEXT_PLAIN)
-                    .body(csvData);
+                    .body(body);
         } else if ("pdf".equalsIgnoreCase(format)) {
-            byte[] pdfData = programReportService.generatePdfReport(userId, programId);
+            programReportExportService.validateUserExport(userId, programId);
+            StreamingResponseBody body = out -> programReportExportService.writePdfReport(userId, programId, out);
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=report.pdf")
                     .contentType(MediaType.APPLICATION_PDF)
-                    .body(pdfData);
+                    .body(body);
+        } else {
+            return ResponseEntity.badRequest().body("Invalid format");
+        }
+    }
+
+    // Every learner of the cohort in one streamed file
+    @GetMapping("/program/{programId}/cohort/{cohortId}/download")
+    public ResponseEntity<?> downloadCohortReport(
+            @PathVariable String programId,
+            @PathVariable String cohortId,
+            @RequestParam String format) {
+        if ("csv".equalsIgnoreCase(format)) {
+            programReportExportService.validateCohortExport(programId, cohortId);
+            StreamingResponseBody body = out -> programReportExportService.writeCohortCsvReport(programId, cohortId, out);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=cohort-report.csv")
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(body);
+        } else if ("pdf".equalsIgnoreCase(format)) {
+            programReportExportService.validateCohortExport(programId, cohortId);
+            StreamingResponseBody body = out -> programReportExportService.writeCohortPdfReport(programId, cohortId, out);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=cohort-report.pdf")
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .body(body);
         } else {
             return ResponseEntity.badRequest().body("Invalid format");
         }
@@ -1,5 +1,6 @@
 package com.mindfultalk.growthlab.controller;
 
+import com.mindfultalk.growthlab.dto.*;
 import com.mindfultalk.growthlab.model.*;
 import com.mindfultalk.growthlab.repository.*;
 import com.mindfultalk.growthlab.service.*;
@@ -18,6 +19,8 @@ import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.*;
@@ -30,7 +33,10 @@ public class UserAssignmentController {
     private UserAssignmentService userAssignmentService;
     
     @Autowired
-    private S3StorageService s3StorageService;
+    private MediaUrlService mediaUrlService;
+    
+    @Autowired
+    private AssignmentZipExportService assignmentZipExportService;
     
     @Autowired
     private UserCohortMappingRepository userCohortMappingRepository;
@@ -83,7 +89,15 @@ public class UserAssignmentController {
     @GetMapping("/cohort/{cohortId}")
     public ResponseEntity<Map<String, Object>> getAssignmentsByCohortId(@PathVariable String cohortId) {
         // Get assignments for the cohort
-        List<UserAssignment> assignments = userAssignmentService.getAssignmentsByCohortId(cohortId);
+        List<CohortAssignmentProjection> assignments = userAssignmentService.getAssignmentsByCohortId(cohortId);
+        
+        // Download URLs of every file in the listing, in one batch
+        List<String> s3Keys = new ArrayList<>();
+        for (CohortAssignmentProjection assignment : assignments) {
+            s3Keys.add(assignment.getSubmittedFilePath());
+            s3Keys.add(assignment.getCorrectedFilePath());
+        }
+        Map<String, String> downloadUrls = mediaUrlService.getDownloadUrls(s3Keys);
         
         // Create a list to store the formatted assignments
         List<Map<String, Object>> formattedAssignments = new ArrayList<>();
@@ -94,7 +108,7 @@ public class UserAssignmentController {
         int pendingAssignments = 0;
         
         // Format each assignment
-        for (UserAssignment assignment : assignments) {
+        for (CohortAssignmentProjection assignment : assignments) {
             Map<String, Object> assignmentData = new HashMap<>();
             
          // Count corrected vs pending assignments
@@ -113,38 +127,37 @@ public class UserAssignmentController {
             
             // Add user info
             Map<String, Object> userData = new HashMap<>();
-            userData.put("userId", assignment.getUser().getUserId());
-            userData.put("userName", assignment.getUser().getUserName());
+            userData.put("userId", assignment.getUserId());
+            userData.put("userName", assignment.getUserName());
             assignmentData.put("user", userData);
             
             // Add program info
             Map<String, Object> programData = new HashMap<>();
-            programData.put("programId", assignment.getProgram().getProgramId());
-            programData.put("programName", assignment.getProgram().getProgramName());
+            programData.put("programId", assignment.getProgramId());
+            programData.put("programName", assignment.getProgramName());
             assignmentData.put("program", programData);
             
             // Add stage info
             Map<String, Object> stageData = new HashMap<>();
-            stageData.put("stageId", assignment.getStage().getStageId());
-            stageData.put("stageName", assignment.getStage().getStageName());
+            stageData.put("stageId", assignment.getStageId());
+            stageData.put("stageName", assignment.getStageName());
             assignmentData.put("stage", stageData);
             
             // Add unit info
             Map<String, Object> unitData = new HashMap<>();
-            unitData.put("unitId", assignment.getUnit().getUnitId());
-            unitData.put("unitName", assignment.getUnit().getUnitName());
+            unitData.put("unitId", assignment.getUnitId());
+            unitData.put("unitName", assignment.getUnitName());
             assignmentData.put("unit", unitData);
             
             // Add subconcept info
             Map<String, Object> subconceptData = new HashMap<>();
-            Subconcept subconcept = assignment.getSubconcept();
-            subconceptData.put("subconceptId", subconcept.getSubconceptId());
-            subconceptData.put("subconceptDesc", subconcept.getSubconceptDesc());
-            subconceptData.put("subconceptMaxscore", subconcept.getSubconceptMaxscore());
-            subconceptData.put("subconceptLink", subconcept.getSubconceptLink());
-            subconceptData.put("subconceptType", subconcept.getSubconceptType());
+            subconceptData.put("subconceptId", assignment.getSubconceptId());
+            subconceptData.put("subconceptDesc", assignment.getSubconceptDesc());
+            subconceptData.put("subconceptMaxscore", assignment.getSubconceptMaxscore());
+            subconceptData.put("subconceptLink", assignment.getSubconceptLink());
+            subconceptData.put("subconceptType", assignment.getSubconceptType());
          // Process dependency information
-            String dependencyIds = subconcept.getDependency();
+            String dependencyIds = assignment.getSubconceptDependency();
             if (dependencyIds != null && !dependencyIds.isEmpty()) {
                 // Parse dependency IDs (assuming comma-separated list)
                 String[] dependencyIdArray = dependencyIds.split(",");
@@ -171,38 +184,30 @@ public class UserAssignmentController {
             
             assignmentData.put("subconcept", subconceptData);
             
-            // Add submitted file info with public S3 URL
-            if (assignment.getSubmittedFile() != null) {
-                MediaFile submittedFile = assignment.getSubmittedFile();
-                // Ensure file is publicly accessible
-                s3StorageService.makeFilePublic(submittedFile.getFilePath());
-                // Generate public URL
-                String publicUrl = s3StorageService.generatePublicUrl(submittedFile.getFilePath());
+            // Add submitted file info with its download URL
+            if (assignment.getSubmittedFileId() != null) {
+                String downloadUrl = downloadUrls.get(assignment.getSubmittedFilePath());
                 
                 Map<String, Object> fileData = new HashMap<>();
-                fileData.put("fileId", submittedFile.getFileId());
-                fileData.put("fileName", submittedFile.getFileName());
-                fileData.put("fileType", submittedFile.getFileType());
-                fileData.put("fileSize", submittedFile.getFileSize());
-                fileData.put("downloadUrl", publicUrl);
+                fileData.put("fileId", assignment.getSubmittedFileId());
+                fileData.put("fileName", assignment.getSubmittedFileName());
+                fileData.put("fileType", assignment.getSubmittedFileType());
+                fileData.put("fileSize", assignment.getSubmittedFileSize());
+                fileData.put("downloadUrl", downloadUrl);
                 
                 assignmentData.put("submittedFile", fileData);
             }
             
-            // Add corrected file info with public S3 URL if available
-            if (assignment.getCorrectedFile() != null) {
-                MediaFile correctedFile = assignment.getCorrectedFile();
-                // Ensure file is publicly accessible
-                s3StorageService.makeFilePublic(correctedFile.getFilePath());
-                // Generate public URL
-                String publicUrl = s3StorageService.generatePublicUrl(correctedFile.getFilePath());
+            // Add corrected file info with its download URL if available
+            if (assignment.getCorrectedFileId() != null) {
+                String downloadUrl = downloadUrls.get(assignment.getCorrectedFilePath());
                 
                 Map<String, Object> fileData = new HashMap<>();
-                fileData.put("fileId", correctedFile.getFileId());
-                fileData.put("fileName", correctedFile.getFileName());
-                fileData.put("fileType", correctedFile.getFileType());
-                fileData.put("fileSize", correctedFile.getFileSize());
-                fileData.put("downloadUrl", publicUrl);
+                fileData.put("fileId", assignment.getCorrectedFileId());
+                fileData.put("fileName", assignment.getCorrectedFileName());
+                fileData.put("fileType", assignment.getCorrectedFileType());
+                fileData.put("fileSize", assignment.getCorrectedFileSize());
+                fileData.put("downloadUrl", downloadUrl);
                 
                 assignmentData.put("correctedFile", fileData);
             }
@@ -256,6 +261,44 @@ public class UserAssignmentController {
                 .body(zipResource);
     }
     
+    // Streams the ZIP while the files are fetched from S3; afterAssignmentId resumes an interrupted download
+    @GetMapping("/bulk-download/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllAssignments(
+            @RequestParam("cohortId") String cohortId,
+            @RequestParam(value = "afterAssignmentId", required = false) String afterAssignmentId) {
+        List<AssignmentFileProjection> entries = assignmentZipExportService.listEntries(cohortId, afterAssignmentId);
+        AssignmentExportProgressDTO progress = assignmentZipExportService.startExport(cohortId, entries.size(), afterAssignmentId);
+        StreamingResponseBody body = out -> assignmentZipExportService.writeZip(entries, progress, out);
+        String fileName = afterAssignmentId == null ? "assignments.zip" : "assignments-after-" + afterAssignmentId + ".zip";
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .header("X-Export-Id", progress.getExportId())
+                .header("X-Export-Total-Entries", String.valueOf(entries.size()))
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+    }
+    
+    // Assignment ids and entry names of a cohort's ZIP export, for choosing an afterAssignmentId
+    @GetMapping("/bulk-download/manifest")
+    public ResponseEntity<List<Map<String, Object>>> getBulkDownloadManifest(@RequestParam("cohortId") String cohortId) {
+        List<AssignmentFileProjection> entries = assignmentZipExportService.listEntries(cohortId, null);
+        List<String> names = assignmentZipExportService.entryNames(entries);
+        List<Map<String, Object>> manifest = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("assignmentId", entries.get(i).getAssignmentId());
+            entry.put("name", names.get(i));
+            entry.put("fileSize", entries.get(i).getFileSize());
+            manifest.add(entry);
+        }
+        return ResponseEntity.ok(manifest);
+    }
+    
+    @GetMapping("/bulk-download/progress/{exportId}")
+    public ResponseEntity<AssignmentExportProgressDTO> getBulkDownloadProgress(@PathVariable String exportId) {
+        return ResponseEntity.ok(assignmentZipExportService.getProgress(exportId));
+    }
+    
     @GetMapping("/bulk-download-send")
     public ResponseEntity<Resource> downloadAllAssignmentsSendEmail(
             @RequestParam("cohortId") String cohortId) throws IOException {
@@ -348,15 +391,12 @@ public class UserAssignmentController {
         // Add submitted file info if available
         if (assignment.getSubmittedFile() != null) {
         	MediaFile submittedFile = assignment.getSubmittedFile();   
-            // Ensure file is publicly accessible
-            s3StorageService.makeFilePublic(submittedFile.getFilePath()); 
-            // Generate public S3 URL
-            String publicUrl = s3StorageService.generatePublicUrl(submittedFile.getFilePath());
+            String downloadUrl = mediaUrlService.getDownloadUrl(submittedFile.getFilePath());
             Map<String, Object> submittedFileInfo = new HashMap<>();
             submittedFileInfo.put("fileId", assignment.getSubmittedFile().getFileId());
             submittedFileInfo.put("fileName", assignment.getSubmittedFile().getFileName());
             submittedFileInfo.put("fileType", assignment.getSubmittedFile().getFileType());
-            submittedFileInfo.put("downloadUrl", publicUrl);
+            submittedFileInfo.put("downloadUrl", downloadUrl);
             response.put("submittedFile", submittedFileInfo);
         }
         
@@ -370,17 +410,12 @@ public class UserAssignmentController {
             // Add corrected file info if available
             if (assignment.getCorrectedFile() != null) {
             	 MediaFile correctedFile = assignment.getCorrectedFile();
-                 
-                 // Ensure file is publicly accessible
-                 s3StorageService.makeFilePublic(correctedFile.getFilePath());
-                 
-                 // Generate public S3 URL
-                 String publicUrl = s3StorageService.generatePublicUrl(correctedFile.getFilePath());
+                 String downloadUrl = mediaUrlService.getDownloadUrl(correctedFile.getFilePath());
                 Map<String, Object> correctedFileInfo = new HashMap<>();
                 correctedFileInfo.put("fileId", assignment.getCorrectedFile().getFileId());
                 correctedFileInfo.put("fileName", assignment.getCorrectedFile().getFileName());
                 correctedFileInfo.put("fileType", assignment.getCorrectedFile().getFileType());
-                correctedFileInfo.put("downloadUrl", publicUrl);
+                correctedFileInfo.put("downloadUrl", downloadUrl);
                 response.put("correctedFile", correctedFileInfo);
             }
         } else {
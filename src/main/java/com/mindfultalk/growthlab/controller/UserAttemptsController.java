@@ -36,12 +36,24 @@ public class UserAttemptsController {
 
     @Autowired
     private SubconceptService subconceptService;
+
+    @Autowired
+    private UserAttemptIngestionService userAttemptIngestionService;
     
     private static final Logger logger = LoggerFactory.getLogger(UserAttemptsController.class);
     
     @PostMapping
     public ResponseEntity<?> createUserAttempt(@RequestBody UserAttemptRequestDTO requestDTO) {
     	try {
+        // Write-behind mode: accept the attempt now, the batcher applies it shortly after
+        if (userAttemptIngestionService.isOutboxMode()) {
+            UserAttemptOutbox accepted = userAttemptIngestionService.enqueue(requestDTO);
+            Map<String, Object> response = new HashMap<>();
+            response.put("uuid", accepted.getUuid());
+            response.put("status", accepted.getStatus());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        }
+
         // Fetch related entities based on IDs
         Optional<User> userOpt = userService.findByUserId(requestDTO.getUserId());
         Optional<Unit> unitOpt = unitService.findByUnitId(requestDTO.getUnitId());
@@ -90,6 +102,19 @@ public class UserAttemptsController {
         return userAttemptsService.getAllUserAttempts();
     }
 
+    // GET one page of attempts in attempt ID order; pass nextCursor back as after for the next page
+    @GetMapping("/page")
+    public ResponseEntity<?> getUserAttemptsPage(@RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String programId) {
+        try {
+            return ResponseEntity.ok(userAttemptsService.getUserAttemptsPage(after, limit, userId, programId));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
     
     @GetMapping("/{userAttemptId}")
     public ResponseEntity<UserAttempts> getUserAttemptById(@PathVariable Long userAttemptId) {
@@ -1,7 +1,9 @@
 package com.mindfultalk.growthlab.controller;
 
 import com.mindfultalk.growthlab.dto.UserCohortMappingDTO;
+import com.mindfultalk.growthlab.exception.ResourceNotFoundException;
 import com.mindfultalk.growthlab.model.UserCohortMapping;
+import com.mindfultalk.growthlab.service.LeaderboardService;
 import com.mindfultalk.growthlab.service.UserCohortMappingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -19,11 +21,27 @@ public class UserCohortMappingController {
     @Autowired
     private UserCohortMappingService userCohortMappingService;
 
+    @Autowired
+    private LeaderboardService leaderboardService;
+
     // GET all mappings
     @GetMapping
     public List<UserCohortMappingDTO> getAllUserCohortMappings() {
         return userCohortMappingService.getAllUserCohortMappings();
     }
+
+    // GET one page of mappings in mapping ID order; pass nextCursor back as after for the next page
+    @GetMapping("/page")
+    public ResponseEntity<?> getUserCohortMappingsPage(@RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cohortId,
+            @RequestParam(required = false) String status) {
+        try {
+            return ResponseEntity.ok(userCohortMappingService.getUserCohortMappingsPage(after, limit, cohortId, status));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
     
  // GET user cohort mappings by cohortId
     @GetMapping("/cohort/{cohortId}")
@@ -53,6 +71,52 @@ public class UserCohortMappingController {
         }
     }
 
+    // GET one page of the cohort leaderboard, highest score first
+    @GetMapping("/cohort/{cohortId}/leaderboard/top")
+    public ResponseEntity<Map<String, Object>> getLeaderboardTop(@PathVariable String cohortId,
+            @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(leaderboardService.getTop(cohortId, page, size));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    // GET a user's rank with the members just above and below
+    @GetMapping("/cohort/{cohortId}/leaderboard/user/{userId}")
+    public ResponseEntity<Map<String, Object>> getLeaderboardRank(@PathVariable String cohortId,
+            @PathVariable String userId, @RequestParam(defaultValue = "2") int radius) {
+        try {
+            return ResponseEntity.ok(leaderboardService.getRankWithNeighbours(cohortId, userId, radius));
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", ex.getMessage()));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    // POST reload the Redis leaderboard of a cohort from the database
+    @PostMapping("/cohort/{cohortId}/leaderboard/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildLeaderboard(@PathVariable String cohortId) {
+        try {
+            leaderboardService.rebuild(cohortId);
+            return ResponseEntity.ok(Map.of("message", "Leaderboard rebuilt for cohort " + cohortId));
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    // POST reload the Redis leaderboards of all cohorts from the database
+    @PostMapping("/leaderboards/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildAllLeaderboards() {
+        int rebuilt = leaderboardService.rebuildAll();
+        return ResponseEntity.ok(Map.of("message", "Rebuilt " + rebuilt + " leaderboards"));
+    }
+
     // GET user cohort mappings by userId
     @GetMapping("/user/{userId}")
     public List<UserCohortMappingDTO> getUserCohortMappingsByUserId(@PathVariable String userId) {
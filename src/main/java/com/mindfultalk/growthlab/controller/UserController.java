@@ -60,6 +60,20 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    // GET one page of users in user ID order; pass nextCursor back as after for the next page
+    @GetMapping("/page")
+    public ResponseEntity<?> getUsersPage(@RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String organizationId,
+            @RequestParam(required = false) String userType,
+            @RequestParam(required = false) String status) {
+        try {
+            return ResponseEntity.ok(userService.getUsersPage(after, limit, organizationId, userType, status));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<UserGetDTO> getUserById(@PathVariable String id) {
         return userService.getUserById(id)
@@ -413,7 +427,7 @@ public class UserController {
             totalCohortUserCount += cohortUserCount;
             
             // Get assignments for this cohort
-            List<UserAssignment> assignments = userAssignmentService.getAssignmentsByCohortId(cohortId);
+            List<CohortAssignmentProjection> assignments = userAssignmentService.getAssignmentsByCohortId(cohortId);
             int cohortTotalAssignments = assignments.size();
             totalAssignments += cohortTotalAssignments;
             
@@ -421,7 +435,7 @@ public class UserController {
             int cohortCorrectedAssignments = 0;
             int cohortPendingAssignments = 0;
             
-            for (UserAssignment assignment : assignments) {
+            for (CohortAssignmentProjection assignment : assignments) {
                 if (assignment.getCorrectedDate() != null) {
                     cohortCorrectedAssignments++;
                     totalCorrectedAssignments++;
@@ -688,6 +702,7 @@ public class UserController {
             httpSession.setAttribute("userId", userId);
             httpSession.setAttribute("cohortId", selectedCohortId);
             httpSession.setAttribute("sessionId", newSessionId);
+            httpSession.setAttribute("userType", user.getUserType());
             httpSession.setMaxInactiveInterval(30 * 60); // 30 minutes timeout
             
             // Check if it's the final day
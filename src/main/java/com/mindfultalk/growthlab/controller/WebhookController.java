@@ -2,7 +2,7 @@ package com.mindfultalk.growthlab.controller;
 
 import com.mindfultalk.growthlab.model.PaymentEvent;
 import com.mindfultalk.growthlab.repository.PaymentEventRepository;
-import com.mindfultalk.growthlab.service.WebhookService;
+import com.mindfultalk.growthlab.service.WebhookIntakeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -26,7 +26,7 @@ public class WebhookController {
     private static final Logger logger = LoggerFactory.getLogger(WebhookController.class);
     
     @Autowired
-    private WebhookService webhookService;
+    private WebhookIntakeService webhookIntakeService;
     
     @Autowired
     private PaymentEventRepository paymentEventRepository;
@@ -37,7 +37,8 @@ public class WebhookController {
     @PostMapping("/razorpay")
     public ResponseEntity<String> handleRazorpayWebhook(
             @RequestBody String payload,
-            @RequestHeader("X-Razorpay-Signature") String signature) {
+            @RequestHeader("X-Razorpay-Signature") String signature,
+            @RequestHeader(value = "X-Razorpay-Event-Id", required = false) String eventIdHeader) {
         logger.info("Received Razorpay webhook");
         
         try {
@@ -47,19 +48,18 @@ public class WebhookController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid signature");
             }
             
-            // Process the webhook event
             JSONObject payloadJson = new JSONObject(payload);
             String eventType = payloadJson.getString("event");
-            logger.info("Processing webhook event: {}", eventType);
+            String eventId = WebhookIntakeService.eventIdOf(eventIdHeader, payload);
+            logger.info("Received webhook event: {} ({})", eventType, eventId);
             
-            // Store the event in the database
+            // Store the event; it is processed in the background, so Razorpay gets its answer right away
             PaymentEvent paymentEvent = createPaymentEvent(payloadJson);
-            paymentEventRepository.save(paymentEvent);
-            
-            // Process the event
-            webhookService.processWebhookEvent(eventType, payloadJson);
+            if (!webhookIntakeService.accept(paymentEvent, eventId)) {
+                return ResponseEntity.ok("Duplicate webhook ignored");
+            }
             
-            return ResponseEntity.ok("Webhook processed successfully");
+            return ResponseEntity.ok("Webhook received");
         } catch (Exception e) {
             logger.error("Error processing webhook: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -126,6 +126,14 @@ public class WebhookController {
                 }
             }
             
+            // Refund events carry the payment in the refund entity
+            if (event.getPaymentId() == null && payloadJson.has("payload") && payloadJson.getJSONObject("payload").has("refund")) {
+                JSONObject refund = payloadJson.getJSONObject("payload").getJSONObject("refund").getJSONObject("entity");
+                if (refund.has("payment_id")) {
+                    event.setPaymentId(refund.getString("payment_id"));
+                }
+            }
+            
             // Extract order details if present
             if (payloadJson.has("payload") && payloadJson.getJSONObject("payload").has("order")) {
                 JSONObject order = payloadJson.getJSONObject("payload").getJSONObject("order").getJSONObject("entity");
@@ -0,0 +1,136 @@
+package com.mindfultalk.growthlab.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Progress of one streamed assignment ZIP export. Written by the thread streaming the export
+ * and read by progress requests, hence the volatile fields.
+ */
+public class AssignmentExportProgressDTO {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private volatile String exportId;
+    private volatile String cohortId;
+    private volatile int totalEntries;
+    // Assignment id the export started after, null for a full export
+    private volatile String afterAssignmentId;
+    private volatile int entriesDone;
+    // Assignment id of the last entry written or skipped; an interrupted export is resumed after it
+    private volatile String lastAssignmentId;
+    private volatile int skippedEntries;
+    private volatile long bytesWritten;
+    private volatile String lastEntryName;
+    private volatile String status;
+    private volatile String error;
+    private volatile OffsetDateTime startedAt;
+    private volatile OffsetDateTime finishedAt;
+
+    // Getters and Setters
+
+    public String getExportId() {
+        return exportId;
+    }
+
+    public void setExportId(String exportId) {
+        this.exportId = exportId;
+    }
+
+    public String getCohortId() {
+        return cohortId;
+    }
+
+    public void setCohortId(String cohortId) {
+        this.cohortId = cohortId;
+    }
+
+    public int getTotalEntries() {
+        return totalEntries;
+    }
+
+    public void setTotalEntries(int totalEntries) {
+        this.totalEntries = totalEntries;
+    }
+
+    public String getAfterAssignmentId() {
+        return afterAssignmentId;
+    }
+
+    public void setAfterAssignmentId(String afterAssignmentId) {
+        this.afterAssignmentId = afterAssignmentId;
+    }
+
+    public int getEntriesDone() {
+        return entriesDone;
+    }
+
+    public void setEntriesDone(int entriesDone) {
+        this.entriesDone = entriesDone;
+    }
+
+    public String getLastAssignmentId() {
+        return lastAssignmentId;
+    }
+
+    public void setLastAssignmentId(String lastAssignmentId) {
+        this.lastAssignmentId = lastAssignmentId;
+    }
+
+    public int getSkippedEntries() {
+        return skippedEntries;
+    }
+
+    public void setSkippedEntries(int skippedEntries) {
+        this.skippedEntries = skippedEntries;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public void setBytesWritten(long bytesWritten) {
+        this.bytesWritten = bytesWritten;
+    }
+
+    public String getLastEntryName() {
+        return lastEntryName;
+    }
+
+    public void setLastEntryName(String lastEntryName) {
+        this.lastEntryName = lastEntryName;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public OffsetDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(OffsetDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public OffsetDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(OffsetDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,70 @@
+package com.mindfultalk.growthlab.dto;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. Pass nextCursor back as the after parameter to get the
+ * next page; it is null on the last page.
+ */
+public class CursorPageDTO<T> {
+
+    private List<T> items;
+    private String nextCursor;
+    private int limit;
+
+    public CursorPageDTO(List<T> items, String nextCursor, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.limit = limit;
+    }
+
+    /**
+     * Builds a page from rows read with a limit one higher than the page size: the extra row only
+     * shows that another page follows and is dropped.
+     */
+    public static <T> CursorPageDTO<T> of(List<T> rows, int limit, Function<T, ?> cursorOf) {
+        if (rows.size() <= limit) {
+            return new CursorPageDTO<>(rows, null, limit);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new CursorPageDTO<>(items, String.valueOf(cursorOf.apply(items.get(limit - 1))), limit);
+    }
+
+    /**
+     * The requested page size, or the default when none was given, capped at maxLimit
+     */
+    public static int boundedLimit(Integer requested, int defaultLimit, int maxLimit) {
+        if (requested == null) {
+            return Math.min(defaultLimit, maxLimit);
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(requested, maxLimit);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,52 @@
+package com.mindfultalk.growthlab.dto;
+
+public class LeaderboardEntryDTO {
+
+    private long rank;
+    private String userId;
+    private String userName;
+    private String userType;
+    private int leaderboardScore;
+
+    // Getters and Setters
+
+    public long getRank() {
+        return rank;
+    }
+
+    public void setRank(long rank) {
+        this.rank = rank;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    public String getUserType() {
+        return userType;
+    }
+
+    public void setUserType(String userType) {
+        this.userType = userType;
+    }
+
+    public int getLeaderboardScore() {
+        return leaderboardScore;
+    }
+
+    public void setLeaderboardScore(int leaderboardScore) {
+        this.leaderboardScore = leaderboardScore;
+    }
+}
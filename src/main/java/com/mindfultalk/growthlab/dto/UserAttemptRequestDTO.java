@@ -1,6 +1,7 @@
 package com.mindfultalk.growthlab.dto;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 public class UserAttemptRequestDTO {
     private LocalDateTime userAttemptEndTimestamp;
@@ -14,6 +15,8 @@ public class UserAttemptRequestDTO {
     private String sessionId;
     private String subconceptId;
     private String cohortId;
+    // Optional client-generated id; resending an attempt with the same uuid does not record it twice
+    private UUID uuid;
 
     // Getters and Setters
 
@@ -104,4 +107,12 @@ public class UserAttemptRequestDTO {
     public void setCohortId(String cohortId) {
         this.cohortId = cohortId;
     }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public void setUuid(UUID uuid) {
+        this.uuid = uuid;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package com.mindfultalk.growthlab.filter;
+
+import java.util.*;
+
+/**
+ * The few fields {@link SessionValidationFilter} needs to accept a request, kept as one small
+ * Redis hash per session instead of cached User, UserCohortMapping and Cohort entities.
+ *
+ * Times are epoch milliseconds and a cohort without an end date has a cohort end of -1. The
+ * last activity is moved forward in Redis by SessionActivityService as attempts come in.
+ * The user type is optional, so tickets stored before it was added still parse.
+ *
+ * Each node also keeps tickets for a few seconds in memory. Whoever deletes a ticket in Redis
+ * publishes the session id under {@link #INVALIDATION_NAME}, so every node drops its copy too.
+ */
+public final class SessionTicket {
+
+    public static final String KEY_PREFIX = "sessionTicket:";
+    public static final String INVALIDATION_NAME = "sessionTickets";
+
+    private static final String USER_ID = "u";
+    private static final String COHORT_ID = "c";
+    private static final String DEVICE_FINGERPRINT = "f";
+    private static final String SESSION_START = "s";
+    private static final String COHORT_END = "e";
+    public static final String LAST_ACTIVITY = "a";
+    private static final String USER_TYPE = "t";
+
+    private final String userId;
+    private final String cohortId;
+    private final String deviceFingerprint;
+    private final long sessionStart;
+    private final long cohortEnd;
+    private final long lastActivity;
+    private final String userType;
+
+    SessionTicket(String userId, String cohortId, String deviceFingerprint, long sessionStart, long cohortEnd,
+            long lastActivity, String userType) {
+        this.userId = userId;
+        this.cohortId = cohortId;
+        this.deviceFingerprint = deviceFingerprint;
+        this.sessionStart = sessionStart;
+        this.cohortEnd = cohortEnd;
+        this.lastActivity = lastActivity;
+        this.userType = userType;
+    }
+
+    public static String key(String sessionId) {
+        return KEY_PREFIX + sessionId;
+    }
+
+    Map<String, String> toHash() {
+        Map<String, String> hash = new HashMap<>();
+        hash.put(USER_ID, userId);
+        hash.put(COHORT_ID, cohortId);
+        if (deviceFingerprint != null) {
+            hash.put(DEVICE_FINGERPRINT, deviceFingerprint);
+        }
+        hash.put(SESSION_START, Long.toString(sessionStart));
+        hash.put(COHORT_END, Long.toString(cohortEnd));
+        hash.put(LAST_ACTIVITY, Long.toString(lastActivity));
+        if (userType != null) {
+            hash.put(USER_TYPE, userType);
+        }
+        return hash;
+    }
+
+    /**
+     * Reads a ticket back from its hash; returns null for a missing or partial ticket
+     */
+    static SessionTicket fromHash(Map<Object, Object> hash) {
+        if (hash == null || hash.get(USER_ID) == null || hash.get(COHORT_ID) == null
+                || hash.get(SESSION_START) == null || hash.get(LAST_ACTIVITY) == null) {
+            return null;
+        }
+        try {
+            return new SessionTicket(
+                    (String) hash.get(USER_ID),
+                    (String) hash.get(COHORT_ID),
+                    (String) hash.get(DEVICE_FINGERPRINT),
+                    Long.parseLong((String) hash.get(SESSION_START)),
+                    parseOrDefault(hash.get(COHORT_END), -1L),
+                    Long.parseLong((String) hash.get(LAST_ACTIVITY)),
+                    (String) hash.get(USER_TYPE));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    boolean belongsTo(String userId, String cohortId) {
+        return this.userId.equals(userId) && this.cohortId.equals(cohortId);
+    }
+
+    String getUserId() {
+        return userId;
+    }
+
+    String getCohortId() {
+        return cohortId;
+    }
+
+    String getDeviceFingerprint() {
+        return deviceFingerprint;
+    }
+
+    long getSessionStart() {
+        return sessionStart;
+    }
+
+    long getCohortEnd() {
+        return cohortEnd;
+    }
+
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    String getUserType() {
+        return userType;
+    }
+
+    private static long parseOrDefault(Object value, long defaultValue) {
+        return value == null ? defaultValue : Long.parseLong((String) value);
+    }
+}
@@ -2,20 +2,23 @@ package com.mindfultalk.growthlab.filter;
 
 import java.io.IOException;
 import java.time.*;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.*;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.*;
 import org.springframework.stereotype.Component;
 
+import com.mindfultalk.growthlab.config.TwoTierCacheManager;
 import com.mindfultalk.growthlab.model.*;
 import com.mindfultalk.growthlab.repository.*;
 import com.mindfultalk.growthlab.service.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.*;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
 
@@ -37,14 +40,13 @@ public class SessionValidationFilter implements Filter {
     private static final int SESSION_CACHE_TTL = 30; // Cache session validation for 30 minutes
     private static final int USER_CACHE_TTL = 60; // Cache user data for 1 hour
     private static final int COHORT_CACHE_TTL = 120; // Cache cohort data for 2 hours
-    private static final int ACTIVITY_CACHE_TTL = 5; // Cache activity check for 5 minutes
+    private static final int LOCAL_TICKET_TTL_SECONDS = 5; // Reuse a session ticket on this node for 5 seconds
+    private static final int LOCAL_TICKET_MAX_SIZE = 20_000;
 
     // Cache key prefixes
     private static final String SESSION_CACHE_PREFIX = "session:";
-    private static final String LAST_ACTIVITY_PREFIX = "lastActivity:";
     private static final String USER_ACTIVE_PREFIX = "userActive:";
     private static final String COHORT_STATUS_PREFIX = "cohortStatus:";
-    private static final String SESSION_VALIDATION_PREFIX = "sessionValidation:";
     private static final String USER_DATA_PREFIX = "userData:";
     private static final String COHORT_DATA_PREFIX = "cohortData:";
     private static final String USER_COHORT_MAPPING_PREFIX = "userCohortMapping:";
@@ -62,16 +64,30 @@ public class SessionValidationFilter implements Filter {
     private UserSessionMappingService userSessionMappingService;
 
     @Autowired
-    private UserAttemptsRepository userAttemptsRepository;
+    private SessionActivityService sessionActivityService;
 
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private final Cache<String, SessionTicket> localTickets = Caffeine.newBuilder()
+            .maximumSize(LOCAL_TICKET_MAX_SIZE)
+            .expireAfterWrite(LOCAL_TICKET_TTL_SECONDS, TimeUnit.SECONDS)
+            .build();
+
     @Autowired(required = false)
     private SingleDeviceLoginService singleDeviceLoginService;
 
+    @Autowired
+    private UserContext userContext;
+
+    @Autowired
+    private ObjectProvider<TwoTierCacheManager> cacheManager;
+
     // Protected endpoints that require session validation
     private static final List<String> PROTECTED_ENDPOINTS = Arrays.asList(
             "/api/v1/units/{userId}/program/{programId}",
@@ -88,6 +104,13 @@ public class SessionValidationFilter implements Filter {
             "/api/v1/organizations/login",
             "/api/v1/users/create");
 
+    // A ticket deleted in Redis on another node is dropped here too, instead of living out the local TTL
+    @PostConstruct
+    public void listenForTicketRemovals() {
+        cacheManager.ifAvailable(manager -> manager.onEntryInvalidation(SessionTicket.INVALIDATION_NAME,
+                localTickets::invalidate));
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
@@ -124,9 +147,36 @@ public class SessionValidationFilter implements Filter {
             logger.debug("Session validation successful for user: {}", validationResult.getUserId());
         }
 
+        // Let services and cache keys know the signed-in user without a query
+        populateUserContext(httpRequest);
+
         chain.doFilter(request, response);
     }
 
+    /**
+     * Fill the request's UserContext from the HTTP session. The user type was stored in the
+     * session at login; older sessions take it from this node's session ticket if there is one.
+     */
+    private void populateUserContext(HttpServletRequest request) {
+        HttpSession httpSession = request.getSession(false);
+        if (httpSession == null) {
+            return;
+        }
+        String userId = (String) httpSession.getAttribute("userId");
+        if (userId == null) {
+            return;
+        }
+        String sessionId = (String) httpSession.getAttribute("sessionId");
+        String userType = (String) httpSession.getAttribute("userType");
+        if (userType == null && sessionId != null) {
+            SessionTicket ticket = localTickets.getIfPresent(sessionId);
+            if (ticket != null && ticket.getUserId().equals(userId)) {
+                userType = ticket.getUserType();
+            }
+        }
+        userContext.populate(userId, (String) httpSession.getAttribute("cohortId"), sessionId, userType);
+    }
+
     private boolean isPublicEndpoint(String requestURI) {
         return PUBLIC_ENDPOINTS.stream().anyMatch(requestURI::contains);
     }
@@ -136,7 +186,11 @@ public class SessionValidationFilter implements Filter {
     }
 
     /**
-     * Enhanced session validation with multi-layer caching
+     * Session validation backed by a compact per-session ticket.
+     *
+     * A warm request is decided from the ticket alone: this node's copy is used for a few
+     * seconds, after that a single HGETALL reads it from Redis. The full validation against the
+     * database only runs when there is no ticket, and a successful one stores a new ticket.
      */
     private SessionValidationResult validateSessionWithCaching(HttpServletRequest request) {
         // Get session data
@@ -153,6 +207,14 @@ public class SessionValidationFilter implements Filter {
             return SessionValidationResult.invalid("Invalid session data. Please login again.", "INVALID_SESSION_DATA");
         }
 
+        // A login from another device deletes this session's ticket in Redis and on every node,
+        // so an existing ticket from the same device passes the single device check
+        SessionTicket ticket = getSessionTicket(sessionId);
+        if (ticket != null && ticket.belongsTo(userId, cohortId) && isTicketDevice(request, ticket)) {
+            logger.debug("Using session ticket for sessionId: {}", sessionId);
+            return evaluateTicket(ticket, sessionId, httpSession);
+        }
+
         // NEW: Single Device Login Validation
         SessionValidationResult singleDeviceValidation = validateSingleDeviceLogin(request, userId, sessionId);
         if (!singleDeviceValidation.isValid()) {
@@ -161,45 +223,70 @@ public class SessionValidationFilter implements Filter {
             return singleDeviceValidation;
         }
 
-        // Check cached session validation result first
-        String sessionValidationKey = SESSION_VALIDATION_PREFIX + sessionId;
+        // Perform full validation if there is no ticket
+        return performFullSessionValidation(userId, cohortId, sessionId, getDeviceFingerprint(request), httpSession);
+    }
+
+    /**
+     * Get the session ticket from this node or Redis
+     */
+    private SessionTicket getSessionTicket(String sessionId) {
+        SessionTicket ticket = localTickets.getIfPresent(sessionId);
+        if (ticket != null) {
+            return ticket;
+        }
+
         try {
-            SessionValidationResult cachedResult = (SessionValidationResult) redisTemplate.opsForValue()
-                    .get(sessionValidationKey);
-            if (cachedResult != null && cachedResult.isValid()) {
-                logger.debug("Using cached session validation for sessionId: {}", sessionId);
-
-                // Still need to check activity for timeout warnings
-                EnhancedActivityCheckResult activityResult = checkEnhancedUserActivityWithCache(userId, sessionId);
-                if (activityResult.getStatus() == EnhancedActivityStatus.WARNING) {
-                    return SessionValidationResult.warning(userId, cohortId, sessionId,
-                            "You will be logged out in " + activityResult.getMinutesRemaining()
-                                    + " minutes due to inactivity.",
-                            "INACTIVITY_WARNING");
-                }
+            ticket = SessionTicket.fromHash(stringRedisTemplate.opsForHash().entries(SessionTicket.key(sessionId)));
+        } catch (Exception e) {
+            logger.warn("Error retrieving session ticket: {}", e.getMessage());
+            return null;
+        }
 
-                return cachedResult;
-            }
+        if (ticket != null) {
+            localTickets.put(sessionId, ticket);
+        }
+        return ticket;
+    }
+
+    private void storeSessionTicket(String sessionId, SessionTicket ticket) {
+        try {
+            String ticketKey = SessionTicket.key(sessionId);
+            stringRedisTemplate.opsForHash().putAll(ticketKey, ticket.toHash());
+            stringRedisTemplate.expire(ticketKey, SESSION_CACHE_TTL, TimeUnit.MINUTES);
+            localTickets.put(sessionId, ticket);
+            logger.debug("Stored session ticket for sessionId: {}", sessionId);
         } catch (Exception e) {
-            logger.warn("Error retrieving cached session validation: {}", e.getMessage());
+            logger.warn("Error storing session ticket: {}", e.getMessage());
         }
+    }
 
-        // Perform full validation if not cached
-        SessionValidationResult validationResult = performFullSessionValidation(userId, cohortId, sessionId,
-                httpSession);
+    private void removeSessionTicket(String sessionId) {
+        localTickets.invalidate(sessionId);
+        try {
+            stringRedisTemplate.delete(SessionTicket.key(sessionId));
+        } catch (Exception e) {
+            logger.warn("Error removing session ticket: {}", e.getMessage());
+        }
+        cacheManager.ifAvailable(manager -> manager.publishEntryInvalidation(SessionTicket.INVALIDATION_NAME, sessionId));
+    }
 
-        // Cache successful validation results
-        if (validationResult.isValid() && !validationResult.isWarning()) {
-            try {
-                redisTemplate.opsForValue().set(sessionValidationKey, validationResult, SESSION_CACHE_TTL,
-                        TimeUnit.MINUTES);
-                logger.debug("Cached session validation result for sessionId: {}", sessionId);
-            } catch (Exception e) {
-                logger.warn("Error caching session validation result: {}", e.getMessage());
-            }
+    private boolean isTicketDevice(HttpServletRequest request, SessionTicket ticket) {
+        if (singleDeviceLoginService == null || !singleDeviceLoginService.isSingleDeviceLoginEnabled()) {
+            return true;
         }
+        return Objects.equals(ticket.getDeviceFingerprint(), getDeviceFingerprint(request));
+    }
 
-        return validationResult;
+    private String getDeviceFingerprint(HttpServletRequest request) {
+        if (singleDeviceLoginService == null || !singleDeviceLoginService.isSingleDeviceLoginEnabled()) {
+            return null;
+        }
+        return singleDeviceLoginService.createDeviceFingerprint(
+                request.getHeader("User-Agent"),
+                getClientIpAddress(request),
+                request.getHeader("Accept-Language"),
+                request.getHeader("Accept-Encoding"));
     }
 
     /**
@@ -213,12 +300,7 @@ public class SessionValidationFilter implements Filter {
 
         try {
             // Build device fingerprint from current request
-            String userAgent = request.getHeader("User-Agent");
-            String remoteAddr = getClientIpAddress(request);
-            String acceptLanguage = request.getHeader("Accept-Language");
-            String acceptEncoding = request.getHeader("Accept-Encoding");
-            String currentDeviceFingerprint = singleDeviceLoginService.createDeviceFingerprint(
-                    userAgent, remoteAddr, acceptLanguage, acceptEncoding);
+            String currentDeviceFingerprint = getDeviceFingerprint(request);
 
             // 1. Check active session in Redis
             String activeSessionKey = "activeSession:" + userId;
@@ -286,10 +368,10 @@ public class SessionValidationFilter implements Filter {
     }
 
     /**
-     * Perform full session validation with database checks
+     * Perform full session validation with database checks and store the outcome as a ticket
      */
     private SessionValidationResult performFullSessionValidation(String userId, String cohortId, String sessionId,
-            HttpSession httpSession) {
+            String deviceFingerprint, HttpSession httpSession) {
         // Basic validations with caching
         SessionValidationResult basicValidation = performCachedBasicValidations(userId, cohortId, sessionId,
                 httpSession);
@@ -297,8 +379,59 @@ public class SessionValidationFilter implements Filter {
             return basicValidation;
         }
 
-        // Enhanced activity-based timeout check with caching
-        EnhancedActivityCheckResult activityResult = checkEnhancedUserActivityWithCache(userId, sessionId);
+        SessionTicket ticket;
+        try {
+            ticket = buildSessionTicket(userId, cohortId, sessionId, deviceFingerprint);
+        } catch (Exception e) {
+            logger.error("Error checking enhanced user activity for userId: {}", userId, e);
+            return SessionValidationResult.invalid("Unable to verify session activity.", "ACTIVITY_CHECK_ERROR");
+        }
+        if (ticket == null) {
+            return SessionValidationResult.invalid("Invalid session. Please login again.", "SESSION_NOT_FOUND");
+        }
+
+        SessionValidationResult validationResult = evaluateTicket(ticket, sessionId, httpSession);
+        if (validationResult.isValid()) {
+            storeSessionTicket(sessionId, ticket);
+        }
+        return validationResult;
+    }
+
+    private SessionTicket buildSessionTicket(String userId, String cohortId, String sessionId,
+            String deviceFingerprint) {
+        Optional<UserSessionMapping> sessionOpt = userSessionMappingService.getUserSessionMappingById(sessionId);
+        Cohort cohort = getCachedCohort(cohortId);
+        if (sessionOpt.isEmpty() || cohort == null) {
+            return null;
+        }
+
+        long sessionStart = sessionOpt.get().getSessionStartTimestamp().toInstant().toEpochMilli();
+        long cohortEnd = cohort.getCohortEndDate() == null ? -1L : getCohortEndTime(cohort).toInstant().toEpochMilli();
+        // Attempts move the ticket's last activity forward from here on
+        long lastActivity = sessionActivityService.findLastActivity(sessionId, sessionStart);
+        User user = getCachedUser(userId);
+        return new SessionTicket(userId, cohortId, deviceFingerprint, sessionStart, cohortEnd, lastActivity,
+                user == null ? null : user.getUserType());
+    }
+
+    /**
+     * Decide a request from the ticket: cohort end, maximum duration and inactivity
+     */
+    private SessionValidationResult evaluateTicket(SessionTicket ticket, String sessionId, HttpSession httpSession) {
+        String userId = ticket.getUserId();
+        String cohortId = ticket.getCohortId();
+        long now = System.currentTimeMillis();
+
+        if (ticket.getCohortEnd() >= 0 && now > ticket.getCohortEnd()) {
+            invalidateSessionAndLogout(httpSession, sessionId, "COHORT_ENDED");
+            return SessionValidationResult.invalid(
+                    "This program has ended. Please select a different program or contact your administrator.",
+                    "COHORT_ENDED");
+        }
+
+        // Enhanced activity-based timeout check
+        EnhancedActivityCheckResult activityResult = evaluateActivity(sessionId, ticket.getSessionStart(),
+                ticket.getLastActivity(), now);
 
         switch (activityResult.getStatus()) {
             case ACTIVE:
@@ -478,100 +611,42 @@ public class SessionValidationFilter implements Filter {
     }
 
     /**
-     * Enhanced activity check with caching
+     * Evaluate maximum duration and inactivity from the session start and last activity
      */
-    private EnhancedActivityCheckResult checkEnhancedUserActivityWithCache(String userId, String sessionId) {
-        String activityKey = LAST_ACTIVITY_PREFIX + sessionId;
-        try {
-            EnhancedActivityCheckResult cachedResult = (EnhancedActivityCheckResult) redisTemplate.opsForValue()
-                    .get(activityKey);
-            if (cachedResult != null) {
-                logger.debug("Retrieved activity check from cache for sessionId: {}", sessionId);
-                return cachedResult;
-            }
-        } catch (Exception e) {
-            logger.warn("Error retrieving cached activity check: {}", e.getMessage());
+    private EnhancedActivityCheckResult evaluateActivity(String sessionId, long sessionStart, long lastActivity,
+            long now) {
+        // Check if session has exceeded maximum duration (8 hours)
+        long hoursSinceStart = TimeUnit.MILLISECONDS.toHours(now - sessionStart);
+        if (hoursSinceStart >= MAX_SESSION_DURATION_HOURS) {
+            logger.info("Session exceeded maximum duration - sessionId: {}, hours: {}", sessionId, hoursSinceStart);
+            return EnhancedActivityCheckResult.maxDurationExceeded();
+        }
+
+        // Check if session has exceeded inactivity timeout (1 hour)
+        long minutesSinceStart = TimeUnit.MILLISECONDS.toMinutes(now - sessionStart);
+        if (minutesSinceStart > SESSION_TIMEOUT_MINUTES) {
+            return EnhancedActivityCheckResult.timeout();
         }
 
-        // Perform actual activity check
-        EnhancedActivityCheckResult result = performEnhancedActivityCheck(userId, sessionId);
+        // Calculate minutes since last activity
+        long minutesSinceActivity = TimeUnit.MILLISECONDS.toMinutes(now - lastActivity);
 
-        // Cache the result with shorter TTL for activity-sensitive data
-        try {
-            redisTemplate.opsForValue().set(activityKey, result, ACTIVITY_CACHE_TTL, TimeUnit.MINUTES);
-            logger.debug("Cached activity check result for sessionId: {}", sessionId);
-        } catch (Exception e) {
-            logger.warn("Error caching activity check result: {}", e.getMessage());
+        // Check timeout threshold (1 hour of inactivity)
+        if (minutesSinceActivity >= SESSION_TIMEOUT_MINUTES) {
+            logger.info("Session timed out due to inactivity - sessionId: {}, minutes since activity: {}",
+                    sessionId, minutesSinceActivity);
+            return EnhancedActivityCheckResult.timeout();
         }
 
-        return result;
-    }
-
-    /**
-     * Perform the actual enhanced activity check
-     */
-    private EnhancedActivityCheckResult performEnhancedActivityCheck(String userId, String sessionId) {
-        try {
-            // Get session start time
-            Optional<UserSessionMapping> sessionOpt = userSessionMappingService.getUserSessionMappingById(sessionId);
-            if (sessionOpt.isEmpty()) {
-                return EnhancedActivityCheckResult.timeout();
-            }
-
-            OffsetDateTime sessionStart = sessionOpt.get().getSessionStartTimestamp();
-            OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
-
-            // Check if session has exceeded maximum duration (8 hours)
-            long hoursSinceStart = ChronoUnit.HOURS.between(sessionStart, now);
-            if (hoursSinceStart >= MAX_SESSION_DURATION_HOURS) {
-                logger.info("Session exceeded maximum duration - sessionId: {}, hours: {}", sessionId, hoursSinceStart);
-                return EnhancedActivityCheckResult.maxDurationExceeded();
-            }
-
-            // Check if session has exceeded inactivity timeout (1 hour)
-            long minutesSinceStart = ChronoUnit.MINUTES.between(sessionStart, now);
-            if (minutesSinceStart > SESSION_TIMEOUT_MINUTES) {
-                return EnhancedActivityCheckResult.timeout();
-            }
-
-            // Get latest user attempt within the session timeframe
-            List<UserAttempts> userAttempts = userAttemptsRepository.findAttemptsByUserId(userId);
-
-            OffsetDateTime lastActivityTime = sessionStart; // Default to session start
-
-            // Find the most recent activity after session start
-            for (UserAttempts attempt : userAttempts) {
-                if (attempt.getUserAttemptEndTimestamp() != null &&
-                        attempt.getUserAttemptEndTimestamp().isAfter(sessionStart) &&
-                        attempt.getUserAttemptEndTimestamp().isAfter(lastActivityTime)) {
-                    lastActivityTime = attempt.getUserAttemptEndTimestamp();
-                }
-            }
-
-            // Calculate minutes since last activity
-            long minutesSinceActivity = ChronoUnit.MINUTES.between(lastActivityTime, now);
-
-            // Check timeout threshold (1 hour of inactivity)
-            if (minutesSinceActivity >= SESSION_TIMEOUT_MINUTES) {
-                logger.info("Session timed out due to inactivity - sessionId: {}, minutes since activity: {}",
-                        sessionId, minutesSinceActivity);
-                return EnhancedActivityCheckResult.timeout();
-            }
-
-            // Check warning threshold (55 minutes of inactivity - 5 minutes before timeout)
-            long warningThreshold = SESSION_TIMEOUT_MINUTES - WARNING_TIME_MINUTES;
-            if (minutesSinceActivity >= warningThreshold) {
-                long minutesRemaining = SESSION_TIMEOUT_MINUTES - minutesSinceActivity;
-                return EnhancedActivityCheckResult.warning(minutesRemaining);
-            }
-
-            // User is active
-            return EnhancedActivityCheckResult.active();
-
-        } catch (Exception e) {
-            logger.error("Error checking enhanced user activity for userId: {}", userId, e);
-            return EnhancedActivityCheckResult.timeout();
+        // Check warning threshold (55 minutes of inactivity - 5 minutes before timeout)
+        long warningThreshold = SESSION_TIMEOUT_MINUTES - WARNING_TIME_MINUTES;
+        if (minutesSinceActivity >= warningThreshold) {
+            long minutesRemaining = SESSION_TIMEOUT_MINUTES - minutesSinceActivity;
+            return EnhancedActivityCheckResult.warning(minutesRemaining);
         }
+
+        // User is active
+        return EnhancedActivityCheckResult.active();
     }
 
     /**
@@ -579,9 +654,9 @@ public class SessionValidationFilter implements Filter {
      */
     public void updateUserActivity(String sessionId, String userId) {
         try {
-            String activityKey = LAST_ACTIVITY_PREFIX + sessionId;
-            // Remove cached activity result to force fresh check
-            redisTemplate.delete(activityKey);
+            // Record the action as session activity
+            sessionActivityService.recordActivity(sessionId, OffsetDateTime.now(ZoneOffset.UTC));
+            localTickets.invalidate(sessionId);
 
             // Also update a simple last-seen timestamp
             String lastSeenKey = USER_ACTIVE_PREFIX + userId;
@@ -616,11 +691,13 @@ public class SessionValidationFilter implements Filter {
             return false;
         }
 
-        OffsetDateTime cohortEndDate = cohort.getCohortEndDate()
-                .withHour(23).withMinute(59).withSecond(59);
         OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        return now.isAfter(getCohortEndTime(cohort));
+    }
 
-        return now.isAfter(cohortEndDate);
+    private OffsetDateTime getCohortEndTime(Cohort cohort) {
+        return cohort.getCohortEndDate()
+                .withHour(23).withMinute(59).withSecond(59);
     }
 
     private void invalidateSessionAndLogout(HttpSession httpSession, String sessionId, String reason) {
@@ -631,12 +708,11 @@ public class SessionValidationFilter implements Filter {
                 UserSessionMapping userSession = sessionOpt.get();
                 userSession.setSessionEndTimestamp(OffsetDateTime.now(ZoneOffset.UTC));
                 userSessionMappingService.updateUserSessionMapping(sessionId, userSession);
-
-                // Invalidate session cache
-                String sessionValidationKey = SESSION_VALIDATION_PREFIX + sessionId;
-                redisTemplate.delete(sessionValidationKey);
             }
 
+            // Invalidate session ticket
+            removeSessionTicket(sessionId);
+
             // Invalidate HTTP session
             httpSession.invalidate();
             logger.info("Session invalidated - sessionId: {}, reason: {}", sessionId, reason);
@@ -779,10 +855,9 @@ public class SessionValidationFilter implements Filter {
             keysToDelete.add(USER_DATA_PREFIX + userId);
             keysToDelete.add(USER_COHORT_MAPPING_PREFIX + userId + ":" + cohortId);
             keysToDelete.add(USER_ACTIVE_PREFIX + userId);
-            keysToDelete.add(LAST_ACTIVITY_PREFIX + sessionId);
-            keysToDelete.add(SESSION_VALIDATION_PREFIX + sessionId);
 
             redisTemplate.delete(keysToDelete);
+            removeSessionTicket(sessionId);
             logger.debug("Evicted session caches for userId: {}, cohortId: {}, sessionId: {}",
                     userId, cohortId, sessionId);
         } catch (Exception e) {
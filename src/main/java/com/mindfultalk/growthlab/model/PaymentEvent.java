@@ -8,9 +8,18 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "payment_events")
+@Table(name = "payment_events", indexes = {
+    @Index(name = "uk_payment_events_event_id", columnList = "event_id", unique = true),
+    @Index(name = "idx_payment_events_processing", columnList = "processing_status, id"),
+    @Index(name = "idx_payment_events_payment_id", columnList = "payment_id, id")
+})
 public class PaymentEvent {
     
+    // Processing states of a webhook delivery; events recorded by other paths have none
+    public static final String PROCESSING_PENDING = "PENDING";
+    public static final String PROCESSING_PROCESSED = "PROCESSED";
+    public static final String PROCESSING_FAILED = "FAILED";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -49,6 +58,28 @@ public class PaymentEvent {
     
     @Column(name = "uuid", unique = true, nullable = false, updatable = false)
     private UUID uuid;
+    
+    // Razorpay event id of a webhook delivery; a redelivered event hits the unique index
+    @Column(name = "event_id", length = 100, updatable = false)
+    private String eventId;
+    
+    @Column(name = "processing_status", length = 20)
+    private String processingStatus;
+    
+    @Column(name = "retry_count")
+    private Integer retryCount;
+    
+    // When a pending webhook delivery may be picked up next; a failure moves it forward by the retry backoff
+    @Column(name = "next_attempt_at")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private OffsetDateTime nextAttemptAt;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @Column(name = "processed_at")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private OffsetDateTime processedAt;
 
     // Default constructor
     public PaymentEvent() {
@@ -169,13 +200,62 @@ public class PaymentEvent {
     public void setUuid(UUID uuid) {
         this.uuid = uuid;
     }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getProcessingStatus() {
+        return processingStatus;
+    }
+
+    public void setProcessingStatus(String processingStatus) {
+        this.processingStatus = processingStatus;
+    }
+
+    public Integer getRetryCount() {
+        return retryCount;
+    }
+
+    public void setRetryCount(Integer retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public OffsetDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(OffsetDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public OffsetDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(OffsetDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
     
  @Override
 	public String toString() {
 		return "PaymentEvent [id=" + id + ", eventType=" + eventType + ", paymentId=" + paymentId + ", orderId="
 				+ orderId + ", amount=" + amount + ", status=" + status + ", errorCode=" + errorCode
 				+ ", errorDescription=" + errorDescription + ", createdAt=" + createdAt + ", rawPayload=" + rawPayload
-				+ ", subscriptionId=" + subscriptionId + ", uuid=" + uuid + "]";
+				+ ", subscriptionId=" + subscriptionId + ", uuid=" + uuid + ", eventId=" + eventId
+				+ ", processingStatus=" + processingStatus + "]";
 	}
 
 	// Generate UUID before persistence
@@ -0,0 +1,259 @@
+package com.mindfultalk.growthlab.model;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import org.hibernate.annotations.CreationTimestamp;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+
+/**
+ * An accepted user attempt waiting to be applied by the attempt batcher.
+ *
+ * The uuid becomes the uuid of the resulting {@link UserAttempts} row, which makes applying an
+ * outbox entry idempotent: an entry whose uuid already exists in user_attempts is not applied again.
+ *
+ * nextAttemptAt is when the entry may be claimed next; a failed apply moves it forward by the
+ * retry backoff.
+ */
+@Entity
+@Table(name = "user_attempt_outbox", indexes = {
+    @Index(name = "idx_user_attempt_outbox_status", columnList = "status, id")
+})
+public class UserAttemptOutbox {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_APPLIED = "APPLIED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "uuid", unique = true, nullable = false, updatable = false)
+    private UUID uuid;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "program_id", nullable = false)
+    private String programId;
+
+    @Column(name = "stage_id", nullable = false)
+    private String stageId;
+
+    @Column(name = "unit_id", nullable = false)
+    private String unitId;
+
+    @Column(name = "subconcept_id", nullable = false)
+    private String subconceptId;
+
+    @Column(name = "session_id", nullable = false)
+    private String sessionId;
+
+    @Column(name = "cohort_id", nullable = false)
+    private String cohortId;
+
+    @Column(name = "user_attempt_score", nullable = false)
+    private int userAttemptScore;
+
+    @Column(name = "user_attempt_flag", nullable = false)
+    private boolean userAttemptFlag;
+
+    @Column(name = "user_attempt_start_timestamp", nullable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private OffsetDateTime userAttemptStartTimestamp;
+
+    @Column(name = "user_attempt_end_timestamp")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private OffsetDateTime userAttemptEndTimestamp;
+
+    @Column(name = "status", length = 20, nullable = false)
+    private String status = STATUS_PENDING;
+
+    @Column(name = "retry_count", nullable = false)
+    private int retryCount;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    @CreationTimestamp
+    private OffsetDateTime createdAt;
+
+    @Column(name = "processed_at")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private OffsetDateTime processedAt;
+
+    // Default constructor
+    public UserAttemptOutbox() {
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public void setUuid(UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getProgramId() {
+        return programId;
+    }
+
+    public void setProgramId(String programId) {
+        this.programId = programId;
+    }
+
+    public String getStageId() {
+        return stageId;
+    }
+
+    public void setStageId(String stageId) {
+        this.stageId = stageId;
+    }
+
+    public String getUnitId() {
+        return unitId;
+    }
+
+    public void setUnitId(String unitId) {
+        this.unitId = unitId;
+    }
+
+    public String getSubconceptId() {
+        return subconceptId;
+    }
+
+    public void setSubconceptId(String subconceptId) {
+        this.subconceptId = subconceptId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getCohortId() {
+        return cohortId;
+    }
+
+    public void setCohortId(String cohortId) {
+        this.cohortId = cohortId;
+    }
+
+    public int getUserAttemptScore() {
+        return userAttemptScore;
+    }
+
+    public void setUserAttemptScore(int userAttemptScore) {
+        this.userAttemptScore = userAttemptScore;
+    }
+
+    public boolean isUserAttemptFlag() {
+        return userAttemptFlag;
+    }
+
+    public void setUserAttemptFlag(boolean userAttemptFlag) {
+        this.userAttemptFlag = userAttemptFlag;
+    }
+
+    public OffsetDateTime getUserAttemptStartTimestamp() {
+        return userAttemptStartTimestamp;
+    }
+
+    public void setUserAttemptStartTimestamp(OffsetDateTime userAttemptStartTimestamp) {
+        this.userAttemptStartTimestamp = userAttemptStartTimestamp;
+    }
+
+    public OffsetDateTime getUserAttemptEndTimestamp() {
+        return userAttemptEndTimestamp;
+    }
+
+    public void setUserAttemptEndTimestamp(OffsetDateTime userAttemptEndTimestamp) {
+        this.userAttemptEndTimestamp = userAttemptEndTimestamp;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getRetryCount() {
+        return retryCount;
+    }
+
+    public void setRetryCount(int retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    public OffsetDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(OffsetDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public OffsetDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(OffsetDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+
+    @PrePersist
+    private void ensureUuid() {
+        if (this.uuid == null) {
+            this.uuid = UUID.randomUUID();
+        }
+        if (this.nextAttemptAt == null) {
+            this.nextAttemptAt = OffsetDateTime.now();
+        }
+    }
+}
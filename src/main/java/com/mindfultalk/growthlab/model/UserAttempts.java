@@ -6,7 +6,10 @@ import java.util.UUID;
 import com.fasterxml.jackson.annotation.JsonFormat;
 
 @Entity
-@Table(name = "user_attempts")
+@Table(name = "user_attempts", indexes = {
+    @Index(name = "idx_user_attempts_session_end", columnList = "session_id, user_attempt_end_timestamp"),
+    @Index(name = "idx_user_attempts_user_end", columnList = "user_id, user_attempt_end_timestamp")
+})
 public class UserAttempts {
 
     @Id
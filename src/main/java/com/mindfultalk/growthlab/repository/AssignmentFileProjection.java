@@ -0,0 +1,12 @@
+package com.mindfultalk.growthlab.repository;
+
+/**
+ * Projection of a submitted assignment file: the columns a ZIP export needs
+ */
+public interface AssignmentFileProjection {
+	String getAssignmentId();
+	String getUserId();
+	String getFileName();
+	String getFilePath();
+	Long getFileSize();
+}
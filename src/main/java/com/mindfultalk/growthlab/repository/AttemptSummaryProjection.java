@@ -0,0 +1,16 @@
+package com.mindfultalk.growthlab.repository;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Projection of the {@code UserAttempts} columns used by report assembly
+ */
+public interface AttemptSummaryProjection {
+	Long getAttemptId();
+	String getSubconceptId();
+	String getProgramId();
+	OffsetDateTime getStartTimestamp();
+	OffsetDateTime getEndTimestamp();
+	Integer getScore();
+	Boolean getSuccessful();
+}
@@ -0,0 +1,39 @@
+package com.mindfultalk.growthlab.repository;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Projection of an assignment of a cohort with the user, curriculum and file columns the mentor
+ * views show. File columns are null when no file was submitted or corrected.
+ */
+public interface CohortAssignmentProjection {
+	String getAssignmentId();
+	OffsetDateTime getSubmittedDate();
+	OffsetDateTime getCorrectedDate();
+	Integer getScore();
+	String getRemarks();
+	String getUserId();
+	String getUserName();
+	String getProgramId();
+	String getProgramName();
+	String getStageId();
+	String getStageName();
+	String getUnitId();
+	String getUnitName();
+	String getSubconceptId();
+	String getSubconceptDesc();
+	Integer getSubconceptMaxscore();
+	String getSubconceptLink();
+	String getSubconceptType();
+	String getSubconceptDependency();
+	String getSubmittedFileId();
+	String getSubmittedFileName();
+	String getSubmittedFileType();
+	Long getSubmittedFileSize();
+	String getSubmittedFilePath();
+	String getCorrectedFileId();
+	String getCorrectedFileName();
+	String getCorrectedFileType();
+	Long getCorrectedFileSize();
+	String getCorrectedFilePath();
+}
@@ -0,0 +1,16 @@
+package com.mindfultalk.growthlab.repository;
+
+/**
+ * Projection of a user cohort mapping with the user and cohort columns the mapping listings show
+ */
+public interface CohortMappingProjection {
+	Integer getUserCohortId();
+	String getCohortId();
+	String getCohortName();
+	String getUserId();
+	String getUserName();
+	String getUserType();
+	String getUserEmail();
+	Integer getLeaderboardScore();
+	String getStatus();
+}
@@ -0,0 +1,12 @@
+package com.mindfultalk.growthlab.repository;
+
+/**
+ * Projection of a cohort member: user identity, type, phone number and leaderboard score
+ */
+public interface CohortMemberProjection {
+	String getUserId();
+	String getUserName();
+	String getUserType();
+	String getUserPhoneNumber();
+	Integer getLeaderboardScore();
+}
@@ -25,4 +25,9 @@ public interface CohortProgramRepository extends JpaRepository<CohortProgram, Lo
 		       "WHERE c.organization.organizationId = :organizationId")
 		List<CohortProgram> findCohortsByOrganizationId(@Param("organizationId") String organizationId);
 	 List<CohortProgram> findByProgramProgramIdAndCohort_Organization_OrganizationId(String programId, String organizationId);
+	 
+	 @Query("SELECT cp FROM CohortProgram cp " +
+		       "JOIN FETCH cp.program p " +
+		       "WHERE cp.cohort.cohortId IN :cohortIds")
+		List<CohortProgram> findWithProgramByCohortIds(@Param("cohortIds") Collection<String> cohortIds);
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.mindfultalk.growthlab.repository;
+
+import com.mindfultalk.growthlab.model.*;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    long countByStatus(String status);
+
+    @Query("SELECT e.id FROM EmailOutbox e WHERE e.status = :status AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt ASC, e.id ASC")
+    List<Long> findDueIds(@Param("status") String status, @Param("now") OffsetDateTime now, Pageable pageable);
+
+    // Rows locked by another node's dispatcher are skipped rather than waited for
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM EmailOutbox e WHERE e.id IN :ids AND e.status = :status AND e.nextAttemptAt <= :now ORDER BY e.id ASC")
+    List<EmailOutbox> lockDueByIds(@Param("ids") Collection<Long> ids, @Param("status") String status,
+                                   @Param("now") OffsetDateTime now);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.sentAt = :sentAt, e.lastError = NULL, e.body = NULL WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("status") String status, @Param("sentAt") OffsetDateTime sentAt);
+
+    @Modifying
+    @Query("DELETE FROM EmailOutbox e WHERE e.status IN :statuses AND e.createdAt < :cutoff")
+    int deleteFinishedBefore(@Param("statuses") Collection<String> statuses, @Param("cutoff") OffsetDateTime cutoff);
+}
@@ -0,0 +1,18 @@
+package com.mindfultalk.growthlab.repository;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Projection of an inactive learner's active cohort membership: the fields the weekly report and
+ * the reminder email need, and the time of the learner's last attempt
+ */
+public interface InactiveCohortMemberProjection {
+	String getUserId();
+	String getUserName();
+	String getUserEmail();
+	String getOrganizationId();
+	String getOrganizationAdminEmail();
+	String getCohortId();
+	Integer getLeaderboardScore();
+	OffsetDateTime getLastActivity();
+}
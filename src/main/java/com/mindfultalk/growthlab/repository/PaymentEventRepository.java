@@ -2,14 +2,40 @@ package com.mindfultalk.growthlab.repository;
 
 import com.mindfultalk.growthlab.model.*;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.OffsetDateTime;
 import java.util.*;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface PaymentEventRepository extends JpaRepository<PaymentEvent, Long> {
     List<PaymentEvent> findByPaymentId(String paymentId);
     List<PaymentEvent> findBySubscriptionId(Long subscriptionId);
     List<PaymentEvent> findByEventType(String eventType);
     List<PaymentEvent> findByOrderId(String orderId);
-}
\ No newline at end of file
+    
+    boolean existsByEventId(String eventId);
+    
+    // Id and payment id of the oldest events in the given state that are due, in arrival order
+    @Query("SELECT e.id, e.paymentId FROM PaymentEvent e WHERE e.processingStatus = :status " +
+           "AND e.nextAttemptAt <= :now ORDER BY e.id ASC")
+    List<Object[]> findDueIdsAndPaymentIdsByProcessingStatus(@Param("status") String status,
+                                                             @Param("now") OffsetDateTime now, Pageable pageable);
+    
+    // A row locked by another instance's worker is skipped rather than waited for
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM PaymentEvent e WHERE e.id = :id AND e.processingStatus = :status")
+    List<PaymentEvent> lockByIdAndProcessingStatus(@Param("id") Long id, @Param("status") String status);
+    
+    // Whether an earlier delivery for the same payment still waits to be processed
+    @Query("SELECT COUNT(e) > 0 FROM PaymentEvent e WHERE e.paymentId = :paymentId " +
+           "AND e.processingStatus = :status AND e.id < :id")
+    boolean existsEarlierWithProcessingStatus(@Param("paymentId") String paymentId, @Param("id") Long id,
+                                              @Param("status") String status);
+}
@@ -0,0 +1,17 @@
+package com.mindfultalk.growthlab.repository;
+
+import java.util.UUID;
+
+/**
+ * Projection of a mapping in the mapping listing: its own columns and the ids it refers to
+ */
+public interface ProgramConceptsMappingListingProjection {
+	Long getProgramConceptId();
+	String getProgramConceptDesc();
+	Integer getPosition();
+	UUID getUuid();
+	String getProgramId();
+	String getStageId();
+	String getUnitId();
+	String getSubconceptId();
+}
@@ -2,6 +2,7 @@ package com.mindfultalk.growthlab.repository;
 
 import com.mindfultalk.growthlab.model.*;
 import java.util.*;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -25,4 +26,56 @@ public interface ProgramConceptsMappingRepository extends JpaRepository<ProgramC
 
     @Query("SELECT pcm.subconcept.subconceptId FROM ProgramConceptsMapping pcm WHERE pcm.unit.unitId = :unitId")
     List<String> findSubconceptIdsByUnitId(@Param("unitId") String unitId);
+
+    /**
+     * All mappings of every unit in the program in position order, with the subconcept, its
+     * concept and content fetched in the same query so the curriculum graph is built without
+     * touching the database per unit
+     */
+    @Query("SELECT pcm FROM ProgramConceptsMapping pcm " +
+           "JOIN FETCH pcm.unit u " +
+           "JOIN FETCH pcm.stage " +
+           "JOIN FETCH pcm.program " +
+           "JOIN FETCH pcm.subconcept s " +
+           "LEFT JOIN FETCH s.concept c " +
+           "LEFT JOIN FETCH c.content " +
+           "LEFT JOIN FETCH s.content " +
+           "WHERE u.stage.program.programId = :programId " +
+           "ORDER BY pcm.position ASC, pcm.programConceptId ASC")
+    List<ProgramConceptsMapping> findByUnitProgramIdWithSubconcepts(@Param("programId") String programId);
+
+    // Pages of mappings after the given mapping ID, one query per filter combination
+    @Query("SELECT pcm.programConceptId AS programConceptId, pcm.programConceptDesc AS programConceptDesc, " +
+           "pcm.position AS position, pcm.uuid AS uuid, pcm.program.programId AS programId, " +
+           "pcm.stage.stageId AS stageId, pcm.unit.unitId AS unitId, pcm.subconcept.subconceptId AS subconceptId " +
+           "FROM ProgramConceptsMapping pcm WHERE pcm.programConceptId > :after ORDER BY pcm.programConceptId")
+    List<ProgramConceptsMappingListingProjection> findPage(@Param("after") long after, Pageable pageable);
+
+    @Query("SELECT pcm.programConceptId AS programConceptId, pcm.programConceptDesc AS programConceptDesc, " +
+           "pcm.position AS position, pcm.uuid AS uuid, pcm.program.programId AS programId, " +
+           "pcm.stage.stageId AS stageId, pcm.unit.unitId AS unitId, pcm.subconcept.subconceptId AS subconceptId " +
+           "FROM ProgramConceptsMapping pcm WHERE pcm.programConceptId > :after " +
+           "AND pcm.program.programId = :programId ORDER BY pcm.programConceptId")
+    List<ProgramConceptsMappingListingProjection> findPageByProgramId(@Param("after") long after,
+                                                                      @Param("programId") String programId,
+                                                                      Pageable pageable);
+
+    @Query("SELECT pcm.programConceptId AS programConceptId, pcm.programConceptDesc AS programConceptDesc, " +
+           "pcm.position AS position, pcm.uuid AS uuid, pcm.program.programId AS programId, " +
+           "pcm.stage.stageId AS stageId, pcm.unit.unitId AS unitId, pcm.subconcept.subconceptId AS subconceptId " +
+           "FROM ProgramConceptsMapping pcm WHERE pcm.programConceptId > :after " +
+           "AND pcm.unit.unitId = :unitId ORDER BY pcm.programConceptId")
+    List<ProgramConceptsMappingListingProjection> findPageByUnitId(@Param("after") long after,
+                                                                   @Param("unitId") String unitId,
+                                                                   Pageable pageable);
+
+    @Query("SELECT pcm.programConceptId AS programConceptId, pcm.programConceptDesc AS programConceptDesc, " +
+           "pcm.position AS position, pcm.uuid AS uuid, pcm.program.programId AS programId, " +
+           "pcm.stage.stageId AS stageId, pcm.unit.unitId AS unitId, pcm.subconcept.subconceptId AS subconceptId " +
+           "FROM ProgramConceptsMapping pcm WHERE pcm.programConceptId > :after " +
+           "AND pcm.program.programId = :programId AND pcm.unit.unitId = :unitId ORDER BY pcm.programConceptId")
+    List<ProgramConceptsMappingListingProjection> findPageByProgramIdAndUnitId(@Param("after") long after,
+                                                                               @Param("programId") String programId,
+                                                                               @Param("unitId") String unitId,
+                                                                               Pageable pageable);
 }
\ No newline at end of file
@@ -16,5 +16,8 @@ public interface StageRepository extends JpaRepository<Stage, String> {
 	
 	@Query("SELECT s.stageId FROM Stage s WHERE s.program.programId = :programId")
 	List<String> findStageIdsByProgramId(@Param("programId") String programId);
+
+	@Query("SELECT s.program.programId FROM Stage s WHERE s.stageId = :stageId")
+	Optional<String> findProgramIdByStageId(@Param("stageId") String stageId);
 	// Custom query methods can be added here if necessary
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.mindfultalk.growthlab.repository;
+
+/**
+ * Projection of a single {@code UserSubConcept} completion row
+ */
+public interface SubconceptCompletionProjection {
+	String getUnitId();
+	String getSubconceptId();
+}
@@ -4,11 +4,25 @@ import com.mindfultalk.growthlab.model.*;
 import java.util.*;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UnitRepository extends JpaRepository<Unit, String> {
 	List<Unit> findByStage_StageId(String stageId);
 	Optional<Unit> findByUnitId(String unitId);
+	
+	/**
+	 * All units of every stage in the program, with their stage fetched in the same query
+	 */
+	@Query("SELECT u FROM Unit u JOIN FETCH u.stage s JOIN FETCH u.program WHERE s.program.programId = :programId")
+	List<Unit> findByStageProgramIdWithStage(@Param("programId") String programId);
+
+	/**
+	 * Program a unit belongs to through its stage
+	 */
+	@Query("SELECT u.stage.program.programId FROM Unit u WHERE u.unitId = :unitId")
+	Optional<String> findProgramIdByUnitId(@Param("unitId") String unitId);
 	// You can add custom queries here if necessary
 }
\ No newline at end of file
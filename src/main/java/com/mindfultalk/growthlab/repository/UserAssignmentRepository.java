@@ -2,7 +2,8 @@ package com.mindfultalk.growthlab.repository;
 
 import com.mindfultalk.growthlab.model.*;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.OffsetDateTime;
@@ -15,6 +16,38 @@ public interface UserAssignmentRepository extends JpaRepository<UserAssignment,
 
     List<UserAssignment> findByCohortCohortId(String cohortId);
     
+    // Assignments of a cohort with the columns the mentor views show, files joined only when present
+    @Query("SELECT a.assignmentId AS assignmentId, a.submittedDate AS submittedDate, " +
+           "a.correctedDate AS correctedDate, a.score AS score, a.remarks AS remarks, " +
+           "u.userId AS userId, u.userName AS userName, p.programId AS programId, p.programName AS programName, " +
+           "st.stageId AS stageId, st.stageName AS stageName, un.unitId AS unitId, un.unitName AS unitName, " +
+           "s.subconceptId AS subconceptId, s.subconceptDesc AS subconceptDesc, " +
+           "s.subconceptMaxscore AS subconceptMaxscore, s.subconceptLink AS subconceptLink, " +
+           "s.subconceptType AS subconceptType, s.dependency AS subconceptDependency, " +
+           "sf.fileId AS submittedFileId, sf.fileName AS submittedFileName, sf.fileType AS submittedFileType, " +
+           "sf.fileSize AS submittedFileSize, sf.filePath AS submittedFilePath, " +
+           "cf.fileId AS correctedFileId, cf.fileName AS correctedFileName, cf.fileType AS correctedFileType, " +
+           "cf.fileSize AS correctedFileSize, cf.filePath AS correctedFilePath " +
+           "FROM UserAssignment a JOIN a.user u JOIN a.program p JOIN a.stage st JOIN a.unit un " +
+           "JOIN a.subconcept s LEFT JOIN a.submittedFile sf LEFT JOIN a.correctedFile cf " +
+           "WHERE a.cohort.cohortId = :cohortId")
+    List<CohortAssignmentProjection> findCohortAssignments(@Param("cohortId") String cohortId);
+    
+    // Submitted files of a cohort ordered by assignment id, the key an export is resumed by
+    @Query("SELECT a.assignmentId AS assignmentId, u.userId AS userId, f.fileName AS fileName, " +
+           "f.filePath AS filePath, f.fileSize AS fileSize " +
+           "FROM UserAssignment a JOIN a.user u JOIN a.submittedFile f " +
+           "WHERE a.cohort.cohortId = :cohortId ORDER BY a.assignmentId")
+    List<AssignmentFileProjection> findSubmittedFilesByCohortId(@Param("cohortId") String cohortId);
+    
+    // The same files after the given assignment id, for resuming an interrupted export
+    @Query("SELECT a.assignmentId AS assignmentId, u.userId AS userId, f.fileName AS fileName, " +
+           "f.filePath AS filePath, f.fileSize AS fileSize " +
+           "FROM UserAssignment a JOIN a.user u JOIN a.submittedFile f " +
+           "WHERE a.cohort.cohortId = :cohortId AND a.assignmentId > :after ORDER BY a.assignmentId")
+    List<AssignmentFileProjection> findSubmittedFilesByCohortIdAfter(@Param("cohortId") String cohortId,
+                                                                     @Param("after") String afterAssignmentId);
+    
     Optional<UserAssignment> findByUserUserIdAndSubconceptSubconceptId(String userId, String subconceptId);
     
     List<UserAssignment> findByCohortCohortIdAndUserUserId(String cohortId, String userId);
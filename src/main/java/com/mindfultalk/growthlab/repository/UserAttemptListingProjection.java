@@ -0,0 +1,22 @@
+package com.mindfultalk.growthlab.repository;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Projection of an attempt in the attempt listing: its own columns and the ids it refers to
+ */
+public interface UserAttemptListingProjection {
+	Long getUserAttemptId();
+	OffsetDateTime getUserAttemptStartTimestamp();
+	OffsetDateTime getUserAttemptEndTimestamp();
+	Boolean getUserAttemptFlag();
+	Integer getUserAttemptScore();
+	UUID getUuid();
+	String getUserId();
+	String getProgramId();
+	String getStageId();
+	String getUnitId();
+	String getSubconceptId();
+	String getSessionId();
+}
@@ -0,0 +1,35 @@
+package com.mindfultalk.growthlab.repository;
+
+import com.mindfultalk.growthlab.model.*;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface UserAttemptOutboxRepository extends JpaRepository<UserAttemptOutbox, Long> {
+
+    Optional<UserAttemptOutbox> findByUuid(UUID uuid);
+
+    long countByStatus(String status);
+
+    // Claims the oldest due entries with the status; rows locked by another instance's batcher are
+    // skipped, so batchers on several nodes take disjoint batches
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM UserAttemptOutbox o WHERE o.status = :status AND o.nextAttemptAt <= :now ORDER BY o.id ASC")
+    List<UserAttemptOutbox> lockDueByStatus(@Param("status") String status, @Param("now") OffsetDateTime now,
+                                            Pageable pageable);
+
+    // Rows locked by another instance's batcher are skipped rather than waited for
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM UserAttemptOutbox o WHERE o.id IN :ids AND o.status = :status ORDER BY o.id ASC")
+    List<UserAttemptOutbox> lockByIdsAndStatus(@Param("ids") Collection<Long> ids, @Param("status") String status);
+}
@@ -2,6 +2,7 @@ package com.mindfultalk.growthlab.repository;
 
 import com.mindfultalk.growthlab.model.*;
 import java.util.*;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -18,6 +19,14 @@ public interface UserAttemptsRepository extends JpaRepository<UserAttempts, Long
 
      @Query("SELECT ua FROM UserAttempts ua WHERE ua.user.userId = :userId ORDER BY ua.userAttemptEndTimestamp DESC")
      List<UserAttempts> findAttemptsByUserId(@Param("userId") String userId);
+
+     // Attempts already stored under any of these uuids, used to apply outbox entries only once
+     @Query("SELECT ua.uuid FROM UserAttempts ua WHERE ua.uuid IN :uuids")
+     Set<UUID> findExistingUuids(@Param("uuids") Collection<UUID> uuids);
+     
+     // Served from the (session_id, user_attempt_end_timestamp) index
+     @Query("SELECT MAX(ua.userAttemptEndTimestamp) FROM UserAttempts ua WHERE ua.session.sessionId = :sessionId")
+     Optional<java.time.OffsetDateTime> findLastAttemptEndTimestampBySessionId(@Param("sessionId") String sessionId);
      
      @Query("SELECT ua.subconcept.subconceptId, MAX(ua.userAttemptScore) " +
              "FROM UserAttempts ua " +
@@ -56,20 +65,63 @@ public interface UserAttemptsRepository extends JpaRepository<UserAttempts, Long
       );
       
       /**
-       * Find latest attempt timestamps for users who:
-       * 1. Are ACTIVE (status = 'ACTIVE')
-       * 2. Are in cohorts that haven't ended yet (cohortEndDate is null or > current time)
-       * This eliminates the need for in-memory filtering
+       * Narrow attempt rows needed by the program report: every attempt the user made in the
+       * program, plus every attempt on a subconcept mapped into one of the program's units
        */
-      @Query("SELECT ua.user.userId, MAX(ua.userAttemptEndTimestamp) " +
+      @Query("SELECT ua.userAttemptId AS attemptId, " +
+             "ua.subconcept.subconceptId AS subconceptId, " +
+             "ua.program.programId AS programId, " +
+             "ua.userAttemptStartTimestamp AS startTimestamp, " +
+             "ua.userAttemptEndTimestamp AS endTimestamp, " +
+             "ua.userAttemptScore AS score, " +
+             "ua.userAttemptFlag AS successful " +
              "FROM UserAttempts ua " +
-             "JOIN ua.user u " +
-             "JOIN UserCohortMapping ucm ON ucm.user.userId = u.userId " +
-             "JOIN ucm.cohort c " +
-             "WHERE u.status = 'ACTIVE' " +
-             "AND ucm.status = 'ACTIVE' " +
-             "AND (c.cohortEndDate IS NULL OR c.cohortEndDate > CURRENT_TIMESTAMP) " +
-             "GROUP BY ua.user.userId")
-      List<Object[]> findLatestAttemptTimestampsForActiveUsersInActiveCohorts();
+             "WHERE ua.user.userId = :userId " +
+             "AND (ua.program.programId = :programId " +
+             "OR ua.subconcept.subconceptId IN (" +
+             "SELECT pcm.subconcept.subconceptId FROM ProgramConceptsMapping pcm " +
+             "WHERE pcm.unit.stage.program.programId = :programId))")
+      List<AttemptSummaryProjection> findAttemptSummariesForProgramReport(
+          @Param("userId") String userId,
+          @Param("programId") String programId
+      );
   
+     // Pages of attempts after the given attempt ID, one query per filter combination
+     @Query("SELECT ua.userAttemptId AS userAttemptId, ua.userAttemptStartTimestamp AS userAttemptStartTimestamp, " +
+            "ua.userAttemptEndTimestamp AS userAttemptEndTimestamp, ua.userAttemptFlag AS userAttemptFlag, " +
+            "ua.userAttemptScore AS userAttemptScore, ua.uuid AS uuid, ua.user.userId AS userId, " +
+            "ua.program.programId AS programId, ua.stage.stageId AS stageId, ua.unit.unitId AS unitId, " +
+            "ua.subconcept.subconceptId AS subconceptId, ua.session.sessionId AS sessionId " +
+            "FROM UserAttempts ua WHERE ua.userAttemptId > :after ORDER BY ua.userAttemptId")
+     List<UserAttemptListingProjection> findPage(@Param("after") long after, Pageable pageable);
+     
+     @Query("SELECT ua.userAttemptId AS userAttemptId, ua.userAttemptStartTimestamp AS userAttemptStartTimestamp, " +
+            "ua.userAttemptEndTimestamp AS userAttemptEndTimestamp, ua.userAttemptFlag AS userAttemptFlag, " +
+            "ua.userAttemptScore AS userAttemptScore, ua.uuid AS uuid, ua.user.userId AS userId, " +
+            "ua.program.programId AS programId, ua.stage.stageId AS stageId, ua.unit.unitId AS unitId, " +
+            "ua.subconcept.subconceptId AS subconceptId, ua.session.sessionId AS sessionId " +
+            "FROM UserAttempts ua WHERE ua.userAttemptId > :after AND ua.user.userId = :userId ORDER BY ua.userAttemptId")
+     List<UserAttemptListingProjection> findPageByUserId(@Param("after") long after, @Param("userId") String userId,
+                                                         Pageable pageable);
+     
+     @Query("SELECT ua.userAttemptId AS userAttemptId, ua.userAttemptStartTimestamp AS userAttemptStartTimestamp, " +
+            "ua.userAttemptEndTimestamp AS userAttemptEndTimestamp, ua.userAttemptFlag AS userAttemptFlag, " +
+            "ua.userAttemptScore AS userAttemptScore, ua.uuid AS uuid, ua.user.userId AS userId, " +
+            "ua.program.programId AS programId, ua.stage.stageId AS stageId, ua.unit.unitId AS unitId, " +
+            "ua.subconcept.subconceptId AS subconceptId, ua.session.sessionId AS sessionId " +
+            "FROM UserAttempts ua WHERE ua.userAttemptId > :after AND ua.program.programId = :programId ORDER BY ua.userAttemptId")
+     List<UserAttemptListingProjection> findPageByProgramId(@Param("after") long after,
+                                                            @Param("programId") String programId, Pageable pageable);
+     
+     @Query("SELECT ua.userAttemptId AS userAttemptId, ua.userAttemptStartTimestamp AS userAttemptStartTimestamp, " +
+            "ua.userAttemptEndTimestamp AS userAttemptEndTimestamp, ua.userAttemptFlag AS userAttemptFlag, " +
+            "ua.userAttemptScore AS userAttemptScore, ua.uuid AS uuid, ua.user.userId AS userId, " +
+            "ua.program.programId AS programId, ua.stage.stageId AS stageId, ua.unit.unitId AS unitId, " +
+            "ua.subconcept.subconceptId AS subconceptId, ua.session.sessionId AS sessionId " +
+            "FROM UserAttempts ua WHERE ua.userAttemptId > :after " +
+            "AND ua.user.userId = :userId AND ua.program.programId = :programId ORDER BY ua.userAttemptId")
+     List<UserAttemptListingProjection> findPageByUserIdAndProgramId(@Param("after") long after,
+                                                                     @Param("userId") String userId,
+                                                                     @Param("programId") String programId,
+                                                                     Pageable pageable);
 }
\ No newline at end of file
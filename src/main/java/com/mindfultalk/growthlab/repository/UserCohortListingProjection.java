@@ -0,0 +1,12 @@
+package com.mindfultalk.growthlab.repository;
+
+/**
+ * Projection of a user's membership in a cohort for the user listings, with the program of the
+ * cohort (null when the cohort has none)
+ */
+public interface UserCohortListingProjection {
+	String getUserId();
+	String getCohortId();
+	String getCohortName();
+	String getProgramId();
+}
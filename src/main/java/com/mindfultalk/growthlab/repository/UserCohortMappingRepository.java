@@ -2,16 +2,81 @@ package com.mindfultalk.growthlab.repository;
 
 import com.mindfultalk.growthlab.model.*;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.OffsetDateTime;
 import java.util.*;
 
 @Repository
 public interface UserCohortMappingRepository extends JpaRepository<UserCohortMapping, Integer> {
 	
 	List<UserCohortMapping> findAllByCohortCohortId(String cohortId);
+	
+	// Mappings of a cohort with only the user and cohort columns the listing shows
+	@Query("SELECT ucm.userCohortId AS userCohortId, c.cohortId AS cohortId, c.cohortName AS cohortName, " +
+	       "u.userId AS userId, u.userName AS userName, u.userType AS userType, u.userEmail AS userEmail, " +
+	       "ucm.leaderboardScore AS leaderboardScore, ucm.status AS status " +
+	       "FROM UserCohortMapping ucm JOIN ucm.user u JOIN ucm.cohort c WHERE c.cohortId = :cohortId")
+	List<CohortMappingProjection> findCohortMappings(@Param("cohortId") String cohortId);
+	
+	// Pages of mappings after the given mapping ID, one query per filter combination
+	@Query("SELECT ucm.userCohortId AS userCohortId, c.cohortId AS cohortId, c.cohortName AS cohortName, " +
+	       "u.userId AS userId, u.userName AS userName, u.userType AS userType, u.userEmail AS userEmail, " +
+	       "ucm.leaderboardScore AS leaderboardScore, ucm.status AS status " +
+	       "FROM UserCohortMapping ucm JOIN ucm.user u JOIN ucm.cohort c WHERE ucm.userCohortId > :after " +
+	       "ORDER BY ucm.userCohortId")
+	List<CohortMappingProjection> findCohortMappingPage(@Param("after") int after, Pageable pageable);
+	
+	@Query("SELECT ucm.userCohortId AS userCohortId, c.cohortId AS cohortId, c.cohortName AS cohortName, " +
+	       "u.userId AS userId, u.userName AS userName, u.userType AS userType, u.userEmail AS userEmail, " +
+	       "ucm.leaderboardScore AS leaderboardScore, ucm.status AS status " +
+	       "FROM UserCohortMapping ucm JOIN ucm.user u JOIN ucm.cohort c WHERE ucm.userCohortId > :after " +
+	       "AND c.cohortId = :cohortId ORDER BY ucm.userCohortId")
+	List<CohortMappingProjection> findCohortMappingPageByCohortId(@Param("after") int after,
+	                                                              @Param("cohortId") String cohortId, Pageable pageable);
+	
+	@Query("SELECT ucm.userCohortId AS userCohortId, c.cohortId AS cohortId, c.cohortName AS cohortName, " +
+	       "u.userId AS userId, u.userName AS userName, u.userType AS userType, u.userEmail AS userEmail, " +
+	       "ucm.leaderboardScore AS leaderboardScore, ucm.status AS status " +
+	       "FROM UserCohortMapping ucm JOIN ucm.user u JOIN ucm.cohort c WHERE ucm.userCohortId > :after " +
+	       "AND ucm.status = :status ORDER BY ucm.userCohortId")
+	List<CohortMappingProjection> findCohortMappingPageByStatus(@Param("after") int after,
+	                                                            @Param("status") String status, Pageable pageable);
+	
+	@Query("SELECT ucm.userCohortId AS userCohortId, c.cohortId AS cohortId, c.cohortName AS cohortName, " +
+	       "u.userId AS userId, u.userName AS userName, u.userType AS userType, u.userEmail AS userEmail, " +
+	       "ucm.leaderboardScore AS leaderboardScore, ucm.status AS status " +
+	       "FROM UserCohortMapping ucm JOIN ucm.user u JOIN ucm.cohort c WHERE ucm.userCohortId > :after " +
+	       "AND c.cohortId = :cohortId AND ucm.status = :status ORDER BY ucm.userCohortId")
+	List<CohortMappingProjection> findCohortMappingPageByCohortIdAndStatus(@Param("after") int after,
+	                                                                       @Param("cohortId") String cohortId,
+	                                                                       @Param("status") String status,
+	                                                                       Pageable pageable);
+	
+	// Cohorts of every user with the program of each cohort, in mapping order, for the user listings
+	@Query("SELECT ucm.user.userId AS userId, c.cohortId AS cohortId, c.cohortName AS cohortName, " +
+	       "cp.program.programId AS programId " +
+	       "FROM UserCohortMapping ucm JOIN ucm.cohort c LEFT JOIN CohortProgram cp ON cp.cohort = c " +
+	       "ORDER BY ucm.userCohortId")
+	List<UserCohortListingProjection> findUserCohortListing();
+	
+	@Query("SELECT ucm.user.userId AS userId, c.cohortId AS cohortId, c.cohortName AS cohortName, " +
+	       "cp.program.programId AS programId " +
+	       "FROM UserCohortMapping ucm JOIN ucm.cohort c LEFT JOIN CohortProgram cp ON cp.cohort = c " +
+	       "WHERE ucm.user.organization.organizationId = :organizationId ORDER BY ucm.userCohortId")
+	List<UserCohortListingProjection> findUserCohortListingByOrganizationId(@Param("organizationId") String organizationId);
+	
+	@Query("SELECT ucm.user.userId AS userId, c.cohortId AS cohortId, c.cohortName AS cohortName, " +
+	       "cp.program.programId AS programId " +
+	       "FROM UserCohortMapping ucm JOIN ucm.cohort c LEFT JOIN CohortProgram cp ON cp.cohort = c " +
+	       "WHERE ucm.user.userId IN :userIds ORDER BY ucm.userCohortId")
+	List<UserCohortListingProjection> findUserCohortListingByUserIds(@Param("userIds") Collection<String> userIds);
+	
 	List<UserCohortMapping> findByCohortCohortId(String cohortId);
 	List<UserCohortMapping> findByCohort(Cohort cohort);
 	Optional<UserCohortMapping> findByUser_UserIdAndCohort_CohortId(String userId, String cohortId);
@@ -40,4 +105,60 @@ public interface UserCohortMappingRepository extends JpaRepository<UserCohortMap
     
     // Find all active mappings for a user
     List<UserCohortMapping> findByUserUserIdAndStatusEquals(String userId, String status);
+    
+    @Query("SELECT DISTINCT ucm.cohort.cohortId FROM UserCohortMapping ucm")
+    List<String> findDistinctCohortIds();
+    
+    // Members of a cohort with only the columns progress dashboards need
+    @Query("SELECT u.userId AS userId, u.userName AS userName, u.userType AS userType, " +
+           "u.userPhoneNumber AS userPhoneNumber, ucm.leaderboardScore AS leaderboardScore " +
+           "FROM UserCohortMapping ucm JOIN ucm.user u WHERE ucm.cohort.cohortId = :cohortId")
+    List<CohortMemberProjection> findCohortMembers(@Param("cohortId") String cohortId);
+    
+    // The next page of the learners of a cohort after the given user id, so large cohorts are paged without an offset
+    @Query("SELECT u.userId AS userId, u.userName AS userName, u.userType AS userType, " +
+           "u.userPhoneNumber AS userPhoneNumber, ucm.leaderboardScore AS leaderboardScore " +
+           "FROM UserCohortMapping ucm JOIN ucm.user u " +
+           "WHERE ucm.cohort.cohortId = :cohortId AND LOWER(u.userType) = 'learner' " +
+           "AND u.userId > :afterUserId ORDER BY u.userId")
+    List<CohortMemberProjection> findCohortLearnersAfter(@Param("cohortId") String cohortId,
+                                                         @Param("afterUserId") String afterUserId,
+                                                         Pageable pageable);
+    
+    /**
+     * One page of the active memberships, in active cohorts, of active users whose last attempt
+     * ended before the cutoff. Rows are ordered by organization, cohort and user, so the members
+     * of a cohort arrive together; the next page starts after the last row of the previous one.
+     *
+     * Inactivity is checked per membership row with correlated subqueries on the
+     * (user_id, user_attempt_end_timestamp) index, so a page stops after pageSize rows instead of
+     * aggregating every attempt after the cursor first.
+     */
+    @Query("SELECT u.userId AS userId, u.userName AS userName, u.userEmail AS userEmail, " +
+           "o.organizationId AS organizationId, o.organizationAdminEmail AS organizationAdminEmail, " +
+           "c.cohortId AS cohortId, ucm.leaderboardScore AS leaderboardScore, " +
+           "(SELECT MAX(last.userAttemptEndTimestamp) FROM UserAttempts last WHERE last.user = u) AS lastActivity " +
+           "FROM UserCohortMapping ucm JOIN ucm.user u JOIN u.organization o JOIN ucm.cohort c " +
+           "WHERE u.status = 'ACTIVE' AND ucm.status = 'ACTIVE' " +
+           "AND (c.cohortEndDate IS NULL OR c.cohortEndDate > CURRENT_TIMESTAMP) " +
+           "AND (o.organizationId > :afterOrganizationId " +
+           "OR (o.organizationId = :afterOrganizationId AND c.cohortId > :afterCohortId) " +
+           "OR (o.organizationId = :afterOrganizationId AND c.cohortId = :afterCohortId AND u.userId > :afterUserId)) " +
+           "AND EXISTS (SELECT 1 FROM UserAttempts earlier WHERE earlier.user = u) " +
+           "AND NOT EXISTS (SELECT 1 FROM UserAttempts recent WHERE recent.user = u " +
+           "AND recent.userAttemptEndTimestamp >= :cutoff) " +
+           "ORDER BY o.organizationId, c.cohortId, u.userId")
+    List<InactiveCohortMemberProjection> findInactiveMembersAfter(@Param("cutoff") OffsetDateTime cutoff,
+                                                                  @Param("afterOrganizationId") String afterOrganizationId,
+                                                                  @Param("afterCohortId") String afterCohortId,
+                                                                  @Param("afterUserId") String afterUserId,
+                                                                  Pageable pageable);
+    
+    // Adds to the score in the database, so concurrent increments are never lost
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserCohortMapping ucm SET ucm.leaderboardScore = ucm.leaderboardScore + :delta " +
+           "WHERE ucm.user.userId = :userId AND ucm.cohort.cohortId = :cohortId")
+    int incrementLeaderboardScore(@Param("userId") String userId, @Param("cohortId") String cohortId,
+                                  @Param("delta") int delta);
 }
@@ -0,0 +1,24 @@
+package com.mindfultalk.growthlab.repository;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Projection of a user in the user listings: the user's own columns and the organization
+ */
+public interface UserListingProjection {
+	String getUserId();
+	String getUserAddress();
+	String getUserEmail();
+	String getUserName();
+	String getUserPhoneNumber();
+	String getUserType();
+	String getStatus();
+	OffsetDateTime getCreatedAt();
+	OffsetDateTime getDeactivatedAt();
+	String getDeactivatedReason();
+	String getOrganizationId();
+	String getOrganizationName();
+	String getOrganizationAdminName();
+	String getOrganizationAdminEmail();
+	String getOrganizationAdminPhone();
+}
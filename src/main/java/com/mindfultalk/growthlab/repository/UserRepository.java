@@ -2,13 +2,13 @@ package com.mindfultalk.growthlab.repository;
 
 import com.mindfultalk.growthlab.model.*;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, String> {
@@ -22,6 +22,9 @@ public interface UserRepository extends JpaRepository<User, String> {
     
     @Query("SELECT u FROM User u WHERE u.userId = :userId")
     Optional<User> findByUserId(@Param("userId") String userId);
+    
+    @Query("SELECT u.userType FROM User u WHERE u.userId = :userId")
+    Optional<String> findUserTypeByUserId(@Param("userId") String userId);
 
     @Query("SELECT u FROM User u JOIN u.userCohortMappings ucm " +
  	       "WHERE LOWER(u.userType) = LOWER(:userType) AND ucm.cohort = :cohort")
@@ -31,5 +34,78 @@ public interface UserRepository extends JpaRepository<User, String> {
     @Query("SELECT u FROM User u JOIN u.userCohortMappings ucm " +
             "WHERE LOWER(u.userType) = LOWER(:userType) AND ucm.cohort = :cohort")
      List<User> findAllByUserTypeAndCohort(@Param("userType") String userType, @Param("cohort") Cohort cohort);
+    
+    // Which of the given user IDs are taken, in one query instead of one existsById per ID
+    @Query("SELECT u.userId FROM User u WHERE u.userId IN :userIds")
+    Set<String> findExistingUserIds(@Param("userIds") Collection<String> userIds);
       
+    // Users with their organization for the user listings, without the eagerly fetched mappings
+    @Query("SELECT u.userId AS userId, u.userAddress AS userAddress, u.userEmail AS userEmail, " +
+           "u.userName AS userName, u.userPhoneNumber AS userPhoneNumber, u.userType AS userType, " +
+           "u.status AS status, u.createdAt AS createdAt, u.deactivatedAt AS deactivatedAt, " +
+           "u.deactivatedReason AS deactivatedReason, o.organizationId AS organizationId, " +
+           "o.organizationName AS organizationName, o.organizationAdminName AS organizationAdminName, " +
+           "o.organizationAdminEmail AS organizationAdminEmail, o.organizationAdminPhone AS organizationAdminPhone " +
+           "FROM User u LEFT JOIN u.organization o")
+    List<UserListingProjection> findUserListing();
+
+    @Query("SELECT u.userId AS userId, u.userAddress AS userAddress, u.userEmail AS userEmail, " +
+           "u.userName AS userName, u.userPhoneNumber AS userPhoneNumber, u.userType AS userType, " +
+           "u.status AS status, u.createdAt AS createdAt, u.deactivatedAt AS deactivatedAt, " +
+           "u.deactivatedReason AS deactivatedReason, o.organizationId AS organizationId, " +
+           "o.organizationName AS organizationName, o.organizationAdminName AS organizationAdminName, " +
+           "o.organizationAdminEmail AS organizationAdminEmail, o.organizationAdminPhone AS organizationAdminPhone " +
+           "FROM User u JOIN u.organization o WHERE o.organizationId = :organizationId")
+    List<UserListingProjection> findUserListingByOrganizationId(@Param("organizationId") String organizationId);
+
+    // Pages of users after the given user ID, one query per filter combination
+    String USER_LISTING_PAGE = "SELECT u.userId AS userId, u.userAddress AS userAddress, u.userEmail AS userEmail, " +
+           "u.userName AS userName, u.userPhoneNumber AS userPhoneNumber, u.userType AS userType, " +
+           "u.status AS status, u.createdAt AS createdAt, u.deactivatedAt AS deactivatedAt, " +
+           "u.deactivatedReason AS deactivatedReason, o.organizationId AS organizationId, " +
+           "o.organizationName AS organizationName, o.organizationAdminName AS organizationAdminName, " +
+           "o.organizationAdminEmail AS organizationAdminEmail, o.organizationAdminPhone AS organizationAdminPhone " +
+           "FROM User u LEFT JOIN u.organization o WHERE u.userId > :after ";
+
+    @Query(USER_LISTING_PAGE + "ORDER BY u.userId")
+    List<UserListingProjection> findUserListingPage(@Param("after") String after, Pageable pageable);
+
+    @Query(USER_LISTING_PAGE + "AND LOWER(u.userType) = LOWER(:userType) ORDER BY u.userId")
+    List<UserListingProjection> findUserListingPageByUserType(@Param("after") String after,
+                                                              @Param("userType") String userType, Pageable pageable);
+
+    @Query(USER_LISTING_PAGE + "AND u.status = :status ORDER BY u.userId")
+    List<UserListingProjection> findUserListingPageByStatus(@Param("after") String after,
+                                                            @Param("status") String status, Pageable pageable);
+
+    @Query(USER_LISTING_PAGE + "AND LOWER(u.userType) = LOWER(:userType) AND u.status = :status ORDER BY u.userId")
+    List<UserListingProjection> findUserListingPageByUserTypeAndStatus(@Param("after") String after,
+                                                                       @Param("userType") String userType,
+                                                                       @Param("status") String status, Pageable pageable);
+
+    @Query(USER_LISTING_PAGE + "AND o.organizationId = :organizationId ORDER BY u.userId")
+    List<UserListingProjection> findUserListingPageByOrganizationId(@Param("after") String after,
+                                                                    @Param("organizationId") String organizationId,
+                                                                    Pageable pageable);
+
+    @Query(USER_LISTING_PAGE + "AND o.organizationId = :organizationId " +
+           "AND LOWER(u.userType) = LOWER(:userType) ORDER BY u.userId")
+    List<UserListingProjection> findUserListingPageByOrganizationIdAndUserType(@Param("after") String after,
+                                                                               @Param("organizationId") String organizationId,
+                                                                               @Param("userType") String userType,
+                                                                               Pageable pageable);
+
+    @Query(USER_LISTING_PAGE + "AND o.organizationId = :organizationId AND u.status = :status ORDER BY u.userId")
+    List<UserListingProjection> findUserListingPageByOrganizationIdAndStatus(@Param("after") String after,
+                                                                             @Param("organizationId") String organizationId,
+                                                                             @Param("status") String status,
+                                                                             Pageable pageable);
+
+    @Query(USER_LISTING_PAGE + "AND o.organizationId = :organizationId " +
+           "AND LOWER(u.userType) = LOWER(:userType) AND u.status = :status ORDER BY u.userId")
+    List<UserListingProjection> findUserListingPageByOrganizationIdAndUserTypeAndStatus(@Param("after") String after,
+                                                                                        @Param("organizationId") String organizationId,
+                                                                                        @Param("userType") String userType,
+                                                                                        @Param("status") String status,
+                                                                                        Pageable pageable);
 }
\ No newline at end of file
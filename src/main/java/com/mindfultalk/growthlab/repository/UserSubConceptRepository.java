@@ -15,6 +15,9 @@ public interface UserSubConceptRepository extends JpaRepository<UserSubConcept,
 	List<UserSubConcept> findAllByUser_UserId(String userId);  
 	List<UserSubConcept> findByUser_UserIdAndProgram_ProgramId(String userId, String programId);
 	
+	List<UserSubConcept> findByUser_UserIdInAndSubconcept_SubconceptIdIn(Collection<String> userIds,
+			Collection<String> subconceptIds);
+	
 	Optional<UserSubConcept> findByUser_UserIdAndProgram_ProgramIdAndStage_StageIdAndUnit_UnitIdAndSubconcept_SubconceptId(
 		    String userId, String programId, String stageId, String unitId, String subconceptId);
 	
@@ -50,4 +53,32 @@ public interface UserSubConceptRepository extends JpaRepository<UserSubConcept,
 	    @Query("SELECT usc.subconcept.subconceptId FROM UserSubConcept usc WHERE usc.user.userId = :userId AND usc.completionDate IS NOT NULL")
 	    Set<String> findCompletedSubconceptIdsByUser_UserId(@Param("userId") String userId);
 
+	    /**
+	     * (unitId, subconceptId) pairs completed by the user in any unit of the program
+	     */
+	    @Query("SELECT usc.unit.unitId AS unitId, usc.subconcept.subconceptId AS subconceptId " +
+	           "FROM UserSubConcept usc " +
+	           "WHERE usc.user.userId = :userId AND usc.unit.stage.program.programId = :programId")
+	    List<SubconceptCompletionProjection> findCompletionsByUserIdAndProgramId(
+	        @Param("userId") String userId,
+	        @Param("programId") String programId
+	    );
+
+	    /**
+	     * Completions of mapped subconcepts per (user, unit, showTo) for every member of the cohort,
+	     * restricted to the units of the program. A subconcept mapped into a unit more than once
+	     * still counts once per completion.
+	     */
+	    @Query("SELECT usc.user.userId AS userId, usc.unit.unitId AS unitId, s.showTo AS showTo, COUNT(usc) AS total " +
+	           "FROM UserSubConcept usc JOIN usc.subconcept s " +
+	           "WHERE EXISTS (SELECT 1 FROM ProgramConceptsMapping pcm " +
+	           "WHERE pcm.unit.unitId = usc.unit.unitId AND pcm.subconcept.subconceptId = s.subconceptId) " +
+	           "AND usc.unit.stage.program.programId = :programId " +
+	           "AND usc.user.userId IN (SELECT ucm.user.userId FROM UserCohortMapping ucm WHERE ucm.cohort.cohortId = :cohortId) " +
+	           "GROUP BY usc.user.userId, usc.unit.unitId, s.showTo")
+	    List<UserUnitShowToCountProjection> countCompletionsByCohortAndProgram(
+	        @Param("cohortId") String cohortId,
+	        @Param("programId") String programId
+	    );
+
 }
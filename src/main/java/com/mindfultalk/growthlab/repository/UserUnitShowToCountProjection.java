@@ -0,0 +1,11 @@
+package com.mindfultalk.growthlab.repository;
+
+/**
+ * Row count grouped by user, unit and subconcept {@code showTo} value
+ */
+public interface UserUnitShowToCountProjection {
+	String getUserId();
+	String getUnitId();
+	String getShowTo();
+	Long getTotal();
+}
@@ -0,0 +1,287 @@
+package com.mindfultalk.growthlab.service;
+
+import com.mindfultalk.growthlab.dto.AssignmentExportProgressDTO;
+import com.mindfultalk.growthlab.exception.ResourceNotFoundException;
+import com.mindfultalk.growthlab.repository.*;
+import com.github.benmanes.caffeine.cache.*;
+
+import java.io.*;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.*;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.*;
+
+/**
+ * Streams the submitted assignment files of a cohort as one ZIP straight to an output stream.
+ *
+ * Objects are fetched from S3 on a shared download pool, at most
+ * {@code assignments.export.prefetch-window} ahead of the entry being written, while the ZIP is
+ * written in entry order. Objects up to {@code assignments.export.max-buffered-bytes} are read
+ * into memory by the prefetch; larger ones are streamed from S3 when their turn comes. Memory per
+ * export is therefore bounded by window x max-buffered-bytes and nothing is staged on disk.
+ *
+ * Entries are ordered by assignment id. An interrupted download is resumed after the last
+ * assignment id it got, which the progress of the export reports as lastAssignmentId; the
+ * resumed export reads only the files after that key.
+ */
+@Service
+public class AssignmentZipExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssignmentZipExportService.class);
+
+    private static final int PROGRESS_LOG_INTERVAL = 50;
+
+    @Autowired
+    private UserAssignmentRepository userAssignmentRepository;
+
+    @Autowired
+    private CohortRepository cohortRepository;
+
+    @Autowired
+    private S3StorageService s3StorageService;
+
+    @Value("${assignments.export.download-threads:8}")
+    private int downloadThreads;
+
+    @Value("${assignments.export.prefetch-window:8}")
+    private int prefetchWindow;
+
+    @Value("${assignments.export.max-buffered-bytes:8388608}")
+    private long maxBufferedBytes;
+
+    @Value("${assignments.export.buffer-size:65536}")
+    private int bufferSize;
+
+    private ExecutorService downloadPool;
+
+    // Progress of recent exports on this node, by export id
+    private final Cache<String, AssignmentExportProgressDTO> exports = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(24, TimeUnit.HOURS)
+            .build();
+
+    @PostConstruct
+    public void startDownloadPool() {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "assignment-export-" + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        downloadPool = Executors.newFixedThreadPool(downloadThreads, threadFactory);
+    }
+
+    @PreDestroy
+    public void stopDownloadPool() {
+        downloadPool.shutdownNow();
+    }
+
+    /**
+     * The files of a cohort's export in ZIP order, after the given assignment id when resuming;
+     * checked up front, while an error status can still be sent
+     */
+    public List<AssignmentFileProjection> listEntries(String cohortId, String afterAssignmentId) {
+        if (!cohortRepository.existsById(cohortId)) {
+            throw new ResourceNotFoundException("Cohort not found with ID: " + cohortId);
+        }
+        List<AssignmentFileProjection> entries = afterAssignmentId == null
+            ? userAssignmentRepository.findSubmittedFilesByCohortId(cohortId)
+            : userAssignmentRepository.findSubmittedFilesByCohortIdAfter(cohortId, afterAssignmentId);
+        if (entries.isEmpty()) {
+            throw new ResourceNotFoundException(afterAssignmentId == null
+                ? "No assignments found for the cohort."
+                : "No assignments found after assignment " + afterAssignmentId + ".");
+        }
+        return entries;
+    }
+
+    /**
+     * ZIP entry names, in entry order. A name that is already taken gets the assignment id
+     * appended, since a ZIP cannot hold two entries with the same name.
+     */
+    public List<String> entryNames(List<AssignmentFileProjection> entries) {
+        Set<String> taken = new HashSet<>();
+        List<String> names = new ArrayList<>(entries.size());
+        for (AssignmentFileProjection entry : entries) {
+            String name = entry.getUserId() + "_" + entry.getFileName();
+            if (!taken.add(name)) {
+                name = entry.getUserId() + "_" + entry.getAssignmentId() + "_" + entry.getFileName();
+                taken.add(name);
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    public AssignmentExportProgressDTO startExport(String cohortId, int totalEntries, String afterAssignmentId) {
+        AssignmentExportProgressDTO progress = new AssignmentExportProgressDTO();
+        progress.setExportId(UUID.randomUUID().toString());
+        progress.setCohortId(cohortId);
+        progress.setTotalEntries(totalEntries);
+        progress.setAfterAssignmentId(afterAssignmentId);
+        progress.setLastAssignmentId(afterAssignmentId);
+        progress.setStatus(AssignmentExportProgressDTO.STATUS_RUNNING);
+        progress.setStartedAt(OffsetDateTime.now());
+        exports.put(progress.getExportId(), progress);
+        return progress;
+    }
+
+    public AssignmentExportProgressDTO getProgress(String exportId) {
+        AssignmentExportProgressDTO progress = exports.getIfPresent(exportId);
+        if (progress == null) {
+            throw new ResourceNotFoundException("Export not found with ID: " + exportId);
+        }
+        return progress;
+    }
+
+    /**
+     * Writes the entries as a ZIP to the given stream
+     */
+    public void writeZip(List<AssignmentFileProjection> entries, AssignmentExportProgressDTO progress,
+                         OutputStream out) throws IOException {
+        long startTime = System.currentTimeMillis();
+        List<String> names = entryNames(entries);
+        Deque<Future<PrefetchedFile>> window = new ArrayDeque<>();
+        int nextToFetch = 0;
+
+        try {
+            // Most submissions are already compressed media, so favour speed over ratio
+            ZipOutputStream zipOut = new ZipOutputStream(new BufferedOutputStream(out, bufferSize));
+            zipOut.setLevel(Deflater.BEST_SPEED);
+            byte[] buffer = new byte[bufferSize];
+
+            while (nextToFetch < entries.size() && window.size() < prefetchWindow) {
+                window.add(prefetch(entries.get(nextToFetch++)));
+            }
+
+            for (int i = 0; i < entries.size(); i++) {
+                PrefetchedFile file = await(window.poll(), entries.get(i));
+                if (nextToFetch < entries.size()) {
+                    window.add(prefetch(entries.get(nextToFetch++)));
+                }
+
+                // Large files are opened before their entry is started, so a missing one can still be skipped
+                InputStream streamed = file.missing || file.content != null ? null : openOrNull(entries.get(i));
+                if (file.missing || (file.content == null && streamed == null)) {
+                    logger.warn("File not found in S3: {}", entries.get(i).getFilePath());
+                    progress.setSkippedEntries(progress.getSkippedEntries() + 1);
+                } else {
+                    zipOut.putNextEntry(new ZipEntry(names.get(i)));
+                    long size = file.content != null
+                        ? writeBuffered(file.content, zipOut)
+                        : writeStreamed(streamed, zipOut, buffer);
+                    zipOut.closeEntry();
+                    progress.setBytesWritten(progress.getBytesWritten() + size);
+                    progress.setLastEntryName(names.get(i));
+                }
+                progress.setLastAssignmentId(entries.get(i).getAssignmentId());
+                progress.setEntriesDone(i + 1);
+
+                if ((i + 1) % PROGRESS_LOG_INTERVAL == 0) {
+                    logger.info("Assignment export {} for cohortId: {}: {} of {} entries written",
+                               progress.getExportId(), progress.getCohortId(), i + 1, entries.size());
+                }
+            }
+
+            zipOut.finish();
+            zipOut.flush();
+            progress.setStatus(AssignmentExportProgressDTO.STATUS_COMPLETED);
+            progress.setFinishedAt(OffsetDateTime.now());
+            logger.info("Streamed assignment export {} for cohortId: {} in {}ms: {} entries after {}, {} skipped, {} bytes",
+                       progress.getExportId(), progress.getCohortId(), System.currentTimeMillis() - startTime,
+                       entries.size(), progress.getAfterAssignmentId(),
+                       progress.getSkippedEntries(), progress.getBytesWritten());
+        } catch (IOException | RuntimeException e) {
+            progress.setStatus(AssignmentExportProgressDTO.STATUS_FAILED);
+            progress.setError(e.getMessage());
+            progress.setFinishedAt(OffsetDateTime.now());
+            logger.error("Assignment export {} for cohortId: {} failed after assignment {}: {}",
+                        progress.getExportId(), progress.getCohortId(), progress.getLastAssignmentId(), e.getMessage());
+            throw e;
+        } finally {
+            window.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private Future<PrefetchedFile> prefetch(AssignmentFileProjection entry) {
+        if (entry.getFileSize() != null && entry.getFileSize() > maxBufferedBytes) {
+            // Too large to hold in memory; streamed when its turn comes
+            return CompletableFuture.completedFuture(PrefetchedFile.STREAMED);
+        }
+        return downloadPool.submit(() -> {
+            try (ResponseInputStream<GetObjectResponse> in = s3StorageService.downloadFile(entry.getFilePath())) {
+                Long contentLength = in.response().contentLength();
+                if (contentLength != null && contentLength > maxBufferedBytes) {
+                    in.abort();
+                    return PrefetchedFile.STREAMED;
+                }
+                return new PrefetchedFile(in.readAllBytes(), false);
+            } catch (NoSuchKeyException e) {
+                return PrefetchedFile.MISSING;
+            }
+        });
+    }
+
+    private static PrefetchedFile await(Future<PrefetchedFile> future, AssignmentFileProjection entry) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + entry.getFilePath());
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to download " + entry.getFilePath() + " from S3", e.getCause());
+        }
+    }
+
+    private static long writeBuffered(byte[] content, OutputStream out) throws IOException {
+        out.write(content);
+        return content.length;
+    }
+
+    private InputStream openOrNull(AssignmentFileProjection entry) {
+        try {
+            return s3StorageService.downloadFile(entry.getFilePath());
+        } catch (NoSuchKeyException e) {
+            return null;
+        }
+    }
+
+    private static long writeStreamed(InputStream streamed, OutputStream out, byte[] buffer) throws IOException {
+        long size = 0;
+        try (InputStream in = streamed) {
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                out.write(buffer, 0, length);
+                size += length;
+            }
+        }
+        return size;
+    }
+
+    private static final class PrefetchedFile {
+
+        static final PrefetchedFile STREAMED = new PrefetchedFile(null, false);
+        static final PrefetchedFile MISSING = new PrefetchedFile(null, true);
+
+        final byte[] content;
+        final boolean missing;
+
+        PrefetchedFile(byte[] content, boolean missing) {
+            this.content = content;
+            this.missing = missing;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.mindfultalk.growthlab.service;
+
+import java.time.Duration;
+import java.util.*;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.*;
+
+/**
+ * Generation counters that version the per-user cache entries.
+ *
+ * Report, progress and curriculum-listing cache keys end with a token built from two Redis
+ * counters: one per user and one per (user, program). Bumping the program counter makes every
+ * cached entry of that user and program unreachable with a single INCR, however many stages,
+ * units or subconcepts the program has; bumping the user counter does the same across all of
+ * the user's programs. Unreachable entries are never read again and expire with the cache TTL.
+ *
+ * Cache keys reference this bean from SpEL, for example
+ * {@code key = "#userId + '_' + #programId + '_' + @cacheGenerationService.forProgram(#userId, #programId)"}.
+ */
+@Service
+public class CacheGenerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheGenerationService.class);
+
+    private static final String KEY_PREFIX = "cacheGen:";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
+
+    // Must outlive the cache TTL so a counter never restarts while entries of an old generation exist
+    @Value("${cache.generation.ttl-hours:48}")
+    private long generationTtlHours;
+
+    /**
+     * Key token for entries that depend on one user's state in one program
+     */
+    public String forProgram(String userId, String programId) {
+        try {
+            List<String> values = stringRedisTemplate.opsForValue()
+                .multiGet(Arrays.asList(userKey(userId), programKey(userId, programId)));
+            return "g" + toGeneration(values, 0) + "." + toGeneration(values, 1);
+        } catch (Exception e) {
+            // Never serve an entry whose generation could not be checked
+            logger.warn("Error reading cache generation for userId: {}, programId: {}", userId, programId, e);
+            return "nogen" + System.nanoTime();
+        }
+    }
+
+    /**
+     * Key token for entries keyed by stage; resolves the program from the curriculum graph
+     */
+    public String forStage(String userId, String stageId) {
+        return curriculumGraphService.findGraphByStageId(stageId)
+            .map(graph -> forProgram(userId, graph.getProgramId()))
+            .orElseGet(() -> forUser(userId));
+    }
+
+    /**
+     * Key token for entries keyed by unit; resolves the program from the curriculum graph
+     */
+    public String forUnit(String userId, String unitId) {
+        return curriculumGraphService.findGraphByUnitId(unitId)
+            .map(graph -> forProgram(userId, graph.getProgramId()))
+            .orElseGet(() -> forUser(userId));
+    }
+
+    /**
+     * Key token for per-user entries that are not tied to a single program
+     */
+    public String forUser(String userId) {
+        try {
+            return "g" + toGeneration(Collections.singletonList(stringRedisTemplate.opsForValue().get(userKey(userId))), 0);
+        } catch (Exception e) {
+            logger.warn("Error reading cache generation for userId: {}", userId, e);
+            return "nogen" + System.nanoTime();
+        }
+    }
+
+    /**
+     * Makes every cached entry of this user in this program stale
+     */
+    public void bumpProgram(String userId, String programId) {
+        bumpAfterCommit(programKey(userId, programId));
+    }
+
+    /**
+     * Makes every cached entry of this user stale, in all programs
+     */
+    public void bumpUser(String userId) {
+        bumpAfterCommit(userKey(userId));
+    }
+
+    private void bumpAfterCommit(String key) {
+        // Bumping before the commit would let a concurrent read cache pre-commit data under the new generation
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(key);
+                }
+            });
+        } else {
+            bump(key);
+        }
+    }
+
+    private void bump(String key) {
+        try {
+            Long generation = stringRedisTemplate.opsForValue().increment(key);
+            stringRedisTemplate.expire(key, Duration.ofHours(generationTtlHours));
+            logger.debug("Bumped cache generation {} to {}", key, generation);
+        } catch (Exception e) {
+            logger.error("Error bumping cache generation: {}", key, e);
+        }
+    }
+
+    private static String userKey(String userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private static String programKey(String userId, String programId) {
+        return KEY_PREFIX + userId + ":" + programId;
+    }
+
+    private static long toGeneration(List<String> values, int index) {
+        if (values == null || values.size() <= index || values.get(index) == null) {
+            return 0L;
+        }
+        return Long.parseLong(values.get(index));
+    }
+}
@@ -24,13 +24,7 @@ public class CacheManagementService {
     private RedisTemplate<String, Object> redisTemplate;
     
     @Autowired
-    private ProgramConceptsMappingRepository programConceptsMappingRepository;
-    
-    @Autowired
-    private StageRepository stageRepository;
-    
-    @Autowired
-    private UnitRepository unitRepository;
+    private CacheGenerationService cacheGenerationService;
     
     @Autowired
     private UserCohortMappingRepository userCohortMappingRepository;
@@ -42,23 +36,12 @@ public class CacheManagementService {
         try {
             logger.info("Evicting completion caches for userId: {}, programId: {}", userId, programId);
             
-         // Get all units and stages for this program to evict specific caches
-            List<String> unitIds = getUnitIdsForProgram(programId);
-            List<String> stageIds = getStageIdsForProgram(programId);
-            
-            // Evict program-level cache
-            evictFromCache("programStagesUnits", userId + "_" + programId);
-            
-            // Evict all unit-level caches for this user in this program
-            for (String unitId : unitIds) {
-                evictFromCache("programConceptsByUnit", userId + "_" + unitId);
-            }
+            // One generation bump invalidates the program, stage, unit, listing and progress
+            // entries of this user, however large the program is
+            cacheGenerationService.bumpProgram(userId, programId);
             
-            // IMPORTANT: Evict all report-related caches
-            evictReportCaches(userId, programId, stageIds, unitIds);
-            
-            // IMPORTANT: Evict user progress caches
-            evictUserProgressCaches(userId, programId);
+            // Cohort progress is shared by all users of the cohort, so it is evicted by key
+            evictCohortProgressCachesForUser(userId, programId);
             
             // Also evict session filter caches if needed
             evictSessionFilterCaches(userId);
@@ -72,35 +55,13 @@ public class CacheManagementService {
     }
     
     /**
-     * Evict all report-related caches for a user
+     * Evict all report-related caches for a user. Stage and unit IDs are no longer needed
+     * since the reports are versioned by program; they are kept for existing callers.
      */
     public void evictReportCaches(String userId, String programId, List<String> stageIds, List<String> unitIds) {
         try {
             logger.info("Evicting report caches for userId: {}, programId: {}", userId, programId);
-            
-            // Evict program report cache
-            evictFromCache("programReports", userId + "_" + programId);
-            logger.debug("Evicted programReports cache for key: {}", userId + "_" + programId);
-            
-            // Evict stage report caches
-            for (String stageId : stageIds) {
-                evictFromCache("stageReports", userId + "_" + stageId);
-                logger.debug("Evicted stageReports cache for key: {}", userId + "_" + stageId);
-            }
-            
-            // Evict unit report caches
-            for (String unitId : unitIds) {
-                evictFromCache("unitReports", userId + "_" + unitId);
-                logger.debug("Evicted unitReports cache for key: {}", userId + "_" + unitId);
-            }
-            
-            // Evict user attempts cache - get all subconcepts for this program
-            List<String> subconceptIds = getSubconceptIdsForProgram(programId);
-            for (String subconceptId : subconceptIds) {
-                evictFromCache("userAttempts", userId + "_" + subconceptId);
-                logger.debug("Evicted userAttempts cache for key: {}", userId + "_" + subconceptId);
-            }
-            
+            cacheGenerationService.bumpProgram(userId, programId);
             logger.info("Successfully evicted all report caches for userId: {}, programId: {}", userId, programId);
             
         } catch (Exception e) {
@@ -115,9 +76,7 @@ public class CacheManagementService {
         try {
             logger.info("Evicting user progress caches for userId: {}, programId: {}", userId, programId);
             
-            // Evict the specific user progress cache for this program
-            evictFromCache("userProgress", programId + "_" + userId);
-            logger.debug("Evicted userProgress cache for key: {}", programId + "_" + userId);
+            cacheGenerationService.bumpProgram(userId, programId);
             
             // Evict cohort progress caches - need to find which cohorts this user belongs to
             evictCohortProgressCachesForUser(userId, programId);
@@ -156,22 +115,7 @@ public class CacheManagementService {
         try {
             logger.info("Evicting unit-specific report caches for userId: {}, unitId: {}", userId, unitId);
             
-            // Evict the specific unit report
-            evictFromCache("unitReports", userId + "_" + unitId);
-            
-            // Evict the parent stage report (since unit completion affects stage stats)
-            evictFromCache("stageReports", userId + "_" + stageId);
-            
-            // Evict the program report (since unit completion affects program stats)
-            evictFromCache("programReports", userId + "_" + programId);
-            
-            // Evict subconcept-specific attempts cache for this unit
-            List<String> subconceptIds = getSubconceptIdsForUnit(unitId);
-            for (String subconceptId : subconceptIds) {
-                evictFromCache("userAttempts", userId + "_" + subconceptId);
-            }
-            
-            // IMPORTANT: Also evict user progress caches since unit completion affects progress
+            // Unit, stage and program reports all carry the program generation
             evictUserProgressCaches(userId, programId);
             
             logger.info("Successfully evicted unit-specific report caches for userId: {}, unitId: {}", userId, unitId);
@@ -189,15 +133,10 @@ public class CacheManagementService {
             logger.info("Evicting caches on user attempt for userId: {}, subconceptId: {}, programId: {}", 
                        userId, subconceptId, programId);
             
-            // Evict user attempts cache for this specific subconcept
-            evictFromCache("userAttempts", userId + "_" + subconceptId);
-            
-            // Evict report caches that might be affected
-            evictFromCache("unitReports", userId + "_" + unitId);
-            evictFromCache("stageReports", userId + "_" + stageId);
-            evictFromCache("programReports", userId + "_" + programId);
+            // Only the attempted subconcept's attempt list changed
+            evictUserAttemptsCache(userId, subconceptId);
             
-            // IMPORTANT: Evict user progress caches since attempts affect progress calculations
+            // IMPORTANT: Evict reports and progress since attempts affect progress calculations
             evictUserProgressCaches(userId, programId);
             
             logger.info("Successfully evicted caches on user attempt for userId: {}, subconceptId: {}", 
@@ -210,51 +149,10 @@ public class CacheManagementService {
     }
     
     /**
-     * Get all unit IDs for a given program
+     * Evict the cached attempt list of one subconcept for a user
      */
-    private List<String> getUnitIdsForProgram(String programId) {
-        try {
-            return programConceptsMappingRepository.findDistinctUnitIdsByProgramId(programId);
-        } catch (Exception e) {
-            logger.error("Error fetching unit IDs for programId: {}", programId, e);
-            return Collections.emptyList();
-        }
-    }
-    
-    /**
-     * Get all stage IDs for a given program
-     */
-    private List<String> getStageIdsForProgram(String programId) {
-        try {
-            return stageRepository.findStageIdsByProgramId(programId);
-        } catch (Exception e) {
-            logger.error("Error fetching stage IDs for programId: {}", programId, e);
-            return Collections.emptyList();
-        }
-    }
-    
-    /**
-     * Get all subconcept IDs for a given program
-     */
-    private List<String> getSubconceptIdsForProgram(String programId) {
-        try {
-            return programConceptsMappingRepository.findDistinctSubconceptIdsByProgramId(programId);
-        } catch (Exception e) {
-            logger.error("Error fetching subconcept IDs for programId: {}", programId, e);
-            return Collections.emptyList();
-        }
-    }
-    
-    /**
-     * Get all subconcept IDs for a given unit
-     */
-    private List<String> getSubconceptIdsForUnit(String unitId) {
-        try {
-            return programConceptsMappingRepository.findSubconceptIdsByUnitId(unitId);
-        } catch (Exception e) {
-            logger.error("Error fetching subconcept IDs for unitId: {}", unitId, e);
-            return Collections.emptyList();
-        }
+    public void evictUserAttemptsCache(String userId, String subconceptId) {
+        evictFromCache("userAttempts", userId + "_" + subconceptId + "_" + cacheGenerationService.forUser(userId));
     }
     
     /**
@@ -298,25 +196,14 @@ public class CacheManagementService {
         try {
             logger.info("Evicting ALL caches for userId: {}", userId);
             
-            // Get all cache names and evict user-related entries
-            Collection<String> cacheNames = cacheManager.getCacheNames();
+            // Versioned entries of every program go stale with the user generation
+            cacheGenerationService.bumpUser(userId);
             
-            for (String cacheName : cacheNames) {
-                Cache cache = cacheManager.getCache(cacheName);
-                if (cache != null) {
-                    // This is Redis-specific - you might need to adapt based on your cache implementation
-                    try {
-                        // Pattern-based deletion for Redis - fix the type declaration
-                        Set<String> keys = redisTemplate.keys(cacheName + "::" + userId + "*");
-                        if (keys != null && !keys.isEmpty()) {
-                            redisTemplate.delete(keys);
-                            logger.debug("Evicted {} keys from cache: {}", keys.size(), cacheName);
-                        }
-                    } catch (Exception e) {
-                        logger.debug("Could not pattern delete from cache: {} (this might be normal)", cacheName);
-                    }
-                }
+            // Entries keyed by the user ID alone are evicted by key, one per cache instead of a keyspace scan
+            for (String cacheName : cacheManager.getCacheNames()) {
+                evictFromCache(cacheName, userId);
             }
+            evictSessionFilterCaches(userId);
             
         } catch (Exception e) {
             logger.error("Error evicting all user caches for userId: {}", userId, e);
@@ -328,7 +215,7 @@ public class CacheManagementService {
      */
     public void clearUserProgressCache(String programId, String userId) {
         logger.info("Manually clearing user progress cache for programId: {} and userId: {}", programId, userId);
-        evictFromCache("userProgress", programId + "_" + userId);
+        cacheGenerationService.bumpProgram(userId, programId);
     }
     
     /**
@@ -2,40 +2,87 @@ package com.mindfultalk.growthlab.service;
 
 import com.mindfultalk.growthlab.config.CloudFrontConfig;
 import com.amazonaws.services.cloudfront.CloudFrontUrlSigner;
-import com.amazonaws.services.cloudfront.util.SignerUtils;
+import com.github.benmanes.caffeine.cache.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.security.PrivateKey;
-import java.util.Date;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Signs CloudFront URLs with a canned policy and memoizes the result.
+ *
+ * Expiries are rounded up to the end of a fixed window ({@code cloudfront.url.bucket-seconds}),
+ * so every request for a path within one window gets the same expiry and therefore the same
+ * URL. Signed URLs are cached per (path, window end) and dropped once their window has passed,
+ * well before they expire, so a URL handed out is always valid for at least
+ * {@code cloudfront.url.expiration.seconds}. Only the first request for a path in each window
+ * pays for the RSA signature.
+ */
 @Service
 public class CloudFrontSignedUrlService {
 
     private final CloudFrontConfig config;
     private final PrivateKey privateKey;
+    private final long bucketMillis;
+    private final Cache<String, String> signedUrls;
 
     @Autowired
-    public CloudFrontSignedUrlService(CloudFrontConfig config, PrivateKey privateKey) {
+    public CloudFrontSignedUrlService(CloudFrontConfig config, PrivateKey privateKey,
+                                      @Value("${cloudfront.url.bucket-seconds:300}") long bucketSeconds,
+                                      @Value("${cloudfront.url.cache-max-size:20000}") long cacheMaxSize) {
         this.config = config;
         this.privateKey = privateKey;
+        this.bucketMillis = Math.max(1, bucketSeconds) * 1000;
+        // An entry is only asked for during its own window, so it can go once the window is over
+        this.signedUrls = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(bucketMillis, TimeUnit.MILLISECONDS)
+                .build();
     }
 
     public String generateSignedUrl(String relativePath) {
-    	
+        return generateSignedUrl(relativePath, expiryBucket(System.currentTimeMillis()));
+    }
+
+    /**
+     * Signs several paths with one shared expiry; the result keeps the order of the given paths
+     */
+    public Map<String, String> generateSignedUrls(Collection<String> relativePaths) {
+        long expiry = expiryBucket(System.currentTimeMillis());
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String relativePath : relativePaths) {
+            result.computeIfAbsent(relativePath, path -> generateSignedUrl(path, expiry));
+        }
+        return result;
+    }
+
+    private String generateSignedUrl(String relativePath, long expiry) {
         try {
-            Date expiration = new Date(System.currentTimeMillis() + config.getExpirationSeconds() * 1000);
-            
-            String fullUrl = config.getDomain() + relativePath;
-
-            return CloudFrontUrlSigner.getSignedURLWithCannedPolicy(
-                    fullUrl,
-                    config.getKeyPairId(),
-                    privateKey,
-                    expiration
-            );
+            return signedUrls.get(relativePath + "|" + expiry, key -> sign(relativePath, expiry));
         } catch (Exception e) {
             throw new RuntimeException("Failed to generate CloudFront signed URL", e);
         }
     }
-}
\ No newline at end of file
+
+    private String sign(String relativePath, long expiry) {
+        String fullUrl = config.getDomain() + relativePath;
+
+        return CloudFrontUrlSigner.getSignedURLWithCannedPolicy(
+                fullUrl,
+                config.getKeyPairId(),
+                privateKey,
+                new Date(expiry)
+        );
+    }
+
+    /**
+     * The configured expiry from now, rounded up to the end of its window
+     */
+    long expiryBucket(long nowMillis) {
+        long earliestExpiry = nowMillis + config.getExpirationSeconds() * 1000;
+        return Math.floorDiv(earliestExpiry + bucketMillis - 1, bucketMillis) * bucketMillis;
+    }
+}
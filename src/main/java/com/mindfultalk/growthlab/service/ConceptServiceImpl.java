@@ -24,6 +24,9 @@ public class ConceptServiceImpl implements ConceptService {
 
     @Autowired
     private ContentMasterRepository contentRepository;
+    
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
 
     @Override
     @Cacheable(value = "concepts", key = "'all_concepts'")
@@ -159,6 +162,7 @@ public class ConceptServiceImpl implements ConceptService {
             existingConcept.setConceptSkill2(concept.getConceptSkill2());
             existingConcept.setContent(concept.getContent());
             Concept updatedConcept = conceptRepository.save(existingConcept);
+            curriculumGraphService.invalidate();
             logger.info("Successfully updated concept: {}", conceptId);
             return updatedConcept;
         }).orElseThrow(() -> {
@@ -176,6 +180,7 @@ public class ConceptServiceImpl implements ConceptService {
             throw new RuntimeException("Concept not found with ID: " + conceptId);
         }
         conceptRepository.deleteById(conceptId);
+        curriculumGraphService.invalidate();
         logger.info("Successfully deleted concept: {}", conceptId);
     }
     
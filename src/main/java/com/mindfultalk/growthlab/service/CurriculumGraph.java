@@ -0,0 +1,398 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.*;
+
+import com.mindfultalk.growthlab.dto.*;
+import com.mindfultalk.growthlab.model.*;
+
+/**
+ * Read-only snapshot of one program's curriculum: its stages, units and mapped subconcepts
+ * laid out in flat arrays, with visibility and assignment flags computed once at build time.
+ *
+ * Stages and units keep the order they were loaded in and the subconcepts of a unit are in
+ * mapping position order. A graph is never modified after it is built; when the curriculum
+ * changes, {@link CurriculumGraphService} builds a new one and swaps it in.
+ */
+public final class CurriculumGraph {
+
+    // Audience bits of the precomputed visibility masks
+    private static final int LEARNER = 1;
+    private static final int MENTOR = 2;
+
+    private final long version;
+    private final long builtAtNanos;
+    private final String programId;
+    private final String programName;
+    private final String programDesc;
+
+    private final StageNode[] stages;
+    private final UnitNode[] units;
+    private final SubconceptNode[] subconcepts;
+
+    private final Map<String, Integer> stageIndex;
+    private final Map<String, Integer> unitIndex;
+
+    private CurriculumGraph(long version, Program program, StageNode[] stages, UnitNode[] units,
+                            SubconceptNode[] subconcepts) {
+        this.version = version;
+        this.builtAtNanos = System.nanoTime();
+        this.programId = program.getProgramId();
+        this.programName = program.getProgramName();
+        this.programDesc = program.getProgramDesc();
+        this.stages = stages;
+        this.units = units;
+        this.subconcepts = subconcepts;
+
+        Map<String, Integer> stageIds = new HashMap<>(stages.length * 2);
+        for (StageNode stage : stages) {
+            stageIds.put(stage.stageId, stage.index);
+        }
+        Map<String, Integer> unitIds = new HashMap<>(units.length * 2);
+        for (UnitNode unit : units) {
+            unitIds.put(unit.unitId, unit.index);
+        }
+        this.stageIndex = Collections.unmodifiableMap(stageIds);
+        this.unitIndex = Collections.unmodifiableMap(unitIds);
+    }
+
+    /**
+     * Builds the graph from the program's stages, the units of those stages and the mappings
+     * of those units. Mappings must already be in position order.
+     */
+    static CurriculumGraph build(long version, Program program, List<Stage> stages, List<Unit> units,
+                                 List<ProgramConceptsMapping> mappings) {
+        Map<String, List<Unit>> unitsByStage = new LinkedHashMap<>();
+        for (Unit unit : units) {
+            unitsByStage.computeIfAbsent(unit.getStage().getStageId(), k -> new ArrayList<>()).add(unit);
+        }
+        Map<String, List<ProgramConceptsMapping>> mappingsByUnit = new HashMap<>();
+        for (ProgramConceptsMapping mapping : mappings) {
+            mappingsByUnit.computeIfAbsent(mapping.getUnit().getUnitId(), k -> new ArrayList<>()).add(mapping);
+        }
+
+        StageNode[] stageNodes = new StageNode[stages.size()];
+        List<UnitNode> unitNodes = new ArrayList<>(units.size());
+        List<SubconceptNode> subconceptNodes = new ArrayList<>(mappings.size());
+        Map<String, ConceptDTO> concepts = new HashMap<>();
+
+        for (int s = 0; s < stageNodes.length; s++) {
+            Stage stage = stages.get(s);
+            List<Unit> stageUnits = unitsByStage.getOrDefault(stage.getStageId(), Collections.emptyList());
+            stageNodes[s] = new StageNode(s, stage, unitNodes.size(), stageUnits.size());
+
+            for (Unit unit : stageUnits) {
+                List<ProgramConceptsMapping> unitMappings =
+                        mappingsByUnit.getOrDefault(unit.getUnitId(), Collections.emptyList());
+                unitNodes.add(new UnitNode(unitNodes.size(), unit, s, subconceptNodes.size(), unitMappings.size()));
+
+                for (ProgramConceptsMapping mapping : unitMappings) {
+                    Concept concept = mapping.getSubconcept().getConcept();
+                    ConceptDTO conceptDTO = concept == null ? null
+                            : concepts.computeIfAbsent(concept.getConceptId(), k -> toConceptDTO(concept));
+                    subconceptNodes.add(new SubconceptNode(mapping, conceptDTO));
+                }
+            }
+        }
+
+        return new CurriculumGraph(version, program, stageNodes,
+                unitNodes.toArray(new UnitNode[0]), subconceptNodes.toArray(new SubconceptNode[0]));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    long getBuiltAtNanos() {
+        return builtAtNanos;
+    }
+
+    public String getProgramId() {
+        return programId;
+    }
+
+    public String getProgramName() {
+        return programName;
+    }
+
+    public String getProgramDesc() {
+        return programDesc;
+    }
+
+    public List<StageNode> getStages() {
+        return Collections.unmodifiableList(Arrays.asList(stages));
+    }
+
+    public List<UnitNode> getUnits() {
+        return Collections.unmodifiableList(Arrays.asList(units));
+    }
+
+    public List<UnitNode> getUnits(StageNode stage) {
+        return getUnits().subList(stage.firstUnit, stage.firstUnit + stage.unitCount);
+    }
+
+    public List<SubconceptNode> getSubconcepts(UnitNode unit) {
+        return Collections.unmodifiableList(Arrays.asList(subconcepts))
+                .subList(unit.firstSubconcept, unit.firstSubconcept + unit.subconceptCount);
+    }
+
+    public StageNode getStage(UnitNode unit) {
+        return stages[unit.stageIndex];
+    }
+
+    public Optional<StageNode> findStage(String stageId) {
+        Integer index = stageIndex.get(stageId);
+        return index == null ? Optional.empty() : Optional.of(stages[index]);
+    }
+
+    public Optional<UnitNode> findUnit(String unitId) {
+        Integer index = unitIndex.get(unitId);
+        return index == null ? Optional.empty() : Optional.of(units[index]);
+    }
+
+    /**
+     * Listing rule used by the learner-facing unit and subconcept screens: {@code showTo} is a
+     * comma-separated list of user types and the user type must be one of them.
+     */
+    static boolean isShowToListedFor(String userType, String showTo) {
+        if (userType == null || showTo == null) {
+            return false;
+        }
+        String type = userType.toLowerCase();
+        for (String audience : showTo.split(",")) {
+            if (audience.trim().toLowerCase().equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int audienceBit(String userType) {
+        if ("learner".equalsIgnoreCase(userType)) {
+            return LEARNER;
+        }
+        if ("mentor".equalsIgnoreCase(userType)) {
+            return MENTOR;
+        }
+        return 0;
+    }
+
+    private static ConceptDTO toConceptDTO(Concept concept) {
+        ConceptDTO conceptDTO = new ConceptDTO();
+        conceptDTO.setConceptId(concept.getConceptId());
+        conceptDTO.setConceptName(concept.getConceptName());
+        conceptDTO.setConceptDesc(concept.getConceptDesc());
+        conceptDTO.setConceptSkill1(concept.getConceptSkill1());
+        conceptDTO.setConceptSkill2(concept.getConceptSkill2());
+
+        ContentMaster content = concept.getContent();
+        if (content != null) {
+            ContentDTO contentDTO = new ContentDTO();
+            contentDTO.setContentId(content.getContentId());
+            contentDTO.setContentName(content.getContentName());
+            contentDTO.setContentDesc(content.getContentDesc());
+            contentDTO.setContentOrigin(content.getContentOrigin());
+            contentDTO.setContentTopic(content.getContentTopic());
+            conceptDTO.setContent(contentDTO);
+        }
+        return conceptDTO;
+    }
+
+    public static final class StageNode {
+        private final int index;
+        private final String stageId;
+        private final String stageName;
+        private final String stageDesc;
+        private final int firstUnit;
+        private final int unitCount;
+
+        private StageNode(int index, Stage stage, int firstUnit, int unitCount) {
+            this.index = index;
+            this.stageId = stage.getStageId();
+            this.stageName = stage.getStageName();
+            this.stageDesc = stage.getStageDesc();
+            this.firstUnit = firstUnit;
+            this.unitCount = unitCount;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getStageId() {
+            return stageId;
+        }
+
+        public String getStageName() {
+            return stageName;
+        }
+
+        public String getStageDesc() {
+            return stageDesc;
+        }
+
+        public int getUnitCount() {
+            return unitCount;
+        }
+    }
+
+    public static final class UnitNode {
+        private final int index;
+        private final String unitId;
+        private final String unitName;
+        private final String unitDesc;
+        private final int stageIndex;
+        private final int firstSubconcept;
+        private final int subconceptCount;
+
+        private UnitNode(int index, Unit unit, int stageIndex, int firstSubconcept, int subconceptCount) {
+            this.index = index;
+            this.unitId = unit.getUnitId();
+            this.unitName = unit.getUnitName();
+            this.unitDesc = unit.getUnitDesc();
+            this.stageIndex = stageIndex;
+            this.firstSubconcept = firstSubconcept;
+            this.subconceptCount = subconceptCount;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getUnitId() {
+            return unitId;
+        }
+
+        public String getUnitName() {
+            return unitName;
+        }
+
+        public String getUnitDesc() {
+            return unitDesc;
+        }
+
+        public int getSubconceptCount() {
+            return subconceptCount;
+        }
+    }
+
+    /**
+     * One mapped subconcept of a unit. The concept DTO is shared between reports and must be
+     * treated as read-only.
+     */
+    public static final class SubconceptNode {
+        private final String subconceptId;
+        private final String subconceptDesc;
+        private final String subconceptDesc2;
+        private final String subconceptType;
+        private final String subconceptLink;
+        private final String subconceptGroup;
+        private final String dependency;
+        private final String showTo;
+        private final Integer subconceptMaxscore;
+        private final Integer numQuestions;
+        private final Integer subconceptDuration;
+        private final String programConceptDesc;
+        private final ConceptDTO concept;
+        private final boolean assignment;
+        private final int listedMask;
+        private final int reportedMask;
+
+        private SubconceptNode(ProgramConceptsMapping mapping, ConceptDTO concept) {
+            Subconcept subconcept = mapping.getSubconcept();
+            this.subconceptId = subconcept.getSubconceptId();
+            this.subconceptDesc = subconcept.getSubconceptDesc();
+            this.subconceptDesc2 = subconcept.getSubconceptDesc2();
+            this.subconceptType = subconcept.getSubconceptType();
+            this.subconceptLink = subconcept.getSubconceptLink();
+            this.subconceptGroup = subconcept.getSubconceptGroup();
+            this.dependency = subconcept.getDependency();
+            this.showTo = subconcept.getShowTo();
+            this.subconceptMaxscore = subconcept.getSubconceptMaxscore();
+            this.numQuestions = subconcept.getNumQuestions();
+            this.subconceptDuration = subconcept.getSubconceptDuration();
+            this.programConceptDesc = mapping.getProgramConceptDesc();
+            this.concept = concept;
+            this.assignment = subconceptType != null && subconceptType.toLowerCase().startsWith("assignment");
+
+            int listed = 0;
+            int reported = 0;
+            if (isShowToListedFor("learner", showTo)) listed |= LEARNER;
+            if (isShowToListedFor("mentor", showTo)) listed |= MENTOR;
+            if (ProgramReportEngine.isShowToVisibleToUser("learner", showTo)) reported |= LEARNER;
+            if (ProgramReportEngine.isShowToVisibleToUser("mentor", showTo)) reported |= MENTOR;
+            this.listedMask = listed;
+            this.reportedMask = reported;
+        }
+
+        /**
+         * Visibility on the unit and subconcept screens, see {@link CurriculumGraph#isShowToListedFor}
+         */
+        public boolean isListedFor(String userType) {
+            int bit = audienceBit(userType);
+            return bit != 0 ? (listedMask & bit) != 0 : isShowToListedFor(userType, showTo);
+        }
+
+        /**
+         * Visibility in progress reports, see {@link ProgramReportEngine#isShowToVisibleToUser}
+         */
+        public boolean isReportedFor(String userType) {
+            return (reportedMask & audienceBit(userType)) != 0;
+        }
+
+        public boolean isAssignment() {
+            return assignment;
+        }
+
+        public String getSubconceptId() {
+            return subconceptId;
+        }
+
+        public String getSubconceptDesc() {
+            return subconceptDesc;
+        }
+
+        public String getSubconceptDesc2() {
+            return subconceptDesc2;
+        }
+
+        public String getSubconceptType() {
+            return subconceptType;
+        }
+
+        public String getSubconceptLink() {
+            return subconceptLink;
+        }
+
+        public String getSubconceptGroup() {
+            return subconceptGroup;
+        }
+
+        public String getDependency() {
+            return dependency;
+        }
+
+        public String getShowTo() {
+            return showTo;
+        }
+
+        public Integer getSubconceptMaxscore() {
+            return subconceptMaxscore;
+        }
+
+        public Integer getNumQuestions() {
+            return numQuestions;
+        }
+
+        public Integer getSubconceptDuration() {
+            return subconceptDuration;
+        }
+
+        public String getProgramConceptDesc() {
+            return programConceptDesc;
+        }
+
+        public ConceptDTO getConcept() {
+            return concept;
+        }
+    }
+}
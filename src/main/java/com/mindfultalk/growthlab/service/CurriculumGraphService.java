@@ -0,0 +1,179 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.*;
+
+import com.mindfultalk.growthlab.config.TwoTierCacheManager;
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.*;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps the current {@link CurriculumGraph} of every program read since the last curriculum change.
+ *
+ * A graph is built on first read from four queries and then served from memory. Every write to
+ * programs, stages, units, subconcepts, concepts or their mappings calls {@link #invalidate()},
+ * which bumps the version once immediately and once after the surrounding transaction commits.
+ * A graph whose version is behind is rebuilt on its next read, so a build that raced with an
+ * upload is never served afterwards.
+ *
+ * The committed bump is also published on the cache invalidation channel of
+ * {@link TwoTierCacheManager}, and every other instance bumps its own version when it receives
+ * it. Graphs still expire after a maximum age, which bounds how long a change can stay invisible
+ * on an instance that missed the message.
+ */
+@Service
+public class CurriculumGraphService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurriculumGraphService.class);
+
+    // Name the version bumps are published under on the cache invalidation channel
+    static final String INVALIDATION_NAME = "curriculumGraphs";
+
+    @Autowired
+    private ProgramRepository programRepository;
+
+    @Autowired
+    private StageRepository stageRepository;
+
+    @Autowired
+    private UnitRepository unitRepository;
+
+    @Autowired
+    private ProgramConceptsMappingRepository programConceptsMappingRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectProvider<TwoTierCacheManager> cacheManager;
+
+    @Value("${curriculum.graph.max-age-minutes:10}")
+    private long maxAgeMinutes;
+
+    private final AtomicLong version = new AtomicLong();
+    private final ConcurrentMap<String, CurriculumGraph> graphs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> buildLocks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void listenForInvalidations() {
+        cacheManager.ifAvailable(manager -> manager.onInvalidation(INVALIDATION_NAME, this::bumpVersion));
+    }
+
+    public Optional<CurriculumGraph> findGraph(String programId) {
+        CurriculumGraph graph = graphs.get(programId);
+        if (isCurrent(graph)) {
+            return Optional.of(graph);
+        }
+
+        // One build per program at a time; readers of other programs are not blocked
+        synchronized (buildLocks.computeIfAbsent(programId, k -> new Object())) {
+            graph = graphs.get(programId);
+            if (isCurrent(graph)) {
+                return Optional.of(graph);
+            }
+            CurriculumGraph built = load(programId, version.get());
+            if (built == null) {
+                graphs.remove(programId);
+                return Optional.empty();
+            }
+            graphs.put(programId, built);
+            return Optional.of(built);
+        }
+    }
+
+    public Optional<CurriculumGraph> findGraphByStageId(String stageId) {
+        for (CurriculumGraph graph : graphs.values()) {
+            if (isCurrent(graph) && graph.findStage(stageId).isPresent()) {
+                return Optional.of(graph);
+            }
+        }
+        return stageRepository.findProgramIdByStageId(stageId)
+            .flatMap(this::findGraph)
+            .filter(graph -> graph.findStage(stageId).isPresent());
+    }
+
+    public Optional<CurriculumGraph> findGraphByUnitId(String unitId) {
+        for (CurriculumGraph graph : graphs.values()) {
+            if (isCurrent(graph) && graph.findUnit(unitId).isPresent()) {
+                return Optional.of(graph);
+            }
+        }
+        return unitRepository.findProgramIdByUnitId(unitId)
+            .flatMap(this::findGraph)
+            .filter(graph -> graph.findUnit(unitId).isPresent());
+    }
+
+    /**
+     * Drops every graph on every instance. Safe to call inside a transaction: graphs rebuilt
+     * before the commit are discarded again once it completes, and other instances are only told
+     * after the commit, when they can read the change.
+     */
+    public void invalidate() {
+        bumpVersion();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpVersion();
+                    publishInvalidation();
+                }
+            });
+        } else {
+            publishInvalidation();
+        }
+    }
+
+    private void publishInvalidation() {
+        cacheManager.ifAvailable(manager -> manager.publishInvalidation(INVALIDATION_NAME));
+    }
+
+    private void bumpVersion() {
+        long current = version.incrementAndGet();
+        graphs.clear();
+        logger.info("Curriculum graphs invalidated, version is now {}", current);
+    }
+
+    private boolean isCurrent(CurriculumGraph graph) {
+        return graph != null
+            && graph.getVersion() == version.get()
+            && System.nanoTime() - graph.getBuiltAtNanos() < TimeUnit.MINUTES.toNanos(maxAgeMinutes);
+    }
+
+    private CurriculumGraph load(String programId, long graphVersion) {
+        long startTime = System.currentTimeMillis();
+
+        // One read-only transaction so eager associations resolve from the persistence context
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        CurriculumGraph graph = transactionTemplate.execute(status -> {
+            Optional<Program> program = programRepository.findById(programId);
+            if (program.isEmpty()) {
+                return null;
+            }
+            List<Stage> stages = stageRepository.findByProgram_ProgramId(programId);
+            List<Unit> units = unitRepository.findByStageProgramIdWithStage(programId);
+            List<ProgramConceptsMapping> mappings = programConceptsMappingRepository.findByUnitProgramIdWithSubconcepts(programId);
+            return CurriculumGraph.build(graphVersion, program.get(), stages, units, mappings);
+        });
+
+        if (graph == null) {
+            logger.warn("Program not found while building curriculum graph: {}", programId);
+        } else {
+            logger.info("Built curriculum graph for program {} (version {}) with {} stages and {} units in {}ms",
+                programId, graphVersion, graph.getStages().size(), graph.getUnits().size(),
+                System.currentTimeMillis() - startTime);
+        }
+        return graph;
+    }
+}
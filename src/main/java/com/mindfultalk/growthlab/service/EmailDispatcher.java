@@ -0,0 +1,335 @@
+package com.mindfultalk.growthlab.service;
+
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.mail.*;
+import org.springframework.mail.javamail.*;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.*;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Sends outgoing email in the background.
+ *
+ * With {@code mail.dispatch.mode=outbox} (the default) an email is only stored in the
+ * email_outbox table, which survives restarts, and callers never wait for SMTP. One poller
+ * thread per node claims due entries through {@link EmailOutboxStore} and hands them to a pool of
+ * {@code mail.dispatch.threads} senders in chunks of {@code mail.dispatch.messages-per-connection}.
+ * Each chunk goes out over a single SMTP connection, since JavaMailSender sends an array of
+ * messages through one transport.
+ *
+ * Every send first takes permits from a limiter shared by the senders, so on average a node
+ * sends no more than {@code mail.dispatch.rate-per-second} messages per second. A failed message
+ * is retried with exponential backoff and given up on after {@code mail.dispatch.max-retries}
+ * attempts. Once an entry is sent or given up on its body is cleared, and the poller deletes
+ * finished entries older than {@code mail.dispatch.retention-ms} every
+ * {@code mail.dispatch.purge-interval-ms}.
+ * Delivery is at least once: if a node dies mid-send its claimed entries are sent again after
+ * the lease runs out.
+ *
+ * The mail server comes from the spring.mail properties, so a local SMTP stand-in such as
+ * GreenMail can be used by pointing spring.mail.host and spring.mail.port at it.
+ *
+ * {@code mail.dispatch.mode=sync} sends on the calling thread as before and never starts the
+ * poller.
+ *
+ * Metrics: growthlab.email.sent and growthlab.email.failed, tagged by template.
+ */
+@Service
+public class EmailDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailDispatcher.class);
+
+    public static final String MODE_OUTBOX = "outbox";
+    public static final String DEFAULT_TEMPLATE = "generic";
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private EmailOutboxStore emailOutboxStore;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${mail.dispatch.mode:outbox}")
+    private String mode;
+
+    @Value("${mail.dispatch.threads:4}")
+    private int threads;
+
+    @Value("${mail.dispatch.batch-size:100}")
+    private int batchSize;
+
+    @Value("${mail.dispatch.messages-per-connection:20}")
+    private int messagesPerConnection;
+
+    @Value("${mail.dispatch.rate-per-second:10}")
+    private double ratePerSecond;
+
+    @Value("${mail.dispatch.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${mail.dispatch.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${mail.dispatch.max-retries:6}")
+    private int maxRetries;
+
+    @Value("${mail.dispatch.backoff-ms:30000}")
+    private long baseBackoffMs;
+
+    @Value("${mail.dispatch.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${mail.dispatch.retention-ms:604800000}")
+    private long retentionMs;
+
+    @Value("${mail.dispatch.purge-interval-ms:3600000}")
+    private long purgeIntervalMs;
+
+    private ScheduledExecutorService poller;
+    private ExecutorService senderPool;
+    private SendRateLimiter rateLimiter;
+
+    public boolean isOutboxMode() {
+        return MODE_OUTBOX.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Stores an email for sending, or sends it right away in sync mode. In outbox mode an email
+     * queued inside a transaction is only sent once that transaction commits.
+     */
+    public void enqueue(String to, String subject, String body, boolean html, String template) {
+        if (!isOutboxMode()) {
+            sendNow(to, subject, body, html);
+            return;
+        }
+        EmailOutbox entry = new EmailOutbox();
+        entry.setRecipient(to);
+        entry.setSubject(subject);
+        entry.setBody(body);
+        entry.setHtml(html);
+        entry.setTemplate(template != null ? template : DEFAULT_TEMPLATE);
+        EmailOutbox saved = emailOutboxRepository.save(entry);
+        logger.info("Queued {} email {} to: {}", saved.getTemplate(), saved.getId(), to);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDispatcher() {
+        if (!isOutboxMode()) {
+            return;
+        }
+        startSenderPool();
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::dispatch, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        poller.scheduleWithFixedDelay(this::purge, purgeIntervalMs, purgeIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Email dispatcher started with {} senders, {} messages per connection and {} messages per second",
+                   threads, messagesPerConnection, ratePerSecond);
+    }
+
+    void startSenderPool() {
+        AtomicInteger count = new AtomicInteger();
+        senderPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "email-sender-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        rateLimiter = new SendRateLimiter(ratePerSecond);
+    }
+
+    @PreDestroy
+    public void stopDispatcher() {
+        if (poller != null) {
+            poller.shutdown();
+            try {
+                // Let the running batch finish; unsent entries are claimed again once their lease runs out
+                if (!poller.awaitTermination(30, TimeUnit.SECONDS)) {
+                    poller.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                poller.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            logger.info("Email dispatcher stopped");
+        }
+        if (senderPool != null) {
+            senderPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends due entries batch by batch until none are left
+     */
+    void dispatch() {
+        try {
+            List<EmailOutbox> batch;
+            do {
+                batch = emailOutboxStore.claimDue(batchSize, leaseMs);
+                if (!batch.isEmpty()) {
+                    sendBatch(batch);
+                }
+            } while (batch.size() == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (Exception e) {
+            // Never let an exception cancel the scheduled task
+            logger.error("Error dispatching the email outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    void purge() {
+        try {
+            emailOutboxStore.purgeFinished(retentionMs);
+        } catch (Exception e) {
+            // Never let an exception cancel the scheduled task
+            logger.error("Error purging the email outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    private void sendBatch(List<EmailOutbox> batch) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        List<Future<?>> chunks = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += messagesPerConnection) {
+            List<EmailOutbox> chunk = batch.subList(from, Math.min(from + messagesPerConnection, batch.size()));
+            chunks.add(senderPool.submit(() -> sendChunk(chunk)));
+        }
+        for (Future<?> chunk : chunks) {
+            try {
+                chunk.get();
+            } catch (ExecutionException e) {
+                // Entries of the chunk stay claimed and are retried when the lease runs out
+                logger.error("Error sending a chunk of emails: {}", e.getCause().getMessage(), e.getCause());
+            }
+        }
+        logger.info("Dispatched {} emails in {}ms", batch.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Sends the entries over one SMTP connection and records the outcome of each
+     */
+    void sendChunk(List<EmailOutbox> chunk) {
+        // Messages keep the order of the outbox; failures are reported per message object
+        List<MimeMessage> messages = new ArrayList<>(chunk.size());
+        Map<MimeMessage, EmailOutbox> entriesByMessage = new IdentityHashMap<>();
+        Map<EmailOutbox, String> failures = new IdentityHashMap<>();
+        for (EmailOutbox entry : chunk) {
+            try {
+                MimeMessage message = buildMessage(entry.getRecipient(), entry.getSubject(), entry.getBody(), entry.isHtml());
+                messages.add(message);
+                entriesByMessage.put(message, entry);
+            } catch (MessagingException | RuntimeException e) {
+                failures.put(entry, e.getMessage());
+            }
+        }
+
+        if (!messages.isEmpty()) {
+            try {
+                rateLimiter.acquire(messages.size());
+                mailSender.send(messages.toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                if (e.getFailedMessages().isEmpty()) {
+                    entriesByMessage.values().forEach(entry -> failures.put(entry, e.getMessage()));
+                }
+                e.getFailedMessages().forEach((message, error) -> {
+                    EmailOutbox entry = entriesByMessage.get(message);
+                    if (entry != null) {
+                        failures.put(entry, error.getMessage());
+                    }
+                });
+            } catch (MailException e) {
+                entriesByMessage.values().forEach(entry -> failures.put(entry, e.getMessage()));
+            } catch (InterruptedException e) {
+                // Nothing was sent; the entries are claimed again when the lease runs out
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        for (EmailOutbox entry : chunk) {
+            if (failures.containsKey(entry)) {
+                count("growthlab.email.failed", entry);
+            } else {
+                sentIds.add(entry.getId());
+                count("growthlab.email.sent", entry);
+            }
+        }
+        emailOutboxStore.markSent(sentIds);
+        failures.forEach((entry, error) ->
+            emailOutboxStore.markFailed(entry.getId(), error, maxRetries, baseBackoffMs, maxBackoffMs));
+    }
+
+    private void sendNow(String to, String subject, String body, boolean html) {
+        try {
+            mailSender.send(buildMessage(to, subject, body, html));
+        } catch (MessagingException e) {
+            throw new MailPreparationException(e);
+        }
+    }
+
+    private MimeMessage buildMessage(String to, String subject, String body, boolean html) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setTo(to);
+        helper.setSubject(subject);
+        helper.setText(body, html);
+        return message;
+    }
+
+    private void count(String name, EmailOutbox entry) {
+        Counter.builder(name)
+            .tag("template", entry.getTemplate() != null ? entry.getTemplate() : DEFAULT_TEMPLATE)
+            .register(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+            .increment();
+    }
+
+    /**
+     * Hands out send permits at a fixed rate. Permits are reserved in order, so a sender asking
+     * for a chunk waits until the senders before it have been served.
+     */
+    static final class SendRateLimiter {
+
+        private final long nanosPerPermit;
+        private long nextFreeNanos = System.nanoTime();
+
+        SendRateLimiter(double permitsPerSecond) {
+            this.nanosPerPermit = permitsPerSecond > 0 ? (long) (1_000_000_000L / permitsPerSecond) : 0;
+        }
+
+        void acquire(int permits) throws InterruptedException {
+            if (nanosPerPermit == 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long start = Math.max(now, nextFreeNanos);
+                waitNanos = start - now;
+                nextFreeNanos = start + permits * nanosPerPermit;
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
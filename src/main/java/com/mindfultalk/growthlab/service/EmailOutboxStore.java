@@ -0,0 +1,103 @@
+package com.mindfultalk.growthlab.service;
+
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.*;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Transactional reads and writes of the email_outbox table for {@link EmailDispatcher}.
+ *
+ * Claiming and sending are separate steps: entries are claimed in a short transaction that moves
+ * them forward by a lease, and SMTP is only talked to after it commits, so no database
+ * transaction or row lock is held while a mail server is slow.
+ */
+@Service
+public class EmailOutboxStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxStore.class);
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    /**
+     * Claims up to batchSize due entries for leaseMs. Entries locked by another node's dispatcher
+     * are skipped.
+     */
+    @Transactional(timeout = 30)
+    public List<EmailOutbox> claimDue(int batchSize, long leaseMs) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<Long> ids = emailOutboxRepository.findDueIds(EmailOutbox.STATUS_PENDING, now, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<EmailOutbox> entries = emailOutboxRepository.lockDueByIds(ids, EmailOutbox.STATUS_PENDING, now);
+        OffsetDateTime leaseUntil = now.plusNanos(leaseMs * 1_000_000L);
+        entries.forEach(entry -> entry.setNextAttemptAt(leaseUntil));
+        return entries;
+    }
+
+    @Transactional
+    public void markSent(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            emailOutboxRepository.markSent(ids, EmailOutbox.STATUS_SENT, OffsetDateTime.now());
+        }
+    }
+
+    /**
+     * Records a failed send. The entry is retried with exponential backoff, or given up on once
+     * it has failed maxRetries times.
+     */
+    @Transactional
+    public void markFailed(Long id, String error, int maxRetries, long baseBackoffMs, long maxBackoffMs) {
+        emailOutboxRepository.findById(id).ifPresent(entry -> {
+            if (!EmailOutbox.STATUS_PENDING.equals(entry.getStatus())) {
+                return;
+            }
+            entry.setRetryCount(entry.getRetryCount() + 1);
+            entry.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (entry.getRetryCount() >= maxRetries) {
+                entry.setStatus(EmailOutbox.STATUS_FAILED);
+                entry.setBody(null);
+                logger.error("Giving up on email {} to {} after {} retries: {}",
+                            id, entry.getRecipient(), entry.getRetryCount(), error);
+            } else {
+                long backoffMs = backoffMs(entry.getRetryCount(), baseBackoffMs, maxBackoffMs);
+                entry.setNextAttemptAt(OffsetDateTime.now().plusNanos(backoffMs * 1_000_000L));
+                logger.warn("Email {} to {} failed (retry {} of {}), next attempt in {}ms: {}",
+                           id, entry.getRecipient(), entry.getRetryCount(), maxRetries, backoffMs, error);
+            }
+            emailOutboxRepository.save(entry);
+        });
+    }
+
+    /**
+     * Deletes sent and given-up entries created more than retentionMs ago
+     */
+    @Transactional
+    public int purgeFinished(long retentionMs) {
+        OffsetDateTime cutoff = OffsetDateTime.now().minusNanos(retentionMs * 1_000_000L);
+        int purged = emailOutboxRepository.deleteFinishedBefore(
+            List.of(EmailOutbox.STATUS_SENT, EmailOutbox.STATUS_FAILED), cutoff);
+        if (purged > 0) {
+            logger.info("Purged {} finished email outbox entries created before {}", purged, cutoff);
+        }
+        return purged;
+    }
+
+    /**
+     * Delay before the given retry: baseBackoffMs doubled per earlier retry, capped at maxBackoffMs
+     */
+    static long backoffMs(int retryCount, long baseBackoffMs, long maxBackoffMs) {
+        int doublings = Math.min(Math.max(retryCount - 1, 0), 30);
+        long backoff = baseBackoffMs << doublings;
+        return backoff < 0 || backoff > maxBackoffMs ? maxBackoffMs : backoff;
+    }
+}
@@ -30,12 +30,105 @@ public class EmailService {
     private UserAssignmentRepository userAssignmentRepository;
     
     @Autowired
-    private S3StorageService s3StorageService;
+    private MediaUrlService mediaUrlService;
+
+    @Autowired
+    private EmailDispatcher emailDispatcher;
     
  //   private static final String LOGO_IMAGE = "images/ChipperSageLogo.png";
     
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(EmailService.class);
 
+    // Compiled once; rendering only appends the fixed parts and the values
+    private static final EmailTemplate USER_CREATION_TEMPLATE = EmailTemplate.compile("user-creation",
+            "<html><body style='font-family: Arial, sans-serif; line-height:1.6; color:#333;'>"
+            + "<p>Dear <strong>%s</strong>,</p>"
+
+            + "<p>What an exciting day! 🌟 <strong>Welcome to your transformative learning journey with Mindfultalk!</strong></p>"
+
+            + "<h4 style='color:#2c3e50;'>📚 Your Enrolled Programs</h4>"
+            + "%s"
+
+            + "<h4 style='color:#2c3e50;'>🔐 Your Secure Login Credentials</h4>"
+            + "<p><em>(Please keep these safe and handy!)</em></p>"
+            + "<ul>"
+            + "<li><strong>User ID:</strong> %s</li>"
+            + "<li><strong>Password:</strong> %s</li>"
+            + "<li><strong>User Type:</strong> %s</li>"
+            + "</ul>"
+
+            + "<h4 style='color:#2c3e50;'>🚀 Access Your Learning Portal</h4>"
+            + "<p>Ready to dive in? Your personal learning hub awaits:<br>"
+            + "<a href='https://courses.mindfultalk.in' style='color:#1a73e8; font-weight:bold;'>👉 https://courses.mindfultalk.in</a></p>"
+            + "<p><em>💡 Pro Tip: Bookmark this link and add it to your home screen for lightning-fast access!</em></p>"
+
+            + "<h4 style='color:#2c3e50;'>🤝 Your Dedicated Support Team</h4>"
+            + "<ul>"
+            + "<li><strong>Your Administrator:</strong> %s</li>"
+            + "<li><strong>Organization:</strong> %s</li>"
+            + "</ul>"
+
+            + "<h4 style='color:#2c3e50;'>✨ Your Exciting Next Steps</h4>"
+            + "<ol>"
+            + "<li>🎯 <strong>Log into your portal</strong> using the credentials above</li>"
+            + "<li>🔍 <strong>Explore your programs</strong> and get familiar with the course materials</li>"
+            + "<li>📖 <strong>Start your first module</strong> and begin this amazing transformation</li>"
+            + "</ol>"
+
+            + "<hr>"
+
+            + "<p><strong>This isn't just another course</strong> - this is your opportunity to unlock potential you didn't even know you had, build skills that will serve you for life, and achieve goals that once seemed impossible.</p>"
+
+            + "<p>I want you to know that <strong>we're genuinely invested in your success</strong>. Every resource, every lesson, every support interaction has been designed with your growth in mind. Your success truly is our mission, and we can't wait to be part of your journey!</p>"
+
+            + "<p><strong>Here's to your bright future and all the amazing discoveries ahead! 🎊</strong></p>"
+
+            + "<p>With genuine excitement for your journey,</p>"
+            + "<p><strong>The Mindfultalk Team</strong><br>"
+            + "<em>\"Empowering Growth, One Mind at a Time\"</em></p>"
+
+            + "<hr>"
+            + "<p><em>P.S. Keep your eyes peeled for updates, learning tips, and inspiring success stories. You're part of an incredible community now! 💌</em></p>"
+
+            + "</body></html>");
+
+    private static final EmailTemplate COHORT_ASSIGNMENT_TEMPLATE = EmailTemplate.compile("cohort-assignment",
+            "<html><body style='font-family: Arial, sans-serif; line-height:1.6; color:#333;'>"
+            + "<p>Hi <strong>%s</strong>,</p>"
+
+            + "<p>We’re thrilled to welcome you to the next step in your learning journey at <strong>%s</strong>! 💡</p>"
+
+            + "<h4 style='color:#2c3e50;'>📚 Here’s what’s new for you: </h4>"
+            + "<ul>"
+            + "<li><strong>Program Name:</strong> %s</li>"
+            + "<li><strong>Cohort Name:</strong> %s</li>"
+            + "</ul>"
+
+            + "<p>This program is designed to help you grow, connect, and achieve your goals. We're confident that you'll find it both enriching and inspiring. 🎯</p>"
+
+            + "<h4 style='color:#2c3e50;'>🚀 Access Your Learning Portal</h4>"
+            + "<p>Ready to get started? Simply log in to your account here:<br>"
+            + "<a href='https://courses.mindfultalk.in' style='color:#1a73e8; font-weight:bold;'>👉 Access Your Program</a></p>"
+
+            + "<h4 style='color:#2c3e50;'>✨ Take this opportunity to:</h4>"
+            + "<ul>"
+            + "<li>✅ Dive into new program content</li>"
+            + "<li>✅ Continue building your skills and knowledge</li>"
+            + "</ul>"
+
+            + "<p>Your growth matters to us, and we’re here to support you every step of the way. "
+            + "If you have any questions, feel free to reach out—we’ve got your back! 💪</p>"
+
+            + "<p>Let’s make this an amazing chapter in your learning journey.</p>"
+
+            + "<p>Warm regards,<br><strong>The Mindfultalk Team</strong></p>"
+
+            + "<hr>"
+            + "<p><em>P.S. Remember, every step you take is one closer to achieving your goals. "
+            + "Let’s do this together! 🚀</em></p>"
+
+            + "</body></html>");
+
 
     public void sendEmailWithAttachment(String to, String mentorName, String cohortName, Path filePath) {
         try {
@@ -95,21 +188,19 @@ public class EmailService {
     }
     
     public void sendEmail(String to, String subject, String body, boolean isHtml) {
-    	logger.info("Attempting to send {} email to: {}", isHtml ? "HTML" : "plain text", to);
+        sendEmail(to, subject, body, isHtml, EmailDispatcher.DEFAULT_TEMPLATE);
+    }
+
+    /**
+     * Queues an email for the background dispatcher; the template name tags the dispatch metrics
+     */
+    public void sendEmail(String to, String subject, String body, boolean isHtml, String template) {
+    	logger.info("Queueing {} email to: {}", isHtml ? "HTML" : "plain text", to);
         
     	try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(body, isHtml); // if true → HTML, else plain text
-
-            mailSender.send(message);
-
-            logger.info("Email successfully sent to: {}", to);
+            emailDispatcher.enqueue(to, subject, body, isHtml, template);
         } catch (Exception e) {
-            logger.error("Failed to send email to: {}. Error: {}", to, e.getMessage());
+            logger.error("Failed to queue email to: {}. Error: {}", to, e.getMessage());
             throw new RuntimeException("Failed to send email", e);
         }
     }
@@ -194,57 +285,7 @@ public class EmailService {
         }
 
         // HTML email body
-        String body = String.format(
-            "<html><body style='font-family: Arial, sans-serif; line-height:1.6; color:#333;'>"
-            + "<p>Dear <strong>%s</strong>,</p>"
-
-            + "<p>What an exciting day! 🌟 <strong>Welcome to your transformative learning journey with Mindfultalk!</strong></p>"
-
-            + "<h4 style='color:#2c3e50;'>📚 Your Enrolled Programs</h4>"
-            + "%s"
-
-            + "<h4 style='color:#2c3e50;'>🔐 Your Secure Login Credentials</h4>"
-            + "<p><em>(Please keep these safe and handy!)</em></p>"
-            + "<ul>"
-            + "<li><strong>User ID:</strong> %s</li>"
-            + "<li><strong>Password:</strong> %s</li>"
-            + "<li><strong>User Type:</strong> %s</li>"
-            + "</ul>"
-
-            + "<h4 style='color:#2c3e50;'>🚀 Access Your Learning Portal</h4>"
-            + "<p>Ready to dive in? Your personal learning hub awaits:<br>"
-            + "<a href='https://courses.mindfultalk.in' style='color:#1a73e8; font-weight:bold;'>👉 https://courses.mindfultalk.in</a></p>"
-            + "<p><em>💡 Pro Tip: Bookmark this link and add it to your home screen for lightning-fast access!</em></p>"
-
-            + "<h4 style='color:#2c3e50;'>🤝 Your Dedicated Support Team</h4>"
-            + "<ul>"
-            + "<li><strong>Your Administrator:</strong> %s</li>"
-            + "<li><strong>Organization:</strong> %s</li>"
-            + "</ul>"
-
-            + "<h4 style='color:#2c3e50;'>✨ Your Exciting Next Steps</h4>"
-            + "<ol>"
-            + "<li>🎯 <strong>Log into your portal</strong> using the credentials above</li>"
-            + "<li>🔍 <strong>Explore your programs</strong> and get familiar with the course materials</li>"
-            + "<li>📖 <strong>Start your first module</strong> and begin this amazing transformation</li>"
-            + "</ol>"
-
-            + "<hr>"
-
-            + "<p><strong>This isn't just another course</strong> - this is your opportunity to unlock potential you didn't even know you had, build skills that will serve you for life, and achieve goals that once seemed impossible.</p>"
-
-            + "<p>I want you to know that <strong>we're genuinely invested in your success</strong>. Every resource, every lesson, every support interaction has been designed with your growth in mind. Your success truly is our mission, and we can't wait to be part of your journey!</p>"
-
-            + "<p><strong>Here's to your bright future and all the amazing discoveries ahead! 🎊</strong></p>"
-
-            + "<p>With genuine excitement for your journey,</p>"
-            + "<p><strong>The Mindfultalk Team</strong><br>"
-            + "<em>\"Empowering Growth, One Mind at a Time\"</em></p>"
-
-            + "<hr>"
-            + "<p><em>P.S. Keep your eyes peeled for updates, learning tips, and inspiring success stories. You're part of an incredible community now! 💌</em></p>"
-
-            + "</body></html>",
+        String body = USER_CREATION_TEMPLATE.render(
             userName,
             programCohortDetails.toString(),
             userId,
@@ -255,7 +296,7 @@ public class EmailService {
         );
 
         // Make sure sendEmail sets MIME type to HTML
-        sendEmail(userEmail, subject, body, true); // true = HTML
+        sendEmail(userEmail, subject, body, true, USER_CREATION_TEMPLATE.getName()); // true = HTML
     }
 
     
@@ -268,47 +309,12 @@ public class EmailService {
 
             String subject = "Your Learning Adventure Just Got Even Better! 🌟";
 
-            String body = String.format(
-            "<html><body style='font-family: Arial, sans-serif; line-height:1.6; color:#333;'>"
-            + "<p>Hi <strong>%s</strong>,</p>"
-
-            + "<p>We’re thrilled to welcome you to the next step in your learning journey at <strong>%s</strong>! 💡</p>"
-
-            + "<h4 style='color:#2c3e50;'>📚 Here’s what’s new for you: </h4>"
-            + "<ul>"
-            + "<li><strong>Program Name:</strong> %s</li>"
-            + "<li><strong>Cohort Name:</strong> %s</li>"
-            + "</ul>"
-
-            + "<p>This program is designed to help you grow, connect, and achieve your goals. We're confident that you'll find it both enriching and inspiring. 🎯</p>"
-
-            + "<h4 style='color:#2c3e50;'>🚀 Access Your Learning Portal</h4>"
-            + "<p>Ready to get started? Simply log in to your account here:<br>"
-            + "<a href='https://courses.mindfultalk.in' style='color:#1a73e8; font-weight:bold;'>👉 Access Your Program</a></p>"
-
-            + "<h4 style='color:#2c3e50;'>✨ Take this opportunity to:</h4>"
-            + "<ul>"
-            + "<li>✅ Dive into new program content</li>"
-            + "<li>✅ Continue building your skills and knowledge</li>"
-            + "</ul>"
-
-            + "<p>Your growth matters to us, and we’re here to support you every step of the way. "
-            + "If you have any questions, feel free to reach out—we’ve got your back! 💪</p>"
-
-            + "<p>Let’s make this an amazing chapter in your learning journey.</p>"
-
-            + "<p>Warm regards,<br><strong>The Mindfultalk Team</strong></p>"
-
-            + "<hr>"
-            + "<p><em>P.S. Remember, every step you take is one closer to achieving your goals. "
-            + "Let’s do this together! 🚀</em></p>"
-
-            + "</body></html>",
+            String body = COHORT_ASSIGNMENT_TEMPLATE.render(
             userName, orgName, programName, cohortName
             );
 
             try {
-            sendEmail(userEmail, subject, body, true); // true = HTML
+            sendEmail(userEmail, subject, body, true, COHORT_ASSIGNMENT_TEMPLATE.getName()); // true = HTML
             } catch (Exception e) {
             logger.error("Failed to send cohort assignment email. User: {}, Error: {}", userName, e.getMessage());
             System.err.println("Failed to send cohort assignment email. User: " + userName + ", Error: " + e.getMessage());
@@ -345,10 +351,8 @@ public class EmailService {
             boolean hasCorrectedFile = assignment.getCorrectedFile() != null;
             if (hasCorrectedFile) {
                 MediaFile file = assignment.getCorrectedFile();
-                // Ensure the file is publicly accessible
-                s3StorageService.makeFilePublic(file.getFilePath());
-                // Get public URL without credentials
-                correctedFileLink = s3StorageService.generatePublicUrl(file.getFilePath());
+                // Presigned link, valid for at least a day; the file's ACL is left as it is
+                correctedFileLink = mediaUrlService.getDownloadUrl(file.getFilePath());
             }
             
             // Create email subject
@@ -382,7 +386,7 @@ public class EmailService {
             bodyBuilder.append("The Mindfultalk Team");
             
             // Send the email
-            sendEmail(userEmail, subject, bodyBuilder.toString(), false);
+            sendEmail(userEmail, subject, bodyBuilder.toString(), false, "assignment-correction");
             logger.info("Assignment correction notification email sent successfully to {}", userEmail);
             
         } catch (Exception e) {
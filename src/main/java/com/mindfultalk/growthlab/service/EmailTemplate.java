@@ -0,0 +1,66 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.*;
+
+/**
+ * An email body template with %s placeholders, split into its fixed parts once.
+ *
+ * Templates are kept in static fields and compiled on first use, so rendering one is a single
+ * pass that appends the fixed parts and the values into a builder of the right size, instead of
+ * String.format parsing the whole template again for every recipient.
+ */
+public final class EmailTemplate {
+
+    private static final String PLACEHOLDER = "%s";
+
+    private final String name;
+    private final String[] parts;
+    private final int fixedLength;
+
+    private EmailTemplate(String name, String[] parts) {
+        this.name = name;
+        this.parts = parts;
+        int length = 0;
+        for (String part : parts) {
+            length += part.length();
+        }
+        this.fixedLength = length;
+    }
+
+    public static EmailTemplate compile(String name, String source) {
+        List<String> parts = new ArrayList<>();
+        int from = 0;
+        int at;
+        while ((at = source.indexOf(PLACEHOLDER, from)) >= 0) {
+            parts.add(source.substring(from, at));
+            from = at + PLACEHOLDER.length();
+        }
+        parts.add(source.substring(from));
+        return new EmailTemplate(name, parts.toArray(new String[0]));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Fills the placeholders in order, the way String.format fills %s
+     */
+    public String render(Object... values) {
+        if (values.length != parts.length - 1) {
+            throw new IllegalArgumentException("Template " + name + " takes " + (parts.length - 1)
+                + " values but got " + values.length);
+        }
+        String[] rendered = new String[values.length];
+        int length = fixedLength;
+        for (int i = 0; i < values.length; i++) {
+            rendered[i] = String.valueOf(values[i]);
+            length += rendered[i].length();
+        }
+        StringBuilder body = new StringBuilder(length);
+        for (int i = 0; i < rendered.length; i++) {
+            body.append(parts[i]).append(rendered[i]);
+        }
+        return body.append(parts[parts.length - 1]).toString();
+    }
+}
@@ -0,0 +1,458 @@
+package com.mindfultalk.growthlab.service;
+
+import com.mindfultalk.growthlab.dto.*;
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.*;
+import com.mindfultalk.growthlab.exception.ResourceNotFoundException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.*;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.*;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.*;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cohort leaderboards kept in Redis sorted sets, with UserCohortMapping.leaderboardScore as the
+ * durable copy.
+ *
+ * Per cohort there is a sorted set of userId by score and a hash of score deltas not yet written
+ * to the database. An increment adds to both in one Lua script, so concurrent attempts never lose
+ * an update. A background task on every node periodically moves the deltas into the database with
+ * an atomic {@code score = score + delta} UPDATE.
+ *
+ * Write-back first moves the pending hash to a processing hash and removes each user's delta from
+ * it only after the database UPDATE for that user succeeded. Deltas of a node that dies halfway
+ * stay in the processing hash, the cohort stays marked dirty, and the next write-back on any node
+ * merges new pending deltas into it and writes them. A crash right after an UPDATE can at worst
+ * apply that one delta twice; it is never lost.
+ *
+ * The sorted set is loaded lazily from the database plus the pending and processing deltas.
+ * Loading, rebuilding and writing back a cohort hold a short per-cohort Redis lock, so a load never
+ * misses deltas that are being written back at the same moment.
+ */
+@Service
+public class LeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    private static final String KEY_PREFIX = "leaderboard:";
+    private static final String DIRTY_COHORTS_KEY = KEY_PREFIX + "dirty";
+    private static final Duration LOCK_TTL = Duration.ofSeconds(30);
+    private static final int LOCK_ATTEMPTS = 40;
+    private static final long LOCK_RETRY_MS = 50;
+
+    // Records the delta for write-back and moves the score if the sorted set is loaded
+    private static final RedisScript<String> INCREMENT = new DefaultRedisScript<>(
+        "redis.call('HINCRBY', KEYS[2], ARGV[1], ARGV[2]) "
+            + "redis.call('SADD', KEYS[3], ARGV[3]) "
+            + "if redis.call('EXISTS', KEYS[1]) == 1 then "
+            + "return redis.call('ZINCRBY', KEYS[1], ARGV[2], ARGV[1]) end "
+            + "return false",
+        String.class);
+
+    // Database scores come in ARGV as (userId, score) pairs; deltas not yet in the database,
+    // pending or being written back, are added on top
+    private static final RedisScript<Long> LOAD = new DefaultRedisScript<>(
+        "if ARGV[1] == 'replace' then redis.call('DEL', KEYS[1]) "
+            + "elseif redis.call('EXISTS', KEYS[1]) == 1 then return 0 end "
+            + "for i = 2, #ARGV, 2 do redis.call('ZADD', KEYS[1], ARGV[i + 1], ARGV[i]) end "
+            + "for k = 2, 3 do "
+            + "local deltas = redis.call('HGETALL', KEYS[k]) "
+            + "for i = 1, #deltas, 2 do redis.call('ZINCRBY', KEYS[1], deltas[i + 1], deltas[i]) end end "
+            + "return 1",
+        Long.class);
+
+    // Moves the pending deltas into the processing hash, merging with what an interrupted
+    // write-back left there, and returns everything to write
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TAKE_PENDING = new DefaultRedisScript<>(
+        "if redis.call('EXISTS', KEYS[1]) == 1 then "
+            + "if redis.call('EXISTS', KEYS[2]) == 1 then "
+            + "local pending = redis.call('HGETALL', KEYS[1]) "
+            + "for i = 1, #pending, 2 do redis.call('HINCRBY', KEYS[2], pending[i], pending[i + 1]) end "
+            + "redis.call('DEL', KEYS[1]) "
+            + "else redis.call('RENAME', KEYS[1], KEYS[2]) end end "
+            + "return redis.call('HGETALL', KEYS[2])",
+        List.class);
+
+    // The cohort stays dirty while deltas are pending or left over from a failed write
+    private static final RedisScript<Long> FINISH_WRITE_BACK = new DefaultRedisScript<>(
+        "if redis.call('EXISTS', KEYS[1]) == 0 and redis.call('EXISTS', KEYS[2]) == 0 then "
+            + "return redis.call('SREM', KEYS[3], ARGV[1]) end return 0",
+        Long.class);
+
+    private static final RedisScript<Long> RELEASE_LOCK = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+        Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private UserCohortMappingRepository userCohortMappingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CohortService cohortService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${leaderboard.write-back-interval-ms:5000}")
+    private long writeBackIntervalMs;
+
+    private ScheduledExecutorService writeBackExecutor;
+
+    /**
+     * Adds to a user's score in a cohort. Inside a transaction the increment is applied after
+     * commit, so a rolled back attempt never counts.
+     */
+    public void increment(String userId, String cohortId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyIncrement(userId, cohortId, delta);
+                }
+            });
+        } else {
+            applyIncrement(userId, cohortId, delta);
+        }
+    }
+
+    private void applyIncrement(String userId, String cohortId, int delta) {
+        try {
+            String score = stringRedisTemplate.execute(INCREMENT,
+                Arrays.asList(leaderboardKey(cohortId), pendingKey(cohortId), DIRTY_COHORTS_KEY),
+                userId, Integer.toString(delta), cohortId);
+            logger.debug("Leaderboard increment of {} for userId: {}, cohortId: {}, score: {}", delta, userId, cohortId, score);
+        } catch (Exception e) {
+            // Keep the score durable; the sorted set catches up on the next rebuild
+            logger.error("Error incrementing leaderboard in Redis for userId: {}, cohortId: {}, writing to database instead",
+                        userId, cohortId, e);
+            userCohortMappingRepository.incrementLeaderboardScore(userId, cohortId, delta);
+        }
+    }
+
+    /**
+     * Current score of a user in a cohort
+     */
+    public int getScore(String cohortId, String userId) {
+        ensureLoaded(cohortId);
+        Double score = stringRedisTemplate.opsForZSet().score(leaderboardKey(cohortId), userId);
+        return score == null ? 0 : score.intValue();
+    }
+
+    /**
+     * One page of the cohort leaderboard, highest score first; ranks start at 1
+     */
+    public Map<String, Object> getTop(String cohortId, int page, int size) {
+        if (page < 0 || size <= 0 || size > 100) {
+            throw new IllegalArgumentException("Page must be 0 or more and size between 1 and 100");
+        }
+        if (!isLeaderboardShown(cohortId)) {
+            return Map.of("leaderboardStatus", "not available");
+        }
+        ensureLoaded(cohortId);
+
+        long start = (long) page * size;
+        Set<TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+            .reverseRangeWithScores(leaderboardKey(cohortId), start, start + size - 1);
+        Long total = stringRedisTemplate.opsForZSet().zCard(leaderboardKey(cohortId));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("leaderboardStatus", "available");
+        response.put("page", page);
+        response.put("size", size);
+        response.put("totalMembers", total != null ? total : 0L);
+        response.put("leaderboardData", toEntries(tuples, start));
+        return response;
+    }
+
+    /**
+     * A user's rank in the cohort with up to {@code radius} members above and below
+     */
+    public Map<String, Object> getRankWithNeighbours(String cohortId, String userId, int radius) {
+        if (radius < 0 || radius > 50) {
+            throw new IllegalArgumentException("Radius must be between 0 and 50");
+        }
+        if (!isLeaderboardShown(cohortId)) {
+            return Map.of("leaderboardStatus", "not available");
+        }
+        ensureLoaded(cohortId);
+
+        Long rank = stringRedisTemplate.opsForZSet().reverseRank(leaderboardKey(cohortId), userId);
+        if (rank == null) {
+            throw new ResourceNotFoundException("User " + userId + " is not on the leaderboard of cohort " + cohortId);
+        }
+        long start = Math.max(0, rank - radius);
+        Set<TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+            .reverseRangeWithScores(leaderboardKey(cohortId), start, rank + radius);
+        Long total = stringRedisTemplate.opsForZSet().zCard(leaderboardKey(cohortId));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("leaderboardStatus", "available");
+        response.put("userId", userId);
+        response.put("rank", rank + 1);
+        response.put("totalMembers", total != null ? total : 0L);
+        response.put("leaderboardData", toEntries(tuples, start));
+        return response;
+    }
+
+    /**
+     * Writes pending deltas of the cohort to the database and reloads its sorted set from there.
+     * Used for recovery after Redis data loss and after scores are changed in the database.
+     */
+    public void rebuild(String cohortId) {
+        logger.info("Rebuilding leaderboard for cohortId: {}", cohortId);
+        withLock(cohortId, () -> {
+            writeBackLocked(cohortId);
+            load(cohortId, true);
+        });
+    }
+
+    /**
+     * Drops a user's deltas not yet written to the database, pending or being written back. Call
+     * it before a score is set directly in the database, so the deltas are not added on top of
+     * the new score, and rebuild the cohort once the score is saved.
+     */
+    public void discardPendingDeltas(String cohortId, String userId) {
+        withLock(cohortId, () -> {
+            stringRedisTemplate.opsForHash().delete(pendingKey(cohortId), userId);
+            stringRedisTemplate.opsForHash().delete(processingKey(cohortId), userId);
+        });
+        logger.info("Discarded pending leaderboard deltas for userId: {}, cohortId: {}", userId, cohortId);
+    }
+
+    /**
+     * Rebuilds the leaderboard of every cohort with members
+     */
+    public int rebuildAll() {
+        List<String> cohortIds = userCohortMappingRepository.findDistinctCohortIds();
+        cohortIds.forEach(this::rebuild);
+        return cohortIds.size();
+    }
+
+    /**
+     * Writes the pending deltas of every dirty cohort to the database
+     */
+    public void writeBackAll() {
+        Set<String> cohortIds = stringRedisTemplate.opsForSet().members(DIRTY_COHORTS_KEY);
+        if (cohortIds == null || cohortIds.isEmpty()) {
+            return;
+        }
+        for (String cohortId : cohortIds) {
+            try {
+                // Another node busy with this cohort writes it back itself
+                tryWithLock(cohortId, () -> writeBackLocked(cohortId));
+            } catch (Exception e) {
+                logger.error("Error writing back leaderboard for cohortId: {}", cohortId, e);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWriteBack() {
+        writeBackExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-write-back");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writeBackExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                writeBackAll();
+            } catch (Exception e) {
+                // Never let an exception cancel the scheduled task
+                logger.error("Error in leaderboard write-back: {}", e.getMessage(), e);
+            }
+        }, writeBackIntervalMs, writeBackIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Leaderboard write-back started every {}ms", writeBackIntervalMs);
+    }
+
+    @PreDestroy
+    public void stopWriteBack() {
+        if (writeBackExecutor == null) {
+            return;
+        }
+        writeBackExecutor.shutdown();
+        try {
+            writeBackExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            // Flush what this node can before going away; other nodes pick up the rest
+            writeBackAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Error flushing leaderboards on shutdown: {}", e.getMessage());
+        }
+    }
+
+    private void writeBackLocked(String cohortId) {
+        List<?> pending = stringRedisTemplate.execute(TAKE_PENDING,
+            Arrays.asList(pendingKey(cohortId), processingKey(cohortId)));
+
+        int written = 0;
+        List<String> userIds = new ArrayList<>();
+        if (pending != null) {
+            for (int i = 0; i + 1 < pending.size(); i += 2) {
+                String userId = (String) pending.get(i);
+                int delta = Integer.parseInt((String) pending.get(i + 1));
+                try {
+                    if (delta != 0 && userCohortMappingRepository.incrementLeaderboardScore(userId, cohortId, delta) == 0) {
+                        logger.warn("Dropping leaderboard delta {} for userId: {}, cohortId: {}: no mapping", delta, userId, cohortId);
+                    }
+                    // Only a delta that reached the database leaves the processing hash
+                    stringRedisTemplate.opsForHash().delete(processingKey(cohortId), userId);
+                    userIds.add(userId);
+                    written++;
+                } catch (Exception e) {
+                    // Stays in the processing hash for the next run
+                    logger.error("Error writing leaderboard delta for userId: {}, cohortId: {}", userId, cohortId, e);
+                }
+            }
+        }
+        stringRedisTemplate.execute(FINISH_WRITE_BACK,
+            Arrays.asList(pendingKey(cohortId), processingKey(cohortId), DIRTY_COHORTS_KEY), cohortId);
+        if (written == 0) {
+            return;
+        }
+        evictLeaderboardCaches(cohortId, userIds);
+        logger.info("Wrote {} leaderboard deltas to the database for cohortId: {}", written, cohortId);
+    }
+
+    private void ensureLoaded(String cohortId) {
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(leaderboardKey(cohortId)))) {
+            return;
+        }
+        withLock(cohortId, () -> load(cohortId, false));
+    }
+
+    private void load(String cohortId, boolean replace) {
+        List<CohortMemberProjection> members = userCohortMappingRepository.findCohortMembers(cohortId);
+        List<String> args = new ArrayList<>(members.size() * 2 + 1);
+        args.add(replace ? "replace" : "keep");
+        for (CohortMemberProjection member : members) {
+            args.add(member.getUserId());
+            args.add(Integer.toString(member.getLeaderboardScore() != null ? member.getLeaderboardScore() : 0));
+        }
+        Long loaded = stringRedisTemplate.execute(LOAD,
+            Arrays.asList(leaderboardKey(cohortId), pendingKey(cohortId), processingKey(cohortId)), args.toArray());
+        if (loaded != null && loaded == 1L) {
+            logger.info("Loaded leaderboard for cohortId: {} with {} members", cohortId, members.size());
+        }
+    }
+
+    private void withLock(String cohortId, Runnable action) {
+        for (int attempt = 0; attempt < LOCK_ATTEMPTS; attempt++) {
+            if (tryWithLock(cohortId, action)) {
+                return;
+            }
+            try {
+                Thread.sleep(LOCK_RETRY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new IllegalStateException("Leaderboard of cohort " + cohortId + " is busy, please retry");
+    }
+
+    private boolean tryWithLock(String cohortId, Runnable action) {
+        String token = UUID.randomUUID().toString();
+        if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(lockKey(cohortId), token, LOCK_TTL))) {
+            return false;
+        }
+        try {
+            action.run();
+            return true;
+        } finally {
+            stringRedisTemplate.execute(RELEASE_LOCK, Collections.singletonList(lockKey(cohortId)), token);
+        }
+    }
+
+    private List<LeaderboardEntryDTO> toEntries(Set<TypedTuple<String>> tuples, long start) {
+        if (tuples == null || tuples.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> userIds = tuples.stream().map(TypedTuple::getValue).collect(Collectors.toList());
+        Map<String, User> users = userRepository.findAllById(userIds).stream()
+            .collect(Collectors.toMap(User::getUserId, Function.identity()));
+
+        List<LeaderboardEntryDTO> entries = new ArrayList<>(tuples.size());
+        long rank = start;
+        for (TypedTuple<String> tuple : tuples) {
+            LeaderboardEntryDTO entry = new LeaderboardEntryDTO();
+            entry.setRank(++rank);
+            entry.setUserId(tuple.getValue());
+            entry.setLeaderboardScore(tuple.getScore() != null ? tuple.getScore().intValue() : 0);
+            User user = users.get(tuple.getValue());
+            if (user != null) {
+                entry.setUserName(user.getUserName());
+                entry.setUserType(user.getUserType());
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private boolean isLeaderboardShown(String cohortId) {
+        Cohort cohort = cohortService.getCohortById(cohortId)
+            .orElseThrow(() -> new IllegalArgumentException("Cohort not found with ID: " + cohortId));
+        return cohort.isShowLeaderboard();
+    }
+
+    /**
+     * Evicts the cached entries holding the scores just written: the cohort's leaderboards and
+     * mappings, and the mapping of each user in the batch
+     */
+    private void evictLeaderboardCaches(String cohortId, List<String> userIds) {
+        evict("cohortLeaderboards", cohortId);
+        evict("cohortLeaderboards", cohortId + ":withLeaderboard");
+        evict("cohortMappings", cohortId);
+        evict("userMappings", cohortId);
+        for (String userId : userIds) {
+            evict("userCohortMappings", userId + ":" + cohortId);
+        }
+    }
+
+    private void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private static String leaderboardKey(String cohortId) {
+        return KEY_PREFIX + cohortId;
+    }
+
+    private static String pendingKey(String cohortId) {
+        return KEY_PREFIX + cohortId + ":pending";
+    }
+
+    private static String processingKey(String cohortId) {
+        return KEY_PREFIX + cohortId + ":processing";
+    }
+
+    private static String lockKey(String cohortId) {
+        return KEY_PREFIX + cohortId + ":lock";
+    }
+}
@@ -0,0 +1,94 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.*;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Download links for media files in S3.
+ *
+ * Links are presigned GET URLs, so they work whatever the object's ACL is and reading a file
+ * never changes it. Presigning is done locally by the shared presigner and the URL is kept per
+ * S3 key until it has {@code aws.s3.presigned-url.min-remaining-minutes} of validity left, so
+ * every URL handed out stays usable at least that long. A listing or CSV export asks for all its
+ * keys at once through {@link #getDownloadUrls} and costs no S3 request at all.
+ */
+@Service
+public class MediaUrlService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaUrlService.class);
+
+    @Autowired
+    private S3StorageService s3StorageService;
+
+    // SigV4 URLs signed with access keys are valid for at most 7 days
+    @Value("${aws.s3.presigned-url.ttl-minutes:10080}")
+    private int ttlMinutes;
+
+    @Value("${aws.s3.presigned-url.min-remaining-minutes:1440}")
+    private int minRemainingMinutes;
+
+    @Value("${aws.s3.presigned-url.cache-size:50000}")
+    private long cacheSize;
+
+    private Cache<String, String> urls;
+
+    @PostConstruct
+    public void createCache() {
+        if (minRemainingMinutes >= ttlMinutes) {
+            throw new IllegalStateException("aws.s3.presigned-url.min-remaining-minutes must be below ttl-minutes");
+        }
+        urls = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttlMinutes - minRemainingMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * Download URL of one file, or null for a missing key
+     */
+    public String getDownloadUrl(String s3Key) {
+        if (s3Key == null || s3Key.isBlank()) {
+            return null;
+        }
+        return urls.get(s3Key, this::presign);
+    }
+
+    /**
+     * Download URLs of many files by S3 key; blank keys are skipped and duplicates signed once
+     */
+    public Map<String, String> getDownloadUrls(Collection<String> s3Keys) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String s3Key : s3Keys) {
+            if (s3Key != null && !s3Key.isBlank()) {
+                keys.add(s3Key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        long startTime = System.currentTimeMillis();
+        Map<String, String> found = urls.getAll(keys, missing -> {
+            Map<String, String> signed = new HashMap<>();
+            for (String s3Key : missing) {
+                signed.put(s3Key, presign(s3Key));
+            }
+            logger.debug("Presigned {} of {} media URLs", signed.size(), keys.size());
+            return signed;
+        });
+        logger.debug("Resolved {} media URLs in {}ms", found.size(), System.currentTimeMillis() - startTime);
+        return found;
+    }
+
+    private String presign(String s3Key) {
+        return s3StorageService.generatePresignedUrl(s3Key, ttlMinutes).toString();
+    }
+}
@@ -0,0 +1,108 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Hashes passwords on a dedicated pool sized to the available cores.
+ *
+ * A BCrypt hash costs around 100ms of CPU. Running them on request threads lets a bulk upload
+ * hold one core for minutes while other uploads compete for the same cores; on this pool a batch
+ * is spread over every core and the total hashing CPU of the node stays bounded. The queue is
+ * bounded too: once it is full the caller hashes on its own thread, which slows the producer
+ * down instead of piling up work.
+ *
+ * A single password (sign-up, reset, webhook) is hashed on the caller's thread, so it never
+ * waits behind a bulk batch queued on the pool.
+ *
+ * Metrics: growthlab.password.hashing.queue (gauge of waiting hashes),
+ * growthlab.password.hashing.wait (time queued) and growthlab.password.hashing.duration (time
+ * hashing).
+ */
+@Service
+public class PasswordHashingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor hashingPool;
+    private final Timer waitTimer;
+    private final Timer hashTimer;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  ObjectProvider<MeterRegistry> meterRegistry,
+                                  @Value("${security.password-hashing.threads:0}") int threads,
+                                  @Value("${security.password-hashing.queue-capacity:10000}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        this.hashingPool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        Gauge.builder("growthlab.password.hashing.queue", hashingPool, pool -> pool.getQueue().size())
+            .register(registry);
+        this.waitTimer = Timer.builder("growthlab.password.hashing.wait").register(registry);
+        this.hashTimer = Timer.builder("growthlab.password.hashing.duration").register(registry);
+        logger.info("Password hashing pool started with {} threads", poolSize);
+    }
+
+    public String encode(String rawPassword) {
+        return hashTimer.record(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Hashes the passwords in parallel; the result keeps the order of the given passwords
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        long startTime = System.currentTimeMillis();
+        List<Future<String>> futures = new ArrayList<>(rawPasswords.size());
+        for (String rawPassword : rawPasswords) {
+            long queuedAt = System.nanoTime();
+            futures.add(hashingPool.submit(() -> {
+                waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.record(() -> passwordEncoder.encode(rawPassword));
+            }));
+        }
+
+        List<String> hashes = new ArrayList<>(futures.size());
+        try {
+            for (Future<String> future : futures) {
+                hashes.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Failed to hash password", e.getCause());
+        }
+        if (rawPasswords.size() > 1) {
+            logger.info("Hashed {} passwords in {}ms", rawPasswords.size(), System.currentTimeMillis() - startTime);
+        }
+        return hashes;
+    }
+
+    @PreDestroy
+    public void stopHashingPool() {
+        hashingPool.shutdownNow();
+    }
+}
@@ -1,7 +1,9 @@
 package com.mindfultalk.growthlab.service;
 
+import com.mindfultalk.growthlab.dto.CursorPageDTO;
 import com.mindfultalk.growthlab.dto.ProgramConceptsMappingResponseDTO;
 import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.ProgramConceptsMappingListingProjection;
 
 import java.util.*;
 
@@ -13,6 +15,8 @@ public interface ProgramConceptsMappingService {
 	
     List<ProgramConceptsMapping> getAllProgramConceptsMappings();
     
+    CursorPageDTO<ProgramConceptsMappingListingProjection> getProgramConceptsMappingsPage(Long after, Integer limit, String programId, String unitId);
+    
     Optional<ProgramConceptsMapping> getProgramConceptsMappingById(Long programConceptId);
     ProgramConceptsMapping createProgramConceptsMapping(ProgramConceptsMapping programConceptsMapping);
     
@@ -9,6 +9,7 @@ import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Value;
 import org.apache.commons.csv.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -50,57 +51,90 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
     @Autowired
     private CloudFrontSignedUrlService cloudFrontSignedUrlService;
     
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
+    
  // Inject CloudFront domain from application.properties
     @Value("${cloudfront.domain}")
     private String cloudFrontDomain;
+
+    @Value("${listing.page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${listing.max-page-size:500}")
+    private int maxPageSize;
     
     private static final Logger logger = LoggerFactory.getLogger(ProgramConceptsMappingServiceImpl.class);
     
     /**
-     * Helper method to process subconceptLink and generate signed URLs when needed
+     * Helper method to process subconceptLinks and generate signed URLs when needed. CloudFront
+     * paths of a whole unit are signed in one batch with a shared expiry; other links are
+     * returned as-is.
      */
-    private String processSubconceptLink(String subconceptLink) {
-        if (subconceptLink == null || subconceptLink.trim().isEmpty()) {
-            return subconceptLink;
+    private Map<String, String> processSubconceptLinks(Collection<String> subconceptLinks) {
+        Map<String, String> processed = new HashMap<>();
+        Map<String, String> pathsByLink = new LinkedHashMap<>();
+        for (String subconceptLink : subconceptLinks) {
+            String path = toCloudFrontPath(subconceptLink);
+            if (path != null) {
+                pathsByLink.put(subconceptLink, path);
+            } else {
+                processed.put(subconceptLink, subconceptLink);
+            }
         }
-        
+        if (pathsByLink.isEmpty()) {
+            return processed;
+        }
+
         try {
-            // Check if the link is a path (starts with / and doesn't contain http)
-            if (subconceptLink.startsWith("/") && !subconceptLink.toLowerCase().startsWith("http")) {
-                logger.debug("Processing path for signed URL: {}", subconceptLink);
-                // This is a path, generate signed URL
-                return cloudFrontSignedUrlService.generateSignedUrl(subconceptLink);
-            }
-            // Check if the link is already a CloudFront URL
-            else if (subconceptLink.toLowerCase().startsWith(cloudFrontDomain.toLowerCase())) {
-                logger.debug("Processing CloudFront URL for signed URL: {}", subconceptLink);
-                // Extract the path from the CloudFront URL
-                String path = subconceptLink.substring(cloudFrontDomain.length());
-                if (!path.startsWith("/")) {
-                    path = "/" + path;
-                }
-                return cloudFrontSignedUrlService.generateSignedUrl(path);
-            }
-            // Check if it's an S3 direct link or other external URL
-            else if (subconceptLink.toLowerCase().startsWith("http")) {
-                logger.debug("Returning external URL as-is: {}", subconceptLink);
-                // This is an external URL (like S3 direct link), return as-is
-                return subconceptLink;
-            }
-            else {
-                logger.warn("Unrecognized link format: {}", subconceptLink);
-                // Fallback: return as-is
-                return subconceptLink;
-            }
+            Map<String, String> signedUrls = cloudFrontSignedUrlService.generateSignedUrls(pathsByLink.values());
+            pathsByLink.forEach((link, path) -> processed.put(link, signedUrls.get(path)));
         } catch (Exception e) {
-            logger.error("Error processing subconceptLink: {}, Error: {}", subconceptLink, e.getMessage());
-            // If there's an error generating signed URL, return original link
+            logger.error("Error generating signed URLs for {} links, Error: {}", pathsByLink.size(), e.getMessage());
+            // If there's an error generating signed URLs, return the original links
+            pathsByLink.keySet().forEach(link -> processed.put(link, link));
+        }
+        return processed;
+    }
+
+    /**
+     * The CloudFront path to sign for a subconceptLink, or null if the link is returned as-is
+     */
+    private String toCloudFrontPath(String subconceptLink) {
+        if (subconceptLink == null || subconceptLink.trim().isEmpty()) {
+            return null;
+        }
+
+        // Check if the link is a path (starts with / and doesn't contain http)
+        if (subconceptLink.startsWith("/") && !subconceptLink.toLowerCase().startsWith("http")) {
+            logger.debug("Processing path for signed URL: {}", subconceptLink);
             return subconceptLink;
         }
+        // Check if the link is already a CloudFront URL
+        else if (subconceptLink.toLowerCase().startsWith(cloudFrontDomain.toLowerCase())) {
+            logger.debug("Processing CloudFront URL for signed URL: {}", subconceptLink);
+            // Extract the path from the CloudFront URL
+            String path = subconceptLink.substring(cloudFrontDomain.length());
+            if (!path.startsWith("/")) {
+                path = "/" + path;
+            }
+            return path;
+        }
+        // Check if it's an S3 direct link or other external URL
+        else if (subconceptLink.toLowerCase().startsWith("http")) {
+            logger.debug("Returning external URL as-is: {}", subconceptLink);
+            // This is an external URL (like S3 direct link), return as-is
+            return null;
+        }
+        else {
+            logger.warn("Unrecognized link format: {}", subconceptLink);
+            // Fallback: return as-is
+            return null;
+        }
     }
     
     @Override
-    @Cacheable(value = "programConceptsByUnit", key = "#userId + '_' + #unitId")
+    @Cacheable(value = "programConceptsByUnit", key = "#userId + '_' + #unitId + '_' + @cacheGenerationService.forUnit(#userId, #unitId)")
     public Optional<ProgramConceptsMappingResponseDTO> getProgramConceptsMappingByUnitId(String userId, String unitId) {
         try {
             logger.info("Method getProgramConceptsMappingByUnitId started for userId: {} and unitId: {}", userId, unitId);
@@ -125,8 +159,11 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
             String userType = user.getUserType();
             logger.info("User found: {}, UserType: {}", user.getUserName(), userType);
             
-            // Fetch all mappings related to the unitId
-            List<ProgramConceptsMapping> mappings = programConceptsMappingRepository.findByUnit_UnitIdOrdered(unitId);
+            // Fetch all mappings related to the unitId, in position order, from the curriculum graph
+            Optional<CurriculumGraph> graph = curriculumGraphService.findGraphByUnitId(unitId);
+            List<CurriculumGraph.SubconceptNode> mappings = graph
+                .map(g -> g.getSubconcepts(g.findUnit(unitId).get()))
+                .orElse(Collections.emptyList());
 
             if (mappings.isEmpty()) {
                 logger.warn("No mappings found for unitId: {}", unitId);
@@ -137,15 +174,18 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
 
         // Build the response DTO
         ProgramConceptsMappingResponseDTO responseDTO = new ProgramConceptsMappingResponseDTO();
+        CurriculumGraph curriculum = graph.get();
+        CurriculumGraph.UnitNode unit = curriculum.findUnit(unitId).get();
+        CurriculumGraph.StageNode stage = curriculum.getStage(unit);
         responseDTO.setProgramConceptDesc(mappings.get(0).getProgramConceptDesc());
         // Fetch and set programName, unitName, and stageName
-        responseDTO.setProgramId(mappings.get(0).getProgram().getProgramId());
-        responseDTO.setProgramName(mappings.get(0).getProgram().getProgramName());
+        responseDTO.setProgramId(curriculum.getProgramId());
+        responseDTO.setProgramName(curriculum.getProgramName());
         responseDTO.setUnitId(unitId);
-        responseDTO.setUnitName(mappings.get(0).getUnit().getUnitName());
-        responseDTO.setUnitDesc(mappings.get(0).getUnit().getUnitDesc());
-        responseDTO.setStageId(mappings.get(0).getStage().getStageId()); 
-        responseDTO.setStageName(mappings.get(0).getStage().getStageName());
+        responseDTO.setUnitName(unit.getUnitName());
+        responseDTO.setUnitDesc(unit.getUnitDesc());
+        responseDTO.setStageId(stage.getStageId()); 
+        responseDTO.setStageName(stage.getStageName());
         
         logger.debug("Response DTO initialized with program: {}, unit: {}, stage: {}", 
                 responseDTO.getProgramName(), responseDTO.getUnitName(), responseDTO.getStageName());
@@ -160,143 +200,57 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
 
 
      // Determine accessible subconcepts based on user type
-        List<ProgramConceptsMapping> accessibleMappings = mappings.stream()
-            .filter(mapping -> isSubconceptVisibleToUser(userType, mapping.getSubconcept()))
+        List<CurriculumGraph.SubconceptNode> accessibleMappings = mappings.stream()
+            .filter(mapping -> mapping.isListedFor(userType))
             .collect(Collectors.toList());
         logger.debug("Found {} accessible mappings for userType: {}", accessibleMappings.size(), userType);
         
+     // Sign every CloudFront link of the unit in one batch
+        Map<String, String> processedLinks = processSubconceptLinks(accessibleMappings.stream()
+            .map(CurriculumGraph.SubconceptNode::getSubconceptLink)
+            .collect(Collectors.toList()));
+
+     // Completion status of every subconcept in one pass
+        UnitUnlockState unlockState = UnitUnlockState.calculate(accessibleMappings, completedSubconceptIds);
+
      // Initialize the sub_concepts map
         Map<String, SubconceptResponseDTO> subconcepts = new LinkedHashMap<>();
-     //  int subconceptCount = 0;  // Variable to keep track of total subconcept count
-        boolean hasPendingAssignments = false;
-        boolean enableNextSubconcept = true; // Initially, the first subconcept is enabled
-        int lastCompletedNormalIndex = -1;
-        int currentIndex = 0;
-     // First pass: find last completed normal concept
-        for (int i = 0; i < accessibleMappings.size(); i++) {
-            ProgramConceptsMapping mapping = accessibleMappings.get(i);
-            Subconcept subconcept = mapping.getSubconcept();
-            boolean isCompleted = completedSubconceptIds.contains(subconcept.getSubconceptId());
-            boolean isAssignment = subconcept.getSubconceptType().toLowerCase().startsWith("assignment");
-            
-            if (isCompleted && !isAssignment) {
-                lastCompletedNormalIndex = i;
-            }
-        }
-        
-        logger.debug("Last completed normal concept index: {}", lastCompletedNormalIndex); 
-        
-        for (ProgramConceptsMapping mapping : accessibleMappings) {
-            Subconcept subconcept = mapping.getSubconcept();
+        for (int currentIndex = 0; currentIndex < accessibleMappings.size(); currentIndex++) {
+            CurriculumGraph.SubconceptNode subconcept = accessibleMappings.get(currentIndex);
             SubconceptResponseDTO subconceptResponseDTO = new SubconceptResponseDTO();
-            subconceptResponseDTO.setSubconceptId(mapping.getSubconcept().getSubconceptId());
-            subconceptResponseDTO.setSubconceptDesc(mapping.getSubconcept().getSubconceptDesc());
-            subconceptResponseDTO.setSubconceptDesc2(mapping.getSubconcept().getSubconceptDesc2());
-            subconceptResponseDTO.setSubconceptType(mapping.getSubconcept().getSubconceptType());
-            //subconceptResponseDTO.setSubconceptLink(mapping.getSubconcept().getSubconceptLink());
+            subconceptResponseDTO.setSubconceptId(subconcept.getSubconceptId());
+            subconceptResponseDTO.setSubconceptDesc(subconcept.getSubconceptDesc());
+            subconceptResponseDTO.setSubconceptDesc2(subconcept.getSubconceptDesc2());
+            subconceptResponseDTO.setSubconceptType(subconcept.getSubconceptType());
+            //subconceptResponseDTO.setSubconceptLink(subconcept.getSubconceptLink());
 
             // Process the subconceptLink to handle signed URLs
-            String originalLink = mapping.getSubconcept().getSubconceptLink();
-            String processedLink = processSubconceptLink(originalLink);
+            String originalLink = subconcept.getSubconceptLink();
+            String processedLink = processedLinks.get(originalLink);
             subconceptResponseDTO.setSubconceptLink(processedLink);
             
             logger.debug("Processed link for subconcept {}: {} -> {}", 
                     subconcept.getSubconceptId(), originalLink, processedLink);
             
-            subconceptResponseDTO.setDependency(mapping.getSubconcept().getDependency());
-            subconceptResponseDTO.setSubconceptMaxscore(mapping.getSubconcept().getSubconceptMaxscore());
-            subconceptResponseDTO.setNumQuestions(mapping.getSubconcept().getNumQuestions());
-            subconceptResponseDTO.setShowTo(mapping.getSubconcept().getShowTo());
-            subconceptResponseDTO.setSubconceptDuration(mapping.getSubconcept().getSubconceptDuration());
-            subconceptResponseDTO.setSubconceptGroup(mapping.getSubconcept().getSubconceptGroup());
-            
-         
-            // Check if the current subconcept has been completed by the user
-            boolean isCompleted = completedSubconceptIds.contains(mapping.getSubconcept().getSubconceptId());
-            boolean isAssignment = subconcept.getSubconceptType().toLowerCase().startsWith("assignment");
-            
-            logger.debug("Processing subconcept {}: completed={}, isAssignment={}", 
-                    subconcept.getSubconceptId(), isCompleted, isAssignment);
-
-            // Determine completion status
-            if (isCompleted) {
-                subconceptResponseDTO.setCompletionStatus("yes");
-                if (!isAssignment) {
-                    enableNextSubconcept = true;
-                }
-            } else {
-            if (isAssignment) {
-            	 // Check if all previous concepts up to next assignment are completed
-                boolean prevConceptsCompleted = true;
-                int prevAssignmentIndex = -1;
-                
-                // Find previous assignment
-                for (int i = currentIndex - 1; i >= 0; i--) {
-                    if (accessibleMappings.get(i).getSubconcept().getSubconceptType()
-                            .toLowerCase().startsWith("assignment")) {
-                        prevAssignmentIndex = i;
-                        break;
-                    }
-                }
-                
-             // Check completion of concepts between previous assignment and current
-                for (int i = prevAssignmentIndex + 1; i < currentIndex; i++) {
-                    Subconcept prev = accessibleMappings.get(i).getSubconcept();
-                    if (!prev.getSubconceptType().toLowerCase().startsWith("assignment") &&
-                        !completedSubconceptIds.contains(prev.getSubconceptId())) {
-                        prevConceptsCompleted = false;
-                        break;
-                    }
-                }
-                
-                if (prevConceptsCompleted) {
-                    subconceptResponseDTO.setCompletionStatus("ignored");
-                    hasPendingAssignments = true;
-                } else {
-                    subconceptResponseDTO.setCompletionStatus("disabled");
-                }
-            } else if (enableNextSubconcept) {
-                subconceptResponseDTO.setCompletionStatus("incomplete");
-                enableNextSubconcept = false;
-            } else {
-                subconceptResponseDTO.setCompletionStatus("disabled");
-            }
-        }
+            subconceptResponseDTO.setDependency(subconcept.getDependency());
+            subconceptResponseDTO.setSubconceptMaxscore(subconcept.getSubconceptMaxscore());
+            subconceptResponseDTO.setNumQuestions(subconcept.getNumQuestions());
+            subconceptResponseDTO.setShowTo(subconcept.getShowTo());
+            subconceptResponseDTO.setSubconceptDuration(subconcept.getSubconceptDuration());
+            subconceptResponseDTO.setSubconceptGroup(subconcept.getSubconceptGroup());
+            
+            subconceptResponseDTO.setCompletionStatus(unlockState.getStatus(currentIndex));
+            
          // Add to the map with an appropriate key (like an index or ID)
-        subconcepts.put(String.valueOf(currentIndex), subconceptResponseDTO);
-        currentIndex++;
-       // subconceptCount++;
-    }
-     // Update totalSubConceptCount based on accessible mappings
-        int totalNonAssignmentSubConceptCount = (int) accessibleMappings.stream()
-                .map(ProgramConceptsMapping::getSubconcept)
-                .filter(sub -> !sub.getSubconceptType().toLowerCase().startsWith("assignment"))
-                .count();
-        
-        // Calculate completedSubConceptCount based on accessible mappings
-        long completedNonAssignmentSubConceptCount = accessibleMappings.stream()
-                .map(ProgramConceptsMapping::getSubconcept)
-                .filter(sub -> !sub.getSubconceptType().toLowerCase().startsWith("assignment"))
-                .map(Subconcept::getSubconceptId)
-                .filter(completedSubconceptIds::contains)
-                .count();
+            subconcepts.put(String.valueOf(currentIndex), subconceptResponseDTO);
+        }
+        int totalNonAssignmentSubConceptCount = unlockState.getSubconceptCount();
         logger.info("Total non-assignment subconcepts: {}", totalNonAssignmentSubConceptCount);
-        logger.info("Completed non-assignment subconcepts: {}", completedNonAssignmentSubConceptCount);
-        
-     // Check if all non-assignment subconcepts are completed
+        logger.info("Completed non-assignment subconcepts: {}", unlockState.getCompletedSubconceptCount());
         logger.debug("User Subconcepts Completed: {}", completedSubconceptIds.size());
 
-         // Check if all non-assignment subconcepts are completed
-     //   boolean allSubconceptsCompleted = completedNonAssignmentSubConceptCount == totalNonAssignmentSubConceptCount;
-       // System.out.println("Subconcept Count: " + subconceptCount);
-        System.out.println("User Subconcepts Completed: " + completedSubconceptIds.size());
-
      // Determine unit completion status
-        String unitCompletionStatus = "no";
-        if (completedNonAssignmentSubConceptCount == totalNonAssignmentSubConceptCount) {
-            unitCompletionStatus = hasPendingAssignments ? "Unit Completed without Assignments" : "yes";
-        }
-     
+        String unitCompletionStatus = unlockState.getUnitCompletionStatus();
         logger.info("Unit completion status determined: {}", unitCompletionStatus);
         
      // Add subconcept count and final completion status to the response
@@ -317,7 +271,7 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
     /**
      * Helper method to determine if a subconcept is visible to the user based on user type.
      */
-    private boolean isSubconceptVisibleToUser(String userType, Subconcept subconcept) {
+    boolean isSubconceptVisibleToUser(String userType, Subconcept subconcept) {
         try {
             logger.debug("Checking visibility for subconcept {} with userType: {}", subconcept.getSubconceptId(), userType);
             
@@ -338,8 +292,8 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
     }
 
     
+    // Not cached: the whole table as one cache value grows without bound, use getProgramConceptsMappingsPage instead
     @Override
-    @Cacheable(value = "programConceptsMappings", key = "'all'")
     public List<ProgramConceptsMapping> getAllProgramConceptsMappings() {
         try {
             logger.info("Retrieving all program concepts mappings from database");
@@ -352,6 +306,30 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
         }
     }
 
+    @Override
+    public CursorPageDTO<ProgramConceptsMappingListingProjection> getProgramConceptsMappingsPage(Long after, Integer limit,
+                                                                                                String programId, String unitId) {
+        int pageSize = CursorPageDTO.boundedLimit(limit, defaultPageSize, maxPageSize);
+        try {
+            long afterId = after != null ? after : 0L;
+            PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+            List<ProgramConceptsMappingListingProjection> mappings;
+            if (programId != null && unitId != null) {
+                mappings = programConceptsMappingRepository.findPageByProgramIdAndUnitId(afterId, programId, unitId, pageRequest);
+            } else if (programId != null) {
+                mappings = programConceptsMappingRepository.findPageByProgramId(afterId, programId, pageRequest);
+            } else if (unitId != null) {
+                mappings = programConceptsMappingRepository.findPageByUnitId(afterId, unitId, pageRequest);
+            } else {
+                mappings = programConceptsMappingRepository.findPage(afterId, pageRequest);
+            }
+            return CursorPageDTO.of(mappings, pageSize, ProgramConceptsMappingListingProjection::getProgramConceptId);
+        } catch (Exception e) {
+            logger.error("Error occurred while retrieving a page of program concepts mappings after {}: {}", after, e.getMessage(), e);
+            throw new RuntimeException("Failed to retrieve program concepts mappings", e);
+        }
+    }
+
     @Override
     @Cacheable(value = "programConceptsMappings", key = "#programConceptId")
     public Optional<ProgramConceptsMapping> getProgramConceptsMappingById(Long programConceptId) {
@@ -394,6 +372,7 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
             }
             
             ProgramConceptsMapping savedMapping = programConceptsMappingRepository.save(programConceptsMapping);
+            curriculumGraphService.invalidate();
             logger.info("Successfully created program concepts mapping with ID: {}", savedMapping.getProgramConceptId());
             
             return savedMapping;
@@ -563,6 +542,7 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
            }
 
            logger.info("Bulk upload completed successfully. Success count: {}, Fail count: {}", successCount, failCount);
+           curriculumGraphService.invalidate();
 
            Map<String, Object> response = new HashMap<>();
            response.put("successCount", successCount);
@@ -608,6 +588,7 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
                 existingMapping.setSubconcept(programConceptsMapping.getSubconcept());
                 
                 ProgramConceptsMapping savedMapping = programConceptsMappingRepository.save(existingMapping);
+                curriculumGraphService.invalidate();
                 logger.info("Successfully updated program concepts mapping with ID: {}", programConceptId);
                 
                 return savedMapping;
@@ -641,6 +622,7 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
             }
             
             programConceptsMappingRepository.deleteById(programConceptId);
+            curriculumGraphService.invalidate();
             logger.info("Successfully deleted program concepts mapping with ID: {}", programConceptId);
             
         } catch (IllegalArgumentException e) {
@@ -741,7 +723,7 @@ public class ProgramConceptsMappingServiceImpl implements ProgramConceptsMapping
     }
     
     @Override
-    @Cacheable(value = "conceptsAndProgress", key = "#programId + '_' + #userId")
+    @Cacheable(value = "conceptsAndProgress", key = "#programId + '_' + #userId + '_' + @cacheGenerationService.forProgram(#userId, #programId)")
     public Map<String, Object> getConceptsAndUserProgress(String programId, String userId) {
         try {
             logger.info("Retrieving concepts and user progress for program ID: {} and user ID: {}", programId, userId);
@@ -0,0 +1,380 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.*;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.mindfultalk.growthlab.dto.*;
+import com.mindfultalk.growthlab.exception.ResourceNotFoundException;
+import com.mindfultalk.growthlab.repository.*;
+
+/**
+ * Builds a complete {@link ProgramReportDTO} from a fixed number of queries.
+ *
+ * The program structure comes from the in-memory {@link CurriculumGraph}, the user's
+ * completions and attempts are loaded once as projections, and the stage/unit/subconcept
+ * tree is then assembled in memory. The result matches the per-stage/per-unit walk in
+ * {@link ProgramReportServiceImpl#generateStageReport} and
+ * {@link ProgramReportServiceImpl#generateUnitReport}.
+ */
+@Service
+public class ProgramReportEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProgramReportEngine.class);
+
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
+
+    @Autowired
+    private UserTypeResolver userTypeResolver;
+
+    @Autowired
+    private UserSubConceptRepository userSubConceptRepository;
+
+    @Autowired
+    private UserAttemptsRepository userAttemptsRepository;
+
+    @Autowired
+    private UserCohortMappingRepository userCohortMappingRepository;
+
+    /**
+     * Report visibility rule on the raw {@code showTo} value. Precomputed per subconcept in
+     * the curriculum graph and applied directly to grouped completion rows.
+     */
+    static boolean isShowToVisibleToUser(String userType, String showTo) {
+        if (showTo == null || showTo.trim().isEmpty()) {
+            return false;
+        }
+        switch (showTo.toLowerCase().trim()) {
+            case "mentor":
+                return "mentor".equalsIgnoreCase(userType);
+            case "learner":
+                return "learner".equalsIgnoreCase(userType);
+            case "learner,mentor":
+            case "mentor,learner":
+                return "mentor".equalsIgnoreCase(userType) || "learner".equalsIgnoreCase(userType);
+            default:
+                logger.warn("Unknown showTo value '{}', defaulting to not visible", showTo);
+                return false;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public ProgramReportDTO buildProgramReport(String userId, String programId) {
+        CurriculumGraph graph = curriculumGraphService.findGraph(programId)
+            .orElseThrow(() -> new ResourceNotFoundException("Program not found with ID: " + programId));
+
+        String userType = userTypeResolver.getUserType(userId)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+
+        // User state: completions and attempts, each in a single projection query
+        Map<String, Set<String>> completedByUnit = new HashMap<>();
+        for (SubconceptCompletionProjection completion : userSubConceptRepository.findCompletionsByUserIdAndProgramId(userId, programId)) {
+            completedByUnit.computeIfAbsent(completion.getUnitId(), k -> new HashSet<>()).add(completion.getSubconceptId());
+        }
+
+        Map<String, List<AttemptDTO>> attemptsBySubconcept = new HashMap<>();
+        List<AttemptDTO> programAttempts = new ArrayList<>();
+        for (AttemptSummaryProjection row : userAttemptsRepository.findAttemptSummariesForProgramReport(userId, programId)) {
+            AttemptDTO attempt = mapToAttemptDTO(row);
+            attemptsBySubconcept.computeIfAbsent(row.getSubconceptId(), k -> new ArrayList<>()).add(attempt);
+            if (programId.equals(row.getProgramId())) {
+                programAttempts.add(attempt);
+            }
+        }
+        attemptsBySubconcept.values().forEach(list -> list.sort(Comparator.comparing(AttemptDTO::getStartTimestamp)));
+
+        logger.debug("Loaded report data for userId: {} and programId: {} - {} stages, {} units, {} attempts",
+                userId, programId, graph.getStages().size(), graph.getUnits().size(), programAttempts.size());
+
+        ProgramReportDTO report = new ProgramReportDTO();
+        report.setProgramId(programId);
+        report.setProgramName(graph.getProgramName());
+        report.setProgramDesc(graph.getProgramDesc());
+
+        if (!programAttempts.isEmpty()) {
+            report.setFirstAttemptDate(programAttempts.stream()
+                .min(Comparator.comparing(AttemptDTO::getStartTimestamp))
+                .map(AttemptDTO::getStartTimestamp)
+                .orElse(null));
+            report.setLastAttemptDate(programAttempts.stream()
+                .max(Comparator.comparing(AttemptDTO::getEndTimestamp))
+                .map(AttemptDTO::getEndTimestamp)
+                .orElse(null));
+        }
+
+        List<StageReportDTO> stageReports = new ArrayList<>();
+        int totalUnits = 0;
+        int completedUnits = 0;
+        int totalSubconcepts = 0;
+        int completedSubconcepts = 0;
+        double totalScore = 0;
+        int scoreCount = 0;
+
+        boolean previousStageCompleted = true;
+        for (CurriculumGraph.StageNode stage : graph.getStages()) {
+            StageReportDTO stageReport = buildStageReport(graph, stage, completedByUnit, attemptsBySubconcept, userType);
+            stageReport.setEnabled(previousStageCompleted);
+            stageReports.add(stageReport);
+
+            totalUnits += stageReport.getTotalUnits();
+            completedUnits += stageReport.getCompletedUnits();
+            previousStageCompleted = "yes".equals(stageReport.getCompletionStatus());
+
+            for (UnitReportDTO unitReport : stageReport.getUnits()) {
+                totalSubconcepts += unitReport.getTotalSubconcepts();
+                completedSubconcepts += unitReport.getCompletedSubconcepts();
+                if (unitReport.getAverageScore() > 0) {
+                    totalScore += unitReport.getAverageScore();
+                    scoreCount++;
+                }
+            }
+        }
+
+        report.setTotalStages(graph.getStages().size());
+        report.setCompletedStages((int) stageReports.stream()
+            .filter(s -> "yes".equals(s.getCompletionStatus()))
+            .count());
+        report.setTotalUnits(totalUnits);
+        report.setCompletedUnits(completedUnits);
+        report.setTotalSubconcepts(totalSubconcepts);
+        report.setCompletedSubconcepts(completedSubconcepts);
+
+        report.setStageCompletionPercentage(calculatePercentage(report.getCompletedStages(), report.getTotalStages()));
+        report.setUnitCompletionPercentage(calculatePercentage(completedUnits, totalUnits));
+        report.setSubconceptCompletionPercentage(calculatePercentage(completedSubconcepts, totalSubconcepts));
+        report.setAverageScore(scoreCount > 0 ? totalScore / scoreCount : 0);
+        report.setScoreDistribution(generateScoreDistribution(programAttempts));
+        report.setStages(stageReports);
+
+        return report;
+    }
+
+    /**
+     * Progress of every member of the cohort in the program.
+     *
+     * The program structure comes from the curriculum graph and the completions of all
+     * members come from one grouped query, so the number of queries does not depend on
+     * the cohort size or the program size. Users are returned in
+     * cohort mapping order; callers sort as needed.
+     */
+    @Transactional(readOnly = true)
+    public List<UserProgressDTO> buildCohortUserProgress(String programId, String cohortId) {
+        CurriculumGraph graph = curriculumGraphService.findGraph(programId)
+            .orElseThrow(() -> new ResourceNotFoundException("Program not found with ID: " + programId));
+        List<CurriculumGraph.StageNode> stages = graph.getStages();
+
+        Map<String, Map<String, Map<String, Long>>> completedByUserAndUnit = new HashMap<>();
+        for (UserUnitShowToCountProjection row : userSubConceptRepository.countCompletionsByCohortAndProgram(cohortId, programId)) {
+            completedByUserAndUnit
+                .computeIfAbsent(row.getUserId(), k -> new HashMap<>())
+                .computeIfAbsent(row.getUnitId(), k -> new HashMap<>())
+                .merge(row.getShowTo(), row.getTotal(), Long::sum);
+        }
+
+        List<CohortMemberProjection> members = userCohortMappingRepository.findCohortMembers(cohortId);
+        logger.debug("Computing progress for {} members of cohort {} over {} stages", members.size(), cohortId, stages.size());
+
+        // Visible subconcept count per unit only depends on the user type
+        Map<String, int[]> visibleByUserType = new HashMap<>();
+
+        List<UserProgressDTO> progressList = new ArrayList<>(members.size());
+        for (CohortMemberProjection member : members) {
+            String userType = member.getUserType();
+            int[] visibleByUnit = visibleByUserType.computeIfAbsent(
+                    userType == null ? "" : userType.toLowerCase(),
+                    k -> countVisiblePerUnit(graph, userType));
+            Map<String, Map<String, Long>> completedByUnit =
+                    completedByUserAndUnit.getOrDefault(member.getUserId(), Collections.emptyMap());
+
+            int completedStages = 0;
+            int totalUnits = 0;
+            int completedUnits = 0;
+            int totalSubconcepts = 0;
+            int completedSubconcepts = 0;
+
+            for (CurriculumGraph.StageNode stage : stages) {
+                List<CurriculumGraph.UnitNode> units = graph.getUnits(stage);
+                totalUnits += units.size();
+
+                int stageCompletedUnits = 0;
+                for (CurriculumGraph.UnitNode unit : units) {
+                    int visible = visibleByUnit[unit.getIndex()];
+                    int completed = countVisible(completedByUnit.get(unit.getUnitId()), userType);
+                    totalSubconcepts += visible;
+                    completedSubconcepts += completed;
+
+                    if (completed == visible && visible > 0) {
+                        completedUnits++;
+                        stageCompletedUnits++;
+                    }
+                }
+
+                if (stageCompletedUnits == units.size() && !units.isEmpty()) {
+                    completedStages++;
+                }
+            }
+
+            UserProgressDTO progress = new UserProgressDTO();
+            progress.setUserId(member.getUserId());
+            progress.setUserName(member.getUserName());
+            progress.setTotalStages(stages.size());
+            progress.setCompletedStages(completedStages);
+            progress.setTotalUnits(totalUnits);
+            progress.setCompletedUnits(completedUnits);
+            progress.setTotalSubconcepts(totalSubconcepts);
+            progress.setCompletedSubconcepts(completedSubconcepts);
+            progress.setLeaderboardScore(member.getLeaderboardScore() != null ? member.getLeaderboardScore() : 0);
+            progressList.add(progress);
+        }
+
+        return progressList;
+    }
+
+    private int[] countVisiblePerUnit(CurriculumGraph graph, String userType) {
+        List<CurriculumGraph.UnitNode> units = graph.getUnits();
+        int[] visible = new int[units.size()];
+        for (CurriculumGraph.UnitNode unit : units) {
+            for (CurriculumGraph.SubconceptNode subconcept : graph.getSubconcepts(unit)) {
+                if (subconcept.isReportedFor(userType)) {
+                    visible[unit.getIndex()]++;
+                }
+            }
+        }
+        return visible;
+    }
+
+    private int countVisible(Map<String, Long> countsByShowTo, String userType) {
+        if (countsByShowTo == null) {
+            return 0;
+        }
+        long total = 0;
+        for (Map.Entry<String, Long> entry : countsByShowTo.entrySet()) {
+            if (isShowToVisibleToUser(userType, entry.getKey())) {
+                total += entry.getValue();
+            }
+        }
+        return (int) total;
+    }
+
+    private StageReportDTO buildStageReport(CurriculumGraph graph, CurriculumGraph.StageNode stage,
+                                            Map<String, Set<String>> completedByUnit,
+                                            Map<String, List<AttemptDTO>> attemptsBySubconcept,
+                                            String userType) {
+        StageReportDTO report = new StageReportDTO();
+        report.setStageId(stage.getStageId());
+        report.setStageName(stage.getStageName());
+        report.setStageDesc(stage.getStageDesc());
+
+        List<CurriculumGraph.UnitNode> units = graph.getUnits(stage);
+        List<UnitReportDTO> unitReports = new ArrayList<>();
+        boolean previousUnitCompleted = true;
+        for (CurriculumGraph.UnitNode unit : units) {
+            UnitReportDTO unitReport = buildUnitReport(unit, graph.getSubconcepts(unit),
+                    completedByUnit.getOrDefault(unit.getUnitId(), Collections.emptySet()),
+                    attemptsBySubconcept, userType);
+            unitReport.setEnabled(previousUnitCompleted);
+            unitReports.add(unitReport);
+            previousUnitCompleted = "yes".equals(unitReport.getCompletionStatus());
+        }
+
+        report.setTotalUnits(units.size());
+        report.setCompletedUnits((int) unitReports.stream()
+            .filter(u -> "yes".equals(u.getCompletionStatus()))
+            .count());
+        report.setCompletionPercentage(calculatePercentage(report.getCompletedUnits(), report.getTotalUnits()));
+        report.setAverageScore(unitReports.stream()
+            .mapToDouble(UnitReportDTO::getAverageScore)
+            .filter(score -> score > 0)
+            .average()
+            .orElse(0.0));
+        report.setUnits(unitReports);
+        report.setCompletionStatus(report.getCompletedUnits() == report.getTotalUnits() ? "yes" : "no");
+        return report;
+    }
+
+    private UnitReportDTO buildUnitReport(CurriculumGraph.UnitNode unit, List<CurriculumGraph.SubconceptNode> subconcepts,
+                                          Set<String> completedSubconceptIds,
+                                          Map<String, List<AttemptDTO>> attemptsBySubconcept,
+                                          String userType) {
+        UnitReportDTO report = new UnitReportDTO();
+        report.setUnitId(unit.getUnitId());
+        report.setUnitName(unit.getUnitName());
+        report.setUnitDesc(unit.getUnitDesc());
+
+        List<SubconceptReportDTO> subconceptReports = new ArrayList<>(subconcepts.size());
+        for (CurriculumGraph.SubconceptNode subconcept : subconcepts) {
+            if (!subconcept.isReportedFor(userType)) {
+                continue;
+            }
+            SubconceptReportDTO subconceptReport = new SubconceptReportDTO();
+            subconceptReport.setSubconceptId(subconcept.getSubconceptId());
+            subconceptReport.setSubconceptDesc(subconcept.getSubconceptDesc());
+            subconceptReport.setCompleted(completedSubconceptIds.contains(subconcept.getSubconceptId()));
+
+            List<AttemptDTO> attempts = attemptsBySubconcept.getOrDefault(subconcept.getSubconceptId(), Collections.emptyList());
+            subconceptReport.setAttempts(new ArrayList<>(attempts));
+            if (!attempts.isEmpty()) {
+                subconceptReport.setAttemptCount(attempts.size());
+                subconceptReport.setHighestScore(attempts.stream()
+                    .mapToInt(AttemptDTO::getScore)
+                    .max()
+                    .orElse(0));
+                subconceptReport.setLastAttemptDate(attempts.get(attempts.size() - 1).getEndTimestamp());
+            }
+
+            subconceptReport.setConcept(subconcept.getConcept());
+            subconceptReports.add(subconceptReport);
+        }
+
+        report.setTotalSubconcepts(subconceptReports.size());
+        report.setCompletedSubconcepts((int) subconceptReports.stream()
+            .filter(SubconceptReportDTO::isCompleted)
+            .count());
+        report.setCompletionPercentage(calculatePercentage(report.getCompletedSubconcepts(), report.getTotalSubconcepts()));
+        report.setAverageScore(subconceptReports.stream()
+            .mapToDouble(SubconceptReportDTO::getHighestScore)
+            .filter(score -> score > 0)
+            .average()
+            .orElse(0.0));
+        report.setSubconcepts(subconceptReports);
+        report.setCompletionStatus(report.getCompletedSubconcepts() == report.getTotalSubconcepts() ? "yes" : "no");
+        return report;
+    }
+
+    private AttemptDTO mapToAttemptDTO(AttemptSummaryProjection row) {
+        AttemptDTO dto = new AttemptDTO();
+        dto.setAttemptId(row.getAttemptId());
+        dto.setStartTimestamp(row.getStartTimestamp());
+        dto.setEndTimestamp(row.getEndTimestamp());
+        dto.setScore(row.getScore() != null ? row.getScore() : 0);
+        dto.setSuccessful(Boolean.TRUE.equals(row.getSuccessful()));
+        return dto;
+    }
+
+    private double calculatePercentage(int completed, int total) {
+        return total == 0 ? 0 : (completed * 100.0) / total;
+    }
+
+    private Map<String, Integer> generateScoreDistribution(List<AttemptDTO> attempts) {
+        Map<String, Integer> distribution = new HashMap<>();
+        distribution.put("0-20", 0);
+        distribution.put("21-40", 0);
+        distribution.put("41-60", 0);
+        distribution.put("61-80", 0);
+        distribution.put("81-100", 0);
+
+        for (AttemptDTO attempt : attempts) {
+            int score = attempt.getScore();
+            if (score <= 20) distribution.merge("0-20", 1, Integer::sum);
+            else if (score <= 40) distribution.merge("21-40", 1, Integer::sum);
+            else if (score <= 60) distribution.merge("41-60", 1, Integer::sum);
+            else if (score <= 80) distribution.merge("61-80", 1, Integer::sum);
+            else distribution.merge("81-100", 1, Integer::sum);
+        }
+        return distribution;
+    }
+}
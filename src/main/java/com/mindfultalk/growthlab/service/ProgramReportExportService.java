@@ -0,0 +1,238 @@
+package com.mindfultalk.growthlab.service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import org.apache.commons.csv.*;
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.*;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.AreaBreak;
+import com.itextpdf.layout.element.Paragraph;
+import com.mindfultalk.growthlab.dto.*;
+import com.mindfultalk.growthlab.exception.ResourceNotFoundException;
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.*;
+
+/**
+ * Writes program reports straight to an output stream, for example the servlet response.
+ *
+ * CSV is written row by row and PDF through an iText document with immediate flush, which writes
+ * each finished page and releases it. The cohort exports walk the cohort's learners a page at a
+ * time and build one learner's report at a time, so memory stays bounded by a single report
+ * however large the cohort is.
+ */
+@Service
+public class ProgramReportExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProgramReportExportService.class);
+
+    private static final String[] CSV_HEADER = {"Learner Name", "Learner ID", "Learner PhoneNumber", "Program ID",
+        "Program Name", "Stage Name", "Unit Name", "Subconcept Name", "Completion Status", "Average Score", "Attempt Count"};
+
+    @Autowired
+    private ProgramReportEngine programReportEngine;
+
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CohortRepository cohortRepository;
+
+    @Autowired
+    private UserCohortMappingRepository userCohortMappingRepository;
+
+    @Value("${reports.export.member-page-size:100}")
+    private int memberPageSize;
+
+    /**
+     * Checks a single-learner export up front, while an error status can still be sent
+     */
+    public void validateUserExport(String userId, String programId) {
+        if (curriculumGraphService.findGraph(programId).isEmpty()) {
+            throw new ResourceNotFoundException("Program not found with ID: " + programId);
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found with ID: " + userId);
+        }
+    }
+
+    /**
+     * Checks a cohort export up front, while an error status can still be sent
+     */
+    public void validateCohortExport(String programId, String cohortId) {
+        if (curriculumGraphService.findGraph(programId).isEmpty()) {
+            throw new ResourceNotFoundException("Program not found with ID: " + programId);
+        }
+        if (!cohortRepository.existsById(cohortId)) {
+            throw new ResourceNotFoundException("Cohort not found with ID: " + cohortId);
+        }
+    }
+
+    public void writeCsvReport(String userId, String programId, OutputStream out) throws IOException {
+        long startTime = System.currentTimeMillis();
+        User user = findUser(userId);
+        CSVPrinter csvPrinter = newCsvPrinter(out);
+        csvPrinter.printRecord((Object[]) CSV_HEADER);
+        int recordCount = writeCsvRows(csvPrinter, user.getUserName(), userId, user.getUserPhoneNumber(), programId,
+            programReportEngine.buildProgramReport(userId, programId));
+        csvPrinter.flush();
+        logger.info("Streamed CSV report for userId: {} and programId: {} in {}ms with {} records",
+                   userId, programId, System.currentTimeMillis() - startTime, recordCount);
+    }
+
+    public void writePdfReport(String userId, String programId, OutputStream out) {
+        long startTime = System.currentTimeMillis();
+        User user = findUser(userId);
+        ProgramReportDTO report = programReportEngine.buildProgramReport(userId, programId);
+
+        Document document = newPdfDocument(out);
+        document.add(new Paragraph("Program Report").setBold().setFontSize(18));
+        int totalSections = writePdfSection(document, user.getUserName(), userId, user.getUserPhoneNumber(), programId, report);
+        document.close();
+        logger.info("Streamed PDF report for userId: {} and programId: {} in {}ms with {} sections",
+                   userId, programId, System.currentTimeMillis() - startTime, totalSections);
+    }
+
+    /**
+     * Every learner of the cohort in one CSV, flushed after each learner
+     */
+    public void writeCohortCsvReport(String programId, String cohortId, OutputStream out) throws IOException {
+        long startTime = System.currentTimeMillis();
+        CSVPrinter csvPrinter = newCsvPrinter(out);
+        csvPrinter.printRecord((Object[]) CSV_HEADER);
+
+        int learners = 0;
+        int recordCount = 0;
+        String afterUserId = "";
+        while (true) {
+            List<CohortMemberProjection> members = userCohortMappingRepository
+                .findCohortLearnersAfter(cohortId, afterUserId, PageRequest.of(0, memberPageSize));
+            for (CohortMemberProjection member : members) {
+                recordCount += writeCsvRows(csvPrinter, member.getUserName(), member.getUserId(),
+                    member.getUserPhoneNumber(), programId,
+                    programReportEngine.buildProgramReport(member.getUserId(), programId));
+                csvPrinter.flush();
+                learners++;
+            }
+            if (members.size() < memberPageSize) {
+                break;
+            }
+            afterUserId = members.get(members.size() - 1).getUserId();
+        }
+        logger.info("Streamed cohort CSV report for cohortId: {} and programId: {} in {}ms with {} learners and {} records",
+                   cohortId, programId, System.currentTimeMillis() - startTime, learners, recordCount);
+    }
+
+    /**
+     * Every learner of the cohort in one PDF, each learner starting on a new page
+     */
+    public void writeCohortPdfReport(String programId, String cohortId, OutputStream out) {
+        long startTime = System.currentTimeMillis();
+        Document document = newPdfDocument(out);
+        document.add(new Paragraph("Cohort Program Report").setBold().setFontSize(18));
+        document.add(new Paragraph("Cohort ID: " + cohortId));
+        document.add(new Paragraph("Program ID: " + programId));
+
+        int learners = 0;
+        String afterUserId = "";
+        while (true) {
+            List<CohortMemberProjection> members = userCohortMappingRepository
+                .findCohortLearnersAfter(cohortId, afterUserId, PageRequest.of(0, memberPageSize));
+            for (CohortMemberProjection member : members) {
+                document.add(new AreaBreak());
+                writePdfSection(document, member.getUserName(), member.getUserId(), member.getUserPhoneNumber(), programId,
+                    programReportEngine.buildProgramReport(member.getUserId(), programId));
+                learners++;
+            }
+            if (members.size() < memberPageSize) {
+                break;
+            }
+            afterUserId = members.get(members.size() - 1).getUserId();
+        }
+        document.close();
+        logger.info("Streamed cohort PDF report for cohortId: {} and programId: {} in {}ms with {} learners",
+                   cohortId, programId, System.currentTimeMillis() - startTime, learners);
+    }
+
+    private int writeCsvRows(CSVPrinter csvPrinter, String userName, String userId, String phoneNumber,
+                             String programId, ProgramReportDTO report) throws IOException {
+        int recordCount = 0;
+        for (StageReportDTO stageReport : report.getStages()) {
+            for (UnitReportDTO unitReport : stageReport.getUnits()) {
+                for (SubconceptReportDTO subconceptReport : unitReport.getSubconcepts()) {
+                    csvPrinter.printRecord(
+                            userName,
+                            userId,
+                            phoneNumber,
+                            programId,
+                            report.getProgramName(),
+                            stageReport.getStageName(),
+                            unitReport.getUnitName(),
+                            subconceptReport.getSubconceptDesc(),
+                            subconceptReport.isCompleted() ? "Completed" : "Incomplete",
+                            subconceptReport.getHighestScore(),
+                            subconceptReport.getAttemptCount()
+                    );
+                    recordCount++;
+                }
+            }
+        }
+        return recordCount;
+    }
+
+    private int writePdfSection(Document document, String userName, String userId, String phoneNumber,
+                                String programId, ProgramReportDTO report) {
+        // Program and user details
+        document.add(new Paragraph("Username: " + userName));
+        document.add(new Paragraph("User ID: " + userId));
+        document.add(new Paragraph("User Phone Number: " + phoneNumber));
+        document.add(new Paragraph("Program ID: " + programId));
+        document.add(new Paragraph("Program Name: " + report.getProgramName()));
+        document.add(new Paragraph("Total Stages: " + report.getTotalStages()));
+        document.add(new Paragraph("Completed Stages: " + report.getCompletedStages()));
+        document.add(new Paragraph("Average Score: " + report.getAverageScore()));
+
+        int totalSections = 0;
+        // Add stages, units, and subconcepts
+        for (StageReportDTO stageReport : report.getStages()) {
+            document.add(new Paragraph("Stage: " + stageReport.getStageName()).setBold());
+
+            for (UnitReportDTO unitReport : stageReport.getUnits()) {
+                document.add(new Paragraph("  Unit: " + unitReport.getUnitName()));
+
+                for (SubconceptReportDTO subconceptReport : unitReport.getSubconcepts()) {
+                    document.add(new Paragraph("    Subconcept: " + subconceptReport.getSubconceptDesc()
+                            + " (Status: " + (subconceptReport.isCompleted() ? "Completed" : "Incomplete") + ")"));
+                    totalSections++;
+                }
+            }
+        }
+        return totalSections;
+    }
+
+    private User findUser(String userId) {
+        return userRepository.findById(userId)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+    }
+
+    private static CSVPrinter newCsvPrinter(OutputStream out) throws IOException {
+        // Not closed here: the caller owns the stream
+        return new CSVPrinter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), CSVFormat.DEFAULT);
+    }
+
+    private static Document newPdfDocument(OutputStream out) {
+        // Immediate flush writes every finished page to the stream and releases it
+        return new Document(new PdfDocument(new PdfWriter(out)), PageSize.A4, true);
+    }
+}
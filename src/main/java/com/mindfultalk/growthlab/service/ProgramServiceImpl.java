@@ -22,6 +22,9 @@ public class ProgramServiceImpl implements ProgramService {
     @Autowired
     private ProgramRepository programRepository;
     
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
+    
     private static final Logger logger = LoggerFactory.getLogger(ProgramServiceImpl.class);
 
     @Override
@@ -226,6 +229,7 @@ public class ProgramServiceImpl implements ProgramService {
                     return programRepository.save(existingProgram);
                 })
                 .orElseThrow(() -> new ResourceNotFoundException("Program not found with ID: " + programId));
+            curriculumGraphService.invalidate();
             
             long endTime = System.currentTimeMillis();
             logger.info("Successfully updated program: {} (ID: {}) in {}ms", 
@@ -251,6 +255,7 @@ public class ProgramServiceImpl implements ProgramService {
             }
             
             programRepository.deleteById(programId);
+            curriculumGraphService.invalidate();
             
             long endTime = System.currentTimeMillis();
             logger.info("Successfully deleted program with ID: {} in {}ms", programId, (endTime - startTime));
@@ -278,6 +283,7 @@ public class ProgramServiceImpl implements ProgramService {
             }
             
             programRepository.deleteAllById(programIds);
+            curriculumGraphService.invalidate();
             
             long endTime = System.currentTimeMillis();
             logger.info("Successfully deleted {} programs in {}ms", programIds.size(), (endTime - startTime));
@@ -0,0 +1,58 @@
+package com.mindfultalk.growthlab.service;
+
+import java.lang.reflect.Method;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache keys of the per-user reports in {@link ProgramReportServiceImpl}.
+ *
+ * A report depends on the user's type, since it decides which subconcepts are counted, and on
+ * the user's cache generation. The type comes from {@link UserTypeResolver}, so building the key
+ * of a warm report costs no database query; the generation is a Redis read as before.
+ *
+ * Keys keep the layout of the SpEL keys they replace: the method's IDs in parameter order, the
+ * user type, then the generation token.
+ */
+@Component("reportCacheKeyGenerator")
+public class ReportCacheKeyGenerator implements KeyGenerator {
+
+    @Autowired
+    private UserTypeResolver userTypeResolver;
+
+    @Autowired
+    private CacheGenerationService cacheGenerationService;
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        switch (method.getName()) {
+            case "generateProgramReport": {
+                String userId = (String) params[0];
+                String programId = (String) params[1];
+                return userId + "_" + programId + "_" + userType(userId) + "_"
+                    + cacheGenerationService.forProgram(userId, programId);
+            }
+            case "generateUnitReport": {
+                String userId = (String) params[0];
+                String unitId = (String) params[1];
+                return userId + "_" + unitId + "_" + userType(userId) + "_"
+                    + cacheGenerationService.forUnit(userId, unitId);
+            }
+            case "getUserProgress": {
+                String programId = (String) params[0];
+                String userId = (String) params[1];
+                return programId + "_" + userId + "_" + userType(userId) + "_"
+                    + cacheGenerationService.forProgram(userId, programId);
+            }
+            default:
+                throw new IllegalArgumentException("No report cache key for " + method.getName());
+        }
+    }
+
+    private String userType(String userId) {
+        // An unknown user gets a key of its own; the report call then fails with user not found
+        return userTypeResolver.getUserType(userId).orElse("unknown");
+    }
+}
@@ -1,25 +1,33 @@
 package com.mindfultalk.growthlab.service;
 
+import com.mindfultalk.growthlab.exception.UploadCapacityExceededException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.ContentStreamProvider;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.regions.Region;
 
-import java.io.IOException;
+import jakarta.annotation.*;
+
+import java.io.*;
 import java.net.URL;
+import java.security.*;
 import java.time.Duration;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.*;
 
 @Service
 public class S3StorageService {
 
 	private final S3Client s3Client;
+	private final S3Presigner s3Presigner;
 	private final String bucketName;
 	private final Region region;
 	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(S3StorageService.class);
@@ -27,13 +35,59 @@ public class S3StorageService {
 	@Autowired
 	public S3StorageService(
 	    S3Client s3Client, 
+	    S3Presigner s3Presigner,
 	    @Value("${aws.s3.bucket}") String bucketName,
 	    @Value("${aws.region}") String regionName) {
 	    this.s3Client = s3Client;
+	    this.s3Presigner = s3Presigner;
 	    this.bucketName = bucketName;
 	    this.region = Region.of(regionName);
 	}
 
+	// Above this size a file is sent as a multipart upload with parts in parallel
+	@Value("${aws.s3.upload.multipart-threshold-bytes:16777216}")
+	private long multipartThreshold;
+
+	// S3 requires at least 5 MB for every part but the last
+	@Value("${aws.s3.upload.part-size-bytes:8388608}")
+	private long partSize;
+
+	// Part uploads running at once on this node, shared by all multipart uploads
+	@Value("${aws.s3.upload.part-threads:8}")
+	private int partThreads;
+
+	// Uploads running at once on this node; further uploads wait up to acquire-timeout-ms
+	@Value("${aws.s3.upload.max-concurrent:16}")
+	private int maxConcurrentUploads;
+
+	@Value("${aws.s3.upload.acquire-timeout-ms:10000}")
+	private long acquireTimeoutMs;
+
+	private Semaphore uploadPermits;
+
+	private ExecutorService partUploadPool;
+
+	@PostConstruct
+	public void startUploadPool() {
+	    uploadPermits = new Semaphore(maxConcurrentUploads, true);
+	    ThreadFactory threadFactory = new ThreadFactory() {
+	        private int count = 0;
+
+	        @Override
+	        public synchronized Thread newThread(Runnable runnable) {
+	            Thread thread = new Thread(runnable, "s3-part-upload-" + (++count));
+	            thread.setDaemon(true);
+	            return thread;
+	        }
+	    };
+	    partUploadPool = Executors.newFixedThreadPool(partThreads, threadFactory);
+	}
+
+	@PreDestroy
+	public void stopUploadPool() {
+	    partUploadPool.shutdownNow();
+	}
+
     /**
      * Upload file to S3 with a hierarchical path
      * 
@@ -61,16 +115,240 @@ public class S3StorageService {
         
         logger.info("Uploading file to S3: {}", s3Key);
         
+        acquireUploadPermit(s3Key);
+        try {
+            long startTime = System.currentTimeMillis();
+            if (file.getSize() > multipartThreshold) {
+                uploadMultipart(file, s3Key);
+            } else {
+                uploadSingle(file, s3Key);
+            }
+            logger.info("Uploaded {} bytes to S3: {} in {}ms", file.getSize(), s3Key, System.currentTimeMillis() - startTime);
+        } finally {
+            uploadPermits.release();
+        }
+        
+        return s3Key;
+    }
+
+    private void acquireUploadPermit(String s3Key) {
+        try {
+            if (!uploadPermits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                logger.warn("Upload limit of {} reached, rejecting upload of {}", maxConcurrentUploads, s3Key);
+                throw new UploadCapacityExceededException("Too many uploads in progress, please try again shortly.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UploadCapacityExceededException("Interrupted while waiting to upload, please try again.");
+        }
+    }
+
+    /**
+     * One PUT streamed from the file; S3 checks the body against its Content-MD5
+     */
+    private void uploadSingle(MultipartFile file, String s3Key) throws IOException {
+        FilePart whole = new FilePart(file, 0, file.getSize());
         PutObjectRequest putObjRequest = PutObjectRequest.builder()
                 .bucket(bucketName)
                 .key(s3Key)
                 .contentType(file.getContentType())
+                .contentLength(whole.length)
+                .contentMD5(whole.md5())
                 .acl(ObjectCannedACL.PUBLIC_READ)  // Make the object publicly readable
                 .build();
         
-        s3Client.putObject(putObjRequest, RequestBody.fromBytes(file.getBytes()));
-        
-        return s3Key;
+        try (FilePart body = whole) {
+            s3Client.putObject(putObjRequest, RequestBody.fromContentProvider(body, body.length, file.getContentType()));
+        }
+    }
+
+    /**
+     * Multipart upload with the parts sent in parallel, each streamed from its own range of the
+     * file and checked by S3 against its Content-MD5. The upload is aborted if any part fails,
+     * so no orphaned parts are left behind.
+     */
+    private void uploadMultipart(MultipartFile file, String s3Key) throws IOException {
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .contentType(file.getContentType())
+                .acl(ObjectCannedACL.PUBLIC_READ)  // Make the object publicly readable
+                .build()).uploadId();
+
+        List<Future<CompletedPart>> parts = new ArrayList<>();
+        try {
+            long size = file.getSize();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize) {
+                FilePart part = new FilePart(file, offset, Math.min(partSize, size - offset));
+                int number = partNumber++;
+                parts.add(partUploadPool.submit(() -> uploadPart(s3Key, uploadId, number, part)));
+            }
+
+            List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+            for (Future<CompletedPart> part : parts) {
+                completedParts.add(part.get());
+            }
+
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+            logger.info("Completed multipart upload of {} in {} parts", s3Key, completedParts.size());
+        } catch (Exception e) {
+            parts.forEach(part -> part.cancel(true));
+            abortMultipartUpload(s3Key, uploadId);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            logger.error("Multipart upload of {} failed: {}", s3Key, cause.getMessage(), cause);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to upload file to S3: " + s3Key, cause);
+        }
+    }
+
+    private CompletedPart uploadPart(String s3Key, String uploadId, int partNumber, FilePart part) throws IOException {
+        try (FilePart body = part) {
+            UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .contentLength(body.length)
+                    .contentMD5(body.md5())
+                    .build(), RequestBody.fromContentProvider(body, body.length, "application/octet-stream"));
+            return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+        }
+    }
+
+    private void abortMultipartUpload(String s3Key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (Exception e) {
+            logger.error("Failed to abort multipart upload {} of {}: {}", uploadId, s3Key, e.getMessage());
+        }
+    }
+
+    /**
+     * A byte range of an uploaded file, read straight from the file every time the SDK asks for
+     * the body (including retries), so the range is never held in memory.
+     */
+    static final class FilePart implements ContentStreamProvider, Closeable {
+
+        private final MultipartFile file;
+        private final long offset;
+        private final long length;
+        private InputStream current;
+
+        FilePart(MultipartFile file, long offset, long length) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public InputStream newStream() {
+            try {
+                close();
+                InputStream in = file.getInputStream();
+                in.skipNBytes(offset);
+                current = new RangeInputStream(in, length);
+                return current;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read upload part at offset " + offset, e);
+            }
+        }
+
+        /**
+         * Base64 MD5 of the range, for the Content-MD5 header
+         */
+        String md5() throws IOException {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            byte[] buffer = new byte[65536];
+            try (InputStream in = newStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            return Base64.getEncoder().encodeToString(digest.digest());
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Reads at most the given number of bytes from the wrapped stream
+     */
+    private static final class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read != -1) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
     }
 
     /**
@@ -98,32 +376,26 @@ public class S3StorageService {
     }
 
     /**
-     * Generate a presigned URL for a file in S3
+     * Generate a presigned URL for a file in S3. Signing happens locally with the shared
+     * presigner, so this makes no call to S3; see MediaUrlService for cached URLs.
      * 
      * @param s3Key The S3 key of the file
      * @param expirationMinutes URL expiration time in minutes
      * @return The presigned URL
      */
     public URL generatePresignedUrl(String s3Key, int expirationMinutes) {
-        // Use the region object that you've already initialized in the constructor
-        software.amazon.awssdk.services.s3.presigner.S3Presigner presigner = 
-            software.amazon.awssdk.services.s3.presigner.S3Presigner.builder()
-                .region(region)  // Use the region field from the class
-                .build();
-        
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(bucketName)
                 .key(s3Key)
                 .build();
         
-        software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest presignRequest = 
-                software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest.builder()
-                    .signatureDuration(java.time.Duration.ofMinutes(expirationMinutes))
-                    .getObjectRequest(getObjectRequest)
-                    .build();
-            
-            return presigner.presignGetObject(presignRequest).url();
-        }
+        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofMinutes(expirationMinutes))
+                .getObjectRequest(getObjectRequest)
+                .build();
+        
+        return s3Presigner.presignGetObject(presignRequest).url();
+    }
         
  // Method to update an existing object's ACL to public-read
     public void makeFilePublic(String s3Key) {
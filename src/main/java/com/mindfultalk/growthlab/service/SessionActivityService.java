@@ -0,0 +1,68 @@
+package com.mindfultalk.growthlab.service;
+
+import java.time.OffsetDateTime;
+import java.util.Collections;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.*;
+import org.springframework.stereotype.Service;
+
+import com.mindfultalk.growthlab.filter.SessionTicket;
+import com.mindfultalk.growthlab.repository.UserAttemptsRepository;
+
+/**
+ * Keeps the last activity of each session, used by the session filter's inactivity timeout.
+ *
+ * The timestamp lives in the session's ticket hash and is moved forward on every attempt, so
+ * the filter reads it with the rest of the ticket. When a ticket is built it is seeded from the
+ * latest attempt end of the session, a MAX() over an indexed column.
+ */
+@Service
+public class SessionActivityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionActivityService.class);
+
+    // Only moves the timestamp forward, and never recreates a ticket removed by a logout
+    private static final RedisScript<Long> ADVANCE_LAST_ACTIVITY = new DefaultRedisScript<>(
+        "if redis.call('EXISTS', KEYS[1]) == 1 then "
+            + "local current = tonumber(redis.call('HGET', KEYS[1], '" + SessionTicket.LAST_ACTIVITY + "') or '0') "
+            + "if tonumber(ARGV[1]) > current then "
+            + "return redis.call('HSET', KEYS[1], '" + SessionTicket.LAST_ACTIVITY + "', ARGV[1]) end end return 0",
+        Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private UserAttemptsRepository userAttemptsRepository;
+
+    /**
+     * Record activity in a session, for example the end of an attempt
+     */
+    public void recordActivity(String sessionId, OffsetDateTime activityTime) {
+        if (sessionId == null || activityTime == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(ADVANCE_LAST_ACTIVITY,
+                Collections.singletonList(SessionTicket.key(sessionId)),
+                Long.toString(activityTime.toInstant().toEpochMilli()));
+            logger.debug("Recorded activity for sessionId: {}", sessionId);
+        } catch (Exception e) {
+            // The ticket is rebuilt from the database once it expires
+            logger.warn("Error recording activity for sessionId: {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Last activity of a session from the database, as epoch millis; the session start when
+     * nothing was attempted yet
+     */
+    public long findLastActivity(String sessionId, long sessionStart) {
+        return userAttemptsRepository.findLastAttemptEndTimestampBySessionId(sessionId)
+            .map(lastAttemptEnd -> Math.max(sessionStart, lastAttemptEnd.toInstant().toEpochMilli()))
+            .orElse(sessionStart);
+    }
+}
@@ -1,8 +1,11 @@
 package com.mindfultalk.growthlab.service;
 
+import com.mindfultalk.growthlab.config.TwoTierCacheManager;
+import com.mindfultalk.growthlab.filter.SessionTicket;
 import com.mindfultalk.growthlab.model.UserSessionMapping;
 import com.mindfultalk.growthlab.repository.UserSessionMappingRepository;
 import org.slf4j.*;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
@@ -30,6 +33,9 @@ public class SingleDeviceLoginService {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
+    @Autowired
+    private ObjectProvider<TwoTierCacheManager> cacheManager;
+    
     /**
      * Enable/Disable single device login feature
      * Set this to false if you want to allow multiple device logins
@@ -235,6 +241,13 @@ public class SingleDeviceLoginService {
             String activeSessionKey = ACTIVE_SESSION_PREFIX + userId;
             String deviceKey = USER_DEVICE_PREFIX + userId;
             
+            // The previous session's ticket would otherwise keep it valid in the session filter
+            SessionInfo previousSession = (SessionInfo) redisTemplate.opsForValue().get(activeSessionKey);
+            if (previousSession != null && !sessionId.equals(previousSession.getSessionId())) {
+                redisTemplate.delete(SessionTicket.key(previousSession.getSessionId()));
+                publishTicketRemoval(previousSession.getSessionId());
+            }
+            
             // Store active session info
             SessionInfo sessionInfo = new SessionInfo(sessionId, cohortId, OffsetDateTime.now(ZoneOffset.UTC));
             redisTemplate.opsForValue().set(activeSessionKey, sessionInfo, 8, TimeUnit.HOURS);
@@ -313,6 +326,13 @@ public class SingleDeviceLoginService {
         return Integer.toString(fingerprint.hashCode());
     }
     
+    /**
+     * Tells every node to drop its in-memory copy of the session's ticket, deleted from Redis just before
+     */
+    private void publishTicketRemoval(String sessionId) {
+        cacheManager.ifAvailable(manager -> manager.publishEntryInvalidation(SessionTicket.INVALIDATION_NAME, sessionId));
+    }
+    
     /**
      * Clear session from cache
      */
@@ -323,10 +343,12 @@ public class SingleDeviceLoginService {
                 USER_DEVICE_PREFIX + userId,
                 "session:" + sessionId,
                 "lastActivity:" + sessionId,
-                "sessionValidation:" + sessionId
+                "sessionValidation:" + sessionId,
+                SessionTicket.key(sessionId)
             );
             
             redisTemplate.delete(keysToDelete);
+            publishTicketRemoval(sessionId);
             logger.debug("Cleared session cache for sessionId: {}, userId: {}", sessionId, userId);
             
         } catch (Exception e) {
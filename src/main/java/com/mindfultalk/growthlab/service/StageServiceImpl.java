@@ -19,6 +19,9 @@ public class StageServiceImpl implements StageService {
     @Autowired
     private ProgramRepository programRepository;
     
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
+    
     private static final Logger logger = LoggerFactory.getLogger(StageServiceImpl.class);
 
     @Override
@@ -62,6 +65,7 @@ public class StageServiceImpl implements StageService {
         logger.info("Creating new stage with ID: {}", stage.getStageId());
         try {
             Stage savedStage = stageRepository.save(stage);
+            curriculumGraphService.invalidate();
             logger.info("Successfully created stage with ID: {}", savedStage.getStageId());
             return savedStage;
         } catch (Exception e) {
@@ -180,6 +184,7 @@ public class StageServiceImpl implements StageService {
             
             logger.info("CSV upload completed. Success: {}, Failed: {}, Total processed: {}", 
                        successfulInserts, failedInserts, lineNumber - 1);
+            curriculumGraphService.invalidate();
 
         } catch (IOException e) {
             logger.error("IO error while processing CSV file: {}", file.getOriginalFilename(), e);
@@ -195,7 +200,7 @@ public class StageServiceImpl implements StageService {
     /**
      * Parse CSV line handling commas within quoted fields
      */
-    private String[] parseCsvLine(String line) {
+    String[] parseCsvLine(String line) {
         List<String> result = new ArrayList<>();
         boolean inQuotes = false;
         StringBuilder currentField = new StringBuilder();
@@ -229,6 +234,7 @@ public class StageServiceImpl implements StageService {
             existingStage.setUuid(stage.getUuid());
             
             Stage updatedStage = stageRepository.save(existingStage);
+            curriculumGraphService.invalidate();
             logger.info("Successfully updated stage with ID: {}", stageId);
             return updatedStage;
             
@@ -250,6 +256,7 @@ public class StageServiceImpl implements StageService {
         
         try {
             stageRepository.deleteById(stageId);
+            curriculumGraphService.invalidate();
             logger.info("Successfully deleted stage with ID: {}", stageId);
         } catch (Exception e) {
             logger.error("Error deleting stage with ID: {}", stageId, e);
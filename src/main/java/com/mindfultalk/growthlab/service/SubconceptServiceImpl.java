@@ -28,6 +28,9 @@ public class SubconceptServiceImpl implements SubconceptService {
     @Autowired
     private ContentMasterRepository contentRepository; 
 
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
+
     private static final Logger logger = LoggerFactory.getLogger(SubconceptServiceImpl.class);
    
     @Override
@@ -381,6 +384,7 @@ public class SubconceptServiceImpl implements SubconceptService {
             existingSubconcept.setContent(subconcept.getContent());
             try {
                 Subconcept updatedSubconcept = subconceptRepository.save(existingSubconcept);
+                curriculumGraphService.invalidate();
                 logger.info("Successfully updated subconcept with ID: {}", subconceptId);
                 return updatedSubconcept;
             } catch (Exception e) {
@@ -551,6 +555,7 @@ public class SubconceptServiceImpl implements SubconceptService {
         
         logger.info("CSV update completed. Updated: {}, Failed: {}, Not Found: {}, Total processed: {}", 
                    updatedCount, failedCount, notFoundCount, updatedCount + failedCount + notFoundCount);
+        curriculumGraphService.invalidate();
         return result;
     }
     
@@ -608,6 +613,7 @@ public class SubconceptServiceImpl implements SubconceptService {
         
         try {
             subconceptRepository.deleteById(subconceptId);
+            curriculumGraphService.invalidate();
             logger.info("Successfully deleted subconcept with ID: {}", subconceptId);
         } catch (Exception e) {
             logger.error("Error deleting subconcept with ID: {}", subconceptId, e);
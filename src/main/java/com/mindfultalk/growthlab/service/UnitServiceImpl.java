@@ -44,6 +44,9 @@ public class UnitServiceImpl implements UnitService {
     
     @Autowired
     private UserCohortMappingRepository userCohortMappingRepository;
+    
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
 
     private static final Logger logger = LoggerFactory.getLogger(UnitServiceImpl.class);
 
@@ -65,6 +68,7 @@ public class UnitServiceImpl implements UnitService {
             
             logger.info("Creating new unit with ID: {}", unit.getUnitId());
             Unit savedUnit = unitRepository.save(unit);
+            curriculumGraphService.invalidate();
             logger.info("Successfully created unit with ID: {}", savedUnit.getUnitId());
             return savedUnit;
         } catch (IllegalArgumentException e) {
@@ -200,6 +204,7 @@ public class UnitServiceImpl implements UnitService {
         response.put("errors", errorMessages);
 
         logger.info("Bulk upload completed - Success: {}, Failed: {}", successCount, failCount);
+        curriculumGraphService.invalidate();
         return response;
     } catch (IllegalArgumentException e) {
         logger.error("Invalid argument for bulkUploadUnits: {}", e.getMessage());
@@ -238,6 +243,7 @@ public class UnitServiceImpl implements UnitService {
                 updatedUnit.setStage(unit.getStage());
                 
                 Unit savedUnit = unitRepository.save(updatedUnit);
+                curriculumGraphService.invalidate();
                 logger.info("Successfully updated unit with ID: {}", unitId);
                 return savedUnit;
             }
@@ -299,6 +305,7 @@ public class UnitServiceImpl implements UnitService {
             }
             
             unitRepository.deleteById(unitId);
+            curriculumGraphService.invalidate();
             logger.info("Successfully deleted unit with ID: {}", unitId);
             
         } catch (IllegalArgumentException | ResourceNotFoundException e) {
@@ -332,6 +339,7 @@ public class UnitServiceImpl implements UnitService {
             }
             
             unitRepository.deleteAllById(unitIds);
+            curriculumGraphService.invalidate();
             logger.info("Successfully deleted {} units", unitIds.size());
             
         } catch (IllegalArgumentException | ResourceNotFoundException e) {
@@ -389,10 +397,10 @@ public class UnitServiceImpl implements UnitService {
     }
     
     @Override 
-    @Cacheable(value = "programStagesUnits", key = "#userId + '_' + #programId")
+    @Cacheable(value = "programStagesUnits", key = "#userId + '_' + #programId + '_' + @cacheGenerationService.forProgram(#userId, #programId)")
     public ProgramDTO getProgramWithStagesAndUnits(String userId, String programId) {
-        // Fetch the program details
-        Program program = programRepository.findById(programId)
+        // Program structure comes from the in-memory curriculum graph
+        CurriculumGraph graph = curriculumGraphService.findGraph(programId)
             .orElseThrow(() -> new ResourceNotFoundException("Program not found"));
         logger.info("Getting program details for userId: {} and programId: {}", userId, programId);
      // Fetch user details to determine visibility
@@ -415,12 +423,11 @@ public class UnitServiceImpl implements UnitService {
         logger.info("Cohort settings - delayedStageUnlock: {}, delayInDays: {}", delayedStageUnlock, delayInDays);
 
         ProgramDTO programResponse = new ProgramDTO();
-        programResponse.setProgramId(program.getProgramId());
-        programResponse.setProgramName(program.getProgramName());
-        programResponse.setProgramDesc(program.getProgramDesc());
+        programResponse.setProgramId(graph.getProgramId());
+        programResponse.setProgramName(graph.getProgramName());
+        programResponse.setProgramDesc(graph.getProgramDesc());
 
-        // Fetch stages for the program
-        List<Stage> stages = stageRepository.findByProgram_ProgramId(programId);
+        List<CurriculumGraph.StageNode> stages = graph.getStages();
         Map<String, StageDTO> stageMap = new HashMap<>();
         int totalUnitCount = 0;
         int stagesCount = 0;
@@ -440,11 +447,10 @@ public class UnitServiceImpl implements UnitService {
      
         // Iterate through stages and build the stage map
         for (int i = 0; i < stages.size(); i++) {
-            Stage stage = stages.get(i);
+            CurriculumGraph.StageNode stage = stages.get(i);
             StageDTO stageResponse = new StageDTO();
             
-         // Fetch units for each stage
-            List<Unit> units = unitRepository.findByStage_StageId(stage.getStageId());
+            List<CurriculumGraph.UnitNode> units = graph.getUnits(stage);
             if (units.isEmpty()) {
                 continue; // Skip stages without units
             }
@@ -461,7 +467,7 @@ public class UnitServiceImpl implements UnitService {
             // Fetch units for each stage
          //   List<Unit> units = unitRepository.findByStage_StageId(stage.getStageId());
             Map<String, UnitResponseDTO> unitMap = new HashMap<>();
-            logger.info("Fetched units for stage {}: {}", stage.getStageId(), units);
+            logger.info("Fetched {} units for stage {}", units.size(), stage.getStageId());
 
             boolean stageCompleted = true;
             boolean stageCompletedWithoutAssignments = true;  // Changed to true by default
@@ -493,7 +499,7 @@ public class UnitServiceImpl implements UnitService {
                 boolean allUnitsFullyCompleted = true;
             	
                 for (int j = 0; j < units.size(); j++) {
-                    Unit unit = units.get(j);
+                    CurriculumGraph.UnitNode unit = units.get(j);
                     UnitResponseDTO unitResponse = new UnitResponseDTO();
                     unitResponse.setUnitId(unit.getUnitId());
                     unitResponse.setUnitName(unit.getUnitName());
@@ -503,9 +509,8 @@ public class UnitServiceImpl implements UnitService {
                     List<UserSubConcept> userSubConceptsForUnit = userSubConceptRepository.findByUser_UserIdAndUnit_UnitId(userId, unit.getUnitId());
                     
                  // Determine accessible mappings
-                    List<ProgramConceptsMapping> mappings = programConceptsMappingRepository.findByUnit_UnitId(unit.getUnitId());
-                    List<ProgramConceptsMapping> accessibleMappings = mappings.stream()
-                        .filter(mapping -> isSubconceptVisibleToUser(userType, mapping.getSubconcept()))
+                    List<CurriculumGraph.SubconceptNode> accessibleMappings = graph.getSubconcepts(unit).stream()
+                        .filter(mapping -> mapping.isListedFor(userType))
                         .collect(Collectors.toList());
                     
                     if (accessibleMappings.isEmpty()) {
@@ -517,29 +522,25 @@ public class UnitServiceImpl implements UnitService {
                     
                     // Calculate counts for non-assignment sub-concepts
                     int totalNonAssignmentSubConceptCount = (int) accessibleMappings.stream()
-                        .map(ProgramConceptsMapping::getSubconcept)
-                        .filter(sub -> !sub.getSubconceptType().toLowerCase().startsWith("assignment"))
+                        .filter(sub -> !sub.isAssignment())
                         .count();
                     
                     // Calculate counts for assignment sub-concepts
                     int totalAssignmentSubConceptCount = (int) accessibleMappings.stream()
-                        .map(ProgramConceptsMapping::getSubconcept)
-                        .filter(sub -> sub.getSubconceptType().toLowerCase().startsWith("assignment"))
+                        .filter(CurriculumGraph.SubconceptNode::isAssignment)
                         .count();
 
                     long completedNonAssignmentSubConceptCount = accessibleMappings.stream()
-                        .map(ProgramConceptsMapping::getSubconcept)
-                        .filter(sub -> !sub.getSubconceptType().toLowerCase().startsWith("assignment"))
-                        .map(Subconcept::getSubconceptId)
+                        .filter(sub -> !sub.isAssignment())
+                        .map(CurriculumGraph.SubconceptNode::getSubconceptId)
                         .filter(id -> userSubConceptsForUnit.stream()
                             .anyMatch(us -> us.getSubconcept().getSubconceptId().equals(id)))
                         .count();
                     
                  // Check for pending assignments
                     boolean hasPendingAssignments = accessibleMappings.stream()
-                    	    .filter(mapping -> mapping.getSubconcept().getSubconceptType().toLowerCase().startsWith("assignment"))
-                    	    .map(ProgramConceptsMapping::getSubconcept)
-                    	    .map(Subconcept::getSubconceptId)
+                    	    .filter(CurriculumGraph.SubconceptNode::isAssignment)
+                    	    .map(CurriculumGraph.SubconceptNode::getSubconceptId)
                     	    .anyMatch(id -> !userSubConceptsForUnit.stream()
                     	        .anyMatch(us -> us.getSubconcept().getSubconceptId().equals(id)));
 
@@ -737,18 +738,6 @@ public class UnitServiceImpl implements UnitService {
     }
     
     
-    /**
-     * Helper method to determine if a sub-concept is visible to the user based on user type.
-     */
-    private boolean isSubconceptVisibleToUser(String userType, Subconcept subconcept) {
-        // Assuming 'showTo' can have multiple values separated by commas, e.g., "student,teacher"
-        Set<String> visibilitySet = Arrays.stream(subconcept.getShowTo().split(","))
-                                         .map(String::trim)
-                                         .map(String::toLowerCase)
-                                         .collect(Collectors.toSet());
-        return visibilitySet.contains(userType.toLowerCase());
-    }
-
     /**
      * Helper method to get the total sub concept count for a unit.
      * (No changes needed here since counting is handled differently now)
@@ -0,0 +1,136 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.*;
+
+/**
+ * Completion status of every subconcept a user sees in a unit, worked out in one pass.
+ *
+ * The rules are those of the unit page:
+ * <ul>
+ * <li>a completed subconcept is "yes"</li>
+ * <li>the first unfinished subconcept after the last completed one is "incomplete", that is the
+ * one the user can open next; later unfinished subconcepts are "disabled"</li>
+ * <li>an unfinished assignment is "ignored", meaning it may be skipped, once every subconcept
+ * since the previous assignment is completed, and "disabled" until then</li>
+ * </ul>
+ * Assignments split the unit into segments. Instead of scanning back to the previous assignment
+ * for each one, the pass carries whether the current segment is complete so far and starts a new
+ * segment at each assignment.
+ */
+public final class UnitUnlockState {
+
+    public static final String COMPLETED = "yes";
+    public static final String INCOMPLETE = "incomplete";
+    public static final String IGNORED = "ignored";
+    public static final String DISABLED = "disabled";
+
+    private final String[] statuses;
+    private final int subconceptCount;
+    private final int completedSubconceptCount;
+    private final boolean pendingAssignments;
+
+    private UnitUnlockState(String[] statuses, int subconceptCount, int completedSubconceptCount,
+            boolean pendingAssignments) {
+        this.statuses = statuses;
+        this.subconceptCount = subconceptCount;
+        this.completedSubconceptCount = completedSubconceptCount;
+        this.pendingAssignments = pendingAssignments;
+    }
+
+    /**
+     * Status of the subconcepts of a unit, in position order
+     */
+    public static UnitUnlockState calculate(List<CurriculumGraph.SubconceptNode> subconcepts,
+            Set<String> completedSubconceptIds) {
+        int size = subconcepts.size();
+        boolean[] assignment = new boolean[size];
+        boolean[] completed = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            CurriculumGraph.SubconceptNode subconcept = subconcepts.get(i);
+            assignment[i] = subconcept.isAssignment();
+            completed[i] = completedSubconceptIds.contains(subconcept.getSubconceptId());
+        }
+        return calculate(assignment, completed);
+    }
+
+    /**
+     * Status of a unit given, per position, whether the subconcept is an assignment and whether
+     * the user completed it
+     */
+    public static UnitUnlockState calculate(boolean[] assignment, boolean[] completed) {
+        if (assignment.length != completed.length) {
+            throw new IllegalArgumentException("assignment and completed flags differ in length");
+        }
+        String[] statuses = new String[assignment.length];
+        int subconceptCount = 0;
+        int completedSubconceptCount = 0;
+        boolean pendingAssignments = false;
+        boolean enableNext = true;
+        boolean segmentCompleted = true;
+
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i]) {
+                if (completed[i]) {
+                    statuses[i] = COMPLETED;
+                } else if (segmentCompleted) {
+                    statuses[i] = IGNORED;
+                    pendingAssignments = true;
+                } else {
+                    statuses[i] = DISABLED;
+                }
+                // The next segment starts after this assignment
+                segmentCompleted = true;
+                continue;
+            }
+
+            subconceptCount++;
+            if (completed[i]) {
+                statuses[i] = COMPLETED;
+                completedSubconceptCount++;
+                enableNext = true;
+            } else {
+                segmentCompleted = false;
+                statuses[i] = enableNext ? INCOMPLETE : DISABLED;
+                enableNext = false;
+            }
+        }
+        return new UnitUnlockState(statuses, subconceptCount, completedSubconceptCount, pendingAssignments);
+    }
+
+    public String getStatus(int index) {
+        return statuses[index];
+    }
+
+    public List<String> getStatuses() {
+        return Collections.unmodifiableList(Arrays.asList(statuses));
+    }
+
+    /**
+     * Subconcepts of the unit that are not assignments
+     */
+    public int getSubconceptCount() {
+        return subconceptCount;
+    }
+
+    public int getCompletedSubconceptCount() {
+        return completedSubconceptCount;
+    }
+
+    /**
+     * Whether some assignment was left to be done later
+     */
+    public boolean hasPendingAssignments() {
+        return pendingAssignments;
+    }
+
+    /**
+     * "yes" once all subconcepts are completed, "Unit Completed without Assignments" if
+     * assignments were skipped on the way, and "no" before that
+     */
+    public String getUnitCompletionStatus() {
+        if (completedSubconceptCount != subconceptCount) {
+            return "no";
+        }
+        return pendingAssignments ? "Unit Completed without Assignments" : "yes";
+    }
+}
@@ -45,6 +45,9 @@ public class UserAssignmentAttemptTransactionalService {
     @Autowired
     private UserCohortMappingService userCohortMappingService;
 
+    @Autowired
+    private LeaderboardService leaderboardService;
+
     /**
      * Transactional method to handle both assignment submission and user attempt creation.
      * Either both operations succeed or both fail.
@@ -209,31 +212,25 @@ public class UserAssignmentAttemptTransactionalService {
             Optional<UserCohortMapping> userCohortMappingOpt = 
                 userCohortMappingService.findByUser_UserIdAndCohort_CohortId(user.getUserId(), cohortId);
 
-            if (userCohortMappingOpt.isPresent()) {
-                // Update existing leaderboard score for the specified cohort
-                UserCohortMapping userCohortMapping = userCohortMappingOpt.get();
-                int updatedScore = userCohortMapping.getLeaderboardScore() + score;
-                userCohortMapping.setLeaderboardScore(updatedScore);
-                
-                // Save the updated UserCohortMapping
-                userCohortMappingService.updateUserCohortMapping(userCohortMapping.getUserCohortId(), userCohortMapping);
-                logger.info("Updated leaderboard for userId: {}, cohortId: {}, newScore: {}", 
-                    user.getUserId(), cohortId, updatedScore);
-            } else {
+            if (userCohortMappingOpt.isEmpty()) {
                 // If no mapping found, create a new leaderboard entry
                 UserCohortMapping newEntry = new UserCohortMapping();
                 Cohort cohort = new Cohort();
                 cohort.setCohortId(cohortId); 
                 newEntry.setCohort(cohort); 
                 newEntry.setUser(user);
-                newEntry.setLeaderboardScore(score);
+                newEntry.setLeaderboardScore(0);
                 newEntry.setUuid(UUID.randomUUID());
                 
                 // Save the new UserCohortMapping entry
                 userCohortMappingService.createUserCohortMapping(newEntry);
-                logger.info("New leaderboard entry created for userId: {}, cohortId: {}, score: {}", 
-                    user.getUserId(), cohortId, score);
+                logger.info("New leaderboard entry created for userId: {}, cohortId: {}", user.getUserId(), cohortId);
             }
+
+            // Atomic increment in the Redis leaderboard, written back to the mapping in the background
+            leaderboardService.increment(user.getUserId(), cohortId, score);
+            logger.info("Updated leaderboard for userId: {}, cohortId: {}, scoreAdded: {}", 
+                user.getUserId(), cohortId, score);
         } catch (Exception e) {
             logger.error("Error updating leaderboard for userId: {}, cohortId: {}, Error: {}", 
                 userAttempt.getUser().getUserId(), cohortId, e.getMessage(), e);
@@ -1,6 +1,7 @@
 package com.mindfultalk.growthlab.service;
 
 import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.CohortAssignmentProjection;
 
 import org.springframework.core.io.Resource;
 
@@ -17,7 +18,7 @@ public interface UserAssignmentService {
 
     List<UserAssignment> getAssignmentsByUserId(String userId);
 
-    List<UserAssignment> getAssignmentsByCohortId(String cohortId);
+    List<CohortAssignmentProjection> getAssignmentsByCohortId(String cohortId);
 
     List<UserAssignment> getAssignmentsByCohortIdAndUserId(String cohortId, String userId);
 
@@ -53,12 +53,18 @@ public class UserAssignmentServiceImpl implements UserAssignmentService {
     @Autowired
     private UserCohortMappingRepository userCohortMappingRepository;
     
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
     @Autowired
     private SubconceptRepository subconceptRepository;
 
     @Autowired
     private S3StorageService s3StorageService;
     
+    @Autowired
+    private MediaUrlService mediaUrlService;
+    
     @Autowired
     private UserAttemptsRepository userAttemptsRepository;
     
@@ -81,8 +87,8 @@ public class UserAssignmentServiceImpl implements UserAssignmentService {
     }
 
     @Override
-    public List<UserAssignment> getAssignmentsByCohortId(String cohortId) {
-        return userAssignmentRepository.findByCohortCohortId(cohortId);
+    public List<CohortAssignmentProjection> getAssignmentsByCohortId(String cohortId) {
+        return userAssignmentRepository.findCohortAssignments(cohortId);
     }
 
     @Override
@@ -145,18 +151,14 @@ public class UserAssignmentServiceImpl implements UserAssignmentService {
         Optional<UserAssignment> assignmentOpt = userAssignmentRepository.findById(assignmentId);
         if (assignmentOpt.isPresent()) {
             MediaFile file = assignmentOpt.get().getSubmittedFile();
-            // Ensure the file is publicly accessible
-            s3StorageService.makeFilePublic(file.getFilePath());  
-            // Get public URL without credentials
-            String publicUrl = s3StorageService.generatePublicUrl(file.getFilePath());
-
+            String downloadUrl = mediaUrlService.getDownloadUrl(file.getFilePath());
             
             Map<String, Object> fileDetails = new HashMap<>();
             fileDetails.put("fileId", file.getFileId());
             fileDetails.put("fileName", file.getFileName());
             fileDetails.put("fileType", file.getFileType());
             fileDetails.put("fileSize", file.getFileSize());
-            fileDetails.put("downloadUrl", publicUrl);
+            fileDetails.put("downloadUrl", downloadUrl);
             
             return fileDetails;
         } else {
@@ -172,16 +174,13 @@ public class UserAssignmentServiceImpl implements UserAssignmentService {
             if (file == null) {
                 throw new RuntimeException("Corrected file not found");
             }
-            // Ensure the file is publicly accessible
-            s3StorageService.makeFilePublic(file.getFilePath());
-            // Get public URL without credentials
-            String publicUrl = s3StorageService.generatePublicUrl(file.getFilePath());
+            String downloadUrl = mediaUrlService.getDownloadUrl(file.getFilePath());
             Map<String, Object> fileDetails = new HashMap<>();
             fileDetails.put("fileId", file.getFileId());
             fileDetails.put("fileName", file.getFileName());
             fileDetails.put("fileType", file.getFileType());
             fileDetails.put("fileSize", file.getFileSize());
-            fileDetails.put("downloadUrl",  publicUrl);
+            fileDetails.put("downloadUrl", downloadUrl);
             
             return fileDetails;
         } else {
@@ -329,19 +328,16 @@ public class UserAssignmentServiceImpl implements UserAssignmentService {
     }
     
     private void updateLeaderboardScore(String userId, String cohortId, Integer scoreDifference) {
-        // Find the UserCohortMapping entry
-        UserCohortMapping mapping = userCohortMappingRepository.findByUser_UserIdAndCohort_CohortId(userId, cohortId)
-            .orElseThrow(() -> new RuntimeException("User-Cohort mapping not found"));
-        
-        // Update the leaderboard score with the difference
-        int currentScore = mapping.getLeaderboardScore();
-        mapping.setLeaderboardScore(currentScore + scoreDifference);
+        // Only users mapped to the cohort are on its leaderboard
+        if (!userCohortMappingRepository.existsByUser_UserIdAndCohort_CohortId(userId, cohortId)) {
+            throw new RuntimeException("User-Cohort mapping not found");
+        }
         
-        // Save the updated mapping
-        userCohortMappingRepository.save(mapping);
+        // Atomic increment in the Redis leaderboard, written back to the mapping in the background
+        leaderboardService.increment(userId, cohortId, scoreDifference);
         
-        logger.info("Updated leaderboard score by {} for userId: {}, cohortId: {}, newTotal: {}", 
-                   scoreDifference, userId, cohortId, mapping.getLeaderboardScore());
+        logger.info("Updated leaderboard score by {} for userId: {}, cohortId: {}", 
+                   scoreDifference, userId, cohortId);
     }
     
     // Helper method to validate file size based on type
@@ -454,6 +450,7 @@ public class UserAssignmentServiceImpl implements UserAssignmentService {
                           "MaxScore,Score,Remarks,FileName,FileDownloadLink");
             
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            Map<String, String> downloadUrls = submittedFileUrls(uncorrectedAssignments);
             
             // Write data rows
             for (UserAssignment assignment : uncorrectedAssignments) {
@@ -463,14 +460,10 @@ public class UserAssignmentServiceImpl implements UserAssignmentService {
                     assignment.getSubmittedFile().getFileName() : "";
                 Integer maxScore = assignment.getSubconcept() != null ? 
                     assignment.getSubconcept().getSubconceptMaxscore() : null;
-                // Generate public URL for the submitted file if it exists
+                // Download URL of the submitted file if it exists
                 String fileDownloadLink = "";
                 if (assignment.getSubmittedFile() != null) {
-                    MediaFile file = assignment.getSubmittedFile();
-                    // Ensure the file is publicly accessible
-                    s3StorageService.makeFilePublic(file.getFilePath());
-                    // Get public URL without credentials
-                    fileDownloadLink = s3StorageService.generatePublicUrl(file.getFilePath());
+                    fileDownloadLink = downloadUrls.get(assignment.getSubmittedFile().getFilePath());
                 }
                 
                 writer.println(String.join(",",
@@ -492,6 +485,17 @@ public class UserAssignmentServiceImpl implements UserAssignmentService {
         return new FileSystemResource(csvFile);
     }
     
+    // Download URLs of all submitted files in one batch, by S3 key
+    private Map<String, String> submittedFileUrls(List<UserAssignment> assignments) {
+        List<String> s3Keys = new ArrayList<>();
+        for (UserAssignment assignment : assignments) {
+            if (assignment.getSubmittedFile() != null) {
+                s3Keys.add(assignment.getSubmittedFile().getFilePath());
+            }
+        }
+        return mediaUrlService.getDownloadUrls(s3Keys);
+    }
+    
     // Helper method to escape commas in CSV fields
     private String safeString(String value) {
         if (value == null) return "";
@@ -660,6 +664,7 @@ public class UserAssignmentServiceImpl implements UserAssignmentService {
                            "MaxScore,Score,Remarks,FileName,FileDownloadLink,CorrectionDate,CorrectedFileAttached");
             
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            Map<String, String> downloadUrls = submittedFileUrls(uncorrectedAssignments);
             
             // Write data rows
             for (UserAssignment assignment : uncorrectedAssignments) {
@@ -670,14 +675,10 @@ public class UserAssignmentServiceImpl implements UserAssignmentService {
                 Integer maxScore = assignment.getSubconcept() != null ? 
                     assignment.getSubconcept().getSubconceptMaxscore() : null;
                 
-                // Generate public URL for the submitted file if it exists
+                // Download URL of the submitted file if it exists
                 String fileDownloadLink = "";
                 if (assignment.getSubmittedFile() != null) {
-                    MediaFile file = assignment.getSubmittedFile();
-                    // Ensure the file is publicly accessible
-                    s3StorageService.makeFilePublic(file.getFilePath());
-                    // Get public URL without credentials
-                    fileDownloadLink = s3StorageService.generatePublicUrl(file.getFilePath());
+                    fileDownloadLink = downloadUrls.get(assignment.getSubmittedFile().getFilePath());
                 }
                 
                 writer.println(String.join(",",
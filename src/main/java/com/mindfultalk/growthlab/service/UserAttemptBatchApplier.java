@@ -0,0 +1,308 @@
+package com.mindfultalk.growthlab.service;
+
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.*;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.*;
+
+/**
+ * Applies accepted attempts from the user_attempt_outbox table in bulk.
+ *
+ * One batch is one transaction: the attempts are inserted with saveAll, missing UserSubConcept
+ * completions are inserted once per (user, program, stage, unit, subconcept), and the leaderboard
+ * gets one increment per (user, cohort) with the summed score. Cache generations are bumped once
+ * per (user, program) of the batch instead of once per attempt.
+ *
+ * An entry whose uuid is already in user_attempts was applied before and is only marked applied,
+ * so a batch that is retried after a crash does not count scores twice.
+ */
+@Service
+public class UserAttemptBatchApplier {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserAttemptBatchApplier.class);
+
+    @Autowired
+    private UserAttemptOutboxRepository userAttemptOutboxRepository;
+
+    @Autowired
+    private UserAttemptsRepository userAttemptsRepository;
+
+    @Autowired
+    private UserSubConceptRepository userSubConceptRepository;
+
+    @Autowired
+    private UserCohortMappingRepository userCohortMappingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProgramRepository programRepository;
+
+    @Autowired
+    private StageRepository stageRepository;
+
+    @Autowired
+    private UnitRepository unitRepository;
+
+    @Autowired
+    private SubconceptRepository subconceptRepository;
+
+    @Autowired
+    private UserSessionMappingRepository userSessionMappingRepository;
+
+    @Autowired
+    private CohortRepository cohortRepository;
+
+    @Autowired
+    private CacheManagementService cacheManagementService;
+
+    @Autowired
+    private SessionActivityService sessionActivityService;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    /**
+     * Claims up to {@code batchSize} of the oldest due pending entries and applies them; entries
+     * locked by another node's batcher are left to that node, and entries waiting out a retry
+     * backoff are left until it has passed. The ids of the claimed entries are
+     * added to {@code claimedIds} before anything is applied, so a batch that fails can be retried
+     * entry by entry. Returns the number of entries claimed.
+     */
+    @Transactional(timeout = 60)
+    public int applyPending(int batchSize, List<Long> claimedIds) {
+        List<UserAttemptOutbox> entries = userAttemptOutboxRepository
+            .lockDueByStatus(UserAttemptOutbox.STATUS_PENDING, OffsetDateTime.now(), PageRequest.of(0, batchSize));
+        entries.forEach(entry -> claimedIds.add(entry.getId()));
+        apply(entries);
+        return entries.size();
+    }
+
+    /**
+     * Applies the given outbox entries that are still pending; entries locked by another node's
+     * batcher are skipped. Returns the number of entries marked applied.
+     */
+    @Transactional(timeout = 60)
+    public int applyBatch(Collection<Long> outboxIds) {
+        List<UserAttemptOutbox> entries = userAttemptOutboxRepository
+            .lockByIdsAndStatus(outboxIds, UserAttemptOutbox.STATUS_PENDING);
+        apply(entries);
+        return entries.size();
+    }
+
+    private void apply(List<UserAttemptOutbox> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Set<UUID> alreadyApplied = userAttemptsRepository.findExistingUuids(
+            entries.stream().map(UserAttemptOutbox::getUuid).collect(Collectors.toList()));
+        List<UserAttemptOutbox> toApply = entries.stream()
+            .filter(entry -> !alreadyApplied.contains(entry.getUuid()))
+            .collect(Collectors.toList());
+
+        if (!toApply.isEmpty()) {
+            List<UserAttempts> attempts = buildAttempts(toApply);
+            userAttemptsRepository.saveAll(attempts);
+            int completions = upsertCompletions(attempts);
+            incrementLeaderboards(toApply);
+            evictAfterCommit(toApply);
+            logger.info("Applied {} user attempts from the outbox with {} new completions",
+                       attempts.size(), completions);
+        }
+        if (!alreadyApplied.isEmpty()) {
+            logger.info("Skipped {} outbox entries whose attempts were already stored", alreadyApplied.size());
+        }
+
+        OffsetDateTime now = OffsetDateTime.now();
+        for (UserAttemptOutbox entry : entries) {
+            entry.setStatus(UserAttemptOutbox.STATUS_APPLIED);
+            entry.setProcessedAt(now);
+            entry.setLastError(null);
+        }
+        userAttemptOutboxRepository.saveAll(entries);
+    }
+
+    /**
+     * Records a failed attempt to apply one entry. The entry is retried with exponential backoff,
+     * or given up on once it has failed maxRetries times.
+     */
+    @Transactional
+    public void markFailed(Long outboxId, String error, int maxRetries, long baseBackoffMs, long maxBackoffMs) {
+        userAttemptOutboxRepository.findById(outboxId).ifPresent(entry -> {
+            if (!UserAttemptOutbox.STATUS_PENDING.equals(entry.getStatus())) {
+                return;
+            }
+            entry.setRetryCount(entry.getRetryCount() + 1);
+            entry.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (entry.getRetryCount() >= maxRetries) {
+                entry.setStatus(UserAttemptOutbox.STATUS_FAILED);
+                entry.setProcessedAt(OffsetDateTime.now());
+                logger.error("Giving up on outbox entry {} for userId: {} after {} retries: {}",
+                            outboxId, entry.getUserId(), entry.getRetryCount(), error);
+            } else {
+                long backoffMs = EmailOutboxStore.backoffMs(entry.getRetryCount(), baseBackoffMs, maxBackoffMs);
+                entry.setNextAttemptAt(OffsetDateTime.now().plusNanos(backoffMs * 1_000_000L));
+                logger.warn("Outbox entry {} for userId: {} failed (retry {} of {}), next attempt in {}ms: {}",
+                           outboxId, entry.getUserId(), entry.getRetryCount(), maxRetries, backoffMs, error);
+            }
+            userAttemptOutboxRepository.save(entry);
+        });
+    }
+
+    private List<UserAttempts> buildAttempts(List<UserAttemptOutbox> entries) {
+        // One IN query per entity type for the whole batch
+        Map<String, User> users = loadAll(userRepository, entries, UserAttemptOutbox::getUserId, User::getUserId);
+        Map<String, Program> programs = loadAll(programRepository, entries, UserAttemptOutbox::getProgramId, Program::getProgramId);
+        Map<String, Stage> stages = loadAll(stageRepository, entries, UserAttemptOutbox::getStageId, Stage::getStageId);
+        Map<String, Unit> units = loadAll(unitRepository, entries, UserAttemptOutbox::getUnitId, Unit::getUnitId);
+        Map<String, Subconcept> subconcepts = loadAll(subconceptRepository, entries,
+            UserAttemptOutbox::getSubconceptId, Subconcept::getSubconceptId);
+        Map<String, UserSessionMapping> sessions = loadAll(userSessionMappingRepository, entries,
+            UserAttemptOutbox::getSessionId, UserSessionMapping::getSessionId);
+
+        List<UserAttempts> attempts = new ArrayList<>(entries.size());
+        for (UserAttemptOutbox entry : entries) {
+            UserAttempts attempt = new UserAttempts();
+            attempt.setUuid(entry.getUuid());
+            attempt.setUserAttemptStartTimestamp(entry.getUserAttemptStartTimestamp());
+            attempt.setUserAttemptEndTimestamp(entry.getUserAttemptEndTimestamp());
+            attempt.setUserAttemptFlag(entry.isUserAttemptFlag());
+            attempt.setUserAttemptScore(entry.getUserAttemptScore());
+            attempt.setUser(require(users, entry.getUserId(), "User"));
+            attempt.setProgram(require(programs, entry.getProgramId(), "Program"));
+            attempt.setStage(require(stages, entry.getStageId(), "Stage"));
+            attempt.setUnit(require(units, entry.getUnitId(), "Unit"));
+            attempt.setSubconcept(require(subconcepts, entry.getSubconceptId(), "Subconcept"));
+            attempt.setSession(require(sessions, entry.getSessionId(), "Session"));
+            attempts.add(attempt);
+        }
+        return attempts;
+    }
+
+    private int upsertCompletions(List<UserAttempts> attempts) {
+        Set<String> userIds = new HashSet<>();
+        Set<String> subconceptIds = new HashSet<>();
+        for (UserAttempts attempt : attempts) {
+            userIds.add(attempt.getUser().getUserId());
+            subconceptIds.add(attempt.getSubconcept().getSubconceptId());
+        }
+
+        // Missing rows are inserted; existing ones are marked completed like the synchronous path does
+        Map<String, UserSubConcept> existingByKey = new HashMap<>();
+        for (UserSubConcept existing : userSubConceptRepository
+                .findByUser_UserIdInAndSubconcept_SubconceptIdIn(userIds, subconceptIds)) {
+            existingByKey.put(completionKey(existing.getUser(), existing.getProgram(), existing.getStage(),
+                existing.getUnit(), existing.getSubconcept()), existing);
+        }
+        Set<String> completed = new HashSet<>(existingByKey.keySet());
+        List<UserSubConcept> updatedCompletions = new ArrayList<>();
+
+        List<UserSubConcept> newCompletions = new ArrayList<>();
+        for (UserAttempts attempt : attempts) {
+            String key = completionKey(attempt.getUser(), attempt.getProgram(), attempt.getStage(),
+                attempt.getUnit(), attempt.getSubconcept());
+            UserSubConcept existing = existingByKey.get(key);
+            if (existing != null) {
+                if (!existing.isCompletionStatus()) {
+                    existing.setCompletionStatus(true);
+                    updatedCompletions.add(existing);
+                }
+            } else if (completed.add(key)) {
+                UserSubConcept userSubConcept = new UserSubConcept();
+                userSubConcept.setUser(attempt.getUser());
+                userSubConcept.setProgram(attempt.getProgram());
+                userSubConcept.setStage(attempt.getStage());
+                userSubConcept.setUnit(attempt.getUnit());
+                userSubConcept.setSubconcept(attempt.getSubconcept());
+                userSubConcept.setCompletionStatus(true);
+                userSubConcept.setUuid(UUID.randomUUID());
+                newCompletions.add(userSubConcept);
+            }
+        }
+        userSubConceptRepository.saveAll(updatedCompletions);
+        userSubConceptRepository.saveAll(newCompletions);
+        return newCompletions.size();
+    }
+
+    private void incrementLeaderboards(List<UserAttemptOutbox> entries) {
+        // Summed per (user, cohort) so each member gets one increment per batch
+        Map<List<String>, Integer> scores = new LinkedHashMap<>();
+        for (UserAttemptOutbox entry : entries) {
+            scores.merge(Arrays.asList(entry.getUserId(), entry.getCohortId()), entry.getUserAttemptScore(), Integer::sum);
+        }
+
+        for (Map.Entry<List<String>, Integer> score : scores.entrySet()) {
+            String userId = score.getKey().get(0);
+            String cohortId = score.getKey().get(1);
+            if (!userCohortMappingRepository.existsByUser_UserIdAndCohort_CohortId(userId, cohortId)) {
+                // Same fallback as the synchronous path: start a leaderboard entry for the cohort
+                UserCohortMapping newEntry = new UserCohortMapping();
+                newEntry.setUser(userRepository.getReferenceById(userId));
+                newEntry.setCohort(cohortRepository.getReferenceById(cohortId));
+                newEntry.setLeaderboardScore(0);
+                newEntry.setUuid(UUID.randomUUID());
+                userCohortMappingRepository.save(newEntry);
+                logger.info("New leaderboard entry created for userId: {}, cohortId: {}", userId, cohortId);
+            }
+            // Applied to the Redis leaderboard after commit
+            leaderboardService.increment(userId, cohortId, score.getValue());
+        }
+    }
+
+    private void evictAfterCommit(List<UserAttemptOutbox> entries) {
+        Set<List<String>> userPrograms = new LinkedHashSet<>();
+        Set<List<String>> userSubconcepts = new LinkedHashSet<>();
+        Map<String, OffsetDateTime> sessionActivity = new HashMap<>();
+        for (UserAttemptOutbox entry : entries) {
+            userPrograms.add(Arrays.asList(entry.getUserId(), entry.getProgramId()));
+            userSubconcepts.add(Arrays.asList(entry.getUserId(), entry.getSubconceptId()));
+            if (entry.getUserAttemptEndTimestamp() != null) {
+                sessionActivity.merge(entry.getSessionId(), entry.getUserAttemptEndTimestamp(),
+                    (a, b) -> a.isAfter(b) ? a : b);
+            }
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                userPrograms.forEach(key -> cacheManagementService.evictUserCompletionCaches(key.get(0), key.get(1)));
+                userSubconcepts.forEach(key -> cacheManagementService.evictUserAttemptsCache(key.get(0), key.get(1)));
+                sessionActivity.forEach(sessionActivityService::recordActivity);
+            }
+        });
+    }
+
+    private static <T> Map<String, T> loadAll(JpaRepository<T, String> repository, List<UserAttemptOutbox> entries,
+                                              Function<UserAttemptOutbox, String> idOf,
+                                              Function<T, String> idOfEntity) {
+        Set<String> ids = entries.stream().map(idOf).collect(Collectors.toSet());
+        return repository.findAllById(ids).stream()
+            .collect(Collectors.toMap(idOfEntity, Function.identity()));
+    }
+
+    private static <T> T require(Map<String, T> entities, String id, String type) {
+        T entity = entities.get(id);
+        if (entity == null) {
+            throw new IllegalStateException(type + " not found: " + id);
+        }
+        return entity;
+    }
+
+    private static String completionKey(User user, Program program, Stage stage, Unit unit, Subconcept subconcept) {
+        return user.getUserId() + "|" + program.getProgramId() + "|" + stage.getStageId() + "|"
+            + unit.getUnitId() + "|" + subconcept.getSubconceptId();
+    }
+}
@@ -0,0 +1,231 @@
+package com.mindfultalk.growthlab.service;
+
+import com.mindfultalk.growthlab.dto.*;
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.*;
+
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind ingestion of user attempts.
+ *
+ * With {@code attempts.ingestion.mode=outbox} the attempt endpoint only validates the request
+ * and appends it to the user_attempt_outbox table, which survives restarts. A single background
+ * thread per node then drains the outbox through {@link UserAttemptBatchApplier}. Nodes share
+ * the work because the applier claims each batch with SKIP LOCKED, so every node gets different
+ * entries. An entry that fails to apply is retried with exponential backoff, starting at
+ * {@code attempts.ingestion.backoff-ms}, and given up on after
+ * {@code attempts.ingestion.max-retries} failures.
+ *
+ * The default mode, {@code sync}, keeps the original request-thread path and never starts the
+ * batcher.
+ */
+@Service
+public class UserAttemptIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserAttemptIngestionService.class);
+
+    public static final String MODE_OUTBOX = "outbox";
+
+    @Autowired
+    private UserAttemptOutboxRepository userAttemptOutboxRepository;
+
+    @Autowired
+    private UserAttemptBatchApplier userAttemptBatchApplier;
+
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionMappingRepository userSessionMappingRepository;
+
+    @Autowired
+    private SubconceptRepository subconceptRepository;
+
+    @Value("${attempts.ingestion.mode:sync}")
+    private String mode;
+
+    @Value("${attempts.ingestion.batch-size:200}")
+    private int batchSize;
+
+    @Value("${attempts.ingestion.poll-interval-ms:500}")
+    private long pollIntervalMs;
+
+    @Value("${attempts.ingestion.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${attempts.ingestion.backoff-ms:5000}")
+    private long baseBackoffMs;
+
+    @Value("${attempts.ingestion.max-backoff-ms:600000}")
+    private long maxBackoffMs;
+
+    private ScheduledExecutorService batcher;
+
+    public boolean isOutboxMode() {
+        return MODE_OUTBOX.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Validates an attempt and stores it in the outbox. Resending an attempt with the uuid of an
+     * accepted one returns the accepted entry instead of queueing it again.
+     */
+    public UserAttemptOutbox enqueue(UserAttemptRequestDTO requestDTO) {
+        if (requestDTO.getUuid() != null) {
+            Optional<UserAttemptOutbox> existing = userAttemptOutboxRepository.findByUuid(requestDTO.getUuid());
+            if (existing.isPresent()) {
+                logger.info("Attempt {} was already accepted, not queueing it again", requestDTO.getUuid());
+                return existing.get();
+            }
+        }
+
+        validate(requestDTO);
+
+        UserAttemptOutbox entry = new UserAttemptOutbox();
+        entry.setUuid(requestDTO.getUuid());
+        entry.setUserId(requestDTO.getUserId());
+        entry.setProgramId(requestDTO.getProgramId());
+        entry.setStageId(requestDTO.getStageId());
+        entry.setUnitId(requestDTO.getUnitId());
+        entry.setSubconceptId(requestDTO.getSubconceptId());
+        entry.setSessionId(requestDTO.getSessionId());
+        entry.setCohortId(requestDTO.getCohortId());
+        entry.setUserAttemptScore(requestDTO.getUserAttemptScore());
+        entry.setUserAttemptFlag(requestDTO.isUserAttemptFlag());
+        entry.setUserAttemptStartTimestamp(requestDTO.getUserAttemptStartTimestamp().atOffset(ZoneOffset.UTC));
+        entry.setUserAttemptEndTimestamp(requestDTO.getUserAttemptEndTimestamp().atOffset(ZoneOffset.UTC));
+
+        try {
+            UserAttemptOutbox saved = userAttemptOutboxRepository.saveAndFlush(entry);
+            logger.info("Queued attempt {} for userId: {}, subconceptId: {}",
+                       saved.getUuid(), saved.getUserId(), saved.getSubconceptId());
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent resend of the same attempt got in first; the unique uuid index caught it
+            if (requestDTO.getUuid() != null) {
+                Optional<UserAttemptOutbox> existing = userAttemptOutboxRepository.findByUuid(requestDTO.getUuid());
+                if (existing.isPresent()) {
+                    logger.info("Concurrent resend of attempt {} ignored", requestDTO.getUuid());
+                    return existing.get();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void validate(UserAttemptRequestDTO requestDTO) {
+        if (isBlank(requestDTO.getUserId()) || isBlank(requestDTO.getProgramId()) || isBlank(requestDTO.getStageId())
+                || isBlank(requestDTO.getUnitId()) || isBlank(requestDTO.getSubconceptId())
+                || isBlank(requestDTO.getSessionId()) || isBlank(requestDTO.getCohortId())
+                || requestDTO.getUserAttemptStartTimestamp() == null || requestDTO.getUserAttemptEndTimestamp() == null) {
+            throw new IllegalArgumentException("Invalid data provided. Please check all IDs.");
+        }
+
+        // Program, stage and unit are checked against the in-memory curriculum instead of the database
+        CurriculumGraph graph = curriculumGraphService.findGraph(requestDTO.getProgramId())
+            .orElseThrow(() -> new IllegalArgumentException("Invalid data provided. Please check all IDs."));
+        boolean unitInStage = graph.findUnit(requestDTO.getUnitId())
+            .map(unit -> graph.getStage(unit).getStageId().equals(requestDTO.getStageId()))
+            .orElse(false);
+        if (!unitInStage) {
+            throw new IllegalArgumentException("Invalid data provided. Please check all IDs.");
+        }
+
+        if (!userRepository.existsById(requestDTO.getUserId())
+                || !userSessionMappingRepository.existsById(requestDTO.getSessionId())
+                || !subconceptRepository.existsById(requestDTO.getSubconceptId())) {
+            throw new IllegalArgumentException("Invalid data provided. Please check all IDs.");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBatcher() {
+        if (!isOutboxMode()) {
+            return;
+        }
+        batcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-attempt-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        batcher.scheduleWithFixedDelay(this::drain, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("User attempt batcher started with batch size {} and poll interval {}ms", batchSize, pollIntervalMs);
+    }
+
+    @PreDestroy
+    public void stopBatcher() {
+        if (batcher == null) {
+            return;
+        }
+        batcher.shutdown();
+        try {
+            // Let the running batch commit; pending entries are picked up after the restart
+            if (!batcher.awaitTermination(30, TimeUnit.SECONDS)) {
+                batcher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            batcher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("User attempt batcher stopped");
+    }
+
+    /**
+     * Applies pending entries batch by batch until this node finds less than a full batch to
+     * claim, either because the outbox is drained or because other nodes hold the rest. A batch
+     * that had to be applied entry by entry ends the run, so a failing database is not hammered
+     * until the next poll.
+     */
+    void drain() {
+        try {
+            int claimed;
+            do {
+                List<Long> claimedIds = new ArrayList<>();
+                try {
+                    claimed = userAttemptBatchApplier.applyPending(batchSize, claimedIds);
+                } catch (Exception batchError) {
+                    isolate(claimedIds, batchError);
+                    break;
+                }
+            } while (claimed == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (Exception e) {
+            // Never let an exception cancel the scheduled task
+            logger.error("Error draining the user attempt outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    private void isolate(List<Long> ids, Exception batchError) {
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("Claiming outbox entries failed", batchError);
+        }
+        // One bad entry rolls back the whole batch; retry one by one to find it
+        logger.warn("Batch of {} outbox entries failed, applying them one by one: {}",
+                   ids.size(), batchError.getMessage());
+        for (Long id : ids) {
+            try {
+                userAttemptBatchApplier.applyBatch(Collections.singletonList(id));
+            } catch (Exception e) {
+                userAttemptBatchApplier.markFailed(id, e.getMessage(), maxRetries, baseBackoffMs, maxBackoffMs);
+            }
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -1,10 +1,13 @@
 package com.mindfultalk.growthlab.service;
 
+import com.mindfultalk.growthlab.dto.CursorPageDTO;
 import com.mindfultalk.growthlab.model.UserAttempts;
+import com.mindfultalk.growthlab.repository.UserAttemptListingProjection;
 import java.util.*;
 
 public interface UserAttemptsService {
     List<UserAttempts> getAllUserAttempts();
+    CursorPageDTO<UserAttemptListingProjection> getUserAttemptsPage(Long after, Integer limit, String userId, String programId);
     Optional<UserAttempts> getUserAttemptById(Long userAttemptId);
     UserAttempts saveUserAttempt(UserAttempts userAttempt); 
     UserAttempts createUserAttempt(UserAttempts userAttempt, String cohortId);
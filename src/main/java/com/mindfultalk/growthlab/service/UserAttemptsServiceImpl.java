@@ -1,5 +1,6 @@
 package com.mindfultalk.growthlab.service;
 
+import com.mindfultalk.growthlab.dto.CursorPageDTO;
 import com.mindfultalk.growthlab.model.*;
 import com.mindfultalk.growthlab.repository.*;
 
@@ -7,6 +8,8 @@ import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.*;
 import org.springframework.cache.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -25,12 +28,24 @@ public class UserAttemptsServiceImpl implements UserAttemptsService {
     
     @Autowired
     private CacheManagementService cacheManagementService;
+    
+    @Autowired
+    private SessionActivityService sessionActivityService;
+    
+    @Autowired
+    private LeaderboardService leaderboardService;
  
     private static final Logger logger = LoggerFactory.getLogger(UserAttemptsServiceImpl.class);
 
+    @Value("${listing.page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${listing.max-page-size:500}")
+    private int maxPageSize;
+
 
+    // Not cached: the whole table as one cache value grows without bound, use getUserAttemptsPage instead
     @Override
-    @Cacheable(value = "userAttempts", key = "'all'")
     public List<UserAttempts> getAllUserAttempts() {
         try {
             logger.info("Retrieving all user attempts from database");
@@ -43,6 +58,30 @@ public class UserAttemptsServiceImpl implements UserAttemptsService {
         }
     }
 
+    @Override
+    public CursorPageDTO<UserAttemptListingProjection> getUserAttemptsPage(Long after, Integer limit, String userId,
+                                                                      String programId) {
+        int pageSize = CursorPageDTO.boundedLimit(limit, defaultPageSize, maxPageSize);
+        try {
+            long afterId = after != null ? after : 0L;
+            PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+            List<UserAttemptListingProjection> userAttempts;
+            if (userId != null && programId != null) {
+                userAttempts = userAttemptsRepository.findPageByUserIdAndProgramId(afterId, userId, programId, pageRequest);
+            } else if (userId != null) {
+                userAttempts = userAttemptsRepository.findPageByUserId(afterId, userId, pageRequest);
+            } else if (programId != null) {
+                userAttempts = userAttemptsRepository.findPageByProgramId(afterId, programId, pageRequest);
+            } else {
+                userAttempts = userAttemptsRepository.findPage(afterId, pageRequest);
+            }
+            return CursorPageDTO.of(userAttempts, pageSize, UserAttemptListingProjection::getUserAttemptId);
+        } catch (Exception e) {
+            logger.error("Error occurred while retrieving a page of user attempts after {}: {}", after, e.getMessage(), e);
+            throw new RuntimeException("Failed to retrieve user attempts", e);
+        }
+    }
+
     @Override
     @Cacheable(value = "userAttempts", key = "#userAttemptId")
     public Optional<UserAttempts> getUserAttemptById(Long userAttemptId) {
@@ -134,6 +173,12 @@ public class UserAttemptsServiceImpl implements UserAttemptsService {
         logger.info("User attempt saved successfully for userId: {}, attemptId: {}",
                 userAttempt.getUser().getUserId(), savedAttempt.getUserAttemptId());
         
+        // Keep the session's last activity current for the inactivity timeout
+        if (savedAttempt.getSession() != null) {
+            sessionActivityService.recordActivity(savedAttempt.getSession().getSessionId(),
+                    savedAttempt.getUserAttemptEndTimestamp());
+        }
+        
         // Update leaderboard after saving attempt
         updateLeaderboard(savedAttempt, cohortId);
         
@@ -143,15 +188,13 @@ public class UserAttemptsServiceImpl implements UserAttemptsService {
      // IMPORTANT: Enhanced cache eviction after completion status changes
         String userId = savedAttempt.getUser().getUserId();
         String programId = savedAttempt.getProgram().getProgramId();
-        String stageId = savedAttempt.getStage().getStageId();
-        String unitId = savedAttempt.getUnit().getUnitId();
         String subconceptId = savedAttempt.getSubconcept().getSubconceptId();
         
         // Evict all user completion caches (existing functionality)
         cacheManagementService.evictUserCompletionCaches(userId, programId);
         
-        // ADDITIONAL: Evict specific unit-level report caches for more targeted cache management
-        cacheManagementService.evictUnitReportCaches(userId, unitId, stageId, programId);
+        // Reports and progress are covered above; only this subconcept's attempt list is left
+        cacheManagementService.evictUserAttemptsCache(userId, subconceptId);
         
        // OPTIONAL: If you have the ProgramReportService available here, you can also call:
         // programReportService.evictUserReportCaches(userId, programId, stageId, unitId, subconceptId);
@@ -237,33 +280,25 @@ public class UserAttemptsServiceImpl implements UserAttemptsService {
         Optional<UserCohortMapping> userCohortMappingOpt = 
             userCohortMappingService.findByUser_UserIdAndCohort_CohortId(user.getUserId(), cohortId);
 
-        if (userCohortMappingOpt.isPresent()) {
-            // Update existing leaderboard score for the specified cohort
-            UserCohortMapping userCohortMapping = userCohortMappingOpt.get();
-            int previousScore = userCohortMapping.getLeaderboardScore();
-            int updatedScore = previousScore + score;
-            userCohortMapping.setLeaderboardScore(updatedScore);
-            
-            
-         // Save the updated UserCohortMapping
-            userCohortMappingService.updateUserCohortMapping(userCohortMapping.getUserCohortId(), userCohortMapping);
-            logger.info("Updated leaderboard for userId: {}, cohortId: {}, previousScore: {}, newScore: {}", 
-            		user.getUserId(), cohortId, previousScore, updatedScore);
-        } else {
+        if (userCohortMappingOpt.isEmpty()) {
             // If no mapping found, create a new leaderboard entry
             UserCohortMapping newEntry = new UserCohortMapping();
             Cohort cohort = new Cohort();
             cohort.setCohortId(cohortId); 
             newEntry.setCohort(cohort); 
             newEntry.setUser(user);
-            newEntry.setLeaderboardScore(score);
+            newEntry.setLeaderboardScore(0);
             newEntry.setUuid(UUID.randomUUID());
             
             
             // Save the new UserCohortMapping entry
             userCohortMappingService.createUserCohortMapping(newEntry);
-            logger.info("New leaderboard entry created for userId: {}, cohortId: {}, score: {}", user.getUserId(), cohortId, score);
+            logger.info("New leaderboard entry created for userId: {}, cohortId: {}", user.getUserId(), cohortId);
         }
+        
+        // Atomic increment in the Redis leaderboard, written back to the mapping in the background
+        leaderboardService.increment(user.getUserId(), cohortId, score);
+        logger.info("Updated leaderboard for userId: {}, cohortId: {}, scoreAdded: {}", user.getUserId(), cohortId, score);
     } catch (Exception e) {
         logger.error("Error updating leaderboard for userId: {}, cohortId: {}, Error: {}", userAttempt.getUser().getUserId(), cohortId, e.getMessage(), e);
         throw new RuntimeException("Failed to update leaderboard. Please try again later.");
@@ -272,7 +307,6 @@ public class UserAttemptsServiceImpl implements UserAttemptsService {
 
     @Override
     @CachePut(value = "userAttempts", key = "#userAttemptId")
-    @CacheEvict(value = "userAttempts", key = "'all'")
     public UserAttempts updateUserAttempt(Long userAttemptId, UserAttempts userAttempt) {
         try {
             logger.info("Updating user attempt with ID: {}", userAttemptId);
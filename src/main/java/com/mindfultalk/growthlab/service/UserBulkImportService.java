@@ -0,0 +1,79 @@
+package com.mindfultalk.growthlab.service;
+
+import com.mindfultalk.growthlab.model.*;
+
+import java.util.*;
+
+import org.hibernate.Session;
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.*;
+
+/**
+ * Write side of the CSV user upload.
+ *
+ * New users and their cohort mappings are inserted in one transaction with plain persist calls
+ * and JDBC batching, flushing and clearing the persistence context every
+ * {@code users.bulk-import.batch-size} entities. Repository saveAll would merge every user, and
+ * merging an entity with an assigned ID costs a SELECT per row.
+ *
+ * Welcome emails are written to the email outbox in one transaction once the users are
+ * committed, so queued emails survive a restart and the upload does not wait for SMTP.
+ */
+@Service
+public class UserBulkImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserBulkImportService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${users.bulk-import.batch-size:500}")
+    private int batchSize;
+
+    @Transactional
+    public void insertAll(List<User> users, List<UserCohortMapping> mappings) {
+        long startTime = System.currentTimeMillis();
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+
+        int pending = 0;
+        for (User user : users) {
+            entityManager.persist(user);
+            if (++pending % batchSize == 0) {
+                flushAndClear();
+            }
+        }
+        for (UserCohortMapping mapping : mappings) {
+            entityManager.persist(mapping);
+            if (++pending % batchSize == 0) {
+                flushAndClear();
+            }
+        }
+        flushAndClear();
+        logger.info("Inserted {} users and {} cohort mappings in {}ms",
+                   users.size(), mappings.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Runs the given email tasks in one transaction, so every email they queue through
+     * {@link EmailDispatcher} is stored in the outbox with a single commit; call it after
+     * {@link #insertAll} has committed. Failures are logged by the tasks.
+     */
+    @Transactional
+    public void queueEmails(List<Runnable> emails) {
+        if (emails.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        emails.forEach(Runnable::run);
+        logger.info("Queued {} welcome emails in {}ms", emails.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -4,6 +4,7 @@ import java.util.*;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import com.mindfultalk.growthlab.dto.CursorPageDTO;
 import com.mindfultalk.growthlab.dto.UserCohortMappingDTO;
 import com.mindfultalk.growthlab.model.UserCohortMapping;
 
@@ -24,6 +25,8 @@ public interface UserCohortMappingService {
 
     List<UserCohortMappingDTO> getAllUserCohortMappings();
 
+    CursorPageDTO<UserCohortMappingDTO> getUserCohortMappingsPage(Integer after, Integer limit, String cohortId, String status);
+
     List<UserCohortMappingDTO> getUserCohortMappingsCohortId(String cohortId);
 
     UserCohortMapping findByUserUserId(String userId);
@@ -5,10 +5,12 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -32,14 +34,21 @@ public class UserCohortMappingServiceImpl implements UserCohortMappingService {
     @Autowired
     private CohortProgramRepository cohortProgramRepository;
 
+    @Value("${listing.page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${listing.max-page-size:500}")
+    private int maxPageSize;
+
     @Autowired
     private EmailService emailService;
     
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(UserCohortMappingServiceImpl.class);
 
     @Override
-    @CachePut(value = "userCohortMappings", key = "#userId + ':' + #cohortId")
-    @CacheEvict(value = {"cohortLeaderboards", "userMappings"}, key = "#cohortId")
     public UserCohortMappingDTO updateLeaderboardScore(String userId, String cohortId, Integer scoreToAdd) {
         logger.info("Updating leaderboard score for userId: {}, cohortId: {}, scoreToAdd: {}", userId, cohortId,
                 scoreToAdd);
@@ -76,20 +85,16 @@ public class UserCohortMappingServiceImpl implements UserCohortMappingService {
             throw new IllegalArgumentException("Leaderboard is disabled for this cohort");
         }
 
-        // Get current score and add the new score
-        int currentScore = mapping.getLeaderboardScore();
-        int newScore = currentScore + scoreToAdd;
-
-        logger.info("Updating score from {} to {} for user: {}", currentScore, newScore, userId);
+        // Atomic increment in the Redis leaderboard, written back to the mapping in the background
+        leaderboardService.increment(userId, cohortId, scoreToAdd);
+        int newScore = leaderboardService.getScore(cohortId, userId);
 
-        // Update the score
-        mapping.setLeaderboardScore(newScore);
-        UserCohortMapping updatedMapping = userCohortMappingRepository.save(mapping);
-
-        logger.info("Successfully updated leaderboard score for userId: {}", userId);
+        logger.info("Successfully updated leaderboard score for userId: {} to {}", userId, newScore);
 
         // Convert to DTO and return
-        return convertToDTO(updatedMapping);
+        UserCohortMappingDTO dto = convertToDTO(mapping);
+        dto.setLeaderboardScore(newScore);
+        return dto;
     }
 
     @Override
@@ -358,6 +363,8 @@ public class UserCohortMappingServiceImpl implements UserCohortMappingService {
         }
         
         if (userCohortMapping.getLeaderboardScore() > 0) {
+            // Deltas not yet written would otherwise be added on top of the score set here
+            leaderboardService.discardPendingDeltas(existingMapping.getCohort().getCohortId(), userId);
             existingMapping.setLeaderboardScore(userCohortMapping.getLeaderboardScore());
         }
         
@@ -366,6 +373,11 @@ public class UserCohortMappingServiceImpl implements UserCohortMappingService {
         logger.info("Successfully updated user-cohort mapping for userId: {}, status: {}", 
                 userId, updatedMapping.getStatus());
         
+        // A score set directly in the database replaces the one in the Redis leaderboard
+        if (userCohortMapping.getLeaderboardScore() > 0) {
+            leaderboardService.rebuild(updatedMapping.getCohort().getCohortId());
+        }
+        
         return updatedMapping;
     }
 
@@ -375,18 +387,39 @@ public class UserCohortMappingServiceImpl implements UserCohortMappingService {
         return userCohortMappingRepository.findByUser_UserIdAndCohort_CohortId(userId, cohortId);
     }
 
+    // Not cached: the whole table as one cache value grows without bound, use getUserCohortMappingsPage instead
     @Override
-    @Cacheable(value = "allUserCohortMappings", key = "'all'")
     public List<UserCohortMappingDTO> getAllUserCohortMappings() {
         List<UserCohortMapping> mappings = userCohortMappingRepository.findAll();
         return mappings.stream().map(this::convertToDTO).collect(Collectors.toList());
     }
 
+    @Override
+    public CursorPageDTO<UserCohortMappingDTO> getUserCohortMappingsPage(Integer after, Integer limit, String cohortId, String status) {
+        int pageSize = CursorPageDTO.boundedLimit(limit, defaultPageSize, maxPageSize);
+        int afterId = after != null ? after : 0;
+        PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+        List<CohortMappingProjection> mappings;
+        if (cohortId != null && status != null) {
+            mappings = userCohortMappingRepository.findCohortMappingPageByCohortIdAndStatus(afterId, cohortId, status, pageRequest);
+        } else if (cohortId != null) {
+            mappings = userCohortMappingRepository.findCohortMappingPageByCohortId(afterId, cohortId, pageRequest);
+        } else if (status != null) {
+            mappings = userCohortMappingRepository.findCohortMappingPageByStatus(afterId, status, pageRequest);
+        } else {
+            mappings = userCohortMappingRepository.findCohortMappingPage(afterId, pageRequest);
+        }
+        CursorPageDTO<CohortMappingProjection> page = CursorPageDTO.of(mappings, pageSize, CohortMappingProjection::getUserCohortId);
+        return new CursorPageDTO<>(page.getItems().stream().map(this::convertToDTO).collect(Collectors.toList()),
+                page.getNextCursor(), pageSize);
+    }
+
     @Override
     @Cacheable(value = "cohortMappings", key = "#cohortId")
     public List<UserCohortMappingDTO> getUserCohortMappingsCohortId(String cohortId) {
-        List<UserCohortMapping> mappings = userCohortMappingRepository.findAllByCohortCohortId(cohortId);
-        return mappings.stream().map(this::convertToDTO).collect(Collectors.toList());
+        return userCohortMappingRepository.findCohortMappings(cohortId).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
     }
 
     @Override
@@ -485,6 +518,19 @@ public class UserCohortMappingServiceImpl implements UserCohortMappingService {
         return cohortProgramRepository.findByCohortCohortId(cohortId);
     }
 
+    private UserCohortMappingDTO convertToDTO(CohortMappingProjection mapping) {
+        UserCohortMappingDTO dto = new UserCohortMappingDTO();
+        dto.setCohortId(mapping.getCohortId());
+        dto.setUserId(mapping.getUserId());
+        dto.setUserName(mapping.getUserName());
+        dto.setUserType(mapping.getUserType());
+        dto.setUserEmail(mapping.getUserEmail());
+        dto.setCohortName(mapping.getCohortName());
+        dto.setLeaderboardScore(mapping.getLeaderboardScore() != null ? mapping.getLeaderboardScore() : 0);
+        dto.setStatus(mapping.getStatus());
+        return dto;
+    }
+
     private UserCohortMappingDTO convertToDTO(UserCohortMapping userCohortMapping) {
         UserCohortMappingDTO dto = new UserCohortMappingDTO();
         // dto.setOrganizationName(userCohortMapping.getCohort().getOrganization().getOrganizationName());
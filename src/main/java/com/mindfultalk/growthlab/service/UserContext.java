@@ -0,0 +1,68 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.*;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * The signed-in user of the current request, filled in once by SessionValidationFilter from the
+ * HTTP session and the session ticket, so services and cache keys need no query to know who is
+ * asking.
+ *
+ * User types looked up for other users during the request are remembered here as well, so a
+ * request resolves each user's type at most once. Only usable on request threads; go through
+ * {@link UserTypeResolver} from code that may also run in the background.
+ */
+@Component
+@RequestScope
+public class UserContext {
+
+    private String userId;
+    private String cohortId;
+    private String sessionId;
+    private String userType;
+
+    private final Map<String, String> userTypes = new HashMap<>();
+
+    public void populate(String userId, String cohortId, String sessionId, String userType) {
+        this.userId = userId;
+        this.cohortId = cohortId;
+        this.sessionId = sessionId;
+        this.userType = userType;
+        if (userId != null && userType != null) {
+            userTypes.put(userId, userType);
+        }
+    }
+
+    public boolean isSignedIn() {
+        return userId != null;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getCohortId() {
+        return cohortId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getUserType() {
+        return userType;
+    }
+
+    /**
+     * The type of the given user if this request already knows it, otherwise null
+     */
+    public String getKnownUserType(String userId) {
+        return userTypes.get(userId);
+    }
+
+    public void rememberUserType(String userId, String userType) {
+        userTypes.put(userId, userType);
+    }
+}
@@ -7,6 +7,7 @@ import java.util.*;
 
 public interface UserService {
     List<UserGetDTO> getAllUsers();
+    CursorPageDTO<UserGetDTO> getUsersPage(String after, Integer limit, String organizationId, String userType, String status);
     Optional<User> findByUserId(String userId);
     Optional<UserGetDTO> getUserById(String userId);
     UserDTO getUserDetailsWithProgram(String userId, String programId);
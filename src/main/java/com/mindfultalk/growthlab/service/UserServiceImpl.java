@@ -9,7 +9,9 @@ import jakarta.transaction.Transactional;
 
 import org.slf4j.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.*;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -35,6 +37,9 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private CohortProgramRepository cohortProgramRepository;
     
+    @Autowired
+    private ProgramRepository programRepository;
+    
     @Autowired
     private UserCohortMappingService userCohortMappingService;
     
@@ -46,22 +51,67 @@ public class UserServiceImpl implements UserService {
     
     @Autowired
     private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private EmailService emailService;
+    
+    @Autowired
+    private UserBulkImportService userBulkImportService;
+
+    @Value("${listing.page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${listing.max-page-size:500}")
+    private int maxPageSize;
 
     // The default password that every new user is assigned
     private final String DEFAULT_PASSWORD = "Welcome123";
     
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
     
+    // Not cached: the whole table as one cache value grows without bound, use getUsersPage instead
     @Override
-    @Cacheable(value = "users", key = "'all_users'")
     public List<UserGetDTO> getAllUsers() {
-        logger.info("Fetching all users from database - cache miss");
-        return userRepository.findAll().stream()
-                .map(this::convertToUserDTO)
-                .collect(Collectors.toList());
+        logger.info("Fetching all users from database");
+        return toUserListing(userRepository.findUserListing(), userCohortMappingRepository.findUserCohortListing());
+    }
+    
+    @Override
+    public CursorPageDTO<UserGetDTO> getUsersPage(String after, Integer limit, String organizationId,
+                                                  String userType, String status) {
+        int pageSize = CursorPageDTO.boundedLimit(limit, defaultPageSize, maxPageSize);
+        List<UserListingProjection> userRows = findUserListingPage(after != null ? after : "", organizationId,
+                userType, status, PageRequest.of(0, pageSize + 1));
+        List<UserGetDTO> users = toUserListing(userRows, userRows.isEmpty() ? Collections.emptyList()
+                : userCohortMappingRepository.findUserCohortListingByUserIds(
+                        userRows.stream().map(UserListingProjection::getUserId).collect(Collectors.toList())));
+        return CursorPageDTO.of(users, pageSize, UserGetDTO::getUserId);
+    }
+    
+    // Picks the listing query for the filters that are set
+    private List<UserListingProjection> findUserListingPage(String after, String organizationId, String userType,
+                                                            String status, PageRequest pageRequest) {
+        if (organizationId != null) {
+            if (userType != null) {
+                return status != null
+                        ? userRepository.findUserListingPageByOrganizationIdAndUserTypeAndStatus(after, organizationId, userType, status, pageRequest)
+                        : userRepository.findUserListingPageByOrganizationIdAndUserType(after, organizationId, userType, pageRequest);
+            }
+            return status != null
+                    ? userRepository.findUserListingPageByOrganizationIdAndStatus(after, organizationId, status, pageRequest)
+                    : userRepository.findUserListingPageByOrganizationId(after, organizationId, pageRequest);
+        }
+        if (userType != null) {
+            return status != null
+                    ? userRepository.findUserListingPageByUserTypeAndStatus(after, userType, status, pageRequest)
+                    : userRepository.findUserListingPageByUserType(after, userType, pageRequest);
+        }
+        return status != null
+                ? userRepository.findUserListingPageByStatus(after, status, pageRequest)
+                : userRepository.findUserListingPage(after, pageRequest);
     }
     
     @Override
@@ -89,9 +139,8 @@ public class UserServiceImpl implements UserService {
     @Cacheable(value = "usersByOrg", key = "#organizationId")
     public List<UserGetDTO> getUsersByOrganizationId(String organizationId) {
         logger.info("Fetching users by organization ID from database - cache miss: {}", organizationId);
-        return userRepository.findByOrganizationOrganizationId(organizationId).stream()
-                .map(this::convertToUserDTO)
-                .collect(Collectors.toList());
+        return toUserListing(userRepository.findUserListingByOrganizationId(organizationId),
+                userCohortMappingRepository.findUserCohortListingByOrganizationId(organizationId));
     }
 
     
@@ -183,7 +232,7 @@ public class UserServiceImpl implements UserService {
             throw new IllegalArgumentException("Invalid userType: " + user.getUserType() + ". Allowed values are 'learner' or 'mentor'.");
         }
         
-        user.setUserPassword(passwordEncoder.encode(plainPassword));
+        user.setUserPassword(passwordHashingService.encode(plainPassword));
 
         // Ensure UUID is always set
         if (user.getUuid() == null) {
@@ -240,7 +289,7 @@ public class UserServiceImpl implements UserService {
         Map<String, User> createdUsers = new HashMap<>();
         Set<String> userIdSet = new HashSet<>();
         String[] headerRow;
-        String[] line;
+        String[] csvLine;
         int userCreatedCount = 0;
         int userCohortMappingCreatedCount = 0;
 
@@ -266,7 +315,26 @@ public class UserServiceImpl implements UserService {
                 }
             }
 
-            while ((line = csvReader.readNext()) != null) {
+            // Read every row first so existing users, organizations and cohorts can be fetched in bulk
+            List<String[]> rows = new ArrayList<>();
+            Set<String> csvUserIds = new HashSet<>();
+            Set<String> csvOrganizationIds = new HashSet<>();
+            Set<String> csvCohortIds = new HashSet<>();
+            while ((csvLine = csvReader.readNext()) != null) {
+                rows.add(csvLine);
+                csvUserIds.add(sanitizeUserId(csvLine[columnIndexMap.get("userid")]));
+                csvOrganizationIds.add(csvLine[columnIndexMap.get("organizationid")]);
+                csvCohortIds.add(csvLine[columnIndexMap.get("cohortid")]);
+            }
+
+            Set<String> existingUserIds = findExistingUserIds(csvUserIds);
+            Map<String, Organization> organizations = organizationRepository.findAllById(csvOrganizationIds).stream()
+                .collect(Collectors.toMap(Organization::getOrganizationId, organization -> organization));
+            Map<String, Cohort> cohorts = cohortRepository.findAllById(csvCohortIds).stream()
+                .collect(Collectors.toMap(Cohort::getCohortId, cohort -> cohort));
+            logger.info("CSV upload: {} rows, {} user IDs already exist", rows.size(), existingUserIds.size());
+
+            for (String[] line : rows) {
             	String userId = sanitizeUserId(line[columnIndexMap.get("userid")]);
             	String cohortId = line[columnIndexMap.get("cohortid")];
 
@@ -278,7 +346,7 @@ public class UserServiceImpl implements UserService {
                 userIdSet.add(userId);
 
                 // Check if userId already exists in the database
-                if (userRepository.existsById(userId)) {
+                if (existingUserIds.contains(userId)) {
                 	warnings.add("UserID: " + userId + " already exists in the database. Skipping.");
                     continue; // Skip processing this line
                 }
@@ -299,7 +367,7 @@ public class UserServiceImpl implements UserService {
                     }
                     user.setUserType(userType);
                     user.setUuid(UUID.randomUUID());
-                    user.setUserPassword(passwordEncoder.encode(DEFAULT_PASSWORD));
+                    // Password is hashed for all new users at once below
 
                  // CreatedBy (optional column)
                     String createdBy = columnIndexMap.containsKey("createdby") ? line[columnIndexMap.get("createdby")] : null;
@@ -345,9 +413,9 @@ public class UserServiceImpl implements UserService {
                     user.setUserAddress(columnIndexMap.containsKey("useraddress") ? line[columnIndexMap.get("useraddress")] : null);
 
                 
-                    // Fetch organization by ID
+                    // Look up the prefetched organization
                     String organizationId = line[columnIndexMap.get("organizationid")];
-                    Organization organization = organizationRepository.findById(organizationId)
+                    Organization organization = Optional.ofNullable(organizations.get(organizationId))
                             .orElseThrow(() -> new IllegalArgumentException("Organization not found with ID: " + organizationId ));
                     user.setOrganization(organization);
                     
@@ -363,16 +431,10 @@ public class UserServiceImpl implements UserService {
     
 
                 try {
-                    Cohort cohort = cohortRepository.findById(cohortId)
+                    Cohort cohort = Optional.ofNullable(cohorts.get(cohortId))
                     		.orElseThrow(() -> new IllegalArgumentException("Cohort not found with ID: " + cohortId));
 
-             // Check for existing UserCohortMapping before creating a new one
-                if (userCohortMappingRepository.existsByUser_UserIdAndCohort_CohortId(userId, cohortId)) {
-                    errorMessages.add("UserID " + userId + " is already mapped to CohortID " + cohortId + ". Skipping this mapping.");
-                    continue;
-                }
-                
-                // Create the UserCohortMapping
+                // The user is new, so it has no mapping in the database yet
                 User user = createdUsers.get(userId);
                 UserCohortMapping userCohortMapping = new UserCohortMapping();
                 userCohortMapping.setUser(user);
@@ -388,34 +450,46 @@ public class UserServiceImpl implements UserService {
             }
         }
 
-        // Save all new users that don't already exist
-        List<User> savedUsers = userRepository.saveAll(usersToCreate);
+        // Every new user gets the default password, hashed in parallel on the hashing pool
+        List<String> passwordHashes = passwordHashingService.encodeAll(Collections.nCopies(usersToCreate.size(), DEFAULT_PASSWORD));
+        for (int i = 0; i < usersToCreate.size(); i++) {
+            usersToCreate.get(i).setUserPassword(passwordHashes.get(i));
+        }
 
-            // Save the user-cohort mappings
-            userCohortMappingRepository.saveAll(userCohortMappingsToCreate);
+        // Insert the new users and their mappings in JDBC batches
+        userBulkImportService.insertAll(usersToCreate, userCohortMappingsToCreate);
 
          
-         // Send welcome email for each new user
-            for (User savedUser : savedUsers) {
+         // Queue a welcome email for each new user, with the program of its cohort
+            Map<String, String> programNamesByCohort = new HashMap<>();
+            if (!userCohortMappingsToCreate.isEmpty()) {
+                for (CohortProgram cohortProgram : cohortProgramRepository.findWithProgramByCohortIds(cohorts.keySet())) {
+                    programNamesByCohort.putIfAbsent(cohortProgram.getCohort().getCohortId(),
+                        cohortProgram.getProgram().getProgramName());
+                }
+            }
+            Map<String, List<Cohort>> cohortsByUser = new HashMap<>();
+            for (UserCohortMapping mapping : userCohortMappingsToCreate) {
+                cohortsByUser.computeIfAbsent(mapping.getUser().getUserId(), id -> new ArrayList<>()).add(mapping.getCohort());
+            }
+
+            List<Runnable> welcomeEmails = new ArrayList<>();
+            for (User savedUser : usersToCreate) {
                 if (savedUser.getUserEmail() != null && !savedUser.getUserEmail().isEmpty()) {
-                    // Collect all assigned cohorts and programs for the user
-                    List<UserCohortMapping> userCohortMappings = userCohortMappingRepository.findAllByUserUserId(savedUser.getUserId());
                     List<String> programNames = new ArrayList<>();
                     List<String> cohortNames = new ArrayList<>();
-                    
-                    for (UserCohortMapping mapping : userCohortMappings) {
-                        Cohort cohort = mapping.getCohort();
+                    for (Cohort cohort : cohortsByUser.getOrDefault(savedUser.getUserId(), Collections.emptyList())) {
                         cohortNames.add(cohort.getCohortName());
-
-                        // Fetch program details from CohortProgram
-                        cohortProgramRepository.findByCohortCohortId(cohort.getCohortId()).ifPresent(cohortProgram -> 
-                            programNames.add(cohortProgram.getProgram().getProgramName())
-                        );
+                        if (programNamesByCohort.containsKey(cohort.getCohortId())) {
+                            programNames.add(programNamesByCohort.get(cohort.getCohortId()));
+                        }
                     }
 
-                    sendWelcomeEmail(savedUser, DEFAULT_PASSWORD, programNames, cohortNames);
+                    welcomeEmails.add(() -> sendWelcomeEmail(savedUser, DEFAULT_PASSWORD, programNames, cohortNames));
                 }
             }
+            // The users are committed, so their welcome emails can go to the email outbox
+            userBulkImportService.queueEmails(welcomeEmails);
             return Map.of(
                     "createdUserCount", userCreatedCount,
                     "createdUserCohortMappingCount", userCohortMappingCreatedCount,
@@ -429,6 +503,16 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    // Existing user IDs among the given ones, queried in chunks to keep the IN list bounded
+    private Set<String> findExistingUserIds(Collection<String> userIds) {
+        Set<String> existing = new HashSet<>();
+        List<String> ids = new ArrayList<>(userIds);
+        for (int from = 0; from < ids.size(); from += 1000) {
+            existing.addAll(userRepository.findExistingUserIds(ids.subList(from, Math.min(from + 1000, ids.size()))));
+        }
+        return existing;
+    }
+
     // Helper function to send welcome email
     private void sendWelcomeEmail(User user, String plainPassword, List<String> programNames, List<String> cohortNames) {
     	try {
@@ -489,7 +573,6 @@ public class UserServiceImpl implements UserService {
     @Caching(evict = {
         @CacheEvict(value = "user", key = "#userId"),
         @CacheEvict(value = "userDto", key = "#userId"),
-        @CacheEvict(value = "users", key = "'all_users'"),
         @CacheEvict(value = "usersByOrg", key = "#result.organization.organizationId")
     })
     public User updateUser(String userId, User updatedUser) {
@@ -579,7 +662,7 @@ public class UserServiceImpl implements UserService {
                 // Check if the password is being updated
                 if (updatedUser.getUserPassword() != null && !updatedUser.getUserPassword().isEmpty()) {
                     logger.info("Updating password for user: {}", userId);
-                    user.setUserPassword(passwordEncoder.encode(updatedUser.getUserPassword()));
+                    user.setUserPassword(passwordHashingService.encode(updatedUser.getUserPassword()));
                 }
 
                 // Organization should not be updateable
@@ -602,8 +685,7 @@ public class UserServiceImpl implements UserService {
     @Override
     @Caching(evict = {
         @CacheEvict(value = "user", key = "#userId"),
-        @CacheEvict(value = "userDto", key = "#userId"),
-        @CacheEvict(value = "users", key = "'all_users'")
+        @CacheEvict(value = "userDto", key = "#userId")
     })
     public String deleteUser(String userId) {
         // First, retrieve the user to get their details before deletion
@@ -656,8 +738,7 @@ public class UserServiceImpl implements UserService {
     @Transactional
     @Caching(evict = {
         @CacheEvict(value = "user", key = "#userId"),
-        @CacheEvict(value = "userDto", key = "#userId"),
-        @CacheEvict(value = "users", key = "'all_users'")
+        @CacheEvict(value = "userDto", key = "#userId")
     })
     public String deactivateUser(String userId) {
         logger.info("Attempting to deactivate user with ID: {}", userId);
@@ -733,8 +814,7 @@ public class UserServiceImpl implements UserService {
     @Transactional
     @Caching(evict = {
         @CacheEvict(value = "user", key = "#userId"),
-        @CacheEvict(value = "userDto", key = "#userId"),
-        @CacheEvict(value = "users", key = "'all_users'")
+        @CacheEvict(value = "userDto", key = "#userId")
     })
     public String reactivateUser(String userId) {
         logger.info("Attempting to reactivate user with ID: {}", userId);
@@ -821,7 +901,7 @@ public class UserServiceImpl implements UserService {
 
         if (userOpt.isPresent()) {
             User user = userOpt.get();
-            String encodedPassword = passwordEncoder.encode(newPassword);
+            String encodedPassword = passwordHashingService.encode(newPassword);
             user.setUserPassword(encodedPassword);  
             userRepository.save(user);  
             return true;
@@ -884,6 +964,76 @@ public class UserServiceImpl implements UserService {
         return dto;
     }
     
+    /**
+     * Builds the user listing from the user rows and the cohort rows of the same users, with the
+     * programs of those cohorts read once by ID. The first cohort of a user is its primary cohort,
+     * as in convertToUserDTO; a program shared by several of the user's cohorts is listed once.
+     */
+    private List<UserGetDTO> toUserListing(List<UserListingProjection> userRows,
+                                           List<UserCohortListingProjection> cohortRows) {
+        Map<String, UserGetDTO> users = new LinkedHashMap<>();
+        for (UserListingProjection row : userRows) {
+            users.put(row.getUserId(), toUserGetDTO(row));
+        }
+
+        Set<String> programIds = cohortRows.stream()
+                .map(UserCohortListingProjection::getProgramId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, Program> programs = programRepository.findAllById(programIds).stream()
+                .collect(Collectors.toMap(Program::getProgramId, program -> program));
+
+        for (UserCohortListingProjection row : cohortRows) {
+            UserGetDTO dto = users.get(row.getUserId());
+            if (dto == null) {
+                continue;
+            }
+            CohortDTO cohortDTO = new CohortDTO();
+            cohortDTO.setCohortId(row.getCohortId());
+            cohortDTO.setCohortName(row.getCohortName());
+            Program program = row.getProgramId() != null ? programs.get(row.getProgramId()) : null;
+
+            if (dto.getAllCohorts() == null) {
+                dto.setCohort(cohortDTO);
+                if (program != null) {
+                    dto.setProgram(programService.convertToDTO(program));
+                }
+                dto.setAllCohorts(new ArrayList<>());
+                dto.setAllPrograms(new ArrayList<>());
+            }
+            dto.getAllCohorts().add(cohortDTO);
+            if (program != null && dto.getAllPrograms().stream()
+                    .noneMatch(listed -> program.getProgramId().equals(listed.getProgramId()))) {
+                dto.getAllPrograms().add(programService.convertToDTO(program));
+            }
+        }
+        return new ArrayList<>(users.values());
+    }
+
+    private UserGetDTO toUserGetDTO(UserListingProjection row) {
+        UserGetDTO dto = new UserGetDTO();
+        dto.setUserId(row.getUserId());
+        dto.setUserAddress(row.getUserAddress());
+        dto.setUserEmail(row.getUserEmail());
+        dto.setUserName(row.getUserName());
+        dto.setUserPhoneNumber(row.getUserPhoneNumber());
+        dto.setUserType(row.getUserType());
+        dto.setStatus(row.getStatus());
+        dto.setCreatedAt(row.getCreatedAt());
+        dto.setDeactivatedAt(row.getDeactivatedAt());
+        dto.setDeactivatedReason(row.getDeactivatedReason());
+        if (row.getOrganizationId() != null) {
+            OrganizationDTO organizationDTO = new OrganizationDTO();
+            organizationDTO.setOrganizationId(row.getOrganizationId());
+            organizationDTO.setOrganizationName(row.getOrganizationName());
+            organizationDTO.setOrganizationAdminName(row.getOrganizationAdminName());
+            organizationDTO.setOrganizationAdminEmail(row.getOrganizationAdminEmail());
+            organizationDTO.setOrganizationAdminPhone(row.getOrganizationAdminPhone());
+            dto.setOrganization(organizationDTO);
+        }
+        return dto;
+    }
+
     private UserGetDTO convertToUserDTO(User user) {
         UserGetDTO dto = new UserGetDTO();
         dto.setUserId(user.getUserId());
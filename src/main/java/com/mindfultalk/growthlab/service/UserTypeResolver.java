@@ -0,0 +1,43 @@
+package com.mindfultalk.growthlab.service;
+
+import java.util.Optional;
+
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.mindfultalk.growthlab.repository.UserRepository;
+
+/**
+ * Resolves a user's type, which report visibility and report cache keys depend on.
+ *
+ * On a request thread the type comes from {@link UserContext}: free for the signed-in user, and
+ * looked up once per request for anyone else, such as a learner whose report a mentor opens.
+ * Elsewhere it is a single-column query, never a full User load with its eager mappings.
+ */
+@Service
+public class UserTypeResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserTypeResolver.class);
+
+    @Autowired
+    private UserContext userContext;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public Optional<String> getUserType(String userId) {
+        if (RequestContextHolder.getRequestAttributes() == null) {
+            return userRepository.findUserTypeByUserId(userId);
+        }
+        String known = userContext.getKnownUserType(userId);
+        if (known != null) {
+            return Optional.of(known);
+        }
+        Optional<String> userType = userRepository.findUserTypeByUserId(userId);
+        userType.ifPresent(type -> userContext.rememberUserType(userId, type));
+        logger.debug("Resolved user type of {} from the database", userId);
+        return userType;
+    }
+}
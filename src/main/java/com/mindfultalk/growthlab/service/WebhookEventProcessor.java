@@ -0,0 +1,89 @@
+package com.mindfultalk.growthlab.service;
+
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.*;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import org.json.JSONObject;
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Processes recorded Razorpay webhook deliveries one at a time, each in its own transaction.
+ *
+ * The event row is locked with SKIP LOCKED for the length of the transaction, and an event is
+ * only processed once no earlier delivery for the same payment is pending. Events of one payment
+ * are therefore applied in arrival order on every node, while different payments proceed in
+ * parallel.
+ */
+@Service
+public class WebhookEventProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookEventProcessor.class);
+
+    @Autowired
+    private PaymentEventRepository paymentEventRepository;
+
+    @Autowired
+    private WebhookService webhookService;
+
+    /**
+     * Processes the event if it is still pending and next in line for its payment. Returns whether
+     * it was processed; an exception rolls everything back and leaves the event pending.
+     */
+    @Transactional(timeout = 60)
+    public boolean process(Long id) {
+        List<PaymentEvent> locked = paymentEventRepository.lockByIdAndProcessingStatus(id, PaymentEvent.PROCESSING_PENDING);
+        if (locked.isEmpty()) {
+            // Processed already, or being processed by another worker
+            return false;
+        }
+        PaymentEvent event = locked.get(0);
+        if (event.getPaymentId() != null && paymentEventRepository.existsEarlierWithProcessingStatus(
+                event.getPaymentId(), id, PaymentEvent.PROCESSING_PENDING)) {
+            logger.debug("Webhook event {} waits for an earlier event of payment {}", id, event.getPaymentId());
+            return false;
+        }
+
+        webhookService.processWebhookEvent(event.getEventType(), new JSONObject(event.getRawPayload()));
+
+        event.setProcessingStatus(PaymentEvent.PROCESSING_PROCESSED);
+        event.setProcessedAt(OffsetDateTime.now());
+        event.setLastError(null);
+        paymentEventRepository.save(event);
+        return true;
+    }
+
+    /**
+     * Records a failed attempt to process the event. The event is retried with exponential
+     * backoff, or given up on once it has failed maxRetries times.
+     */
+    @Transactional
+    public void markFailed(Long id, String error, int maxRetries, long baseBackoffMs, long maxBackoffMs) {
+        paymentEventRepository.findById(id).ifPresent(event -> {
+            if (!PaymentEvent.PROCESSING_PENDING.equals(event.getProcessingStatus())) {
+                return;
+            }
+            int retryCount = (event.getRetryCount() != null ? event.getRetryCount() : 0) + 1;
+            event.setRetryCount(retryCount);
+            event.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (retryCount >= maxRetries) {
+                // Later events of the payment are no longer held back by this one
+                event.setProcessingStatus(PaymentEvent.PROCESSING_FAILED);
+                event.setProcessedAt(OffsetDateTime.now());
+                logger.error("Giving up on webhook event {} ({}) for payment {} after {} retries: {}",
+                            id, event.getEventType(), event.getPaymentId(), retryCount, error);
+            } else {
+                long backoffMs = EmailOutboxStore.backoffMs(retryCount, baseBackoffMs, maxBackoffMs);
+                event.setNextAttemptAt(OffsetDateTime.now().plusNanos(backoffMs * 1_000_000L));
+                logger.warn("Webhook event {} ({}) for payment {} failed (retry {} of {}), next attempt in {}ms: {}",
+                           id, event.getEventType(), event.getPaymentId(), retryCount, maxRetries, backoffMs, error);
+            }
+            paymentEventRepository.save(event);
+        });
+    }
+}
@@ -0,0 +1,207 @@
+package com.mindfultalk.growthlab.service;
+
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Intake and background processing of Razorpay webhooks.
+ *
+ * The webhook endpoint only verifies the signature and records the delivery through
+ * {@link #accept}, keyed by the Razorpay event id, and answers right away. A delivery whose
+ * event id is already recorded is dropped: the unique index on payment_events.event_id catches
+ * the redeliveries that race past the lookup.
+ *
+ * One poller thread per node picks up pending events in arrival order, groups them by payment
+ * and hands each group to a pool of {@code razorpay.webhook.worker-threads} workers. A group is
+ * processed in order through {@link WebhookEventProcessor}, which also keeps the order across
+ * nodes. A failing event is retried with exponential backoff, starting at
+ * {@code razorpay.webhook.backoff-ms}, and marked failed after
+ * {@code razorpay.webhook.max-retries} attempts. Later events of its payment wait behind it
+ * meanwhile.
+ */
+@Service
+public class WebhookIntakeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookIntakeService.class);
+
+    @Autowired
+    private PaymentEventRepository paymentEventRepository;
+
+    @Autowired
+    private WebhookEventProcessor webhookEventProcessor;
+
+    @Value("${razorpay.webhook.worker-threads:4}")
+    private int workerThreads;
+
+    @Value("${razorpay.webhook.batch-size:100}")
+    private int batchSize;
+
+    @Value("${razorpay.webhook.poll-interval-ms:500}")
+    private long pollIntervalMs;
+
+    @Value("${razorpay.webhook.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${razorpay.webhook.backoff-ms:30000}")
+    private long baseBackoffMs;
+
+    @Value("${razorpay.webhook.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    private ScheduledExecutorService poller;
+    private ExecutorService workerPool;
+
+    /**
+     * Records a verified delivery for processing. Returns false for a delivery whose event was
+     * recorded before.
+     */
+    public boolean accept(PaymentEvent event, String eventId) {
+        if (paymentEventRepository.existsByEventId(eventId)) {
+            logger.info("Duplicate delivery of webhook event {} ({}) ignored", eventId, event.getEventType());
+            return false;
+        }
+        event.setEventId(eventId);
+        event.setProcessingStatus(PaymentEvent.PROCESSING_PENDING);
+        event.setRetryCount(0);
+        event.setNextAttemptAt(OffsetDateTime.now());
+        try {
+            PaymentEvent saved = paymentEventRepository.saveAndFlush(event);
+            logger.info("Queued webhook event {} ({}) as payment event {}", eventId, event.getEventType(), saved.getId());
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            if (paymentEventRepository.existsByEventId(eventId)) {
+                logger.info("Concurrent delivery of webhook event {} ({}) ignored", eventId, event.getEventType());
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The Razorpay event id of a delivery, or a digest of the payload when the header is missing;
+     * a redelivery carries the same payload
+     */
+    public static String eventIdOf(String eventIdHeader, String payload) {
+        if (eventIdHeader != null && !eventIdHeader.isBlank()) {
+            return eventIdHeader.trim();
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return "sha256:" + Hex.encodeHexString(digest.digest(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWorkers() {
+        AtomicInteger count = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "razorpay-webhook-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "razorpay-webhook-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::drain, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Razorpay webhook workers started with {} threads and poll interval {}ms", workerThreads, pollIntervalMs);
+    }
+
+    @PreDestroy
+    public void stopWorkers() {
+        if (poller == null) {
+            return;
+        }
+        poller.shutdown();
+        try {
+            // Let running events commit; pending ones are picked up after the restart
+            if (!poller.awaitTermination(30, TimeUnit.SECONDS)) {
+                poller.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            poller.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        workerPool.shutdownNow();
+        logger.info("Razorpay webhook workers stopped");
+    }
+
+    /**
+     * Processes pending events batch by batch while batches are full and make progress
+     */
+    void drain() {
+        try {
+            List<Object[]> rows;
+            int processed;
+            do {
+                rows = paymentEventRepository.findDueIdsAndPaymentIdsByProcessingStatus(PaymentEvent.PROCESSING_PENDING,
+                    OffsetDateTime.now(), PageRequest.of(0, batchSize));
+                processed = rows.isEmpty() ? 0 : processBatch(rows);
+            } while (rows.size() == batchSize && processed > 0 && !Thread.currentThread().isInterrupted());
+        } catch (Exception e) {
+            // Never let an exception cancel the scheduled task
+            logger.error("Error draining pending webhook events: {}", e.getMessage(), e);
+        }
+    }
+
+    private int processBatch(List<Object[]> rows) throws InterruptedException {
+        // Events of one payment stay in arrival order within their group
+        Map<String, List<Long>> groups = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            String paymentId = (String) row[1];
+            groups.computeIfAbsent(paymentId != null ? paymentId : "event-" + id, key -> new ArrayList<>()).add(id);
+        }
+
+        AtomicInteger processed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(groups.size());
+        for (List<Long> group : groups.values()) {
+            futures.add(workerPool.submit(() -> processGroup(group, processed)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                logger.error("Error processing webhook events: {}", e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return processed.get();
+    }
+
+    void processGroup(List<Long> ids, AtomicInteger processed) {
+        for (Long id : ids) {
+            try {
+                if (!webhookEventProcessor.process(id)) {
+                    // Held elsewhere or behind an earlier event; the rest of the payment has to wait
+                    return;
+                }
+                processed.incrementAndGet();
+            } catch (Exception e) {
+                webhookEventProcessor.markFailed(id, e.getMessage(), maxRetries, baseBackoffMs, maxBackoffMs);
+                return;
+            }
+        }
+    }
+}
@@ -8,7 +8,6 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -44,7 +43,7 @@ public class WebhookService {
     private UserCohortMappingRepository userCohortMappingRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private EmailService emailService;
@@ -839,7 +838,7 @@ public class WebhookService {
         user.setUserPhoneNumber(subscription.getUserPhoneNumber());
         user.setUserAddress(subscription.getUserAddress());
         user.setUserType("learner"); // Default user type
-        user.setUserPassword(passwordEncoder.encode(DEFAULT_PASSWORD));
+        user.setUserPassword(passwordHashingService.encode(DEFAULT_PASSWORD));
         Organization organization = subscription.getOrganization();
         user.setOrganization(organization);
         user.setUuid(UUID.randomUUID()); // Set UUID for the user
@@ -2,16 +2,23 @@ package com.mindfultalk.growthlab.service;
 
 import java.time.OffsetDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import com.mindfultalk.growthlab.model.*;
 import com.mindfultalk.growthlab.repository.*;
 import org.slf4j.*;
-import jakarta.transaction.Transactional;
 
+/**
+ * Weekly reminders to inactive learners and per-cohort reports to organization admins.
+ *
+ * The run pages through {@link UserCohortMappingRepository#findInactiveMembersAfter}, which
+ * returns only the columns the emails need, {@code reports.weekly.page-size} memberships at a
+ * time. Pages continue after the last row of the previous page and rows arrive grouped by
+ * organization and cohort, so only the members of the current cohort are held in memory and
+ * each admin report is queued as soon as its cohort is complete.
+ */
 @Service
 public class WeeklyReportService {
     
@@ -21,182 +28,145 @@ public class WeeklyReportService {
     private static final String PLATFORM_URL = "https://flowofenglish.thechippersage.com";
     
     @Autowired
-    private UserAttemptsRepository userAttemptsRepository;
+    private UserCohortMappingRepository userCohortMappingRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private EmailService emailService;
 
-    @Autowired
-    private JavaMailSender mailSender;
+    @Value("${reports.weekly.page-size:500}")
+    private int pageSize;
     
     public int weeklyReportServiceTestSingleUser(List<User> users) {
-        return sendUserNotifications(users);
+        Set<String> processedKeys = new HashSet<>();
+        int successCount = 0;
+        for (User user : users) {
+            if (notifyOnce(user.getUserId(), user.getUserEmail(), user.getUserName(), processedKeys)) {
+                successCount++;
+            }
+        }
+        return successCount;
     }
 
     /**
-     * Main method - now uses optimized database filtering
-     * No need for manual filtering since the database query already applies all filters
+     * Queues a reminder for every inactive learner and a report for every cohort that has one.
+     * Pages are read and emails queued in separate short transactions, never in one long one.
      */
-    @Transactional
     public void sendWeeklyReports() {
         logger.info("Starting weekly email report process...");
+        long startTime = System.currentTimeMillis();
+        OffsetDateTime cutoffTime = OffsetDateTime.now().minusDays(DEFAULT_INACTIVITY_DAYS);
+        // A learner in several cohorts is reminded once
+        Set<String> processedKeys = new HashSet<>();
+        List<InactiveCohortMemberProjection> cohortMembers = new ArrayList<>();
+        int memberCount = 0;
         int successCount = 0;
         
         try {
-            // This now only returns users that are:
-            // 1. ACTIVE status
-            // 2. In cohorts that haven't ended
-            // 3. Inactive for the specified days
-            List<User> inactiveUsers = getInactiveUsers(DEFAULT_INACTIVITY_DAYS);
-            logger.info("Found {} inactive users (filtered for active users in active cohorts)", inactiveUsers.size());
+            String afterOrganizationId = "";
+            String afterCohortId = "";
+            String afterUserId = "";
+            List<InactiveCohortMemberProjection> page;
+            do {
+                page = userCohortMappingRepository.findInactiveMembersAfter(cutoffTime,
+                    afterOrganizationId, afterCohortId, afterUserId, PageRequest.of(0, pageSize));
+
+                for (InactiveCohortMemberProjection member : page) {
+                    if (!cohortMembers.isEmpty() && !isSameCohort(cohortMembers.get(0), member)) {
+                        sendAdminReport(cohortMembers);
+                        cohortMembers = new ArrayList<>();
+                    }
+                    cohortMembers.add(member);
+                    memberCount++;
+                    if (notifyOnce(member.getUserId(), member.getUserEmail(), member.getUserName(), processedKeys)) {
+                        successCount++;
+                    }
+                }
 
-            // All users returned already have valid conditions, so we just need email validation
-            List<User> usersWithValidEmails = filterUsersWithValidEmails(inactiveUsers);
-            logger.info("Found {} users with valid emails", usersWithValidEmails.size());
+                if (!page.isEmpty()) {
+                    InactiveCohortMemberProjection last = page.get(page.size() - 1);
+                    afterOrganizationId = last.getOrganizationId();
+                    afterCohortId = last.getCohortId();
+                    afterUserId = last.getUserId();
+                }
+            } while (page.size() == pageSize);
 
-            sendAdminReports(inactiveUsers);
-            
-         // Track success count when sending user notifications
-            successCount = sendUserNotifications(usersWithValidEmails);
+            if (!cohortMembers.isEmpty()) {
+                sendAdminReport(cohortMembers);
+            }
 
-            logger.info("Completed weekly email report process. Successfully sent {} emails out of {}.", 
-                        successCount, usersWithValidEmails.size());
+            logger.info("Completed weekly email report process in {}ms. Queued {} reminders for {} inactive cohort memberships.", 
+                        System.currentTimeMillis() - startTime, successCount, memberCount);
             
         } catch (Exception e) {
             logger.error("Error in weekly report process: {}", e.getMessage(), e);
         }
     }
     
-    /**
-     * Updated method using the optimized repository query
-     * Now filters at database level instead of in-memory
-     */
-    @Transactional
-    public List<User> getInactiveUsers(int inactivityDays) {
-        OffsetDateTime cutoffTime = OffsetDateTime.now().minusDays(inactivityDays);
-
-        // - ACTIVE users only
-        // - Users in active cohorts only (cohortEndDate > now or null)
-        List<Object[]> latestAttempts = userAttemptsRepository.findLatestAttemptTimestampsForActiveUsersInActiveCohorts();
-
-        return latestAttempts.stream()
-            .filter(attempt -> {
-                OffsetDateTime lastAttempt = (OffsetDateTime) attempt[1];
-                return lastAttempt.isBefore(cutoffTime);
-            })
-            .map(attempt -> userRepository.findById((String) attempt[0]).orElse(null))
-            .filter(Objects::nonNull)
-            .collect(Collectors.toList());
-    }
-    
-    
-    private List<User> filterUsersWithValidEmails(List<User> users) {
-        return users.stream()
-            .filter(user -> isValidEmail(user.getUserEmail()))
-            .collect(Collectors.toList());
-    }
-    
     private boolean isValidEmail(String email) {
         return email != null && !email.trim().isEmpty();
     }
     
-    private void sendAdminReports(List<User> inactiveUsers) {
-        Map<String, Map<String, List<User>>> orgCohortMap = groupUsersByOrgAndCohort(inactiveUsers);
-        
-        orgCohortMap.forEach((orgId, cohortUsers) -> {
-            cohortUsers.forEach((cohortId, users) -> {
-                try {
-                    UserCohortMapping topper = findTopScorer(users, cohortId);
-                    sendAdminReport(orgId, cohortId, users, topper);
-                    logger.info("Sent admin report for organization: {}, cohort: {}", orgId, cohortId);
-                } catch (Exception e) {
-                    logger.error("Failed to send admin report for org: {}, cohort: {}. Error: {}", 
-                               orgId, cohortId, e.getMessage(), e);
-                }
-            });
-        });
-    }
-    
-    private Map<String, Map<String, List<User>>> groupUsersByOrgAndCohort(List<User> users) {
-        return users.stream()
-            .collect(Collectors.groupingBy(
-                user -> String.valueOf(user.getOrganization().getOrganizationId()),
-                Collectors.groupingBy(this::getCohortId)
-            ));
+    private static boolean isSameCohort(InactiveCohortMemberProjection a, InactiveCohortMemberProjection b) {
+        return a.getOrganizationId().equals(b.getOrganizationId()) && a.getCohortId().equals(b.getCohortId());
     }
     
-    private String getCohortId(User user) {
-        List<UserCohortMapping> mappings = user.getUserCohortMappings();
-        return mappings != null && !mappings.isEmpty() 
-               ? String.valueOf(mappings.get(0).getCohort().getCohortId())
-               : "Unknown";
-    }
-    
-    private UserCohortMapping findTopScorer(List<User> users, String cohortId) {
-        return users.stream()
-            .flatMap(user -> user.getUserCohortMappings().stream())
-            .filter(mapping -> cohortId.equals(String.valueOf(mapping.getCohort().getCohortId())))
-            .max(Comparator.comparingInt(UserCohortMapping::getLeaderboardScore))
+    private static InactiveCohortMemberProjection findTopScorer(List<InactiveCohortMemberProjection> members) {
+        return members.stream()
+            .filter(member -> member.getLeaderboardScore() != null)
+            .max(Comparator.comparingInt(InactiveCohortMemberProjection::getLeaderboardScore))
             .orElse(null);
     }
     
-    private int sendUserNotifications(List<User> users) {
-        Set<String> processedKeys = new HashSet<>();
-
-        int successCount = 0;
-        
-        for (User user : users) {
-            String email = user.getUserEmail();
-            String name = user.getUserName();
-
-            if (!isValidEmail(email)) {
-                logger.warn("Skipping user {} due to invalid email", user.getUserId());
-                continue;
-            }
-
-            String uniqueKey = email.trim().toLowerCase() + "::" + name.trim().toLowerCase();
-
-            if (processedKeys.contains(uniqueKey)) {
-                logger.debug("Duplicate found: Skipping email to {} ({})", name, email);
-                continue;
-            }
-
-            try {
-                sendInactiveUserNotification(user);
-                processedKeys.add(uniqueKey);
-                successCount++;
-                logger.info("Notification sent to user: {} ({})", name, email);
-            } catch (Exception e) {
-                logger.error("Failed to send notification to user: {} ({}) - Error: {}", name, email, e.getMessage(), e);
-            }
+    /**
+     * Queues the reminder unless one went to the same email and name already; returns whether it was queued
+     */
+    private boolean notifyOnce(String userId, String email, String name, Set<String> processedKeys) {
+        if (!isValidEmail(email)) {
+            logger.warn("Skipping user {} due to invalid email", userId);
+            return false;
         }
-        
-        return successCount;
-    }
 
-    private void sendAdminReport(String orgId, String cohortId, List<User> inactiveUsers, UserCohortMapping topper) {
-        if (inactiveUsers.isEmpty()) {
-            return;
+        String uniqueKey = email.trim().toLowerCase() + "::" + (name != null ? name.trim().toLowerCase() : "");
+        if (processedKeys.contains(uniqueKey)) {
+            logger.debug("Duplicate found: Skipping email to {} ({})", name, email);
+            return false;
         }
 
-        String adminEmail = inactiveUsers.get(0).getOrganization().getOrganizationAdminEmail();
-        if (!isValidEmail(adminEmail)) {
-            logger.warn("Invalid admin email for organization: {}", orgId);
-            return;
+        try {
+            sendInactiveUserNotification(email, name);
+            processedKeys.add(uniqueKey);
+            logger.info("Notification queued for user: {} ({})", name, email);
+            return true;
+        } catch (Exception e) {
+            logger.error("Failed to send notification to user: {} ({}) - Error: {}", name, email, e.getMessage(), e);
+            return false;
         }
+    }
+
+    private void sendAdminReport(List<InactiveCohortMemberProjection> inactiveMembers) {
+        InactiveCohortMemberProjection first = inactiveMembers.get(0);
+        String orgId = first.getOrganizationId();
+        String cohortId = first.getCohortId();
+        try {
+            String adminEmail = first.getOrganizationAdminEmail();
+            if (!isValidEmail(adminEmail)) {
+                logger.warn("Invalid admin email for organization: {}", orgId);
+                return;
+            }
 
-        String subject = String.format("Weekly Report - Cohort %s (Organization %s)", cohortId, orgId);
-        String emailBody = buildAdminReportBody(cohortId, inactiveUsers, topper);
+            String subject = String.format("Weekly Report - Cohort %s (Organization %s)", cohortId, orgId);
+            String emailBody = buildAdminReportBody(cohortId, inactiveMembers, findTopScorer(inactiveMembers));
 
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(adminEmail);
-        message.setSubject(subject);
-        message.setText(emailBody);
-        
-        mailSender.send(message);
+            emailService.sendEmail(adminEmail, subject, emailBody, false, "weekly-admin-report");
+            logger.info("Sent admin report for organization: {}, cohort: {}", orgId, cohortId);
+        } catch (Exception e) {
+            logger.error("Failed to send admin report for org: {}, cohort: {}. Error: {}", 
+                       orgId, cohortId, e.getMessage(), e);
+        }
     }
     
-    private String buildAdminReportBody(String cohortId, List<User> inactiveUsers, UserCohortMapping topper) {
+    private String buildAdminReportBody(String cohortId, List<InactiveCohortMemberProjection> inactiveMembers,
+                                        InactiveCohortMemberProjection topper) {
         StringBuilder body = new StringBuilder();
         body.append("Weekly Inactive Users Report\n");
         body.append("=".repeat(30)).append("\n\n");
@@ -204,13 +174,13 @@ public class WeeklyReportService {
         body.append("Report Date: ").append(OffsetDateTime.now().toLocalDate()).append("\n");
         body.append("Inactive Period: More than ").append(DEFAULT_INACTIVITY_DAYS).append(" days\n\n");
         
-        body.append("Inactive Users (").append(inactiveUsers.size()).append("):\n");
+        body.append("Inactive Users (").append(inactiveMembers.size()).append("):\n");
         body.append("-".repeat(20)).append("\n");
         
-        inactiveUsers.forEach(user -> {
-            body.append("• ").append(user.getUserName());
-            if (isValidEmail(user.getUserEmail())) {
-                body.append(" (").append(user.getUserEmail()).append(")");
+        inactiveMembers.forEach(member -> {
+            body.append("• ").append(member.getUserName());
+            if (isValidEmail(member.getUserEmail())) {
+                body.append(" (").append(member.getUserEmail()).append(")");
             } else {
                 body.append(" (No email provided)");
             }
@@ -220,7 +190,7 @@ public class WeeklyReportService {
         if (topper != null) {
             body.append("\nCohort Leader:\n");
             body.append("-".repeat(15)).append("\n");
-            body.append("• ").append(topper.getUser().getUserName());
+            body.append("• ").append(topper.getUserName());
             body.append(" - Score: ").append(topper.getLeaderboardScore()).append("\n");
         }
         
@@ -231,25 +201,15 @@ public class WeeklyReportService {
         return body.toString();
     }
 
-    private void sendInactiveUserNotification(User user) {
-        if (!isValidEmail(user.getUserEmail())) {
-            logger.warn("Invalid email for user: {}", user.getUserId());
-            return;
-        }
-        
+    private void sendInactiveUserNotification(String email, String userName) {
         String subject = "Your Flow of English is Waiting for You! 📚";
-        String emailBody = buildUserNotificationBody(user);
-        
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(user.getUserEmail());
-        message.setSubject(subject);
-        message.setText(emailBody);
+        String emailBody = buildUserNotificationBody(userName);
         
-        mailSender.send(message);
+        emailService.sendEmail(email, subject, emailBody, false, "weekly-inactive-user");
     }
 
-    private String buildUserNotificationBody(User user) {
-        String firstName = user.getUserName() != null ? user.getUserName() : "[First Name]";
+    private String buildUserNotificationBody(String userName) {
+        String firstName = userName != null ? userName : "[First Name]";
         StringBuilder body = new StringBuilder();
 
         body.append("Hi ").append(firstName).append(",\n\n");
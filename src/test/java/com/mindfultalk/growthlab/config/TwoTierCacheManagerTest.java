@@ -0,0 +1,185 @@
+package com.mindfultalk.growthlab.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TwoTierCacheManagerTest {
+
+    private static final String CHANNEL = "growthlab:cache-invalidation";
+
+    // Runs while a node reads from Redis, to interleave another node's writes with the read
+    private Runnable duringRedisRead = () -> { };
+
+    // Stands in for Redis, shared by both "nodes"
+    private final ConcurrentMapCache sharedCache = new ConcurrentMapCache("programs") {
+        @Override
+        public ValueWrapper get(Object key) {
+            ValueWrapper wrapper = super.get(key);
+            duringRedisRead.run();
+            return wrapper;
+        }
+    };
+    private final ConcurrentMapCache redisOnlyCache = new ConcurrentMapCache("userActiveStatus");
+
+    private SimpleMeterRegistry meterRegistry;
+    private StringRedisTemplate nodeATemplate;
+    private StringRedisTemplate nodeBTemplate;
+    private TwoTierCacheManager nodeA;
+    private TwoTierCacheManager nodeB;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        nodeATemplate = mock(StringRedisTemplate.class);
+        nodeBTemplate = mock(StringRedisTemplate.class);
+        nodeA = newManager(nodeATemplate);
+        nodeB = newManager(nodeBTemplate);
+    }
+
+    @Test
+    void readsFromRedisOnceThenFromLocalTier() {
+        sharedCache.put("P1", "Program One");
+        Cache cache = nodeA.getCache("programs");
+
+        assertEquals("Program One", cache.get("P1", String.class));
+        // Redis changed behind the cache's back; the local copy is still served
+        sharedCache.put("P1", "Program Renamed");
+        assertEquals("Program One", cache.get("P1", String.class));
+
+        assertEquals(1L, meterRegistry.get("growthlab.cache.l1.requests")
+            .tags("cache", "programs", "result", "hit").timer().count());
+        assertEquals(1L, meterRegistry.get("growthlab.cache.l1.requests")
+            .tags("cache", "programs", "result", "miss").timer().count());
+        assertEquals(1L, meterRegistry.get("growthlab.cache.l2.requests")
+            .tags("cache", "programs", "result", "hit").timer().count());
+    }
+
+    @Test
+    void evictOnOneNodeClearsLocalTierOnTheOther() {
+        sharedCache.put("P1", "Program One");
+        Cache cacheA = nodeA.getCache("programs");
+        Cache cacheB = nodeB.getCache("programs");
+        assertEquals("Program One", cacheB.get("P1", String.class));
+
+        cacheA.evict("P1");
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(nodeATemplate).convertAndSend(eq(CHANNEL), message.capture());
+
+        // Delivered to both nodes, as Redis does; the sender ignores its own message
+        deliver(nodeA, message.getValue());
+        deliver(nodeB, message.getValue());
+
+        sharedCache.put("P1", "Program Renamed");
+        assertEquals("Program Renamed", cacheB.get("P1", String.class));
+    }
+
+    @Test
+    void everyLocalHitReturnsItsOwnCopy() {
+        Cache cache = nodeA.getCache("programs");
+        cache.put("P1", new ArrayList<>(List.of("Stage One")));
+
+        @SuppressWarnings("unchecked")
+        List<String> first = cache.get("P1", List.class);
+        first.add("Stage Two");
+
+        assertEquals(List.of("Stage One"), cache.get("P1", List.class));
+        assertNotSame(first, cache.get("P1", List.class));
+        // All three reads were served by the local tier
+        assertEquals(3L, meterRegistry.get("growthlab.cache.l1.requests")
+            .tags("cache", "programs", "result", "hit").timer().count());
+    }
+
+    @Test
+    void valueReadBeforeAnEvictionIsNotKeptLocally() {
+        sharedCache.put("P1", "Program One");
+        Cache cache = nodeB.getCache("programs");
+
+        // Another node renames the program and its eviction arrives while this node reads Redis
+        duringRedisRead = () -> {
+            duringRedisRead = () -> { };
+            sharedCache.put("P1", "Program Renamed");
+            nodeA.getCache("programs").evict("P1");
+            ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+            verify(nodeATemplate).convertAndSend(eq(CHANNEL), message.capture());
+            deliver(nodeB, message.getValue());
+        };
+        assertEquals("Program One", cache.get("P1", String.class));
+
+        sharedCache.put("P1", "Program Renamed");
+        assertEquals("Program Renamed", cache.get("P1", String.class));
+    }
+
+    @Test
+    void publishedInvalidationRunsTheHandlersOfOtherNodes() {
+        AtomicInteger runsA = new AtomicInteger();
+        AtomicInteger runsB = new AtomicInteger();
+        nodeA.onInvalidation("curriculumGraphs", runsA::incrementAndGet);
+        nodeB.onInvalidation("curriculumGraphs", runsB::incrementAndGet);
+
+        nodeA.publishInvalidation("curriculumGraphs");
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(nodeATemplate).convertAndSend(eq(CHANNEL), message.capture());
+        deliver(nodeA, message.getValue());
+        deliver(nodeB, message.getValue());
+
+        assertEquals(0, runsA.get());
+        assertEquals(1, runsB.get());
+    }
+
+    @Test
+    void publishedEntryInvalidationPassesTheKeyToOtherNodes() {
+        List<String> keysA = new ArrayList<>();
+        List<String> keysB = new ArrayList<>();
+        nodeA.onEntryInvalidation("sessionTickets", keysA::add);
+        nodeB.onEntryInvalidation("sessionTickets", keysB::add);
+
+        nodeA.publishEntryInvalidation("sessionTickets", "session-1");
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(nodeATemplate).convertAndSend(eq(CHANNEL), message.capture());
+        deliver(nodeA, message.getValue());
+        deliver(nodeB, message.getValue());
+
+        assertEquals(List.of(), keysA);
+        assertEquals(List.of("session-1"), keysB);
+    }
+
+    @Test
+    void zeroTtlCachesBypassLocalTier() {
+        assertSame(redisOnlyCache, nodeA.getCache("userActiveStatus"));
+    }
+
+    private TwoTierCacheManager newManager(StringRedisTemplate template) {
+        RedisCacheManager redisCacheManager = mock(RedisCacheManager.class);
+        when(redisCacheManager.getCache("programs")).thenReturn(sharedCache);
+        when(redisCacheManager.getCache("userActiveStatus")).thenReturn(redisOnlyCache);
+
+        TwoTierCacheManager manager = new TwoTierCacheManager(redisCacheManager,
+            new GenericJackson2JsonRedisSerializer(), template, CHANNEL,
+            Map.of("userActiveStatus", Duration.ZERO), Duration.ofMinutes(5), 100, meterRegistry);
+        manager.afterPropertiesSet();
+        return manager;
+    }
+
+    private void deliver(TwoTierCacheManager manager, String body) {
+        manager.onMessage(new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8),
+            body.getBytes(StandardCharsets.UTF_8)), null);
+    }
+}
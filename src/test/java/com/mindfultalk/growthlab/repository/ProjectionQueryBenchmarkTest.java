@@ -0,0 +1,445 @@
+package com.mindfultalk.growthlab.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.*;
+import java.util.*;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import com.mindfultalk.growthlab.model.*;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Rows and bytes the read endpoints fetch from the database, loading entities as they used to
+ * ("before") against the projection queries that replaced them ("after").
+ *
+ * The data source is wrapped so every result set row read and every column value returned to
+ * Hibernate is counted. Bytes are the size of the values as read: UTF-8 length for text, 8 for
+ * numbers and timestamps, 16 for UUIDs. The counts are logged and the projections must fetch fewer
+ * of both in a fixed number of statements.
+ */
+@DataJpaTest
+@Import(ProjectionQueryBenchmarkTest.FetchCountingConfig.class)
+class ProjectionQueryBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectionQueryBenchmarkTest.class);
+
+    private static final int USERS = 200;
+    private static final int COHORTS = 4;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserCohortMappingRepository userCohortMappingRepository;
+
+    @Autowired
+    private CohortProgramRepository cohortProgramRepository;
+
+    @Autowired
+    private UserAssignmentRepository userAssignmentRepository;
+
+    @Autowired
+    private ProgramRepository programRepository;
+
+    private String organizationId;
+    private String cohortId;
+
+    @BeforeEach
+    void seed() {
+        Organization organization = new Organization();
+        organization.setOrganizationName("Benchmark Org");
+        organization.setOrganizationAdminName("Admin");
+        organization.setOrganizationAdminEmail("admin@example.com");
+        organization.setOrganizationAdminPhone("9999999999");
+        organization.setOrgPassword("secret");
+        entityManager.persist(organization);
+        organizationId = organization.getOrganizationId();
+
+        Program program = new Program();
+        program.setProgramId("PROG-1");
+        program.setProgramName("Program One");
+        program.setProgramDesc("A program with a long enough description to matter");
+        program.setStages(3);
+        program.setUnitCount(12);
+        entityManager.persist(program);
+
+        Stage stage = new Stage();
+        stage.setStageId("PROG-1-S1");
+        stage.setStageName("Stage One");
+        stage.setProgram(program);
+        entityManager.persist(stage);
+
+        Unit unit = new Unit();
+        unit.setUnitId("PROG-1-S1-U1");
+        unit.setUnitName("Unit One");
+        unit.setProgram(program);
+        unit.setStage(stage);
+        entityManager.persist(unit);
+
+        Subconcept subconcept = new Subconcept();
+        subconcept.setSubconceptId("SC-1");
+        subconcept.setSubconceptDesc("Write a short essay");
+        subconcept.setSubconceptType("assignment");
+        subconcept.setSubconceptLink("https://example.com/sc-1");
+        subconcept.setSubconceptMaxscore(10);
+        subconcept.setSubconceptDuration(30);
+        entityManager.persist(subconcept);
+
+        List<Cohort> cohorts = new ArrayList<>();
+        for (int c = 0; c < COHORTS; c++) {
+            Cohort cohort = new Cohort();
+            cohort.setCohortId("COH-" + c);
+            cohort.setCohortName("Cohort " + c);
+            cohort.setOrganization(organization);
+            entityManager.persist(cohort);
+            CohortProgram cohortProgram = new CohortProgram();
+            cohortProgram.setCohort(cohort);
+            cohortProgram.setProgram(program);
+            entityManager.persist(cohortProgram);
+            cohorts.add(cohort);
+        }
+        cohortId = cohorts.get(0).getCohortId();
+
+        for (int u = 0; u < USERS; u++) {
+            User user = new User();
+            user.setUserId("user-" + u);
+            user.setUserName("Learner " + u);
+            user.setUserEmail("learner" + u + "@example.com");
+            user.setUserAddress("42 Long Street, Some City");
+            user.setUserPhoneNumber("90000" + u);
+            user.setUserPassword("$2a$10$abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUV");
+            user.setUserType("learner");
+            user.setOrganization(organization);
+            entityManager.persist(user);
+            for (Cohort cohort : Arrays.asList(cohorts.get(u % COHORTS), cohorts.get((u + 1) % COHORTS))) {
+                UserCohortMapping mapping = new UserCohortMapping();
+                mapping.setUser(user);
+                mapping.setCohort(cohort);
+                entityManager.persist(mapping);
+            }
+            if (u % COHORTS == 0) {
+                MediaFile file = new MediaFile();
+                file.setUser(user);
+                file.setFileName("essay-" + u + ".pdf");
+                file.setFileType("application/pdf");
+                file.setFileSize(1024L);
+                file.setFilePath("COH-0/" + user.getUserId() + "/essay-" + u + ".pdf");
+                entityManager.persist(file);
+                UserAssignment assignment = new UserAssignment();
+                assignment.setUser(user);
+                assignment.setCohort(cohorts.get(0));
+                assignment.setProgram(program);
+                assignment.setStage(stage);
+                assignment.setUnit(unit);
+                assignment.setSubconcept(subconcept);
+                assignment.setSubmittedFile(file);
+                entityManager.persist(assignment);
+            }
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void userListingFetchesLess() {
+        Fetched before = measure(() -> userRepository.findAll().stream().mapToInt(user -> {
+            // What the listing did per user: its mappings, then the program of each cohort
+            int programs = 0;
+            for (UserCohortMapping mapping : userCohortMappingRepository.findAllByUserUserId(user.getUserId())) {
+                programs += cohortProgramRepository.findByCohortCohortId(mapping.getCohort().getCohortId())
+                    .map(cohortProgram -> cohortProgram.getProgram().getProgramName().length()).orElse(0);
+            }
+            return programs + user.getOrganization().getOrganizationName().length();
+        }).sum());
+        Fetched after = measure(() -> userRepository.findUserListing().size()
+            + userCohortMappingRepository.findUserCohortListing().size()
+            + programRepository.findAllById(Collections.singleton("PROG-1")).size());
+
+        report("users", before, after);
+        assertTrue(after.rows < before.rows);
+        assertTrue(after.bytes < before.bytes);
+        // Users, their cohorts and the programs of those cohorts, however many users there are
+        assertEquals(3, after.statements);
+    }
+
+    @Test
+    void cohortMappingsFetchLess() {
+        Fetched before = measure(() -> userCohortMappingRepository.findAllByCohortCohortId(cohortId).stream()
+            .mapToInt(mapping -> mapping.getUser().getUserName().length() + mapping.getCohort().getCohortName().length())
+            .sum());
+        Fetched after = measure(() -> userCohortMappingRepository.findCohortMappings(cohortId).size());
+
+        report("cohort mappings", before, after);
+        assertTrue(after.rows <= before.rows);
+        assertTrue(after.bytes < before.bytes);
+        assertEquals(1, after.statements);
+    }
+
+    @Test
+    void cohortAssignmentsFetchLess() {
+        Fetched before = measure(() -> userAssignmentRepository.findByCohortCohortId(cohortId).stream()
+            .mapToInt(assignment -> assignment.getUser().getUserName().length()
+                + assignment.getSubconcept().getSubconceptDesc().length()
+                + assignment.getSubmittedFile().getFileName().length())
+            .sum());
+        Fetched after = measure(() -> userAssignmentRepository.findCohortAssignments(cohortId).size());
+
+        report("cohort assignments", before, after);
+        assertTrue(after.rows <= before.rows);
+        assertTrue(after.bytes < before.bytes);
+        assertEquals(1, after.statements);
+    }
+
+    @Test
+    void userListingKeepsEveryCohortOfEveryUser() {
+        entityManager.clear();
+        List<UserCohortListingProjection> rows = userCohortMappingRepository.findUserCohortListingByOrganizationId(organizationId);
+
+        assertEquals(USERS, userRepository.findUserListingByOrganizationId(organizationId).size());
+        assertEquals(USERS * 2, rows.size());
+        assertEquals(USERS, rows.stream().map(UserCohortListingProjection::getUserId).distinct().count());
+        assertTrue(rows.stream().allMatch(row -> "PROG-1".equals(row.getProgramId())));
+    }
+
+    @Test
+    void userListingPagesCoverEveryUserOnce() {
+        Set<String> seen = new HashSet<>();
+        String after = "";
+        List<UserListingProjection> page;
+        do {
+            page = userRepository.findUserListingPageByOrganizationIdAndUserType(after, organizationId, "LEARNER",
+                PageRequest.of(0, 64));
+            for (UserListingProjection row : page) {
+                assertTrue(row.getUserId().compareTo(after) > 0);
+                assertTrue(seen.add(row.getUserId()));
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getUserId();
+            }
+        } while (page.size() == 64);
+
+        assertEquals(USERS, seen.size());
+    }
+
+    @Test
+    void inactiveMemberPagesCoverEveryInactiveMembershipOnce() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime cutoff = now.minusDays(5);
+        Set<String> inactiveUsers = new HashSet<>();
+        for (int u = 0; u < USERS; u++) {
+            // A third never attempted anything, a third is active again and a third is inactive
+            if (u % 3 == 2) {
+                continue;
+            }
+            User user = entityManager.find(User.class, "user-" + u);
+            attempt(user, now.minusDays(10));
+            if (u % 3 == 1) {
+                attempt(user, now.minusDays(1));
+            } else {
+                inactiveUsers.add(user.getUserId());
+            }
+        }
+        entityManager.flush();
+
+        List<String> seen = new ArrayList<>();
+        InactiveCohortMemberProjection last = null;
+        List<InactiveCohortMemberProjection> page;
+        do {
+            page = userCohortMappingRepository.findInactiveMembersAfter(cutoff,
+                last == null ? "" : last.getOrganizationId(), last == null ? "" : last.getCohortId(),
+                last == null ? "" : last.getUserId(), PageRequest.of(0, 50));
+            for (InactiveCohortMemberProjection row : page) {
+                assertTrue(inactiveUsers.contains(row.getUserId()));
+                assertTrue(row.getLastActivity().isBefore(cutoff));
+                seen.add(row.getCohortId() + "/" + row.getUserId());
+            }
+            if (!page.isEmpty()) {
+                last = page.get(page.size() - 1);
+            }
+        } while (page.size() == 50);
+
+        // Every inactive user is in two cohorts
+        assertEquals(inactiveUsers.size() * 2, seen.size());
+        assertEquals(seen.size(), new HashSet<>(seen).size());
+    }
+
+    private void attempt(User user, OffsetDateTime end) {
+        Cohort cohort = userCohortMappingRepository.findAllByUserUserId(user.getUserId()).get(0).getCohort();
+        UserSessionMapping session = new UserSessionMapping();
+        session.setUser(user);
+        session.setCohort(cohort);
+        entityManager.persist(session);
+        UserAttempts attempt = new UserAttempts();
+        attempt.setUser(user);
+        attempt.setSession(session);
+        attempt.setProgram(entityManager.find(Program.class, "PROG-1"));
+        attempt.setStage(entityManager.find(Stage.class, "PROG-1-S1"));
+        attempt.setUnit(entityManager.find(Unit.class, "PROG-1-S1-U1"));
+        attempt.setSubconcept(entityManager.find(Subconcept.class, "SC-1"));
+        attempt.setUserAttemptStartTimestamp(end.minusMinutes(5));
+        attempt.setUserAttemptEndTimestamp(end);
+        attempt.setUserAttemptFlag(true);
+        attempt.setUserAttemptScore(5);
+        entityManager.persist(attempt);
+    }
+
+    private Fetched measure(Supplier<Integer> read) {
+        entityManager.clear();
+        FetchCounter.reset();
+        assertNotNull(read.get());
+        return FetchCounter.snapshot();
+    }
+
+    private static void report(String endpoint, Fetched before, Fetched after) {
+        logger.info("{}: before {} statements, {} rows, {} bytes; after {} statements, {} rows, {} bytes",
+                   endpoint, before.statements, before.rows, before.bytes, after.statements, after.rows, after.bytes);
+    }
+
+    static final class Fetched {
+        final long statements;
+        final long rows;
+        final long bytes;
+
+        Fetched(long statements, long rows, long bytes) {
+            this.statements = statements;
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Counts statements executed, result set rows read and bytes of column values returned
+     */
+    static final class FetchCounter {
+
+        private static long statements;
+        private static long rows;
+        private static long bytes;
+
+        static synchronized void reset() {
+            statements = 0;
+            rows = 0;
+            bytes = 0;
+        }
+
+        static synchronized Fetched snapshot() {
+            return new Fetched(statements, rows, bytes);
+        }
+
+        static synchronized void statement() {
+            statements++;
+        }
+
+        static synchronized void row() {
+            rows++;
+        }
+
+        static synchronized void value(Object value) {
+            if (value instanceof String) {
+                bytes += ((String) value).getBytes(StandardCharsets.UTF_8).length;
+            } else if (value instanceof byte[]) {
+                bytes += ((byte[]) value).length;
+            } else if (value instanceof UUID) {
+                bytes += 16;
+            } else if (value instanceof Boolean) {
+                bytes += 1;
+            } else if (value != null) {
+                bytes += 8;
+            }
+        }
+
+        static <T> T wrap(Class<T> type, Object target) {
+            return type.cast(Proxy.newProxyInstance(FetchCounter.class.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    String name = method.getName();
+                    if (target instanceof Statement && (name.equals("executeQuery") || name.equals("execute"))) {
+                        statement();
+                    }
+                    if (result instanceof ResultSet) {
+                        return wrap(ResultSet.class, result);
+                    }
+                    if (target instanceof ResultSet) {
+                        if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                            row();
+                        } else if (name.startsWith("get") && args != null && args.length >= 1
+                                   && !name.equals("getMetaData") && !name.equals("getStatement")) {
+                            value(result);
+                        }
+                    }
+                    return result;
+                }));
+        }
+    }
+
+    @TestConfiguration
+    static class FetchCountingConfig {
+
+        @Bean
+        static BeanPostProcessor fetchCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource)) {
+                        return bean;
+                    }
+                    DataSource dataSource = (DataSource) bean;
+                    return Proxy.newProxyInstance(FetchCounter.class.getClassLoader(), new Class<?>[] { DataSource.class },
+                        (proxy, method, args) -> {
+                            Object result;
+                            try {
+                                result = method.invoke(dataSource, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                            return result instanceof Connection ? wrapConnection((Connection) result) : result;
+                        });
+                }
+            };
+        }
+
+        private static Connection wrapConnection(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(FetchCounter.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof PreparedStatement) {
+                        return FetchCounter.wrap(PreparedStatement.class, result);
+                    }
+                    if (result instanceof Statement) {
+                        return FetchCounter.wrap(Statement.class, result);
+                    }
+                    return result;
+                });
+        }
+    }
+}
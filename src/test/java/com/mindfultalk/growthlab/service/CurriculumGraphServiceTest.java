@@ -0,0 +1,144 @@
+package com.mindfultalk.growthlab.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import com.mindfultalk.growthlab.model.*;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(CurriculumGraphService.class)
+class CurriculumGraphServiceTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
+
+    private Statistics statistics;
+    private Program program;
+    private Stage stage;
+    private Unit unit;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        curriculumGraphService.invalidate();
+
+        program = new Program();
+        program.setProgramId("P1");
+        program.setProgramName("Program One");
+        em.persist(program);
+
+        stage = new Stage();
+        stage.setStageId("P1-S0");
+        stage.setStageName("Stage Zero");
+        stage.setProgram(program);
+        em.persist(stage);
+
+        unit = new Unit();
+        unit.setUnitId("P1-S0-U0");
+        unit.setUnitName("Unit Zero");
+        unit.setProgram(program);
+        unit.setStage(stage);
+        em.persist(unit);
+
+        // Persisted out of order to check the graph follows mapping positions
+        addSubconcept("SC2", "assignment-video", "learner,mentor", 2);
+        addSubconcept("SC0", "video", "learner, mentor", 0);
+        addSubconcept("SC1", "Assignment", "mentor,admin", 1);
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void buildsOrderedGraphWithPrecomputedFlags() {
+        CurriculumGraph graph = curriculumGraphService.findGraph("P1").orElseThrow();
+
+        assertEquals("Program One", graph.getProgramName());
+        assertEquals(1, graph.getStages().size());
+        CurriculumGraph.UnitNode unitNode = graph.findUnit("P1-S0-U0").orElseThrow();
+        assertEquals("P1-S0", graph.getStage(unitNode).getStageId());
+
+        List<CurriculumGraph.SubconceptNode> subconcepts = graph.getSubconcepts(unitNode);
+        assertEquals(List.of("SC0", "SC1", "SC2"), subconcepts.stream()
+            .map(CurriculumGraph.SubconceptNode::getSubconceptId)
+            .collect(Collectors.toList()));
+        assertFalse(subconcepts.get(0).isAssignment());
+        assertTrue(subconcepts.get(1).isAssignment());
+        assertTrue(subconcepts.get(2).isAssignment());
+
+        // Listing rule splits on commas, the report rule only accepts the exact pairs
+        assertTrue(subconcepts.get(0).isListedFor("Learner"));
+        assertFalse(subconcepts.get(0).isReportedFor("learner"));
+        assertTrue(subconcepts.get(1).isListedFor("admin"));
+        assertFalse(subconcepts.get(1).isListedFor("learner"));
+        assertFalse(subconcepts.get(1).isReportedFor("mentor"));
+        assertTrue(subconcepts.get(2).isReportedFor("mentor"));
+        assertTrue(subconcepts.get(2).isListedFor("learner"));
+    }
+
+    @Test
+    void servesGraphFromMemoryUntilInvalidated() {
+        CurriculumGraph first = curriculumGraphService.findGraph("P1").orElseThrow();
+
+        statistics.clear();
+        assertSame(first, curriculumGraphService.findGraph("P1").orElseThrow());
+        assertSame(first, curriculumGraphService.findGraphByUnitId("P1-S0-U0").orElseThrow());
+        assertSame(first, curriculumGraphService.findGraphByStageId("P1-S0").orElseThrow());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        Unit stored = em.find(Unit.class, "P1-S0-U0");
+        stored.setUnitName("Unit Renamed");
+        em.flush();
+        curriculumGraphService.invalidate();
+
+        CurriculumGraph second = curriculumGraphService.findGraph("P1").orElseThrow();
+        assertNotSame(first, second);
+        assertTrue(second.getVersion() > first.getVersion());
+        assertEquals("Unit Renamed", second.findUnit("P1-S0-U0").orElseThrow().getUnitName());
+        assertEquals("Unit Zero", first.findUnit("P1-S0-U0").orElseThrow().getUnitName());
+    }
+
+    @Test
+    void unknownIdsHaveNoGraph() {
+        assertTrue(curriculumGraphService.findGraph("MISSING").isEmpty());
+        assertTrue(curriculumGraphService.findGraphByUnitId("MISSING").isEmpty());
+        assertTrue(curriculumGraphService.findGraphByStageId("MISSING").isEmpty());
+    }
+
+    private void addSubconcept(String subconceptId, String type, String showTo, int position) {
+        Subconcept subconcept = new Subconcept();
+        subconcept.setSubconceptId(subconceptId);
+        subconcept.setSubconceptDesc("Subconcept " + subconceptId);
+        subconcept.setSubconceptType(type);
+        subconcept.setSubconceptDuration(60);
+        subconcept.setShowTo(showTo);
+        em.persist(subconcept);
+
+        ProgramConceptsMapping mapping = new ProgramConceptsMapping();
+        mapping.setProgramConceptDesc("Mapping " + subconceptId);
+        mapping.setPosition(position);
+        mapping.setProgram(program);
+        mapping.setStage(stage);
+        mapping.setUnit(unit);
+        mapping.setSubconcept(subconcept);
+        em.persist(mapping);
+    }
+}
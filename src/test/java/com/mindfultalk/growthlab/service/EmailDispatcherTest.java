@@ -0,0 +1,130 @@
+package com.mindfultalk.growthlab.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mindfultalk.growthlab.model.EmailOutbox;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Sending path of {@link EmailDispatcher} against a mocked mail sender and outbox store
+ */
+class EmailDispatcherTest {
+
+    private JavaMailSender mailSender;
+    private EmailOutboxStore emailOutboxStore;
+    private EmailDispatcher emailDispatcher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mailSender = mock(JavaMailSender.class);
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage(Session.getInstance(new Properties())));
+        emailOutboxStore = mock(EmailOutboxStore.class);
+
+        emailDispatcher = new EmailDispatcher();
+        ReflectionTestUtils.setField(emailDispatcher, "mailSender", mailSender);
+        ReflectionTestUtils.setField(emailDispatcher, "emailOutboxStore", emailOutboxStore);
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(emailDispatcher, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(emailDispatcher, "threads", 2);
+        ReflectionTestUtils.setField(emailDispatcher, "ratePerSecond", 0.0);
+        ReflectionTestUtils.setField(emailDispatcher, "maxRetries", 3);
+        ReflectionTestUtils.setField(emailDispatcher, "baseBackoffMs", 1000L);
+        ReflectionTestUtils.setField(emailDispatcher, "maxBackoffMs", 60000L);
+        emailDispatcher.startSenderPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        emailDispatcher.stopDispatcher();
+    }
+
+    @Test
+    void chunkIsSentInOneCallAndMarkedSent() {
+        List<EmailOutbox> chunk = Arrays.asList(entry(1L, "a@example.com"), entry(2L, "b@example.com"));
+
+        emailDispatcher.sendChunk(chunk);
+
+        ArgumentCaptor<MimeMessage[]> captor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender, times(1)).send(captor.capture());
+        assertEquals(2, captor.getValue().length);
+        verify(emailOutboxStore).markSent(Arrays.asList(1L, 2L));
+        verify(emailOutboxStore, never()).markFailed(anyLong(), any(), anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    void onlyTheRejectedMessageIsRetried() {
+        List<EmailOutbox> chunk = Arrays.asList(entry(1L, "a@example.com"), entry(2L, "b@example.com"));
+        doAnswer(invocation -> {
+            Object[] messages = invocation.getArguments();
+            MimeMessage rejected = (MimeMessage) messages[messages.length - 1];
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            failed.put(rejected, new MailSendException("550 mailbox unavailable"));
+            throw new MailSendException(failed);
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        emailDispatcher.sendChunk(chunk);
+
+        verify(emailOutboxStore).markSent(Collections.singletonList(1L));
+        verify(emailOutboxStore).markFailed(eq(2L), contains("550"), eq(3), eq(1000L), eq(60000L));
+    }
+
+    @Test
+    void connectionFailureRetriesTheWholeChunk() {
+        List<EmailOutbox> chunk = Arrays.asList(entry(1L, "a@example.com"), entry(2L, "b@example.com"));
+        doThrow(new MailSendException("Mail server connection failed"))
+            .when(mailSender).send(any(MimeMessage[].class));
+
+        emailDispatcher.sendChunk(chunk);
+
+        verify(emailOutboxStore).markSent(Collections.emptyList());
+        verify(emailOutboxStore).markFailed(eq(1L), any(), anyInt(), anyLong(), anyLong());
+        verify(emailOutboxStore).markFailed(eq(2L), any(), anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        assertEquals(1000L, EmailOutboxStore.backoffMs(1, 1000L, 60000L));
+        assertEquals(2000L, EmailOutboxStore.backoffMs(2, 1000L, 60000L));
+        assertEquals(32000L, EmailOutboxStore.backoffMs(6, 1000L, 60000L));
+        assertEquals(60000L, EmailOutboxStore.backoffMs(7, 1000L, 60000L));
+        assertEquals(60000L, EmailOutboxStore.backoffMs(200, 1000L, 60000L));
+    }
+
+    @Test
+    void templateRendersLikeStringFormat() {
+        String source = "<p>Dear %s,</p><p>%s joined %s</p>";
+        EmailTemplate template = EmailTemplate.compile("test", source);
+
+        assertEquals(String.format(source, "Asha", "Ravi", null), template.render("Asha", "Ravi", null));
+        assertThrows(IllegalArgumentException.class, () -> template.render("Asha"));
+    }
+
+    private static EmailOutbox entry(Long id, String recipient) {
+        EmailOutbox entry = new EmailOutbox();
+        entry.setId(id);
+        entry.setRecipient(recipient);
+        entry.setSubject("Subject " + id);
+        entry.setBody("Body " + id);
+        entry.setTemplate("test");
+        return entry;
+    }
+}
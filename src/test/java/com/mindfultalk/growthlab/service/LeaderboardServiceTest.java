@@ -0,0 +1,224 @@
+package com.mindfultalk.growthlab.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mindfultalk.growthlab.repository.*;
+
+import redis.embedded.RedisServer;
+
+/**
+ * Increment and write-back path of {@link LeaderboardService} against an embedded Redis and a
+ * mocked repository standing in for the database
+ */
+class LeaderboardServiceTest {
+
+    private static final String COHORT = "COH-1";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redis;
+    private UserCohortMappingRepository repository;
+    private ConcurrentMapCacheManager cacheManager;
+    private LeaderboardService leaderboardService;
+
+    // Scores the mocked database holds, updated by incrementLeaderboardScore
+    private final Map<String, Integer> databaseScores = new ConcurrentHashMap<>();
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis = new StringRedisTemplate(connectionFactory);
+        redis.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        repository = mock(UserCohortMappingRepository.class);
+        when(repository.incrementLeaderboardScore(anyString(), eq(COHORT), anyInt())).thenAnswer(invocation -> {
+            databaseScores.merge(invocation.getArgument(0), invocation.getArgument(2), Integer::sum);
+            return 1;
+        });
+        when(repository.findCohortMembers(COHORT)).thenAnswer(invocation -> databaseScores.entrySet().stream()
+            .map(entry -> member(entry.getKey(), entry.getValue())).toList());
+        cacheManager = new ConcurrentMapCacheManager();
+
+        leaderboardService = new LeaderboardService();
+        ReflectionTestUtils.setField(leaderboardService, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(leaderboardService, "userCohortMappingRepository", repository);
+        ReflectionTestUtils.setField(leaderboardService, "cacheManager", cacheManager);
+    }
+
+    @Test
+    void incrementsMoveTheLoadedScoreAndAreWrittenBackOnce() {
+        databaseScores.put("alice", 10);
+        assertEquals(10, leaderboardService.getScore(COHORT, "alice"));
+
+        leaderboardService.increment("alice", COHORT, 5);
+        leaderboardService.increment("alice", COHORT, 3);
+        assertEquals(18, leaderboardService.getScore(COHORT, "alice"));
+        assertEquals(10, databaseScores.get("alice"));
+
+        leaderboardService.writeBackAll();
+        assertEquals(18, databaseScores.get("alice"));
+        verify(repository).incrementLeaderboardScore("alice", COHORT, 8);
+        assertFalse(redis.hasKey("leaderboard:" + COHORT + ":pending"));
+        assertFalse(redis.hasKey("leaderboard:" + COHORT + ":processing"));
+        assertFalse(redis.opsForSet().isMember("leaderboard:dirty", COHORT));
+
+        // Nothing left to write
+        leaderboardService.writeBackAll();
+        verify(repository, times(1)).incrementLeaderboardScore(anyString(), anyString(), anyInt());
+        assertEquals(18, leaderboardService.getScore(COHORT, "alice"));
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws Exception {
+        databaseScores.put("alice", 0);
+        databaseScores.put("bob", 0);
+        leaderboardService.getScore(COHORT, "alice");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            String userId = t % 2 == 0 ? "alice" : "bob";
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    leaderboardService.increment(userId, COHORT, 1);
+                    if (i % 25 == 0) {
+                        leaderboardService.writeBackAll();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        leaderboardService.writeBackAll();
+
+        assertEquals(400, leaderboardService.getScore(COHORT, "alice"));
+        assertEquals(400, leaderboardService.getScore(COHORT, "bob"));
+        assertEquals(400, databaseScores.get("alice"));
+        assertEquals(400, databaseScores.get("bob"));
+    }
+
+    @Test
+    void failedUpdateKeepsTheDeltaForTheNextRun() {
+        databaseScores.put("alice", 0);
+        databaseScores.put("bob", 0);
+        leaderboardService.increment("alice", COHORT, 4);
+        leaderboardService.increment("bob", COHORT, 6);
+        doThrow(new RuntimeException("database down")).when(repository).incrementLeaderboardScore("bob", COHORT, 6);
+
+        leaderboardService.writeBackAll();
+        assertEquals(4, databaseScores.get("alice"));
+        assertEquals(0, databaseScores.get("bob"));
+        assertEquals("6", redis.opsForHash().get("leaderboard:" + COHORT + ":processing", "bob"));
+        assertTrue(redis.opsForSet().isMember("leaderboard:dirty", COHORT));
+
+        // A later increment is merged with the delta still being written
+        leaderboardService.increment("bob", COHORT, 1);
+        doAnswer(invocation -> {
+            databaseScores.merge("bob", 7, Integer::sum);
+            return 1;
+        }).when(repository).incrementLeaderboardScore("bob", COHORT, 7);
+        leaderboardService.writeBackAll();
+        assertEquals(7, databaseScores.get("bob"));
+        assertFalse(redis.hasKey("leaderboard:" + COHORT + ":processing"));
+        assertFalse(redis.opsForSet().isMember("leaderboard:dirty", COHORT));
+    }
+
+    @Test
+    void deltasLeftByAnInterruptedWriteBackAreCountedAndWritten() {
+        databaseScores.put("alice", 10);
+        // A node died after taking these deltas and before writing them
+        redis.opsForHash().put("leaderboard:" + COHORT + ":processing", "alice", "5");
+        redis.opsForSet().add("leaderboard:dirty", COHORT);
+        leaderboardService.increment("alice", COHORT, 2);
+
+        assertEquals(17, leaderboardService.getScore(COHORT, "alice"));
+        leaderboardService.writeBackAll();
+        assertEquals(17, databaseScores.get("alice"));
+        verify(repository).incrementLeaderboardScore("alice", COHORT, 7);
+    }
+
+    @Test
+    void scoreSetDirectlyIsNotRaisedByEarlierDeltas() {
+        databaseScores.put("alice", 10);
+        databaseScores.put("bob", 0);
+        leaderboardService.increment("alice", COHORT, 5);
+        leaderboardService.increment("bob", COHORT, 4);
+        // A failed write-back left part of alice's earlier score in the processing hash
+        redis.opsForHash().put("leaderboard:" + COHORT + ":processing", "alice", "3");
+
+        // The admin sets alice to 20, as the mapping update does
+        leaderboardService.discardPendingDeltas(COHORT, "alice");
+        databaseScores.put("alice", 20);
+        leaderboardService.rebuild(COHORT);
+
+        assertEquals(20, databaseScores.get("alice"));
+        assertEquals(20, leaderboardService.getScore(COHORT, "alice"));
+        verify(repository, never()).incrementLeaderboardScore(eq("alice"), anyString(), anyInt());
+        // Other members' deltas are still written
+        assertEquals(4, databaseScores.get("bob"));
+
+        // Later attempts count on top of the new score
+        leaderboardService.increment("alice", COHORT, 2);
+        assertEquals(22, leaderboardService.getScore(COHORT, "alice"));
+    }
+
+    @Test
+    void writeBackEvictsOnlyTheWrittenUsersMappings() {
+        databaseScores.put("alice", 0);
+        cacheManager.getCache("userCohortMappings").put("alice:" + COHORT, "alice mapping");
+        cacheManager.getCache("userCohortMappings").put("bob:" + COHORT, "bob mapping");
+        cacheManager.getCache("cohortMappings").put(COHORT, "members");
+
+        leaderboardService.increment("alice", COHORT, 1);
+        leaderboardService.writeBackAll();
+
+        assertNull(cacheManager.getCache("userCohortMappings").get("alice:" + COHORT));
+        assertNotNull(cacheManager.getCache("userCohortMappings").get("bob:" + COHORT));
+        assertNull(cacheManager.getCache("cohortMappings").get(COHORT));
+    }
+
+    private static CohortMemberProjection member(String userId, int score) {
+        return new CohortMemberProjection() {
+            public String getUserId() { return userId; }
+            public String getUserName() { return userId; }
+            public String getUserType() { return "learner"; }
+            public String getUserPhoneNumber() { return null; }
+            public Integer getLeaderboardScore() { return score; }
+        };
+    }
+}
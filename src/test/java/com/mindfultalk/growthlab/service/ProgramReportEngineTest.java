@@ -0,0 +1,332 @@
+package com.mindfultalk.growthlab.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mindfultalk.growthlab.dto.*;
+import com.mindfultalk.growthlab.model.*;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ProgramReportEngine.class, ProgramReportServiceImpl.class, ProgramReportExportService.class,
+    CurriculumGraphService.class, UserTypeResolver.class, UserContext.class})
+class ProgramReportEngineTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProgramReportEngine programReportEngine;
+
+    @Autowired
+    private ProgramReportServiceImpl programReportService;
+
+    @Autowired
+    private CurriculumGraphService curriculumGraphService;
+
+    @MockBean
+    private CacheManagementService cacheManagementService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private Statistics statistics;
+    private Organization organization;
+    private Cohort cohort;
+    private User learner;
+    private UserSessionMapping session;
+    private ContentMaster content;
+    private int sequence;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        curriculumGraphService.invalidate();
+
+        organization = new Organization();
+        organization.setOrganizationId("ORG1");
+        organization.setOrganizationName("Org One");
+        organization.setOrganizationAdminName("Admin");
+        organization.setOrganizationAdminEmail("admin@org.test");
+        organization.setOrganizationAdminPhone("9999999999");
+        organization.setOrgPassword("secret");
+        organization.setCreatedAt(OffsetDateTime.now());
+        em.persist(organization);
+
+        cohort = new Cohort();
+        cohort.setCohortId("COH1");
+        cohort.setCohortName("Cohort One");
+        cohort.setCohortStartDate(OffsetDateTime.now().minusDays(30));
+        cohort.setOrganization(organization);
+        em.persist(cohort);
+
+        learner = new User();
+        learner.setUserId("U1");
+        learner.setUserName("Learner One");
+        learner.setUserPassword("pw");
+        learner.setUserType("learner");
+        learner.setOrganization(organization);
+        em.persist(learner);
+        addToCohort(learner, 40);
+
+        session = new UserSessionMapping();
+        session.setSessionId("S1");
+        session.setSessionStartTimestamp(OffsetDateTime.now().minusDays(1));
+        session.setCohort(cohort);
+        session.setUser(learner);
+        em.persist(session);
+
+        content = new ContentMaster();
+        content.setContentId(1);
+        content.setContentName("Content");
+        em.persist(content);
+    }
+
+    @Test
+    void programReportMatchesPerStageWalk() throws Exception {
+        Program program = createProgram("P1", 3, 3, 4);
+        em.flush();
+        em.clear();
+
+        ProgramReportDTO report = programReportEngine.buildProgramReport(learner.getUserId(), program.getProgramId());
+
+        assertEquals(3, report.getTotalStages());
+        assertEquals(9, report.getTotalUnits());
+        for (StageReportDTO stageReport : report.getStages()) {
+            StageReportDTO legacy = programReportService.generateStageReport(learner.getUserId(), stageReport.getStageId());
+            legacy.setEnabled(stageReport.isEnabled());
+            assertEquals(objectMapper.writeValueAsString(legacy), objectMapper.writeValueAsString(stageReport));
+        }
+        assertTrue(report.getCompletedSubconcepts() > 0);
+        assertEquals(report.getScoreDistribution().values().stream().mapToInt(Integer::intValue).sum(),
+                countProgramAttempts(program.getProgramId()));
+    }
+
+    @Test
+    void queryCountDoesNotGrowWithProgramSize() {
+        createProgram("SMALL", 1, 1, 2);
+        createProgram("LARGE", 12, 6, 8);
+        em.flush();
+        em.clear();
+
+        long small = countStatements(() -> programReportEngine.buildProgramReport(learner.getUserId(), "SMALL"));
+        long large = countStatements(() -> programReportEngine.buildProgramReport(learner.getUserId(), "LARGE"));
+        long legacy = countStatements(() -> {
+            for (String stageId : stageIds("LARGE")) {
+                programReportService.generateStageReport(learner.getUserId(), stageId);
+            }
+        });
+
+        assertEquals(small, large, "report query count must not depend on program size");
+        assertTrue(large <= 7, "expected a constant handful of queries but was " + large);
+        assertTrue(legacy > 10 * large, "legacy walk issued " + legacy + " statements");
+    }
+
+    @Test
+    void cohortProgressMatchesPerUserWalk() throws Exception {
+        Program program = createProgram("P1", 3, 3, 4);
+        CohortProgram cohortProgram = new CohortProgram();
+        cohortProgram.setCohort(cohort);
+        cohortProgram.setProgram(program);
+        em.persist(cohortProgram);
+
+        User mentor = createMember("M1", "mentor", 75);
+        User newcomer = createMember("U2", "Learner", 10);
+        completeMappings(mentor, program.getProgramId(), 3);
+        completeMappings(newcomer, program.getProgramId(), 1);
+        em.flush();
+        em.clear();
+
+        List<UserProgressDTO> progress = programReportEngine.buildCohortUserProgress(program.getProgramId(), cohort.getCohortId());
+
+        assertEquals(3, progress.size());
+        for (UserProgressDTO userProgress : progress) {
+            UserProgressDTO legacy = programReportService.getUserProgress(program.getProgramId(), userProgress.getUserId());
+            assertEquals(objectMapper.writeValueAsString(legacy), objectMapper.writeValueAsString(userProgress));
+        }
+    }
+
+    @Test
+    void cohortProgressQueryCountDoesNotGrowWithCohortSize() {
+        Program program = createProgram("P1", 4, 3, 4);
+        em.flush();
+
+        long few = countStatements(() -> programReportEngine.buildCohortUserProgress(program.getProgramId(), cohort.getCohortId()));
+        for (int i = 0; i < 25; i++) {
+            User member = createMember("BULK" + i, i % 5 == 0 ? "mentor" : "learner", i);
+            completeMappings(member, program.getProgramId(), i % 4);
+        }
+        em.flush();
+        long many = countStatements(() -> programReportEngine.buildCohortUserProgress(program.getProgramId(), cohort.getCohortId()));
+
+        assertEquals(few, many, "cohort progress query count must not depend on cohort size");
+        assertTrue(many <= 6, "expected a constant handful of queries but was " + many);
+    }
+
+    private User createMember(String userId, String userType, int leaderboardScore) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setUserName("User " + userId);
+        user.setUserPassword("pw");
+        user.setUserType(userType);
+        user.setOrganization(organization);
+        em.persist(user);
+        addToCohort(user, leaderboardScore);
+        return user;
+    }
+
+    private void addToCohort(User user, int leaderboardScore) {
+        UserCohortMapping mapping = new UserCohortMapping();
+        mapping.setUser(user);
+        mapping.setCohort(cohort);
+        mapping.setLeaderboardScore(leaderboardScore);
+        em.persist(mapping);
+    }
+
+    // Completes every mapping whose position is below the given bound
+    private void completeMappings(User user, String programId, int positionBound) {
+        List<ProgramConceptsMapping> mappings = em.getEntityManager()
+            .createQuery("SELECT pcm FROM ProgramConceptsMapping pcm WHERE pcm.program.programId = :programId", ProgramConceptsMapping.class)
+            .setParameter("programId", programId)
+            .getResultList();
+        for (ProgramConceptsMapping mapping : mappings) {
+            if (mapping.getPosition() < positionBound) {
+                UserSubConcept completion = new UserSubConcept();
+                completion.setUser(user);
+                completion.setProgram(mapping.getProgram());
+                completion.setStage(mapping.getStage());
+                completion.setUnit(mapping.getUnit());
+                completion.setSubconcept(mapping.getSubconcept());
+                em.persist(completion);
+            }
+        }
+    }
+
+    // Counts with a cold curriculum graph, so the graph build is included
+    private long countStatements(Runnable action) {
+        curriculumGraphService.invalidate();
+        em.clear();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<String> stageIds(String programId) {
+        return em.getEntityManager()
+            .createQuery("SELECT s.stageId FROM Stage s WHERE s.program.programId = :programId", String.class)
+            .setParameter("programId", programId)
+            .getResultList();
+    }
+
+    private int countProgramAttempts(String programId) {
+        return em.getEntityManager()
+            .createQuery("SELECT COUNT(ua) FROM UserAttempts ua WHERE ua.program.programId = :programId", Long.class)
+            .setParameter("programId", programId)
+            .getSingleResult()
+            .intValue();
+    }
+
+    private Program createProgram(String programId, int stageCount, int unitsPerStage, int subconceptsPerUnit) {
+        Program program = new Program();
+        program.setProgramId(programId);
+        program.setProgramName("Program " + programId);
+        program.setProgramDesc("Description " + programId);
+        em.persist(program);
+
+        Concept concept = new Concept();
+        concept.setConceptId("C-" + programId);
+        concept.setConceptName("Concept " + programId);
+        concept.setContent(content);
+        em.persist(concept);
+
+        String[] showTo = {"learner", "mentor", "learner,mentor", "Mentor,Learner"};
+        OffsetDateTime base = OffsetDateTime.now().minusDays(10);
+
+        for (int s = 0; s < stageCount; s++) {
+            Stage stage = new Stage();
+            stage.setStageId(programId + "-S" + s);
+            stage.setStageName("Stage " + s);
+            stage.setProgram(program);
+            em.persist(stage);
+
+            for (int u = 0; u < unitsPerStage; u++) {
+                Unit unit = new Unit();
+                unit.setUnitId(stage.getStageId() + "-U" + u);
+                unit.setUnitName("Unit " + u);
+                unit.setProgram(program);
+                unit.setStage(stage);
+                em.persist(unit);
+
+                // Every third unit has no content at all
+                if ((s + u) % 3 == 2) {
+                    continue;
+                }
+
+                for (int c = 0; c < subconceptsPerUnit; c++) {
+                    Subconcept subconcept = new Subconcept();
+                    subconcept.setSubconceptId(unit.getUnitId() + "-SC" + c);
+                    subconcept.setSubconceptDesc("Subconcept " + c);
+                    subconcept.setSubconceptType(c == subconceptsPerUnit - 1 ? "assignment" : "video");
+                    subconcept.setSubconceptDuration(60);
+                    subconcept.setShowTo(showTo[c % showTo.length]);
+                    subconcept.setConcept(c % 2 == 0 ? concept : null);
+                    em.persist(subconcept);
+
+                    ProgramConceptsMapping mapping = new ProgramConceptsMapping();
+                    mapping.setProgramConceptDesc("Mapping " + c);
+                    mapping.setPosition(c);
+                    mapping.setProgram(program);
+                    mapping.setStage(stage);
+                    mapping.setUnit(unit);
+                    mapping.setSubconcept(subconcept);
+                    em.persist(mapping);
+
+                    // The first stage is fully completed; later stages are partially attempted
+                    boolean completed = s == 0 || c % 2 == 0;
+                    if (completed) {
+                        UserSubConcept completion = new UserSubConcept();
+                        completion.setUser(learner);
+                        completion.setProgram(program);
+                        completion.setStage(stage);
+                        completion.setUnit(unit);
+                        completion.setSubconcept(subconcept);
+                        em.persist(completion);
+                    }
+                    for (int a = 0; a < (completed ? 2 : 1); a++) {
+                        UserAttempts attempt = new UserAttempts();
+                        OffsetDateTime start = base.plusMinutes(sequence++);
+                        attempt.setUserAttemptStartTimestamp(start);
+                        attempt.setUserAttemptEndTimestamp(start.plusSeconds(30));
+                        attempt.setUserAttemptScore((sequence * 17) % 101);
+                        attempt.setUserAttemptFlag(completed);
+                        attempt.setUser(learner);
+                        attempt.setProgram(program);
+                        attempt.setStage(stage);
+                        attempt.setUnit(unit);
+                        attempt.setSubconcept(subconcept);
+                        attempt.setSession(session);
+                        em.persist(attempt);
+                    }
+                }
+            }
+        }
+        return program;
+    }
+}
@@ -0,0 +1,88 @@
+package com.mindfultalk.growthlab.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.*;
+
+import com.mindfultalk.growthlab.repository.UserRepository;
+
+/**
+ * Report cache keys built from {@link UserContext} instead of a user lookup per key
+ */
+class ReportCacheKeyGeneratorTest {
+
+    private UserRepository userRepository;
+    private UserContext userContext;
+    private ReportCacheKeyGenerator keyGenerator;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userContext = new UserContext();
+        UserTypeResolver userTypeResolver = new UserTypeResolver();
+        ReflectionTestUtils.setField(userTypeResolver, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userTypeResolver, "userContext", userContext);
+
+        CacheGenerationService cacheGenerationService = mock(CacheGenerationService.class);
+        when(cacheGenerationService.forProgram(anyString(), anyString())).thenReturn("g1");
+        when(cacheGenerationService.forUnit(anyString(), anyString())).thenReturn("g2");
+
+        keyGenerator = new ReportCacheKeyGenerator();
+        ReflectionTestUtils.setField(keyGenerator, "userTypeResolver", userTypeResolver);
+        ReflectionTestUtils.setField(keyGenerator, "cacheGenerationService", cacheGenerationService);
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void signedInUserNeedsNoQuery() throws Exception {
+        userContext.populate("u1", "c1", "s1", "learner");
+
+        assertEquals("u1_p1_learner_g1", keyGenerator.generate(null, method("generateProgramReport"), "u1", "p1"));
+        assertEquals("u1_un1_learner_g2", keyGenerator.generate(null, method("generateUnitReport"), "u1", "un1"));
+        assertEquals("p1_u1_learner_g1", keyGenerator.generate(null, method("getUserProgress"), "p1", "u1"));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void otherUserIsLookedUpOncePerRequest() throws Exception {
+        userContext.populate("mentor1", "c1", "s1", "mentor");
+        when(userRepository.findUserTypeByUserId("u2")).thenReturn(Optional.of("learner"));
+
+        keyGenerator.generate(null, method("generateProgramReport"), "u2", "p1");
+        Object key = keyGenerator.generate(null, method("getUserProgress"), "p1", "u2");
+
+        assertEquals("p1_u2_learner_g1", key);
+        verify(userRepository, times(1)).findUserTypeByUserId("u2");
+    }
+
+    @Test
+    void unknownUserGetsItsOwnKey() throws Exception {
+        when(userRepository.findUserTypeByUserId("missing")).thenReturn(Optional.empty());
+
+        assertEquals("missing_p1_unknown_g1", keyGenerator.generate(null, method("generateProgramReport"), "missing", "p1"));
+    }
+
+    private static Method method(String name) {
+        for (Method method : ProgramReportService.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+}
@@ -0,0 +1,189 @@
+package com.mindfultalk.growthlab.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mindfultalk.growthlab.exception.UploadCapacityExceededException;
+
+import software.amazon.awssdk.auth.credentials.*;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+/**
+ * Upload paths of {@link S3StorageService} against a mocked S3 client that records what it is
+ * sent, and download URLs from {@link MediaUrlService}
+ */
+class S3StorageServiceTest {
+
+    private S3Client s3Client;
+    private S3Presigner s3Presigner;
+    private S3StorageService s3StorageService;
+
+    @BeforeEach
+    void setUp() {
+        s3Client = mock(S3Client.class);
+        // Presigning is local, so a real presigner with made-up keys needs no network
+        s3Presigner = spy(S3Presigner.builder()
+            .region(Region.of("ap-south-1"))
+            .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+            .build());
+        s3StorageService = new S3StorageService(s3Client, s3Presigner, "bucket", "ap-south-1");
+        ReflectionTestUtils.setField(s3StorageService, "multipartThreshold", 10L);
+        ReflectionTestUtils.setField(s3StorageService, "partSize", 4L);
+        ReflectionTestUtils.setField(s3StorageService, "partThreads", 3);
+        ReflectionTestUtils.setField(s3StorageService, "maxConcurrentUploads", 1);
+        ReflectionTestUtils.setField(s3StorageService, "acquireTimeoutMs", 50L);
+        s3StorageService.startUploadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3StorageService.stopUploadPool();
+        s3Presigner.close();
+    }
+
+    @Test
+    void downloadUrlsArePresignedOnceAndNeverTouchTheAcl() {
+        MediaUrlService mediaUrlService = new MediaUrlService();
+        ReflectionTestUtils.setField(mediaUrlService, "s3StorageService", s3StorageService);
+        ReflectionTestUtils.setField(mediaUrlService, "ttlMinutes", 60);
+        ReflectionTestUtils.setField(mediaUrlService, "minRemainingMinutes", 10);
+        ReflectionTestUtils.setField(mediaUrlService, "cacheSize", 100L);
+        mediaUrlService.createCache();
+
+        Map<String, String> urls = mediaUrlService.getDownloadUrls(Arrays.asList("a.pdf", "b.pdf", "a.pdf", null));
+        String again = mediaUrlService.getDownloadUrl("a.pdf");
+
+        assertEquals(2, urls.size());
+        assertTrue(urls.get("a.pdf").contains("X-Amz-Signature"));
+        assertTrue(urls.get("a.pdf").contains("X-Amz-Expires=3600"));
+        assertEquals(urls.get("a.pdf"), again);
+        verify(s3Presigner, times(2)).presignGetObject(any(GetObjectPresignRequest.class));
+        verifyNoInteractions(s3Client);
+    }
+
+    @Test
+    void smallFileIsStreamedInOnePutWithItsMd5() throws Exception {
+        byte[] content = "small file".getBytes(StandardCharsets.UTF_8);
+        List<byte[]> bodies = new ArrayList<>();
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            bodies.add(read(invocation.getArgument(1)));
+            return PutObjectResponse.builder().build();
+        });
+
+        String s3Key = upload(content);
+
+        ArgumentCaptor<PutObjectRequest> captor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3Client).putObject(captor.capture(), any(RequestBody.class));
+        PutObjectRequest request = captor.getValue();
+        assertEquals(s3Key, request.key());
+        assertEquals(content.length, request.contentLength());
+        assertEquals(md5(content), request.contentMD5());
+        assertArrayEquals(content, bodies.get(0));
+        verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void largeFileIsSentInPartsAndCompletedInOrder() throws Exception {
+        byte[] content = "0123456789ab".getBytes(StandardCharsets.UTF_8);
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+            .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        Map<Integer, byte[]> bodies = new ConcurrentHashMap<>();
+        Map<Integer, String> md5s = new ConcurrentHashMap<>();
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            bodies.put(request.partNumber(), read(invocation.getArgument(1)));
+            md5s.put(request.partNumber(), request.contentMD5());
+            return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+        });
+
+        upload(content);
+
+        assertEquals(3, bodies.size());
+        assertEquals("0123", new String(bodies.get(1), StandardCharsets.UTF_8));
+        assertEquals("4567", new String(bodies.get(2), StandardCharsets.UTF_8));
+        assertEquals("89ab", new String(bodies.get(3), StandardCharsets.UTF_8));
+        for (Map.Entry<Integer, byte[]> body : bodies.entrySet()) {
+            assertEquals(md5(body.getValue()), md5s.get(body.getKey()));
+        }
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> captor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(captor.capture());
+        CompleteMultipartUploadRequest complete = captor.getValue();
+        assertEquals("upload-1", complete.uploadId());
+        assertEquals(Arrays.asList(1, 2, 3),
+            complete.multipartUpload().parts().stream().map(CompletedPart::partNumber).toList());
+        assertEquals("etag-2", complete.multipartUpload().parts().get(1).eTag());
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void failedPartAbortsTheUpload() {
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+            .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-2").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+            .thenThrow(S3Exception.builder().message("BadDigest").build());
+
+        assertThrows(IOException.class, () -> upload("0123456789ab".getBytes(StandardCharsets.UTF_8)));
+
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void uploadBeyondTheNodeLimitIsRejected() throws Exception {
+        CountDownLatch uploading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            uploading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return PutObjectResponse.builder().build();
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(() -> upload("first".getBytes(StandardCharsets.UTF_8)));
+            assertTrue(uploading.await(5, TimeUnit.SECONDS));
+
+            assertThrows(UploadCapacityExceededException.class, () -> upload("second".getBytes(StandardCharsets.UTF_8)));
+
+            release.countDown();
+            assertNotNull(first.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String upload(byte[] content) throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "answer.mp3", "audio/mpeg", content);
+        return s3StorageService.uploadFile(file, "C1", "U1", "P1", "S1", "UN1", "SC1", "submitted");
+    }
+
+    private static byte[] read(RequestBody body) throws IOException {
+        try (InputStream in = body.contentStreamProvider().newStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static String md5(byte[] content) throws Exception {
+        return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(content));
+    }
+}
@@ -0,0 +1,126 @@
+package com.mindfultalk.growthlab.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link UnitUnlockState} against the per-subconcept walk it replaced in
+ * ProgramConceptsMappingServiceImpl.getProgramConceptsMappingByUnitId
+ */
+class UnitUnlockStateTest {
+
+    @Test
+    void firstUnfinishedSubconceptIsTheNextOne() {
+        UnitUnlockState state = UnitUnlockState.calculate(
+            new boolean[] {false, false, false, false},
+            new boolean[] {true, false, false, true});
+
+        assertEquals(Arrays.asList("yes", "incomplete", "disabled", "yes"), state.getStatuses());
+        assertEquals("no", state.getUnitCompletionStatus());
+    }
+
+    @Test
+    void assignmentCanBeSkippedOnceItsSegmentIsDone() {
+        // concept, concept, assignment, concept, assignment
+        boolean[] assignment = {false, false, true, false, true};
+
+        UnitUnlockState partway = UnitUnlockState.calculate(assignment, new boolean[] {true, false, false, false, false});
+        assertEquals(Arrays.asList("yes", "incomplete", "disabled", "disabled", "disabled"), partway.getStatuses());
+
+        UnitUnlockState done = UnitUnlockState.calculate(assignment, new boolean[] {true, true, false, true, false});
+        assertEquals(Arrays.asList("yes", "yes", "ignored", "yes", "ignored"), done.getStatuses());
+        assertTrue(done.hasPendingAssignments());
+        assertEquals("Unit Completed without Assignments", done.getUnitCompletionStatus());
+        assertEquals(3, done.getSubconceptCount());
+    }
+
+    @Test
+    void matchesThePreviousWalkOnRandomUnits() {
+        Random random = new Random(42);
+        for (int run = 0; run < 2000; run++) {
+            int size = 10 + random.nextInt(491);
+            boolean[] assignment = new boolean[size];
+            boolean[] completed = new boolean[size];
+            double assignmentShare = random.nextDouble() * 0.4;
+            double completedShare = random.nextDouble();
+            for (int i = 0; i < size; i++) {
+                assignment[i] = random.nextDouble() < assignmentShare;
+                completed[i] = random.nextDouble() < completedShare;
+            }
+
+            UnitUnlockState state = UnitUnlockState.calculate(assignment, completed);
+            Previous expected = Previous.walk(assignment, completed);
+
+            assertEquals(expected.statuses, state.getStatuses(), "run " + run);
+            assertEquals(expected.unitCompletionStatus, state.getUnitCompletionStatus(), "run " + run);
+        }
+    }
+
+    /**
+     * The previous algorithm, kept as written apart from working on flags
+     */
+    private static final class Previous {
+
+        private final List<String> statuses = new ArrayList<>();
+        private String unitCompletionStatus;
+
+        static Previous walk(boolean[] assignment, boolean[] completed) {
+            Previous result = new Previous();
+            boolean hasPendingAssignments = false;
+            boolean enableNextSubconcept = true;
+            for (int currentIndex = 0; currentIndex < assignment.length; currentIndex++) {
+                if (completed[currentIndex]) {
+                    result.statuses.add("yes");
+                    if (!assignment[currentIndex]) {
+                        enableNextSubconcept = true;
+                    }
+                } else if (assignment[currentIndex]) {
+                    boolean prevConceptsCompleted = true;
+                    int prevAssignmentIndex = -1;
+                    for (int i = currentIndex - 1; i >= 0; i--) {
+                        if (assignment[i]) {
+                            prevAssignmentIndex = i;
+                            break;
+                        }
+                    }
+                    for (int i = prevAssignmentIndex + 1; i < currentIndex; i++) {
+                        if (!assignment[i] && !completed[i]) {
+                            prevConceptsCompleted = false;
+                            break;
+                        }
+                    }
+                    if (prevConceptsCompleted) {
+                        result.statuses.add("ignored");
+                        hasPendingAssignments = true;
+                    } else {
+                        result.statuses.add("disabled");
+                    }
+                } else if (enableNextSubconcept) {
+                    result.statuses.add("incomplete");
+                    enableNextSubconcept = false;
+                } else {
+                    result.statuses.add("disabled");
+                }
+            }
+
+            long total = 0;
+            long done = 0;
+            for (int i = 0; i < assignment.length; i++) {
+                if (!assignment[i]) {
+                    total++;
+                    if (completed[i]) {
+                        done++;
+                    }
+                }
+            }
+            result.unitCompletionStatus = "no";
+            if (done == total) {
+                result.unitCompletionStatus = hasPendingAssignments ? "Unit Completed without Assignments" : "yes";
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.mindfultalk.growthlab.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.*;
+import java.util.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import com.mindfultalk.growthlab.model.*;
+import com.mindfultalk.growthlab.repository.*;
+
+/**
+ * Claiming and applying outbox entries against H2, with the cache, session and leaderboard
+ * services mocked
+ */
+@DataJpaTest
+@Import(UserAttemptBatchApplier.class)
+class UserAttemptBatchApplierTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private UserAttemptBatchApplier userAttemptBatchApplier;
+
+    @Autowired
+    private UserAttemptOutboxRepository userAttemptOutboxRepository;
+
+    @Autowired
+    private UserAttemptsRepository userAttemptsRepository;
+
+    @Autowired
+    private UserSubConceptRepository userSubConceptRepository;
+
+    @MockBean
+    private CacheManagementService cacheManagementService;
+
+    @MockBean
+    private SessionActivityService sessionActivityService;
+
+    @MockBean
+    private LeaderboardService leaderboardService;
+
+    private User user;
+    private Program program;
+    private Stage stage;
+    private Unit unit;
+    private Subconcept subconcept;
+    private Cohort cohort;
+    private UserSessionMapping session;
+
+    @BeforeEach
+    void seed() {
+        Organization organization = new Organization();
+        organization.setOrganizationName("Outbox Org");
+        organization.setOrganizationAdminName("Admin");
+        organization.setOrganizationAdminEmail("admin@example.com");
+        organization.setOrganizationAdminPhone("9999999999");
+        organization.setOrgPassword("secret");
+        em.persist(organization);
+
+        program = new Program();
+        program.setProgramId("P1");
+        program.setProgramName("Program One");
+        em.persist(program);
+
+        stage = new Stage();
+        stage.setStageId("P1-S1");
+        stage.setStageName("Stage One");
+        stage.setProgram(program);
+        em.persist(stage);
+
+        unit = new Unit();
+        unit.setUnitId("P1-S1-U1");
+        unit.setUnitName("Unit One");
+        unit.setProgram(program);
+        unit.setStage(stage);
+        em.persist(unit);
+
+        subconcept = new Subconcept();
+        subconcept.setSubconceptId("SC1");
+        subconcept.setSubconceptDesc("Read a passage");
+        subconcept.setSubconceptType("passage_read");
+        subconcept.setSubconceptLink("https://example.com/sc1");
+        subconcept.setSubconceptMaxscore(10);
+        subconcept.setSubconceptDuration(5);
+        em.persist(subconcept);
+
+        cohort = new Cohort();
+        cohort.setCohortId("COH-1");
+        cohort.setCohortName("Cohort One");
+        cohort.setOrganization(organization);
+        em.persist(cohort);
+
+        user = new User();
+        user.setUserId("user-1");
+        user.setUserName("Learner One");
+        user.setUserPassword("secret");
+        user.setUserType("learner");
+        user.setOrganization(organization);
+        em.persist(user);
+
+        UserCohortMapping mapping = new UserCohortMapping();
+        mapping.setUser(user);
+        mapping.setCohort(cohort);
+        em.persist(mapping);
+
+        session = new UserSessionMapping();
+        session.setUser(user);
+        session.setCohort(cohort);
+        em.persist(session);
+        em.flush();
+    }
+
+    @Test
+    void claimsTheOldestPendingEntriesUpToTheBatchSize() {
+        List<UserAttemptOutbox> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            entries.add(queue(UUID.randomUUID(), 2));
+        }
+
+        List<Long> claimedIds = new ArrayList<>();
+        assertEquals(3, userAttemptBatchApplier.applyPending(3, claimedIds));
+        assertEquals(entries.subList(0, 3).stream().map(UserAttemptOutbox::getId).toList(), claimedIds);
+        assertEquals(2, userAttemptOutboxRepository.countByStatus(UserAttemptOutbox.STATUS_PENDING));
+
+        claimedIds.clear();
+        assertEquals(2, userAttemptBatchApplier.applyPending(3, claimedIds));
+        assertEquals(0, userAttemptOutboxRepository.countByStatus(UserAttemptOutbox.STATUS_PENDING));
+        assertEquals(5, userAttemptsRepository.count());
+    }
+
+    @Test
+    void entriesAlreadyStoredAreOnlyMarkedApplied() {
+        UserAttemptOutbox entry = queue(UUID.randomUUID(), 4);
+        assertEquals(1, userAttemptBatchApplier.applyPending(10, new ArrayList<>()));
+
+        // The same entry back to pending, as after a crash between storing and marking it
+        entry.setStatus(UserAttemptOutbox.STATUS_PENDING);
+        em.persistAndFlush(entry);
+        assertEquals(1, userAttemptBatchApplier.applyPending(10, new ArrayList<>()));
+
+        assertEquals(1, userAttemptsRepository.count());
+        assertEquals(UserAttemptOutbox.STATUS_APPLIED,
+            userAttemptOutboxRepository.findById(entry.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void oneCompletionPerSubconceptAndExistingOnesAreMarkedCompleted() {
+        queue(UUID.randomUUID(), 3);
+        queue(UUID.randomUUID(), 5);
+        userAttemptBatchApplier.applyPending(10, new ArrayList<>());
+        assertEquals(1, userSubConceptRepository.count());
+
+        // Loaded again the completion status reads false; a new attempt sets it like the sync path
+        em.clear();
+        queue(UUID.randomUUID(), 1);
+        userAttemptBatchApplier.applyPending(10, new ArrayList<>());
+        List<UserSubConcept> completions = userSubConceptRepository
+            .findByUser_UserIdInAndSubconcept_SubconceptIdIn(Set.of("user-1"), Set.of("SC1"));
+        assertEquals(1, completions.size());
+        assertTrue(completions.get(0).isCompletionStatus());
+    }
+
+    @Test
+    void failedEntryIsNotClaimedAgainUntilItsBackoffHasPassed() {
+        UserAttemptOutbox failing = queue(UUID.randomUUID(), 2);
+        UserAttemptOutbox next = queue(UUID.randomUUID(), 3);
+
+        userAttemptBatchApplier.markFailed(failing.getId(), "lock timeout", 5, 60000L, 600000L);
+        List<Long> claimedIds = new ArrayList<>();
+        assertEquals(1, userAttemptBatchApplier.applyPending(10, claimedIds));
+        assertEquals(List.of(next.getId()), claimedIds);
+
+        UserAttemptOutbox waiting = userAttemptOutboxRepository.findById(failing.getId()).orElseThrow();
+        assertEquals(UserAttemptOutbox.STATUS_PENDING, waiting.getStatus());
+        assertEquals(1, waiting.getRetryCount());
+        assertTrue(waiting.getNextAttemptAt().isAfter(OffsetDateTime.now().plusSeconds(50)));
+
+        // Once due it is claimed like any other entry
+        waiting.setNextAttemptAt(OffsetDateTime.now().minusSeconds(1));
+        em.persistAndFlush(waiting);
+        assertEquals(1, userAttemptBatchApplier.applyPending(10, new ArrayList<>()));
+        assertEquals(2, userAttemptsRepository.count());
+    }
+
+    private UserAttemptOutbox queue(UUID uuid, int score) {
+        LocalDateTime end = LocalDateTime.now(ZoneOffset.UTC);
+        UserAttemptOutbox entry = new UserAttemptOutbox();
+        entry.setUuid(uuid);
+        entry.setUserId(user.getUserId());
+        entry.setProgramId(program.getProgramId());
+        entry.setStageId(stage.getStageId());
+        entry.setUnitId(unit.getUnitId());
+        entry.setSubconceptId(subconcept.getSubconceptId());
+        entry.setSessionId(session.getSessionId());
+        entry.setCohortId(cohort.getCohortId());
+        entry.setUserAttemptScore(score);
+        entry.setUserAttemptFlag(true);
+        entry.setUserAttemptStartTimestamp(end.minusMinutes(2).atOffset(ZoneOffset.UTC));
+        entry.setUserAttemptEndTimestamp(end.atOffset(ZoneOffset.UTC));
+        return userAttemptOutboxRepository.saveAndFlush(entry);
+    }
+}
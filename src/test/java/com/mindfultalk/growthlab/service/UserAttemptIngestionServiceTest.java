@@ -0,0 +1,133 @@
+package com.mindfultalk.growthlab.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mindfultalk.growthlab.dto.UserAttemptRequestDTO;
+import com.mindfultalk.growthlab.model.UserAttemptOutbox;
+import com.mindfultalk.growthlab.repository.*;
+
+/**
+ * Enqueueing into the outbox and the drain loop of {@link UserAttemptIngestionService}, with the
+ * repositories and the batch applier mocked
+ */
+class UserAttemptIngestionServiceTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    private UserAttemptOutboxRepository outboxRepository;
+    private UserAttemptBatchApplier batchApplier;
+    private UserAttemptIngestionService ingestionService;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(UserAttemptOutboxRepository.class);
+        batchApplier = mock(UserAttemptBatchApplier.class);
+
+        CurriculumGraph graph = mock(CurriculumGraph.class);
+        CurriculumGraph.UnitNode unit = mock(CurriculumGraph.UnitNode.class);
+        CurriculumGraph.StageNode stage = mock(CurriculumGraph.StageNode.class);
+        when(graph.findUnit("P1-S1-U1")).thenReturn(Optional.of(unit));
+        when(graph.getStage(unit)).thenReturn(stage);
+        when(stage.getStageId()).thenReturn("P1-S1");
+        CurriculumGraphService curriculumGraphService = mock(CurriculumGraphService.class);
+        when(curriculumGraphService.findGraph("P1")).thenReturn(Optional.of(graph));
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.existsById(anyString())).thenReturn(true);
+        UserSessionMappingRepository sessionRepository = mock(UserSessionMappingRepository.class);
+        when(sessionRepository.existsById(anyString())).thenReturn(true);
+        SubconceptRepository subconceptRepository = mock(SubconceptRepository.class);
+        when(subconceptRepository.existsById(anyString())).thenReturn(true);
+
+        ingestionService = new UserAttemptIngestionService();
+        ReflectionTestUtils.setField(ingestionService, "userAttemptOutboxRepository", outboxRepository);
+        ReflectionTestUtils.setField(ingestionService, "userAttemptBatchApplier", batchApplier);
+        ReflectionTestUtils.setField(ingestionService, "curriculumGraphService", curriculumGraphService);
+        ReflectionTestUtils.setField(ingestionService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(ingestionService, "userSessionMappingRepository", sessionRepository);
+        ReflectionTestUtils.setField(ingestionService, "subconceptRepository", subconceptRepository);
+        ReflectionTestUtils.setField(ingestionService, "batchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(ingestionService, "maxRetries", 5);
+        ReflectionTestUtils.setField(ingestionService, "baseBackoffMs", 1000L);
+        ReflectionTestUtils.setField(ingestionService, "maxBackoffMs", 60000L);
+    }
+
+    @Test
+    void resendAcceptedConcurrentlyReturnsTheStoredEntry() {
+        UserAttemptRequestDTO request = request();
+        UserAttemptOutbox stored = new UserAttemptOutbox();
+        stored.setUuid(request.getUuid());
+        // Not there at the pre-check, inserted by the other request before this one's insert
+        when(outboxRepository.findByUuid(request.getUuid())).thenReturn(Optional.empty(), Optional.of(stored));
+        when(outboxRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate uuid"));
+
+        assertSame(stored, ingestionService.enqueue(request));
+    }
+
+    @Test
+    void constraintViolationOtherThanAResendIsRethrown() {
+        UserAttemptRequestDTO request = request();
+        when(outboxRepository.findByUuid(request.getUuid())).thenReturn(Optional.empty());
+        when(outboxRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("not null"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> ingestionService.enqueue(request));
+    }
+
+    @Test
+    void drainStopsAtTheFirstBatchThatIsNotFull() {
+        when(batchApplier.applyPending(eq(BATCH_SIZE), anyList())).thenReturn(BATCH_SIZE, BATCH_SIZE, 1);
+
+        ingestionService.drain();
+
+        verify(batchApplier, times(3)).applyPending(eq(BATCH_SIZE), anyList());
+        verify(batchApplier, never()).applyBatch(any());
+    }
+
+    @Test
+    void failedBatchIsRetriedEntryByEntryAndEndsTheRun() {
+        when(batchApplier.applyPending(eq(BATCH_SIZE), anyList()))
+            .thenAnswer(invocation -> {
+                List<Long> claimedIds = invocation.getArgument(1);
+                claimedIds.addAll(List.of(1L, 2L, 3L));
+                throw new IllegalStateException("Subconcept not found: SC9");
+            });
+        when(batchApplier.applyBatch(List.of(2L))).thenThrow(new IllegalStateException("Subconcept not found: SC9"));
+
+        ingestionService.drain();
+
+        verify(batchApplier).applyBatch(List.of(1L));
+        verify(batchApplier).applyBatch(List.of(3L));
+        verify(batchApplier).markFailed(2L, "Subconcept not found: SC9", 5, 1000L, 60000L);
+        verify(batchApplier, never()).markFailed(eq(1L), any(), anyInt(), anyLong(), anyLong());
+        // The failed batch was full, but the failed entry waits out its backoff until a later run
+        verify(batchApplier, times(1)).applyPending(eq(BATCH_SIZE), anyList());
+    }
+
+    private static UserAttemptRequestDTO request() {
+        LocalDateTime end = LocalDateTime.now();
+        UserAttemptRequestDTO request = new UserAttemptRequestDTO();
+        request.setUuid(UUID.randomUUID());
+        request.setUserId("user-1");
+        request.setProgramId("P1");
+        request.setStageId("P1-S1");
+        request.setUnitId("P1-S1-U1");
+        request.setSubconceptId("SC1");
+        request.setSessionId("session-1");
+        request.setCohortId("COH-1");
+        request.setUserAttemptScore(5);
+        request.setUserAttemptFlag(true);
+        request.setUserAttemptStartTimestamp(end.minusMinutes(2));
+        request.setUserAttemptEndTimestamp(end);
+        return request;
+    }
+}
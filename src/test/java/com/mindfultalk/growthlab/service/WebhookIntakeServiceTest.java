@@ -0,0 +1,119 @@
+package com.mindfultalk.growthlab.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import com.mindfultalk.growthlab.model.PaymentEvent;
+import com.mindfultalk.growthlab.repository.PaymentEventRepository;
+
+/**
+ * Intake, per-payment ordering and retries of webhook events against H2, with the webhook
+ * handling itself mocked. Groups are processed on the test thread instead of the worker pool.
+ */
+@DataJpaTest
+@Import({WebhookIntakeService.class, WebhookEventProcessor.class})
+class WebhookIntakeServiceTest {
+
+    @Autowired
+    private WebhookIntakeService webhookIntakeService;
+
+    @Autowired
+    private WebhookEventProcessor webhookEventProcessor;
+
+    @Autowired
+    private PaymentEventRepository paymentEventRepository;
+
+    @MockBean
+    private WebhookService webhookService;
+
+    @Test
+    void redeliveredEventIsDropped() {
+        assertTrue(webhookIntakeService.accept(event("payment.captured", "pay_1"), "evt_1"));
+        assertFalse(webhookIntakeService.accept(event("payment.captured", "pay_1"), "evt_1"));
+
+        assertEquals(1, paymentEventRepository.count());
+    }
+
+    @Test
+    void laterEventOfAPaymentWaitsBehindAnEarlierOne() {
+        Long authorized = queue("payment.authorized", "pay_1", "evt_1");
+        Long captured = queue("payment.captured", "pay_1", "evt_2");
+
+        assertFalse(webhookEventProcessor.process(captured));
+        verify(webhookService, never()).processWebhookEvent(any(), any());
+
+        webhookIntakeService.processGroup(List.of(authorized, captured), new AtomicInteger());
+        InOrder inOrder = inOrder(webhookService);
+        inOrder.verify(webhookService).processWebhookEvent(eq("payment.authorized"), any(JSONObject.class));
+        inOrder.verify(webhookService).processWebhookEvent(eq("payment.captured"), any(JSONObject.class));
+        assertEquals(PaymentEvent.PROCESSING_PROCESSED, paymentEventRepository.findById(captured).orElseThrow().getProcessingStatus());
+    }
+
+    @Test
+    void failedEventBacksOffAndHoldsBackItsPayment() {
+        Long authorized = queue("payment.authorized", "pay_1", "evt_1");
+        Long captured = queue("payment.captured", "pay_1", "evt_2");
+        Long other = queue("payment.captured", "pay_2", "evt_3");
+        doThrow(new IllegalStateException("database down"))
+            .when(webhookService).processWebhookEvent(eq("payment.authorized"), any());
+
+        webhookIntakeService.processGroup(List.of(authorized, captured), new AtomicInteger());
+
+        PaymentEvent failed = paymentEventRepository.findById(authorized).orElseThrow();
+        assertEquals(PaymentEvent.PROCESSING_PENDING, failed.getProcessingStatus());
+        assertEquals(1, failed.getRetryCount());
+        assertTrue(failed.getNextAttemptAt().isAfter(OffsetDateTime.now().plusSeconds(25)));
+        verify(webhookService, never()).processWebhookEvent(eq("payment.captured"), any());
+
+        // Only the events that are due come back on the next poll, and the captured event still waits
+        List<Long> due = paymentEventRepository.findDueIdsAndPaymentIdsByProcessingStatus(
+            PaymentEvent.PROCESSING_PENDING, OffsetDateTime.now(), PageRequest.of(0, 10))
+            .stream().map(row -> (Long) row[0]).toList();
+        assertEquals(List.of(captured, other), due);
+        assertFalse(webhookEventProcessor.process(captured));
+        assertTrue(webhookEventProcessor.process(other));
+    }
+
+    @Test
+    void laterEventsGoAheadOnceTheFailingOneIsGivenUp() {
+        Long authorized = queue("payment.authorized", "pay_1", "evt_1");
+        Long captured = queue("payment.captured", "pay_1", "evt_2");
+
+        for (int i = 0; i < 3; i++) {
+            webhookEventProcessor.markFailed(authorized, "database down", 3, 1000L, 60000L);
+        }
+
+        PaymentEvent failed = paymentEventRepository.findById(authorized).orElseThrow();
+        assertEquals(PaymentEvent.PROCESSING_FAILED, failed.getProcessingStatus());
+        assertEquals(3, failed.getRetryCount());
+        assertTrue(webhookEventProcessor.process(captured));
+    }
+
+    private Long queue(String eventType, String paymentId, String eventId) {
+        PaymentEvent event = event(eventType, paymentId);
+        assertTrue(webhookIntakeService.accept(event, eventId));
+        return event.getId();
+    }
+
+    private static PaymentEvent event(String eventType, String paymentId) {
+        PaymentEvent event = new PaymentEvent();
+        event.setEventType(eventType);
+        event.setPaymentId(paymentId);
+        event.setRawPayload(new JSONObject().put("event", eventType).toString());
+        return event;
+    }
+}